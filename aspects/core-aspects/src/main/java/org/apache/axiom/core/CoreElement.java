@@ -20,6 +20,8 @@ package org.apache.axiom.core;
 
 import java.util.Iterator;
 
+import org.apache.axiom.core.stream.source.SourceRange;
+
 public interface CoreElement extends CoreChildNode, CoreMixedContentContainer, CoreNamedNode {
     /**
      * Get the first attribute of this element.
@@ -155,4 +157,25 @@ public interface CoreElement extends CoreChildNode, CoreMixedContentContainer, C
     String coreLookupPrefix(String namespaceURI, Semantics semantics) throws CoreModelException;
     
     <T extends CoreElement> T corePromote(Class<T> type, Semantics semantics) throws CoreModelException;
+    
+    /**
+     * Set the range of the source document that contains the markup of this element. This method
+     * is used by the builder.
+     * 
+     * @param sourceRange
+     *            the source range
+     */
+    void coreSetSourceRange(SourceRange sourceRange);
+    
+    /**
+     * Get the range of the source document that contains the markup of this element, provided
+     * that this markup is still an accurate representation of the element, i.e. if neither the
+     * element nor its descendants have been modified and the namespace context defined by the
+     * ancestors is unchanged.
+     * 
+     * @return the source range, or <code>null</code> if the source document has not been
+     *         retained or the element has been modified; note that the source range may be
+     *         incomplete if the element is incomplete
+     */
+    SourceRange coreGetSourceRange();
 }
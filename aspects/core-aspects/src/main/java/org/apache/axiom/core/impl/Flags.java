@@ -20,6 +20,7 @@ package org.apache.axiom.core.impl;
 
 import org.apache.axiom.core.CoreCharacterDataNode;
 import org.apache.axiom.core.CoreChildNode;
+import org.apache.axiom.core.CoreElement;
 import org.apache.axiom.core.CoreParentNode;
 
 public final class Flags {
@@ -44,4 +45,21 @@ public final class Flags {
      * Used to store the information returned by {@link CoreCharacterDataNode#coreIsIgnorable()}.
      */
     public static final int IGNORABLE = 32;
+    
+    /**
+     * Used by {@link CoreElement} instances to indicate that the element or one of its
+     * descendants has been modified since the element was created by the builder. This flag is
+     * only maintained for the purpose of copying unmodified elements from the source document
+     * during serialization.
+     */
+    public static final int MODIFIED = 64;
+    
+    /**
+     * Used by {@link CoreElement} instances to indicate that the name, attributes or namespace
+     * declarations of the element have been modified, or that the element has been inserted
+     * into a new parent, since the element was created by the builder. Since the serialized form
+     * of the descendants of the element depends on the namespace context defined by the start
+     * tag, this also prevents the descendants from being copied from the source document.
+     */
+    public static final int START_TAG_MODIFIED = 128;
 }
@@ -32,6 +32,8 @@ import org.apache.axiom.core.stream.StreamException;
 import org.apache.axiom.core.stream.XmlHandler;
 import org.apache.axiom.core.stream.XmlInput;
 import org.apache.axiom.core.stream.XmlReader;
+import org.apache.axiom.core.stream.source.SourceCopyingHandler;
+import org.apache.axiom.core.stream.source.SourceRange;
 
 public final class TreeWalkerImpl implements XmlReader {
     private static final int STATE_NONE = 0;
@@ -77,10 +79,24 @@ public final class TreeWalkerImpl implements XmlReader {
     
     private static final int STATE_ATTRIBUTE = 8;
     
+    /**
+     * Indicates that the current node is an element whose markup has been copied from the source
+     * document. This state is only reachable if {@link #copySource} is <code>true</code>.
+     */
+    private static final int STATE_SOURCE_RANGE = 9;
+    
     private final XmlHandler handler;
     private final CoreParentNode root;
     private final boolean preserve;
     private final boolean incremental;
+    
+    /**
+     * Indicates whether unmodified elements should be copied from the source document if
+     * possible. This is only supported if the handler implements {@link SourceCopyingHandler}
+     * and the root node is a document (so that the namespace context of each element is
+     * determined by its ancestors).
+     */
+    private final boolean copySource;
     private CoreNode node;
     
     /**
@@ -96,6 +112,36 @@ public final class TreeWalkerImpl implements XmlReader {
         this.root = root;
         this.preserve = preserve;
         this.incremental = incremental;
+        copySource = handler instanceof SourceCopyingHandler && root instanceof CoreDocument;
+    }
+    
+    /**
+     * Attempt to copy the markup of an element from the source document.
+     * 
+     * @param element
+     *            the element
+     * @return <code>true</code> if the markup has been copied, <code>false</code> if events need
+     *         to be generated for the element
+     */
+    private boolean copySourceRange(CoreElement element) throws CoreModelException, StreamException {
+        SourceRange range = element.coreGetSourceRange();
+        if (range == null) {
+            return false;
+        }
+        int nodeState = element.getState();
+        if (nodeState == CoreParentNode.INCOMPLETE && preserve) {
+            // Building the element doesn't change the outcome of the serialization, but if it
+            // turns out that the markup can't be copied, we still need to be able to generate
+            // the events. Therefore this is not done if preserve is false.
+            element.coreBuild();
+            range = element.coreGetSourceRange();
+            if (range == null) {
+                return false;
+            }
+        } else if (nodeState != CoreParentNode.COMPLETE && nodeState != CoreParentNode.COMPACT) {
+            return false;
+        }
+        return range.isComplete() && ((SourceCopyingHandler)handler).copySourceRange(range);
     }
     
     @Override
@@ -211,7 +257,9 @@ public final class TreeWalkerImpl implements XmlReader {
             // More closely examine the case where we move to a node that has not
             // been visited yet. It may be a sourced element or a leaf node
             if (state == STATE_NOT_VISITED) {
-                if (nextNode instanceof CoreNSAwareElement) {
+                if (copySource && nextNode instanceof CoreElement && copySourceRange((CoreElement)nextNode)) {
+                    state = STATE_SOURCE_RANGE;
+                } else if (nextNode instanceof CoreNSAwareElement) {
                     XmlInput input = ((CoreNSAwareElement)nextNode).getXmlInput(preserve, incremental);
                     if (input != null) {
                         reader = input.createReader(new DocumentElementExtractingFilterHandler(handler));
@@ -255,6 +303,9 @@ public final class TreeWalkerImpl implements XmlReader {
                     }
                     break;
                 }
+                case STATE_SOURCE_RANGE:
+                    // The markup has already been copied by copySourceRange
+                    break;
                 case STATE_STREAMING:
                     if (reader.proceed()) {
                         state = STATE_VISITED;
@@ -39,6 +39,7 @@ import org.apache.axiom.core.InputContext;
 import org.apache.axiom.core.stream.NullXmlHandler;
 import org.apache.axiom.core.stream.StreamException;
 import org.apache.axiom.core.stream.XmlHandler;
+import org.apache.axiom.core.stream.source.SourceRange;
 
 final class BuildableContext extends Context implements InputContext {
     private final Context parentContext;
@@ -99,11 +100,7 @@ final class BuildableContext extends Context implements InputContext {
         target.coreSetState(CoreParentNode.COMPLETE);
         target.coreSetInputContext(null);
         if (pendingCharacterData != null) {
-            try {
-                target.coreSetCharacterData(pendingCharacterData, null);
-            } catch (CoreModelException ex) {
-                throw new CoreModelStreamException(ex);
-            }
+            target.internalSetCharacterData(pendingCharacterData);
             pendingCharacterData = null;
         }
         target = null;
@@ -202,6 +199,13 @@ final class BuildableContext extends Context implements InputContext {
         }
     }
 
+    @Override
+    void processSourceRange(SourceRange range) {
+        if (passThroughHandler == null) {
+            ((CoreElement)target).coreSetSourceRange(range);
+        }
+    }
+
     @Override
     void processAttribute(String namespaceURI, String localName, String prefix, String value, String type, boolean specified) throws StreamException {
         if (passThroughHandler != null) {
@@ -30,8 +30,10 @@ import org.apache.axiom.core.DeferredParsingException;
 import org.apache.axiom.core.NodeFactory;
 import org.apache.axiom.core.stream.StreamException;
 import org.apache.axiom.core.stream.XmlHandler;
+import org.apache.axiom.core.stream.source.SourceRange;
+import org.apache.axiom.core.stream.source.SourceTrackingHandler;
 
-final class BuilderHandler implements XmlHandler {
+final class BuilderHandler implements SourceTrackingHandler {
     final NodeFactory nodeFactory;
     final Model model;
     final Builder builder;
@@ -52,6 +54,12 @@ final class BuilderHandler implements XmlHandler {
     
     private ArrayList<BuilderListener> listeners;
     private Queue<Runnable> deferredActions;
+    
+    /**
+     * Handler that receives a copy of all events processed by this handler, or <code>null</code>.
+     */
+    private XmlHandler monitor;
+    private boolean elementStarted;
 
     BuilderHandler(NodeFactory nodeFactory, Model model, CoreNSAwareElement root, Builder builder) {
         this.nodeFactory = nodeFactory;
@@ -84,6 +92,13 @@ final class BuilderHandler implements XmlHandler {
         }
     }
 
+    void setMonitor(XmlHandler monitor) {
+        if (monitor != null && elementStarted) {
+            throw new IllegalStateException("The builder has already started building elements");
+        }
+        this.monitor = monitor;
+    }
+    
     private void scheduleDeferredAction(Runnable action) {
         if (deferredActions == null) {
             deferredActions = new LinkedList<Runnable>();
@@ -135,83 +150,144 @@ final class BuilderHandler implements XmlHandler {
     }
     
     @Override
-    public void startDocument(String inputEncoding, String xmlVersion, String xmlEncoding, Boolean standalone) {
+    public void startDocument(String inputEncoding, String xmlVersion, String xmlEncoding, Boolean standalone) throws StreamException {
         context.startDocument(inputEncoding, xmlVersion, xmlEncoding, standalone);
+        if (monitor != null) {
+            monitor.startDocument(inputEncoding, xmlVersion, xmlEncoding, standalone);
+        }
     }
     
     @Override
     public void startFragment() throws StreamException {
         context.startFragment();
+        if (monitor != null) {
+            monitor.startFragment();
+        }
     }
 
     public void processDocumentTypeDeclaration(String rootName, String publicId, String systemId,
             String internalSubset) throws StreamException {
         context.processDocumentTypeDeclaration(rootName, publicId, systemId, internalSubset);
+        if (monitor != null) {
+            monitor.processDocumentTypeDeclaration(rootName, publicId, systemId, internalSubset);
+        }
     }
     
     public void startElement(String namespaceURI, String localName, String prefix) throws StreamException {
         depth++;
+        elementStarted = true;
         context = context.startElement(namespaceURI, localName, prefix);
+        if (monitor != null) {
+            monitor.startElement(namespaceURI, localName, prefix);
+        }
     }
     
     public void endElement() throws StreamException {
         context = context.endElement();
         depth--;
+        if (monitor != null) {
+            monitor.endElement();
+        }
+    }
+
+    @Override
+    public void processSourceRange(SourceRange range) throws StreamException {
+        // Source ranges are only useful for documents; the content of an element built by
+        // unwrapping (e.g. an OMSourcedElement) doesn't belong to the document it is part of.
+        if (!(rootContext instanceof UnwrappingContext)) {
+            context.processSourceRange(range);
+        }
     }
 
     public void processAttribute(String namespaceURI, String localName, String prefix, String value, String type, boolean specified) throws StreamException {
         context.processAttribute(namespaceURI, localName, prefix, value, type, specified);
+        if (monitor != null) {
+            monitor.processAttribute(namespaceURI, localName, prefix, value, type, specified);
+        }
     }
     
     @Override
     public void processAttribute(String name, String value, String type, boolean specified) throws StreamException {
         context.processAttribute(name, value, type, specified);
+        if (monitor != null) {
+            monitor.processAttribute(name, value, type, specified);
+        }
     }
     
     public void processNamespaceDeclaration(String prefix, String namespaceURI) throws StreamException {
         context.processNamespaceDeclaration(prefix, namespaceURI);
+        if (monitor != null) {
+            monitor.processNamespaceDeclaration(prefix, namespaceURI);
+        }
     }
     
     public void attributesCompleted() throws StreamException {
         context.attributesCompleted();
+        if (monitor != null) {
+            monitor.attributesCompleted();
+        }
     }
     
     public void processCharacterData(Object data, boolean ignorable) throws StreamException {
         context.processCharacterData(data, ignorable);
+        if (monitor != null) {
+            monitor.processCharacterData(data, ignorable);
+        }
     }
     
     @Override
     public void startProcessingInstruction(String target) throws StreamException {
         context = context.startProcessingInstruction(target);
+        if (monitor != null) {
+            monitor.startProcessingInstruction(target);
+        }
     }
 
     @Override
     public void endProcessingInstruction() throws StreamException {
         context = context.endProcessingInstruction();
+        if (monitor != null) {
+            monitor.endProcessingInstruction();
+        }
     }
 
     @Override
     public void startComment() throws StreamException {
         context = context.startComment();
+        if (monitor != null) {
+            monitor.startComment();
+        }
     }
 
     @Override
     public void endComment() throws StreamException {
         context = context.endComment();
+        if (monitor != null) {
+            monitor.endComment();
+        }
     }
     
     @Override
     public void startCDATASection() throws StreamException {
         context = context.startCDATASection();
+        if (monitor != null) {
+            monitor.startCDATASection();
+        }
     }
 
     @Override
     public void endCDATASection() throws StreamException {
         context = context.endCDATASection();
+        if (monitor != null) {
+            monitor.endCDATASection();
+        }
     }
     
     public void processEntityReference(String name, String replacementText) throws StreamException {
         context.processEntityReference(name, replacementText);
+        if (monitor != null) {
+            monitor.processEntityReference(name, replacementText);
+        }
     }
     
     public void completed() throws StreamException {
@@ -221,6 +297,9 @@ final class BuilderHandler implements XmlHandler {
         context.completed();
         context = null;
         done = true;
+        if (monitor != null) {
+            monitor.completed();
+        }
     }
 
     @Override
@@ -24,6 +24,7 @@ import org.apache.axiom.core.CoreNSAwareElement;
 import org.apache.axiom.core.DeferredParsingException;
 import org.apache.axiom.core.NodeFactory;
 import org.apache.axiom.core.stream.StreamException;
+import org.apache.axiom.core.stream.XmlHandler;
 import org.apache.axiom.core.stream.XmlInput;
 import org.apache.axiom.core.stream.XmlReader;
 
@@ -42,6 +43,19 @@ public final class BuilderImpl implements Builder {
         builderHandler.addListener(listener);
     }
     
+    /**
+     * Set a handler that receives a copy of the events processed by the builder. This can only be
+     * done before the builder has started building elements.
+     * 
+     * @param monitor
+     *            the handler, or <code>null</code> to remove the current handler
+     * @throws IllegalStateException
+     *             if the builder has already started building elements
+     */
+    public void setMonitor(XmlHandler monitor) {
+        builderHandler.setMonitor(monitor);
+    }
+    
     public Object getFacade() {
         return facade;
     }
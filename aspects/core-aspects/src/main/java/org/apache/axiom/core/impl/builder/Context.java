@@ -20,6 +20,7 @@ package org.apache.axiom.core.impl.builder;
 
 import org.apache.axiom.core.CoreParentNode;
 import org.apache.axiom.core.stream.StreamException;
+import org.apache.axiom.core.stream.source.SourceRange;
 
 abstract class Context {
     protected final BuilderHandler builderHandler;
@@ -52,6 +53,8 @@ abstract class Context {
     
     abstract Context endElement() throws StreamException;
     
+    abstract void processSourceRange(SourceRange range) throws StreamException;
+    
     abstract void processAttribute(String namespaceURI, String localName, String prefix, String value, String type, boolean specified) throws StreamException;
     
     abstract void processAttribute(String name, String value, String type, boolean specified) throws StreamException;
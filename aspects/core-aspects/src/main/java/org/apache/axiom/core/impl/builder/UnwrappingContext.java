@@ -21,6 +21,7 @@ package org.apache.axiom.core.impl.builder;
 import org.apache.axiom.core.CoreNSAwareElement;
 import org.apache.axiom.core.CoreParentNode;
 import org.apache.axiom.core.stream.StreamException;
+import org.apache.axiom.core.stream.source.SourceRange;
 
 final class UnwrappingContext extends Context {
     private final CoreNSAwareElement root;
@@ -64,6 +65,11 @@ final class UnwrappingContext extends Context {
         return null;
     }
 
+    @Override
+    void processSourceRange(SourceRange range) throws StreamException {
+        throw new IllegalStateException();
+    }
+
     @Override
     void processAttribute(String namespaceURI, String localName, String prefix, String value,
             String type, boolean specified) throws StreamException {
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.om.impl.common;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+
+import org.apache.axiom.core.CoreModelStreamException;
+import org.apache.axiom.core.stream.StreamException;
+import org.apache.axiom.core.stream.serializer.PullSerializer;
+import org.apache.axiom.om.OMException;
+
+/**
+ * {@link ReadableByteChannel} implementation returned by
+ * {@link org.apache.axiom.om.OMContainer#getReadableByteChannel(org.apache.axiom.om.OMOutputFormat, boolean)}.
+ */
+public final class SerializerChannel implements ReadableByteChannel {
+    private final PullSerializer serializer;
+    private boolean open = true;
+
+    public SerializerChannel(PullSerializer serializer) {
+        this.serializer = serializer;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        try {
+            return serializer.read(dst);
+        } catch (CoreModelStreamException ex) {
+            throw AxiomExceptionTranslator.translate(ex.getCoreModelException());
+        } catch (StreamException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            } else {
+                throw new OMException(ex);
+            }
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        if (open) {
+            open = false;
+            serializer.close();
+        }
+    }
+}
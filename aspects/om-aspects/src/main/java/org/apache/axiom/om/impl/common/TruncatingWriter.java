@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.om.impl.common;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * {@link Writer} that passes at most a given number of characters to the underlying writer and
+ * silently discards the rest. Used by
+ * {@link org.apache.axiom.om.OMContainer#serializeTruncated(Writer, org.apache.axiom.om.OMOutputFormat, int)}.
+ * A surrogate pair is never split, even if its two halves are passed in separate calls: a high
+ * surrogate at the end of a write operation is held back until the next character is accepted.
+ */
+public final class TruncatingWriter extends Writer {
+    private final Writer out;
+    private int remaining;
+    private boolean truncated;
+    
+    /**
+     * A high surrogate that has been accepted (i.e. counted against the limit), but not written
+     * yet because the corresponding low surrogate is expected in the next write operation, or 0 if
+     * there is no such character.
+     */
+    private char pendingHighSurrogate;
+
+    public TruncatingWriter(Writer out, int maxLength) {
+        this.out = out;
+        remaining = maxLength;
+    }
+
+    /**
+     * Determine if output has been discarded.
+     * 
+     * @return <code>true</code> if the limit has been exceeded
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Determine how many characters to write out of the given ones and update the state
+     * accordingly. If no character can be written, a pending high surrogate is discarded;
+     * otherwise it is written to the underlying writer. The caller is responsible for not
+     * splitting a surrogate pair.
+     */
+    private int accept(int length) throws IOException {
+        int count;
+        if (length <= remaining) {
+            remaining -= length;
+            count = length;
+        } else {
+            count = remaining;
+            remaining = 0;
+            truncated = true;
+        }
+        if (pendingHighSurrogate != 0) {
+            if (count > 0) {
+                out.write(pendingHighSurrogate);
+            }
+            pendingHighSurrogate = 0;
+        }
+        return count;
+    }
+
+    /**
+     * Process the last character of an accepted sequence. If it is a high surrogate, it is either
+     * discarded (if the low surrogate has been cut off) or held back.
+     * 
+     * @return <code>true</code> if the character has been handled and must not be written
+     */
+    private boolean holdBack(char c) {
+        if (!Character.isHighSurrogate(c)) {
+            return false;
+        }
+        if (!truncated) {
+            pendingHighSurrogate = c;
+        }
+        return true;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        if (accept(1) == 1 && !holdBack((char)c)) {
+            out.write(c);
+        }
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return;
+        }
+        int count = accept(len);
+        if (count > 0 && holdBack(cbuf[off+count-1])) {
+            count--;
+        }
+        if (count > 0) {
+            out.write(cbuf, off, count);
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        if (len == 0) {
+            return;
+        }
+        int count = accept(len);
+        if (count > 0 && holdBack(str.charAt(off+count-1))) {
+            count--;
+        }
+        if (count > 0) {
+            out.write(str, off, count);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
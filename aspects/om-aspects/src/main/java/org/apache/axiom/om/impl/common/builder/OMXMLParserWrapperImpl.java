@@ -29,8 +29,10 @@ import org.apache.axiom.om.ds.custombuilder.CustomBuilderSupport;
 import org.apache.axiom.om.ds.custombuilder.CustomBuilder.Selector;
 import org.apache.axiom.om.impl.common.AxiomExceptionTranslator;
 import org.apache.axiom.om.impl.intf.AxiomDocument;
+import org.apache.axiom.om.xpath.StreamingXPathMatcher;
+import org.apache.axiom.om.xpath.StreamingXPathSupport;
 
-public class OMXMLParserWrapperImpl implements OMXMLParserWrapper, CustomBuilderSupport {
+public class OMXMLParserWrapperImpl implements OMXMLParserWrapper, CustomBuilderSupport, StreamingXPathSupport {
     private final BuilderImpl builder;
     private final Detachable detachable;
     private final CustomBuilderManager customBuilderManager = new CustomBuilderManager();
@@ -47,6 +49,23 @@ public class OMXMLParserWrapperImpl implements OMXMLParserWrapper, CustomBuilder
         customBuilderManager.register(selector, customBuilder);
     }
     
+    @Override
+    public final void evaluate(StreamingXPathMatcher matcher) {
+        builder.setMonitor(new StreamingXPathHandler(matcher));
+        try {
+            while (!matcher.isComplete() && !builder.isCompleted()) {
+                builder.next();
+            }
+        } catch (CoreModelException ex) {
+            throw AxiomExceptionTranslator.translate(ex);
+        } finally {
+            builder.setMonitor(null);
+        }
+        if (!matcher.isComplete()) {
+            matcher.endDocument();
+        }
+    }
+    
     @Override
     public final boolean isCompleted() {
         return builder.isCompleted();
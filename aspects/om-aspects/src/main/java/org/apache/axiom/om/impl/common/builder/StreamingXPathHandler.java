@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.om.impl.common.builder;
+
+import org.apache.axiom.core.stream.StreamException;
+import org.apache.axiom.core.stream.XmlHandler;
+import org.apache.axiom.om.xpath.StreamingXPathMatcher;
+
+/**
+ * {@link XmlHandler} that feeds the events produced by the builder into a
+ * {@link StreamingXPathMatcher}.
+ */
+final class StreamingXPathHandler implements XmlHandler {
+    private final StreamingXPathMatcher matcher;
+    
+    /**
+     * Tracks whether the handler is inside a comment or processing instruction, so that their
+     * content is not mistaken for text.
+     */
+    private boolean inOtherNode;
+
+    StreamingXPathHandler(StreamingXPathMatcher matcher) {
+        this.matcher = matcher;
+    }
+
+    @Override
+    public void startDocument(String inputEncoding, String xmlVersion, String xmlEncoding,
+            Boolean standalone) throws StreamException {
+    }
+
+    @Override
+    public void startFragment() throws StreamException {
+    }
+
+    @Override
+    public void processDocumentTypeDeclaration(String rootName, String publicId, String systemId,
+            String internalSubset) throws StreamException {
+    }
+
+    @Override
+    public void startElement(String namespaceURI, String localName, String prefix)
+            throws StreamException {
+        matcher.startElement(namespaceURI, localName);
+    }
+
+    @Override
+    public void endElement() throws StreamException {
+        matcher.endElement();
+    }
+
+    @Override
+    public void processAttribute(String namespaceURI, String localName, String prefix,
+            String value, String type, boolean specified) throws StreamException {
+        matcher.processAttribute(namespaceURI, localName, value);
+    }
+
+    @Override
+    public void processAttribute(String name, String value, String type, boolean specified)
+            throws StreamException {
+    }
+
+    @Override
+    public void processNamespaceDeclaration(String prefix, String namespaceURI)
+            throws StreamException {
+    }
+
+    @Override
+    public void attributesCompleted() throws StreamException {
+        matcher.attributesCompleted();
+    }
+
+    @Override
+    public void processCharacterData(Object data, boolean ignorable) throws StreamException {
+        if (!inOtherNode) {
+            matcher.processCharacterData(data.toString());
+        }
+    }
+
+    @Override
+    public void startProcessingInstruction(String target) throws StreamException {
+        inOtherNode = true;
+        matcher.processOtherNode();
+    }
+
+    @Override
+    public void endProcessingInstruction() throws StreamException {
+        inOtherNode = false;
+    }
+
+    @Override
+    public void startComment() throws StreamException {
+        inOtherNode = true;
+        matcher.processOtherNode();
+    }
+
+    @Override
+    public void endComment() throws StreamException {
+        inOtherNode = false;
+    }
+
+    @Override
+    public void startCDATASection() throws StreamException {
+    }
+
+    @Override
+    public void endCDATASection() throws StreamException {
+    }
+
+    @Override
+    public void processEntityReference(String name, String replacementText)
+            throws StreamException {
+        if (replacementText != null) {
+            matcher.processCharacterData(replacementText);
+        }
+    }
+
+    @Override
+    public void completed() throws StreamException {
+        matcher.endDocument();
+    }
+
+    @Override
+    public boolean drain() throws StreamException {
+        return true;
+    }
+}
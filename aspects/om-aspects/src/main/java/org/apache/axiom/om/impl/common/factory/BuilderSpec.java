@@ -18,6 +18,7 @@
  */
 package org.apache.axiom.om.impl.common.factory;
 
+import java.io.BufferedInputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
@@ -37,7 +38,10 @@ import org.apache.axiom.core.stream.FilteredXmlInput;
 import org.apache.axiom.core.stream.NamespaceRepairingFilter;
 import org.apache.axiom.core.stream.XmlInput;
 import org.apache.axiom.core.stream.dom.DOMInput;
+import org.apache.axiom.core.stream.parser.XmlParserInput;
 import org.apache.axiom.core.stream.sax.SAXInput;
+import org.apache.axiom.core.stream.source.SourceRecordingReader;
+import org.apache.axiom.core.stream.source.SourceText;
 import org.apache.axiom.mime.MultipartBody;
 import org.apache.axiom.mime.Part;
 import org.apache.axiom.om.OMAttachmentAccessor;
@@ -45,8 +49,11 @@ import org.apache.axiom.om.OMException;
 import org.apache.axiom.om.impl.common.builder.Detachable;
 import org.apache.axiom.om.impl.stream.stax.pull.StAXPullInput;
 import org.apache.axiom.om.impl.stream.xop.XOPDecodingFilter;
+import org.apache.axiom.om.util.SourceRetainingParserConfiguration;
 import org.apache.axiom.om.util.StAXParserConfiguration;
 import org.apache.axiom.om.util.StAXUtils;
+import org.apache.axiom.om.util.SymbolTable;
+import org.apache.axiom.om.util.SymbolTableParserConfiguration;
 import org.apache.axiom.util.stax.XMLFragmentStreamReader;
 import org.apache.axiom.util.xml.stream.XMLEventUtils;
 import org.w3c.dom.Node;
@@ -63,9 +70,26 @@ final class BuilderSpec {
 
     private static BuilderSpec create(StAXParserConfiguration configuration,
             InputSource is, boolean makeDetachable) {
+        boolean retainSource = false;
+        SymbolTable symbolTable = null;
+        while (true) {
+            if (configuration instanceof SourceRetainingParserConfiguration) {
+                retainSource = true;
+                configuration = ((SourceRetainingParserConfiguration)configuration).getParent();
+            } else if (configuration instanceof SymbolTableParserConfiguration) {
+                SymbolTableParserConfiguration symbolTableConfiguration = (SymbolTableParserConfiguration)configuration;
+                if (symbolTable == null) {
+                    symbolTable = symbolTableConfiguration.getSymbolTable();
+                }
+                configuration = symbolTableConfiguration.getParent();
+            } else {
+                break;
+            }
+        }
         XMLStreamReader reader;
         Detachable detachable;
         Closeable closeable;
+        SourceText sourceText = null;
         try {
             if (is.getByteStream() != null) {
                 String systemId = is.getSystemId();
@@ -78,7 +102,30 @@ final class BuilderSpec {
                 } else {
                     detachable = null;
                 }
-                if (systemId != null) {
+                if (configuration == StAXParserConfiguration.NATIVE) {
+                    if (!in.markSupported()) {
+                        in = new BufferedInputStream(in);
+                    }
+                    XmlParserInput input = XmlParserInput.create(in, encoding);
+                    if (input != null) {
+                        // The parser has its own (per document) name table; a shared symbol table
+                        // needs to be applied explicitly
+                        return new BuilderSpec(
+                                symbolTable == null ? input : new FilteredXmlInput(input, new SymbolTableFilter(symbolTable)),
+                                detachable);
+                    }
+                }
+                SourceRecordingReader sourceRecordingReader = null;
+                if (retainSource && systemId == null) {
+                    if (!in.markSupported()) {
+                        in = new BufferedInputStream(in);
+                    }
+                    sourceRecordingReader = SourceRecordingReaderFactory.create(in, encoding);
+                }
+                if (sourceRecordingReader != null) {
+                    sourceText = sourceRecordingReader.getText();
+                    reader = StAXUtils.createXMLStreamReader(configuration, sourceRecordingReader);
+                } else if (systemId != null) {
                     if (encoding == null) {
                         reader = StAXUtils.createXMLStreamReader(configuration, systemId, in);
                     } else {
@@ -101,6 +148,11 @@ final class BuilderSpec {
                 } else {
                     detachable = null;
                 }
+                if (retainSource) {
+                    SourceRecordingReader sourceRecordingReader = new SourceRecordingReader(in, new SourceText(null));
+                    sourceText = sourceRecordingReader.getText();
+                    in = sourceRecordingReader;
+                }
                 reader = StAXUtils.createXMLStreamReader(configuration, in);
                 closeable = null;
             } else {
@@ -121,7 +173,10 @@ final class BuilderSpec {
         } catch (IOException ex) {
             throw new OMException(ex);
         }
-        return new BuilderSpec(new StAXPullInput(reader, true, closeable), detachable);
+        return new BuilderSpec(
+                new StAXPullInput(reader, true, closeable, sourceText,
+                        symbolTable == null ? new SymbolTable() : symbolTable),
+                detachable);
     }
     
     static BuilderSpec from(XMLStreamReader reader) {
@@ -136,7 +191,7 @@ final class BuilderSpec {
                 throw new OMException("The supplied XMLStreamReader is in an unexpected state ("
                         + XMLEventUtils.getEventTypeString(eventType) + ")");
         }
-        return new BuilderSpec(new FilteredXmlInput(new StAXPullInput(reader, false, null), NamespaceRepairingFilter.DEFAULT), null);
+        return new BuilderSpec(new FilteredXmlInput(new StAXPullInput(reader, false, null, null, new SymbolTable()), NamespaceRepairingFilter.DEFAULT), null);
     }
 
     static BuilderSpec from(StAXParserConfiguration configuration,
@@ -163,7 +218,7 @@ final class BuilderSpec {
             try {
                 return new BuilderSpec(
                         new FilteredXmlInput(
-                                new StAXPullInput(StAXUtils.getXMLInputFactory().createXMLStreamReader(source), true, null),
+                                new StAXPullInput(StAXUtils.getXMLInputFactory().createXMLStreamReader(source), true, null, null, new SymbolTable()),
                                 NamespaceRepairingFilter.DEFAULT),
                         null);
             } catch (XMLStreamException ex) {
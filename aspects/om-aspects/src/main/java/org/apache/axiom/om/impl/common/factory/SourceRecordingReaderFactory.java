@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.om.impl.common.factory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+
+import org.apache.axiom.core.stream.source.SourceRecordingReader;
+import org.apache.axiom.core.stream.source.SourceText;
+
+/**
+ * Creates {@link SourceRecordingReader} instances for byte streams. To record the characters
+ * seen by the parser, the stream needs to be decoded before it is passed to the parser, which
+ * means that the encoding of the document must be determined up front. This is done using the
+ * byte order mark and the XML declaration, as described in Appendix F.1 of the XML 1.0
+ * specifications. Since the parser can't be informed about the byte order mark, it is skipped.
+ */
+final class SourceRecordingReaderFactory {
+    /**
+     * The maximum number of bytes to inspect. This must be large enough to contain the byte order
+     * mark and the XML declaration.
+     */
+    private static final int MAX_PROLOG_LENGTH = 256;
+
+    private SourceRecordingReaderFactory() {}
+
+    /**
+     * Create a {@link SourceRecordingReader} for the given stream.
+     * 
+     * @param in
+     *            the stream; this stream must support {@link InputStream#mark(int)}
+     * @param encoding
+     *            the encoding specified by the caller, or <code>null</code> if the encoding is
+     *            not known
+     * @return the reader, or <code>null</code> if the encoding of the document could not be
+     *         determined reliably; in that case the stream is left at its original position
+     * @throws IOException
+     *             if an I/O error occurs while inspecting the start of the stream
+     */
+    static SourceRecordingReader create(InputStream in, String encoding) throws IOException {
+        byte[] prolog = new byte[MAX_PROLOG_LENGTH];
+        in.mark(prolog.length);
+        int length = 0;
+        int c;
+        while (length < prolog.length && (c = in.read(prolog, length, prolog.length-length)) != -1) {
+            length += c;
+        }
+        in.reset();
+        int bomLength = 0;
+        if (length >= 3 && (prolog[0] & 0xFF) == 0xEF && (prolog[1] & 0xFF) == 0xBB && (prolog[2] & 0xFF) == 0xBF) {
+            bomLength = 3;
+            encoding = "UTF-8";
+        } else if (length >= 2 && (prolog[0] & 0xFF) == 0xFE && (prolog[1] & 0xFF) == 0xFF) {
+            bomLength = 2;
+            encoding = "UTF-16BE";
+        } else if (length >= 2 && (prolog[0] & 0xFF) == 0xFF && (prolog[1] & 0xFF) == 0xFE) {
+            if (length >= 4 && prolog[2] == 0 && prolog[3] == 0) {
+                // UCS-4 (little endian)
+                return null;
+            }
+            bomLength = 2;
+            encoding = "UTF-16LE";
+        } else if (encoding == null) {
+            encoding = detectEncoding(prolog, length);
+            if (encoding == null) {
+                return null;
+            }
+        }
+        Charset charset;
+        try {
+            if (!Charset.isSupported(encoding)) {
+                return null;
+            }
+            charset = Charset.forName(encoding);
+        } catch (IllegalCharsetNameException ex) {
+            return null;
+        }
+        while (bomLength > 0) {
+            bomLength -= in.skip(bomLength);
+        }
+        return new SourceRecordingReader(new InputStreamReader(in, charset.newDecoder()),
+                new SourceText(charset));
+    }
+
+    private static String detectEncoding(byte[] prolog, int length) {
+        if (length == 0) {
+            return "UTF-8";
+        }
+        if (length >= 4 && prolog[0] == 0 && prolog[1] == '<' && prolog[2] == 0 && prolog[3] == '?') {
+            return "UTF-16BE";
+        }
+        if (length >= 4 && prolog[0] == '<' && prolog[1] == 0 && prolog[2] == '?' && prolog[3] == 0) {
+            return "UTF-16LE";
+        }
+        if (length >= 5 && prolog[0] == '<' && prolog[1] == '?' && prolog[2] == 'x' && prolog[3] == 'm'
+                && prolog[4] == 'l') {
+            int end = -1;
+            for (int i=5; i<length-1; i++) {
+                if (prolog[i] == '?' && prolog[i+1] == '>') {
+                    end = i;
+                    break;
+                }
+            }
+            if (end == -1) {
+                return null;
+            }
+            return getDeclaredEncoding(new String(prolog, 5, end-5, Charset.forName("ISO-8859-1")));
+        }
+        // Without byte order mark and XML declaration, the document must be encoded in UTF-8. Only
+        // accept input that looks like an ASCII compatible encoding.
+        switch (prolog[0]) {
+            case '<':
+            case ' ':
+            case '\t':
+            case '\r':
+            case '\n':
+                return "UTF-8";
+            default:
+                return null;
+        }
+    }
+
+    private static String getDeclaredEncoding(String declaration) {
+        int index = declaration.indexOf("encoding");
+        if (index == -1) {
+            return "UTF-8";
+        }
+        index += 8;
+        int length = declaration.length();
+        while (index < length && isWhitespace(declaration.charAt(index))) {
+            index++;
+        }
+        if (index == length || declaration.charAt(index) != '=') {
+            return null;
+        }
+        index++;
+        while (index < length && isWhitespace(declaration.charAt(index))) {
+            index++;
+        }
+        if (index == length) {
+            return null;
+        }
+        char quote = declaration.charAt(index);
+        if (quote != '"' && quote != '\'') {
+            return null;
+        }
+        int end = declaration.indexOf(quote, index+1);
+        if (end == -1) {
+            return null;
+        }
+        String encoding = declaration.substring(index+1, end);
+        // A document encoded in UTF-16 or UCS-4 can't start with an ASCII compatible XML declaration
+        String upperCaseEncoding = encoding.toUpperCase();
+        if (upperCaseEncoding.startsWith("UTF-16") || upperCaseEncoding.startsWith("UTF-32")
+                || upperCaseEncoding.startsWith("UCS")) {
+            return null;
+        }
+        return encoding;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+}
@@ -21,9 +21,11 @@ package org.apache.axiom.om.impl.stream;
 import org.apache.axiom.core.stream.StreamException;
 import org.apache.axiom.core.stream.XmlHandler;
 import org.apache.axiom.core.stream.XmlHandlerWrapper;
+import org.apache.axiom.core.stream.source.SourceCopyingHandler;
+import org.apache.axiom.core.stream.source.SourceRange;
 import org.apache.axiom.om.OMOutputFormat;
 
-public final class XmlDeclarationRewriterHandler extends XmlHandlerWrapper {
+public final class XmlDeclarationRewriterHandler extends XmlHandlerWrapper implements SourceCopyingHandler {
     private final OMOutputFormat format;
     
     public XmlDeclarationRewriterHandler(XmlHandler parent, OMOutputFormat format) {
@@ -47,4 +49,10 @@ public final class XmlDeclarationRewriterHandler extends XmlHandlerWrapper {
             super.startDocument(inputEncoding, xmlVersion, xmlEncoding, standalone);
         }
     }
+
+    @Override
+    public boolean copySourceRange(SourceRange range) throws StreamException {
+        XmlHandler parent = getParent();
+        return parent instanceof SourceCopyingHandler && ((SourceCopyingHandler)parent).copySourceRange(range);
+    }
 }
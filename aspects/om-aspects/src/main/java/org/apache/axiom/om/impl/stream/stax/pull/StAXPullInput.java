@@ -25,16 +25,45 @@ import javax.xml.stream.XMLStreamReader;
 import org.apache.axiom.core.stream.XmlHandler;
 import org.apache.axiom.core.stream.XmlInput;
 import org.apache.axiom.core.stream.XmlReader;
+import org.apache.axiom.core.stream.source.SourceText;
+import org.apache.axiom.om.util.SymbolTable;
 
 public final class StAXPullInput implements XmlInput {
     private final XMLStreamReader reader;
     private final boolean autoClose;
     private final Closeable closeable;
+    private final SourceText sourceText;
+    private final SymbolTable symbolTable;
     
-    public StAXPullInput(XMLStreamReader reader, boolean autoClose, Closeable closeable) {
+    /**
+     * Constructor.
+     * 
+     * @param reader
+     *            the parser
+     * @param autoClose
+     *            specifies whether the parser should be closed when the end of the document is
+     *            reached
+     * @param closeable
+     *            an object to close together with the parser, or <code>null</code>
+     * @param sourceText
+     *            the text recorded from the input of the parser (in which case the reader reports
+     *            the source ranges of elements to handlers that support this), or
+     *            <code>null</code>
+     * @param symbolTable
+     *            the symbol table used to canonicalize names and namespace URIs, or
+     *            <code>null</code> to use the strings returned by the parser
+     */
+    public StAXPullInput(XMLStreamReader reader, boolean autoClose, Closeable closeable,
+            SourceText sourceText, SymbolTable symbolTable) {
         this.reader = reader;
         this.autoClose = autoClose;
         this.closeable = closeable;
+        this.sourceText = sourceText;
+        this.symbolTable = symbolTable;
+    }
+
+    public StAXPullInput(XMLStreamReader reader, boolean autoClose, Closeable closeable) {
+        this(reader, autoClose, closeable, null, null);
     }
 
     public StAXPullInput(XMLStreamReader reader) {
@@ -43,6 +72,6 @@ public final class StAXPullInput implements XmlInput {
 
     @Override
     public XmlReader createReader(XmlHandler handler) {
-        return new StAXPullReader(reader, handler, closeable, autoClose);
+        return new StAXPullReader(reader, handler, closeable, autoClose, sourceText, symbolTable);
     }
 }
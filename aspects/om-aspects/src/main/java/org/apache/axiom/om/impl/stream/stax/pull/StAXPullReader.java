@@ -22,11 +22,15 @@ package org.apache.axiom.om.impl.stream.stax.pull;
 import org.apache.axiom.core.stream.StreamException;
 import org.apache.axiom.core.stream.XmlHandler;
 import org.apache.axiom.core.stream.XmlReader;
+import org.apache.axiom.core.stream.source.SourceRange;
+import org.apache.axiom.core.stream.source.SourceText;
+import org.apache.axiom.core.stream.source.SourceTrackingHandler;
 import org.apache.axiom.ext.stax.DTDReader;
 import org.apache.axiom.ext.stax.datahandler.DataHandlerReader;
 import org.apache.axiom.om.DeferredParsingException;
 import org.apache.axiom.om.OMException;
 import org.apache.axiom.om.impl.intf.TextContent;
+import org.apache.axiom.om.util.SymbolTable;
 import org.apache.axiom.util.stax.XMLStreamReaderUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -98,8 +102,28 @@ public final class StAXPullReader implements XmlReader {
     
     private boolean start = true;
     
+    /**
+     * The text recorded from the input of the parser, or <code>null</code> if source ranges are
+     * not tracked. Tracking is disabled as soon as the location information reported by the
+     * parser doesn't match the recorded text, or if the document contains constructs (such as a
+     * DTD) that would make copying the source markup unsafe.
+     */
+    private SourceText sourceText;
+    
+    /**
+     * The source ranges of the currently open elements.
+     */
+    private SourceRange[] sourceRanges;
+    private int sourceRangeCount;
+    
+    /**
+     * The symbol table used to canonicalize names and namespace URIs, or <code>null</code> if the
+     * strings returned by the parser are used as is.
+     */
+    private final SymbolTable symbolTable;
+    
     public StAXPullReader(XMLStreamReader parser, XmlHandler handler,
-            Closeable closeable, boolean autoClose) {
+            Closeable closeable, boolean autoClose, SourceText sourceText, SymbolTable symbolTable) {
         if (parser.getEventType() != XMLStreamReader.START_DOCUMENT) {
             throw new IllegalStateException("The XMLStreamReader must be positioned on a START_DOCUMENT event");
         }
@@ -108,12 +132,32 @@ public final class StAXPullReader implements XmlReader {
         this.closeable = closeable;
         this.autoClose = autoClose;
         dataHandlerReader = XMLStreamReaderUtils.getDataHandlerReader(parser);
+        if (sourceText != null && handler instanceof SourceTrackingHandler) {
+            this.sourceText = sourceText;
+            sourceRanges = new SourceRange[16];
+        }
+        this.symbolTable = symbolTable;
+    }
+    
+    public StAXPullReader(XMLStreamReader parser, XmlHandler handler,
+            Closeable closeable, boolean autoClose) {
+        this(parser, handler, closeable, autoClose, null, null);
     }
     
     private static String normalize(String s) {
         return s == null ? "" : s;
     }
     
+    private String canonicalize(String s) {
+        if (s == null) {
+            return "";
+        } else if (symbolTable == null) {
+            return s;
+        } else {
+            return symbolTable.canonicalize(s);
+        }
+    }
+    
     private void processText(int textType) throws StreamException {
         if (textType == XMLStreamConstants.CHARACTERS && dataHandlerReader != null && dataHandlerReader.isBinary()) {
             TextContent data;
@@ -191,10 +235,16 @@ public final class StAXPullReader implements XmlReader {
         // Note: if autoClose is enabled, then the parser may be null at this point
         
         switch (token) {
-            case XMLStreamConstants.START_DOCUMENT:
-                handler.startDocument(parser.getEncoding(), parser.getVersion(), parser.getCharacterEncodingScheme(),
+            case XMLStreamConstants.START_DOCUMENT: {
+                String encoding = parser.getEncoding();
+                if (encoding == null && sourceText != null && sourceText.getCharset() != null) {
+                    // The parser reads from a Reader and doesn't know the encoding of the input
+                    encoding = sourceText.getCharset().name();
+                }
+                handler.startDocument(encoding, parser.getVersion(), parser.getCharacterEncodingScheme(),
                         parser.standaloneSet() ? parser.isStandalone() : null);
                 break;
+            }
             case XMLStreamConstants.START_ELEMENT: {
                 processElement();
                 break;
@@ -205,6 +255,9 @@ public final class StAXPullReader implements XmlReader {
                 processText(token);
                 break;
             case XMLStreamConstants.END_ELEMENT:
+                if (sourceText != null) {
+                    endSourceRange();
+                }
                 handler.endElement();
                 break;
             case XMLStreamConstants.END_DOCUMENT:
@@ -216,6 +269,8 @@ public final class StAXPullReader implements XmlReader {
                 handler.endComment();
                 break;
             case XMLStreamConstants.DTD:
+                // The DTD may define entities and default attributes that would be lost
+                disableSourceTracking();
                 processDTD();
                 break;
             case XMLStreamConstants.PROCESSING_INSTRUCTION:
@@ -224,6 +279,7 @@ public final class StAXPullReader implements XmlReader {
                 handler.endProcessingInstruction();
                 break;
             case XMLStreamConstants.ENTITY_REFERENCE:
+                disableSourceTracking();
                 handler.processEntityReference(parser.getLocalName(), parser.getText());
                 break;
             default :
@@ -234,20 +290,23 @@ public final class StAXPullReader implements XmlReader {
     }
     
     private void processElement() throws StreamException {
-        String namespaceURI = normalize(parser.getNamespaceURI());
-        String localName = parser.getLocalName();
-        String prefix = normalize(parser.getPrefix());
+        String namespaceURI = canonicalize(parser.getNamespaceURI());
+        String localName = canonicalize(parser.getLocalName());
+        String prefix = canonicalize(parser.getPrefix());
         handler.startElement(namespaceURI, localName, prefix);
+        if (sourceText != null) {
+            startSourceRange(prefix, localName);
+        }
         for (int i = 0, count = parser.getNamespaceCount(); i < count; i++) {
             handler.processNamespaceDeclaration(
-                    normalize(parser.getNamespacePrefix(i)),
-                    normalize(parser.getNamespaceURI(i)));
+                    canonicalize(parser.getNamespacePrefix(i)),
+                    canonicalize(parser.getNamespaceURI(i)));
         }
         for (int i = 0, count = parser.getAttributeCount(); i < count; i++) {
             handler.processAttribute(
-                    normalize(parser.getAttributeNamespace(i)),
-                    parser.getAttributeLocalName(i),
-                    normalize(parser.getAttributePrefix(i)),
+                    canonicalize(parser.getAttributeNamespace(i)),
+                    canonicalize(parser.getAttributeLocalName(i)),
+                    canonicalize(parser.getAttributePrefix(i)),
                     parser.getAttributeValue(i),
                     parser.getAttributeType(i),
                     parser.isAttributeSpecified(i));
@@ -255,6 +314,121 @@ public final class StAXPullReader implements XmlReader {
         handler.attributesCompleted();
     }
     
+    private void disableSourceTracking() {
+        // Ranges of elements that are still open will never be completed and thus never be used
+        sourceText = null;
+        sourceRanges = null;
+    }
+    
+    /**
+     * Check that the recorded text contains the given qualified name at the given position.
+     * 
+     * @return the position after the name, or -1 if the name doesn't match
+     */
+    private int matchName(int index, String prefix, String localName) {
+        if (!prefix.isEmpty()) {
+            index = match(index, prefix);
+            if (index == -1 || index == sourceText.length() || sourceText.charAt(index) != ':') {
+                return -1;
+            }
+            index++;
+        }
+        return match(index, localName);
+    }
+    
+    private int match(int index, String s) {
+        int length = s.length();
+        if (index + length > sourceText.length()) {
+            return -1;
+        }
+        for (int i=0; i<length; i++) {
+            if (sourceText.charAt(index+i) != s.charAt(i)) {
+                return -1;
+            }
+        }
+        return index + length;
+    }
+    
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+    
+    private void startSourceRange(String prefix, String localName) throws StreamException {
+        int start = parser.getLocation().getCharacterOffset();
+        if (start < 0 || start >= sourceText.length() || sourceText.charAt(start) != '<') {
+            disableSourceTracking();
+            return;
+        }
+        int index = matchName(start+1, prefix, localName);
+        if (index == -1 || index == sourceText.length()) {
+            disableSourceTracking();
+            return;
+        }
+        char c = sourceText.charAt(index);
+        if (c != '>' && c != '/' && !isWhitespace(c)) {
+            disableSourceTracking();
+            return;
+        }
+        SourceRange range = new SourceRange(sourceText, start);
+        if (sourceRangeCount == sourceRanges.length) {
+            SourceRange[] newSourceRanges = new SourceRange[sourceRanges.length*2];
+            System.arraycopy(sourceRanges, 0, newSourceRanges, 0, sourceRanges.length);
+            sourceRanges = newSourceRanges;
+        }
+        sourceRanges[sourceRangeCount++] = range;
+        ((SourceTrackingHandler)handler).processSourceRange(range);
+    }
+    
+    private void endSourceRange() {
+        if (sourceRangeCount == 0) {
+            // Tracking has been enabled inside of the element (may happen if the parser is not
+            // positioned at the start of the document)
+            return;
+        }
+        SourceRange range = sourceRanges[--sourceRangeCount];
+        sourceRanges[sourceRangeCount] = null;
+        int offset = parser.getLocation().getCharacterOffset();
+        int end;
+        if (offset == range.getStart()) {
+            // Empty element; find the end of the start tag
+            end = -1;
+            char quote = 0;
+            for (int i=offset+1, length=sourceText.length(); i<length; i++) {
+                char c = sourceText.charAt(i);
+                if (quote != 0) {
+                    if (c == quote) {
+                        quote = 0;
+                    }
+                } else if (c == '"' || c == '\'') {
+                    quote = c;
+                } else if (c == '>') {
+                    if (sourceText.charAt(i-1) == '/') {
+                        end = i+1;
+                    }
+                    break;
+                }
+            }
+        } else if (offset > range.getStart() && match(offset, "</") != -1) {
+            int index = matchName(offset+2, normalize(parser.getPrefix()), parser.getLocalName());
+            if (index != -1) {
+                int length = sourceText.length();
+                while (index < length && isWhitespace(sourceText.charAt(index))) {
+                    index++;
+                }
+                end = index < length && sourceText.charAt(index) == '>' ? index+1 : -1;
+            } else {
+                end = -1;
+            }
+        } else {
+            end = -1;
+        }
+        if (end == -1) {
+            disableSourceTracking();
+        } else {
+            range.setEnd(end);
+        }
+    }
+    
     private void processDTD() throws StreamException {
         DTDReader dtdReader;
         try {
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.om.impl.common;
+
+import java.io.StringWriter;
+
+import junit.framework.TestCase;
+
+public class TruncatingWriterTest extends TestCase {
+    public void testTruncate() throws Exception {
+        StringWriter sw = new StringWriter();
+        TruncatingWriter out = new TruncatingWriter(sw, 5);
+        out.write("abc");
+        assertFalse(out.isTruncated());
+        out.write("defg");
+        assertTrue(out.isTruncated());
+        out.write('h');
+        assertEquals("abcde", sw.toString());
+    }
+
+    public void testSurrogatePairInSingleWrite() throws Exception {
+        StringWriter sw = new StringWriter();
+        TruncatingWriter out = new TruncatingWriter(sw, 3);
+        out.write("ab\uD83D\uDE00".toCharArray());
+        assertTrue(out.isTruncated());
+        assertEquals("ab", sw.toString());
+    }
+
+    public void testSurrogatePairSplitAcrossWritesAtLimit() throws Exception {
+        StringWriter sw = new StringWriter();
+        TruncatingWriter out = new TruncatingWriter(sw, 3);
+        out.write("ab\uD83D");
+        out.write("\uDE00c");
+        assertTrue(out.isTruncated());
+        assertEquals("ab", sw.toString());
+    }
+
+    public void testSurrogatePairSplitAcrossSingleCharacterWrites() throws Exception {
+        StringWriter sw = new StringWriter();
+        TruncatingWriter out = new TruncatingWriter(sw, 3);
+        out.write('a');
+        out.write('b');
+        out.write(0xD83D);
+        out.write(0xDE00);
+        assertTrue(out.isTruncated());
+        assertEquals("ab", sw.toString());
+    }
+
+    public void testSurrogatePairSplitAcrossWritesBelowLimit() throws Exception {
+        StringWriter sw = new StringWriter();
+        TruncatingWriter out = new TruncatingWriter(sw, 10);
+        out.write("ab\uD83D");
+        out.write("\uDE00c");
+        assertFalse(out.isTruncated());
+        assertEquals("ab\uD83D\uDE00c", sw.toString());
+    }
+}
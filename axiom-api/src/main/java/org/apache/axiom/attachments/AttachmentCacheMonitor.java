@@ -19,11 +19,16 @@
 
 package org.apache.axiom.attachments;
 
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import java.io.File;
 
@@ -42,6 +47,11 @@ import org.apache.commons.logging.LogFactory;
  * The checkForAgedFiles method is invoked whenever the monitor should look for 
  * files to cleanup (delete).
  * 
+ * Registered files are kept in a concurrent map and their expiration deadlines
+ * in a delay queue. Accessing a file only updates its last access time; the
+ * deadline is pushed back lazily when it is reached. Checking for aged files
+ * therefore only looks at the files whose deadline has passed instead of
+ * scanning all registered files.
  */
 public final class AttachmentCacheMonitor {
 
@@ -51,19 +61,20 @@ public final class AttachmentCacheMonitor {
     // Setting this property puts a limit on the lifetime of a cache file
     // The default is "0", which is interpreted as forever
     // The suggested value is 300 seconds
-    private int attachmentTimeoutSeconds = 0;  // Default is 0 (forever)
+    private volatile int attachmentTimeoutSeconds = 0;  // Default is 0 (forever)
     private int refreshSeconds = 0;
     public static final String ATTACHMENT_TIMEOUT_PROPERTY = "org.apache.axiom.attachments.tempfile.expiration";
 
-    // HashMap
     // Key String = Absolute file name
-    // Value Long = Last Access Time
-    private Map<String,Long> files = new HashMap<String,Long>();
+    // Value = Entry with the last access time
+    private final ConcurrentMap<String,Entry> files = new ConcurrentHashMap<String,Entry>();
 
-    // Delete detection is batched
-    private Long priorDeleteMillis = getTime();
+    // Expiration deadlines of the registered files
+    private final DelayQueue<Expiration> expirations = new DelayQueue<Expiration>();
 
-    private Timer timer = null;
+    private ScheduledExecutorService executor;
+    private boolean ownsExecutor;
+    private ScheduledFuture<?> cleanupTask;
 
     private static AttachmentCacheMonitor _singleton = null;
 
@@ -103,18 +114,13 @@ public final class AttachmentCacheMonitor {
             log.debug("              Value = " + attachmentTimeoutSeconds);
         }
 
-        if (refreshSeconds > 0) {
-            timer = new Timer( true );
-            timer.schedule( new CleanupFilesTask(), 
-                    refreshSeconds * 1000, 
-                    refreshSeconds * 1000 );
-        }
+        scheduleCleanupTask();
     }
     
     /**
      * @return timeout value in seconds
      */
-    public synchronized int getTimeout() {
+    public int getTimeout() {
     	return attachmentTimeoutSeconds;
     }
     
@@ -134,19 +140,16 @@ public final class AttachmentCacheMonitor {
     	// Reset the refresh
     	refreshSeconds = attachmentTimeoutSeconds / 2;
     	
-    	// Make sure to cancel the prior timer
-    	if (timer != null) {
-            timer.cancel(); // Remove scheduled tasks from the prior timer
-            timer = null;
-        }
+    	// Recompute the deadlines of the registered files
+    	expirations.clear();
+    	if (timeout > 0) {
+    	    for (Map.Entry<String,Entry> mapEntry : files.entrySet()) {
+    	        scheduleExpiration(mapEntry.getKey(), mapEntry.getValue().lastAccess);
+    	    }
+    	}
     	
-    	// Make a new timer if necessary
-        if (refreshSeconds > 0) {
-        	timer = new Timer( true );
-            timer.schedule( new CleanupFilesTask(), 
-                    refreshSeconds * 1000, 
-                    refreshSeconds * 1000 );
-        }
+    	// Reschedule the periodic cleanup
+        scheduleCleanupTask();
         
         if (log.isDebugEnabled()) { 
         	log.debug("New timeout = " + attachmentTimeoutSeconds);
@@ -154,6 +157,57 @@ public final class AttachmentCacheMonitor {
         }
     }
 
+    /**
+     * Set the executor used to periodically check for aged files. By default, the
+     * monitor creates its own executor with a single daemon thread. An executor
+     * set using this method is not shut down by the monitor.
+     * 
+     * @param executor the executor, or <code>null</code> to revert to the default
+     */
+    public synchronized void setScheduledExecutorService(ScheduledExecutorService executor) {
+        cancelCleanupTask();
+        if (ownsExecutor) {
+            this.executor.shutdown();
+        }
+        this.executor = executor;
+        ownsExecutor = false;
+        scheduleCleanupTask();
+    }
+
+    private void cancelCleanupTask() {
+        if (cleanupTask != null) {
+            cleanupTask.cancel(false);
+            cleanupTask = null;
+        }
+    }
+
+    private synchronized void scheduleCleanupTask() {
+        // Make sure to cancel the prior task
+        cancelCleanupTask();
+        
+        // Schedule a new task if necessary
+        if (refreshSeconds > 0) {
+            if (executor == null) {
+                executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "AttachmentCacheMonitor");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+                ownsExecutor = true;
+            }
+            cleanupTask = executor.scheduleWithFixedDelay(new Runnable() {
+                    @Override
+                    public void run() {
+                        checkForAgedFiles();
+                    }
+                },
+                refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+        }
+    }
+
     /**
      * Register a file name with the monitor.  
      * This will allow the Monitor to remove the file after
@@ -187,20 +241,23 @@ public final class AttachmentCacheMonitor {
         }
     }
 
-    private synchronized void _register(String fileName) {
-        Long currentTime = getTime();
+    private void _register(String fileName) {
+        long currentTime = getTime();
         if (log.isDebugEnabled()) {
             log.debug("Register file " + fileName);
             log.debug("Time = " + currentTime); 
         }
-        files.put(fileName, currentTime);
+        files.put(fileName, new Entry(currentTime));
+        scheduleExpiration(fileName, currentTime);
     }
 
-    private synchronized void _access(String fileName) {
-        Long currentTime = getTime();
-        Long priorTime = files.get(fileName);
-        if (priorTime != null) {
-            files.put(fileName, currentTime);
+    private void _access(String fileName) {
+        long currentTime = getTime();
+        Entry entry = files.get(fileName);
+        if (entry != null) {
+            long priorTime = entry.lastAccess;
+            // The expiration is rescheduled lazily by _checkForAgedFiles
+            entry.lastAccess = currentTime;
             if (log.isDebugEnabled()) {
                 log.debug("Access file " + fileName);
                 log.debug("Old Time = " + priorTime); 
@@ -216,44 +273,42 @@ public final class AttachmentCacheMonitor {
         }
     }
 
-    private synchronized void _checkForAgedFiles() {
-        Long currentTime = getTime();
-        // Don't keep checking the map, only trigger
-        // the checking if it is plausible that 
-        // files will need to be deleted.
-        // I chose a value of ATTACHMENTT_TIMEOUT_SECONDS/4
-        if (isExpired(priorDeleteMillis,
-                      currentTime,
-                      refreshSeconds)) {
-            Iterator<String> it = files.keySet().iterator();
-            while (it.hasNext()) {
-                String fileName = it.next();
-                Long lastAccess = files.get(fileName);
-                if (isExpired(lastAccess,
-                              currentTime,
-                              attachmentTimeoutSeconds)) {
-
+    private void _checkForAgedFiles() {
+        // Only the files whose deadline has passed are returned by the queue
+        Expiration expiration;
+        while ((expiration = expirations.poll()) != null) {
+            String fileName = expiration.fileName;
+            Entry entry = files.get(fileName);
+            if (entry == null) {
+                // Already deleted
+                continue;
+            }
+            long currentTime = getTime();
+            long lastAccess = entry.lastAccess;
+            if (isExpired(lastAccess, currentTime, attachmentTimeoutSeconds)) {
+                if (files.remove(fileName, entry)) {
                     if (log.isDebugEnabled()) {
                         log.debug("Expired file " + fileName);
                         log.debug("Old Time = " + lastAccess); 
                         log.debug("New Time = " + currentTime); 
                         log.debug("Elapsed Time (ms) = " + 
-                                  (currentTime.longValue() - lastAccess.longValue())); 
+                                  (currentTime - lastAccess)); 
                     }
-
                     deleteFile(fileName);
-                    // Use the iterator to remove this
-                    // file from the map (this avoids
-                    // the dreaded ConcurrentModificationException
-                    it.remove(); 
-                }     
+                }
+            } else {
+                // The file has been accessed in the meantime; push back the deadline
+                scheduleExpiration(fileName, lastAccess);
             }
-               
-            // Reset the prior delete time
-            priorDeleteMillis = currentTime;
         }
     }
 
+    private void scheduleExpiration(String fileName, long lastAccess) {
+        // Add 1 ms because isExpired requires the elapsed time to be strictly greater
+        // than the timeout
+        expirations.add(new Expiration(fileName, lastAccess + attachmentTimeoutSeconds*1000L + 1));
+    }
+
     private boolean deleteFile(final String fileName ) {
         return AccessController.doPrivileged(new PrivilegedAction<Boolean>() {
                 @Override
@@ -280,27 +335,44 @@ public final class AttachmentCacheMonitor {
     }
 
 
-    private Long getTime() {
-        return new Long(System.currentTimeMillis());
+    private static long getTime() {
+        return System.currentTimeMillis();
     }
 
-    private boolean isExpired (Long oldTimeMillis, 
-                                      Long newTimeMillis, 
+    private static boolean isExpired (long oldTimeMillis, 
+                                      long newTimeMillis, 
                                       int thresholdSecs) {
-        long elapse = newTimeMillis.longValue() -
-            oldTimeMillis.longValue();
-        return (elapse > (thresholdSecs*1000));
+        long elapse = newTimeMillis - oldTimeMillis;
+        return (elapse > (thresholdSecs*1000L));
     }
 
 
-    private class CleanupFilesTask extends TimerTask {
+    private static final class Entry {
+        volatile long lastAccess;
+
+        Entry(long lastAccess) {
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private static final class Expiration implements Delayed {
+        final String fileName;
+        final long deadline;
+
+        Expiration(String fileName, long deadline) {
+            this.fileName = fileName;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadline - getTime(), TimeUnit.MILLISECONDS);
+        }
 
-        /**
-         * Trigger a checkForAgedFiles event
-         */
         @Override
-        public void run() {
-            checkForAgedFiles();
+        public int compareTo(Delayed o) {
+            long other = ((Expiration)o).deadline;
+            return deadline < other ? -1 : (deadline == other ? 0 : 1);
         }
     }
 }
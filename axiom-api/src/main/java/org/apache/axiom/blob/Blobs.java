@@ -19,6 +19,7 @@
 package org.apache.axiom.blob;
 
 import java.io.File;
+import java.nio.ByteBuffer;
 
 /**
  * Contains factory methods to create various types of blobs.
@@ -45,6 +46,47 @@ public final class Blobs {
         return new MemoryBlobImpl();
     }
     
+    /**
+     * Create a {@link MemoryBlob} instance that stores its data outside of the Java heap, in
+     * direct {@link ByteBuffer}s. The blob uses a default, JVM wide pool of buffer segments.
+     * Calling {@link WritableBlob#release()} (or consuming the blob using
+     * {@link MemoryBlob#readOnce()}) returns the segments to the pool, while blobs that are not
+     * released are cleaned up by the garbage collector. Note that after the blob has been
+     * released, input streams previously obtained from the blob must no longer be used.
+     * 
+     * @return the blob
+     */
+    public static MemoryBlob createDirectMemoryBlob() {
+        return DirectMemoryBlobFactory.DEFAULT.createBlob();
+    }
+    
+    /**
+     * Create a factory for {@link MemoryBlob} instances that store their data outside of the Java
+     * heap. The factory has its own pool of buffer segments and uses a segment size of 64 KB. See
+     * {@link #createDirectMemoryBlob()} for more information about the behavior of these blobs.
+     * 
+     * @return the factory
+     */
+    public static WritableBlobFactory<MemoryBlob> createDirectMemoryBlobFactory() {
+        return createDirectMemoryBlobFactory(64*1024, 256);
+    }
+    
+    /**
+     * Create a factory for {@link MemoryBlob} instances that store their data outside of the Java
+     * heap. See {@link #createDirectMemoryBlob()} for more information about the behavior of these
+     * blobs.
+     * 
+     * @param segmentSize
+     *            the size of the direct buffers allocated by the blobs
+     * @param maxPooledSegments
+     *            the maximum number of released buffers retained by the factory for reuse
+     * @return the factory
+     */
+    public static WritableBlobFactory<MemoryBlob> createDirectMemoryBlobFactory(int segmentSize,
+            int maxPooledSegments) {
+        return new DirectMemoryBlobFactory(segmentSize, maxPooledSegments);
+    }
+    
     /**
      * Create an {@link OverflowableBlob}.
      * 
@@ -55,9 +97,28 @@ public final class Blobs {
      * @return the blob
      */
     public static OverflowableBlob createOverflowableBlob(int threshold, WritableBlobFactory<?> overflowBlobFactory) {
+        return createOverflowableBlob(threshold, overflowBlobFactory, null);
+    }
+    
+    /**
+     * Create an {@link OverflowableBlob} that also transfers its data to the overflow blob if the
+     * given memory budget is exhausted. This allows to limit the total amount of memory used by
+     * blobs buffering data for concurrent requests.
+     * 
+     * @param threshold
+     *            the threshold above which data is transferred to the overflow blob
+     * @param overflowBlobFactory
+     *            the factory that will be used to create the overflow blob
+     * @param budget
+     *            the memory budget shared with other blobs, or <code>null</code> if memory usage
+     *            should only be limited by the threshold
+     * @return the blob
+     */
+    public static OverflowableBlob createOverflowableBlob(int threshold,
+            WritableBlobFactory<?> overflowBlobFactory, MemoryBudget budget) {
         int numberOfChunks = Math.max(16, Math.min(1, threshold/4096));
         int chunkSize = threshold/numberOfChunks;
-        return new OverflowableBlobImpl(numberOfChunks, chunkSize, overflowBlobFactory);
+        return new OverflowableBlobImpl(numberOfChunks, chunkSize, overflowBlobFactory, budget);
     }
     
     /**
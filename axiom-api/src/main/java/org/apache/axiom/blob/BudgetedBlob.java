@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.blob;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.axiom.ext.io.StreamCopyException;
+
+/**
+ * Wraps a blob created by {@link MemoryBudget#tryCreateBlob(WritableBlobFactory, long)} and returns
+ * the reserved memory when the blob is released. If the wrapped blob is a {@link MemoryBlob},
+ * {@link BudgetedMemoryBlob} is used instead so that the wrapper doesn't hide that interface.
+ * <p>
+ * The number of bytes written to the blob is checked against the reservation. If it exceeds the
+ * reserved amount (e.g. because the size was estimated using a wrong {@code Content-Length}
+ * header), the difference is charged to the budget.
+ */
+class BudgetedBlob implements WritableBlob {
+    private final WritableBlob parent;
+    Reservation reservation;
+    
+    /**
+     * The number of bytes covered by the reservation.
+     */
+    private long reserved;
+    
+    /**
+     * The number of bytes written to the blob so far.
+     */
+    private long written;
+
+    BudgetedBlob(WritableBlob parent) {
+        this.parent = parent;
+    }
+
+    void setReservation(Reservation reservation, long reserved) {
+        this.reservation = reservation;
+        this.reserved = reserved;
+    }
+
+    /**
+     * Account for data written to the blob.
+     * 
+     * @param count
+     *            the number of bytes written
+     */
+    final void written(long count) {
+        written += count;
+        if (written > reserved) {
+            reservation.grow(written - reserved);
+            reserved = written;
+        }
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        return new FilterOutputStream(parent.getOutputStream()) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                written(1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                written(len);
+            }
+        };
+    }
+
+    @Override
+    public long readFrom(InputStream in) throws StreamCopyException {
+        long read = parent.readFrom(in);
+        written(read);
+        return read;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return parent.getInputStream();
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws StreamCopyException {
+        parent.writeTo(out);
+    }
+
+    @Override
+    public long getSize() {
+        return parent.getSize();
+    }
+
+    @Override
+    public void release() throws IOException {
+        try {
+            parent.release();
+        } finally {
+            reservation.release();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.blob;
+
+/**
+ * {@link BudgetedBlob} wrapping a {@link MemoryBlob}. The reservation is returned to the budget
+ * when the blob is released or when the stream returned by {@link #readOnce()} has been consumed
+ * or closed. Data written to the blob is accounted for by {@link BudgetedMemoryBlobOutputStream}.
+ */
+final class BudgetedMemoryBlob extends BudgetedBlob implements MemoryBlob {
+    private final MemoryBlob parent;
+
+    BudgetedMemoryBlob(MemoryBlob parent) {
+        super(parent);
+        this.parent = parent;
+    }
+
+    @Override
+    public MemoryBlobInputStream getInputStream() {
+        return parent.getInputStream();
+    }
+
+    @Override
+    public MemoryBlobOutputStream getOutputStream() {
+        return new BudgetedMemoryBlobOutputStream(parent.getOutputStream(), this);
+    }
+
+    @Override
+    public long getSize() {
+        return parent.getSize();
+    }
+
+    @Override
+    public void release() {
+        try {
+            parent.release();
+        } finally {
+            reservation.release();
+        }
+    }
+
+    @Override
+    public MemoryBlobInputStream readOnce() {
+        return new ReservationReleasingInputStream(parent.readOnce(), reservation);
+    }
+}
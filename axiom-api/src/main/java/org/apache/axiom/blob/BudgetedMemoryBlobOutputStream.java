@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.blob;
+
+import java.io.InputStream;
+
+import org.apache.axiom.ext.io.StreamCopyException;
+
+/**
+ * {@link MemoryBlobOutputStream} that reports the data written to a {@link BudgetedBlob} so that
+ * it can be checked against the reservation.
+ */
+final class BudgetedMemoryBlobOutputStream extends MemoryBlobOutputStream {
+    private final MemoryBlobOutputStream parent;
+    private final BudgetedBlob blob;
+
+    BudgetedMemoryBlobOutputStream(MemoryBlobOutputStream parent, BudgetedBlob blob) {
+        this.parent = parent;
+        this.blob = blob;
+    }
+
+    @Override
+    public void write(int b) {
+        parent.write(b);
+        blob.written(1);
+    }
+
+    @Override
+    public void write(byte[] b) {
+        parent.write(b);
+        blob.written(b.length);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        parent.write(b, off, len);
+        blob.written(len);
+    }
+
+    @Override
+    public long readFrom(InputStream in, long length) throws StreamCopyException {
+        long read = parent.readFrom(in, length);
+        blob.written(read);
+        return read;
+    }
+
+    @Override
+    public void close() {
+        parent.close();
+    }
+}
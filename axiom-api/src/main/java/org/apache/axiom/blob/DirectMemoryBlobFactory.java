@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.blob;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates {@link MemoryBlob} instances that store their data in direct {@link ByteBuffer}s, i.e.
+ * outside of the Java heap. The factory maintains a bounded pool of free segments so that memory
+ * released with {@link WritableBlob#release()} can be reused immediately instead of waiting for the
+ * garbage collector to reclaim the direct buffers.
+ */
+final class DirectMemoryBlobFactory implements WritableBlobFactory<MemoryBlob> {
+    static final DirectMemoryBlobFactory DEFAULT = new DirectMemoryBlobFactory(64*1024, 256);
+    
+    private final int segmentSize;
+    private final int maxPooledSegments;
+    private final ConcurrentLinkedQueue<ByteBuffer> freeSegments = new ConcurrentLinkedQueue<ByteBuffer>();
+    private final AtomicInteger freeSegmentCount = new AtomicInteger();
+
+    DirectMemoryBlobFactory(int segmentSize, int maxPooledSegments) {
+        if (segmentSize <= 0 || maxPooledSegments < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.segmentSize = segmentSize;
+        this.maxPooledSegments = maxPooledSegments;
+    }
+
+    @Override
+    public MemoryBlob createBlob() {
+        return new DirectMemoryBlobImpl(this);
+    }
+
+    int getSegmentSize() {
+        return segmentSize;
+    }
+
+    ByteBuffer allocateSegment() {
+        ByteBuffer segment = freeSegments.poll();
+        if (segment == null) {
+            return ByteBuffer.allocateDirect(segmentSize);
+        } else {
+            freeSegmentCount.decrementAndGet();
+            segment.clear();
+            return segment;
+        }
+    }
+
+    void releaseSegment(ByteBuffer segment) {
+        if (freeSegmentCount.incrementAndGet() <= maxPooledSegments) {
+            freeSegments.offer(segment);
+        } else {
+            // The pool is full; leave the segment to the garbage collector.
+            freeSegmentCount.decrementAndGet();
+        }
+    }
+}
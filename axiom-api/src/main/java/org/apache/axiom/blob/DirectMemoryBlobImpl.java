@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.blob;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.axiom.ext.io.StreamCopyException;
+import org.apache.axiom.ext.io.WritableChannelSupport;
+
+final class DirectMemoryBlobImpl implements MemoryBlob {
+    private final DirectMemoryBlobFactory factory;
+    private List<ByteBuffer> segments;
+    private long size;
+    private State state = State.NEW;
+
+    DirectMemoryBlobImpl(DirectMemoryBlobFactory factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public long getSize() {
+        if (state != State.COMMITTED) {
+            throw new IllegalStateException();
+        }
+        return size;
+    }
+
+    @Override
+    public MemoryBlobOutputStream getOutputStream() {
+        if (state != State.NEW) {
+            throw new IllegalStateException();
+        }
+        segments = new ArrayList<ByteBuffer>();
+        state = State.UNCOMMITTED;
+        return new DirectMemoryBlobOutputStream(this);
+    }
+
+    ByteBuffer addSegment() {
+        if (state != State.UNCOMMITTED) {
+            throw new IllegalStateException();
+        }
+        ByteBuffer segment = factory.allocateSegment();
+        segments.add(segment);
+        return segment;
+    }
+
+    void commit(long size) {
+        if (state == State.UNCOMMITTED) {
+            this.size = size;
+            state = State.COMMITTED;
+        }
+    }
+
+    @Override
+    public long readFrom(InputStream in) throws StreamCopyException {
+        MemoryBlobOutputStream out = getOutputStream();
+        try {
+            return out.readFrom(in, -1);
+        } finally {
+            out.close();
+        }
+    }
+
+    @Override
+    public MemoryBlobInputStream getInputStream() {
+        if (state != State.COMMITTED) {
+            throw new IllegalStateException();
+        }
+        return new DirectMemoryBlobInputStream(getSegments(), factory.getSegmentSize(), size, null);
+    }
+
+    @Override
+    public MemoryBlobInputStream readOnce() {
+        if (state != State.COMMITTED) {
+            throw new IllegalStateException();
+        }
+        MemoryBlobInputStream in = new DirectMemoryBlobInputStream(getSegments(), factory.getSegmentSize(), size, factory);
+        // The segments are now owned by the input stream
+        segments = null;
+        state = State.RELEASED;
+        return in;
+    }
+
+    private ByteBuffer[] getSegments() {
+        return segments.toArray(new ByteBuffer[segments.size()]);
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws StreamCopyException {
+        if (state != State.COMMITTED) {
+            throw new IllegalStateException();
+        }
+        int segmentSize = factory.getSegmentSize();
+        long remaining = size;
+        try {
+            WritableByteChannel channel = null;
+            if (out instanceof WritableChannelSupport) {
+                channel = ((WritableChannelSupport)out).getChannel();
+            }
+            if (channel == null) {
+                // For a FileOutputStream this returns the underlying FileChannel, so that the data
+                // is written directly from the direct buffers without copying it to the heap.
+                channel = Channels.newChannel(out);
+            }
+            for (ByteBuffer segment : segments) {
+                ByteBuffer buffer = segment.duplicate();
+                buffer.position(0);
+                buffer.limit((int)Math.min(segmentSize, remaining));
+                remaining -= buffer.remaining();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        } catch (IOException ex) {
+            throw new StreamCopyException(StreamCopyException.WRITE, ex);
+        }
+    }
+
+    @Override
+    public void release() {
+        // Segments can only be recycled if the output stream is no longer writing to them
+        if (state == State.COMMITTED) {
+            for (ByteBuffer segment : segments) {
+                factory.releaseSegment(segment);
+            }
+        }
+        segments = null;
+        state = State.RELEASED;
+    }
+}
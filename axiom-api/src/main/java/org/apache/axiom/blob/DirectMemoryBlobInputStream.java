@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.blob;
+
+import java.nio.ByteBuffer;
+
+final class DirectMemoryBlobInputStream extends MemoryBlobInputStream {
+    private final ByteBuffer[] segments;
+    private final int segmentSize;
+    private final long size;
+    /**
+     * The factory to return consumed segments to, or {@code null} if the segments are still
+     * referenced by the blob.
+     */
+    private DirectMemoryBlobFactory factory;
+    private long position;
+    private long markPosition = -1;
+    /**
+     * A view of the segment at index {@link #currentIndex}, positioned at {@link #position}.
+     */
+    private ByteBuffer current;
+    private int currentIndex = -1;
+    /**
+     * The index of the first segment that has not been returned to the factory yet.
+     */
+    private int firstRetainedIndex;
+    private boolean closed;
+
+    DirectMemoryBlobInputStream(ByteBuffer[] segments, int segmentSize, long size, DirectMemoryBlobFactory factory) {
+        this.segments = segments;
+        this.segmentSize = segmentSize;
+        this.size = size;
+        this.factory = factory;
+    }
+
+    private ByteBuffer getCurrentSegment() {
+        if (closed || position == size) {
+            return null;
+        }
+        int index = (int)(position / segmentSize);
+        if (index != currentIndex) {
+            // Once a mark has been set, segments may be revisited and are only recycled on close
+            if (factory != null && markPosition == -1) {
+                while (firstRetainedIndex < index) {
+                    factory.releaseSegment(segments[firstRetainedIndex]);
+                    segments[firstRetainedIndex++] = null;
+                }
+            }
+            long segmentStart = (long)index * segmentSize;
+            current = segments[index].duplicate();
+            current.limit((int)Math.min(segmentSize, size - segmentStart));
+            current.position((int)(position - segmentStart));
+            currentIndex = index;
+        }
+        return current;
+    }
+
+    @Override
+    public int read(byte[] buffer, int off, int len) {
+        int read = 0;
+        while (len > 0) {
+            ByteBuffer segment = getCurrentSegment();
+            if (segment == null) {
+                if (read == 0) {
+                    return -1;
+                } else {
+                    break;
+                }
+            }
+            int c = Math.min(len, segment.remaining());
+            segment.get(buffer, off, c);
+            position += c;
+            off += c;
+            len -= c;
+            read += c;
+        }
+        return read;
+    }
+
+    @Override
+    public int read(byte[] buffer) {
+        return read(buffer, 0, buffer.length);
+    }
+
+    @Override
+    public int read() {
+        ByteBuffer segment = getCurrentSegment();
+        if (segment == null) {
+            return -1;
+        } else {
+            position++;
+            return segment.get() & 0xFF;
+        }
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        markPosition = position;
+    }
+
+    @Override
+    public synchronized void reset() {
+        if (markPosition != -1) {
+            position = markPosition;
+            currentIndex = -1;
+        }
+    }
+
+    @Override
+    public long skip(long n) {
+        if (closed || n <= 0) {
+            return 0;
+        }
+        long skipped = Math.min(n, size - position);
+        position += skipped;
+        currentIndex = -1;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return closed ? 0 : (int)Math.min(Integer.MAX_VALUE, size - position);
+    }
+
+    @Override
+    public void close() {
+        if (factory != null) {
+            for (int i=firstRetainedIndex; i<segments.length; i++) {
+                factory.releaseSegment(segments[i]);
+                segments[i] = null;
+            }
+            factory = null;
+        }
+        closed = true;
+        current = null;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.blob;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+import org.apache.axiom.ext.io.StreamCopyException;
+
+final class DirectMemoryBlobOutputStream extends MemoryBlobOutputStream {
+    private DirectMemoryBlobImpl blob;
+    private ByteBuffer segment;
+    private long size;
+    
+    DirectMemoryBlobOutputStream(DirectMemoryBlobImpl blob) {
+        this.blob = blob;
+    }
+    
+    private ByteBuffer getSegment() {
+        if (blob == null) {
+            throw new IllegalStateException();
+        }
+        if (segment == null || !segment.hasRemaining()) {
+            segment = blob.addSegment();
+        }
+        return segment;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        while (len > 0) {
+            ByteBuffer segment = getSegment();
+            int c = Math.min(len, segment.remaining());
+            segment.put(b, off, c);
+            size += c;
+            off += c;
+            len -= c;
+        }
+    }
+
+    @Override
+    public void write(byte[] b) {
+        write(b, 0, b.length);
+    }
+
+    @Override
+    public void write(int b) {
+        getSegment().put((byte)b);
+        size++;
+    }
+
+    @Override
+    public long readFrom(InputStream in, long length) throws StreamCopyException {
+        if (blob == null) {
+            throw new IllegalStateException();
+        }
+        // For a FileInputStream this returns the underlying FileChannel, i.e. the data is read
+        // directly into the direct buffers.
+        ReadableByteChannel channel = Channels.newChannel(in);
+        long read = 0;
+        long toRead = length == -1 ? Long.MAX_VALUE : length;
+        while (toRead > 0) {
+            ByteBuffer segment = getSegment();
+            int limit = segment.limit();
+            segment.limit(segment.position() + (int)Math.min(toRead, segment.remaining()));
+            int c;
+            try {
+                c = channel.read(segment);
+            } catch (IOException ex) {
+                throw new StreamCopyException(StreamCopyException.READ, ex);
+            } finally {
+                segment.limit(limit);
+            }
+            if (c == -1) {
+                break;
+            }
+            size += c;
+            read += c;
+            toRead -= c;
+        }
+        return read;
+    }
+
+    @Override
+    public void close() {
+        if (blob != null) {
+            blob.commit(size);
+            blob = null;
+            segment = null;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.blob;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Input stream that reads a file through memory mapped regions. The file is mapped in windows of
+ * limited size so that very large files don't exhaust the virtual address space.
+ */
+final class MappedFileInputStream extends InputStream {
+    private static final int WINDOW_SIZE = 64*1024*1024;
+    
+    private final RandomAccessFile file;
+    private final long size;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+    private long markPosition;
+    private boolean closed;
+
+    MappedFileInputStream(File file) throws IOException {
+        this.file = new RandomAccessFile(file, "r");
+        size = this.file.length();
+    }
+
+    /**
+     * Get the mapped region containing the current position.
+     * 
+     * @return the mapped region, positioned at the current position, or <code>null</code> if the
+     *         end of the file has been reached
+     * @throws IOException
+     */
+    private MappedByteBuffer getWindow() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (position == size) {
+            return null;
+        }
+        if (window == null || position < windowStart || position >= windowStart + window.limit()) {
+            windowStart = position - position % WINDOW_SIZE;
+            window = file.getChannel().map(FileChannel.MapMode.READ_ONLY, windowStart,
+                    Math.min(WINDOW_SIZE, size - windowStart));
+        }
+        window.position((int)(position - windowStart));
+        return window;
+    }
+
+    @Override
+    public int read() throws IOException {
+        MappedByteBuffer window = getWindow();
+        if (window == null) {
+            return -1;
+        } else {
+            position++;
+            return window.get() & 0xFF;
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        int read = 0;
+        while (len > 0) {
+            MappedByteBuffer window = getWindow();
+            if (window == null) {
+                break;
+            }
+            int c = Math.min(len, window.remaining());
+            window.get(b, off, c);
+            position += c;
+            off += c;
+            len -= c;
+            read += c;
+        }
+        return read == 0 ? -1 : read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (n <= 0) {
+            return 0;
+        }
+        long skipped = Math.min(n, size - position);
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        return (int)Math.min(Integer.MAX_VALUE, size - position);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        markPosition = position;
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        position = markPosition;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            window = null;
+            file.close();
+        }
+    }
+}
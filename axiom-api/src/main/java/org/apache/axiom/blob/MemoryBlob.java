@@ -27,7 +27,9 @@ import java.io.IOException;
  * {@link IOException}. Also note that since data is stored in memory, calling
  * {@link WritableBlob#release()} is not required.
  * <p>
- * Instances are created with {@link Blobs#createMemoryBlob()} or using {@link #FACTORY}.
+ * Instances are created with {@link Blobs#createMemoryBlob()} or using {@link #FACTORY}. A
+ * {@link MemoryBlobPool} can be used instead of {@link #FACTORY} to create instances that recycle
+ * their memory buffers.
  */
 public interface MemoryBlob extends WritableBlob {
     WritableBlobFactory<MemoryBlob> FACTORY = new WritableBlobFactory<MemoryBlob>() {
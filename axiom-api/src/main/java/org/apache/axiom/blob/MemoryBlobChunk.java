@@ -27,7 +27,8 @@ final class MemoryBlobChunk {
         buffer = new byte[capacity];
     }
     
-    MemoryBlobChunk allocateNextChunk() {
-        return nextChunk = new MemoryBlobChunk(buffer.length * 2);
+    MemoryBlobChunk allocateNextChunk(MemoryBlobPool pool) {
+        int capacity = buffer.length * 2;
+        return nextChunk = pool == null ? new MemoryBlobChunk(capacity) : pool.allocate(capacity);
     }
 }
@@ -25,9 +25,18 @@ import java.io.OutputStream;
 import org.apache.axiom.ext.io.StreamCopyException;
 
 final class MemoryBlobImpl implements MemoryBlob {
+    private final MemoryBlobPool pool;
     private MemoryBlobChunk firstChunk;
     private boolean committed;
     
+    MemoryBlobImpl() {
+        this(null);
+    }
+    
+    MemoryBlobImpl(MemoryBlobPool pool) {
+        this.pool = pool;
+    }
+    
     @Override
     public long getSize() {
         if (firstChunk == null || !committed) {
@@ -52,7 +61,8 @@ final class MemoryBlobImpl implements MemoryBlob {
         if (firstChunk != null || committed) {
             throw new IllegalStateException();
         } else {
-            return new MemoryBlobOutputStreamImpl(this, firstChunk = new MemoryBlobChunk(4096));
+            firstChunk = pool == null ? new MemoryBlobChunk(4096) : pool.allocate(4096);
+            return new MemoryBlobOutputStreamImpl(this, pool, firstChunk);
         }
     }
 
@@ -84,7 +94,7 @@ final class MemoryBlobImpl implements MemoryBlob {
         if (firstChunk == null || !committed) {
             throw new IllegalStateException();
         }
-        MemoryBlobInputStream in = new MemoryBlobInputStreamImpl(firstChunk);
+        MemoryBlobInputStream in = new MemoryBlobInputStreamImpl(firstChunk, preserve ? null : pool);
         if (!preserve) {
             firstChunk = null;
         }
@@ -111,6 +121,10 @@ final class MemoryBlobImpl implements MemoryBlob {
 
     @Override
     public void release() {
+        // Chunks can only be recycled if the output stream is no longer writing to them
+        if (pool != null && committed) {
+            pool.recycleAll(firstChunk);
+        }
         firstChunk = null;
     }
 }
@@ -19,19 +19,30 @@
 package org.apache.axiom.blob;
 
 final class MemoryBlobInputStreamImpl extends MemoryBlobInputStream {
+    /**
+     * The pool to return consumed chunks to, or {@code null} if the chunks are still referenced by
+     * the blob.
+     */
+    private MemoryBlobPool pool;
     private MemoryBlobChunk chunk;
     private int index;
     private MemoryBlobChunk markChunk;
     private int markIndex;
     
-    MemoryBlobInputStreamImpl(MemoryBlobChunk firstChunk) {
+    MemoryBlobInputStreamImpl(MemoryBlobChunk firstChunk, MemoryBlobPool pool) {
         chunk = firstChunk;
+        this.pool = pool;
     }
 
     private void updateChunk() {
         while (chunk != null && index == chunk.size) {
+            MemoryBlobChunk consumedChunk = chunk;
             chunk = chunk.nextChunk;
             index = 0;
+            // Once a mark has been set, chunks may be revisited and are only recycled on close
+            if (pool != null && markChunk == null) {
+                pool.recycle(consumedChunk);
+            }
         }
     }
     
@@ -120,6 +131,11 @@ final class MemoryBlobInputStreamImpl extends MemoryBlobInputStream {
 
     @Override
     public void close() {
+        if (pool != null) {
+            pool.recycleAll(markChunk != null ? markChunk : chunk);
+            pool = null;
+        }
         chunk = null;
+        markChunk = null;
     }
 }
@@ -25,16 +25,18 @@ import org.apache.axiom.ext.io.StreamCopyException;
 
 final class MemoryBlobOutputStreamImpl extends MemoryBlobOutputStream {
     private final MemoryBlobImpl blob;
+    private final MemoryBlobPool pool;
     private MemoryBlobChunk chunk;
     
-    MemoryBlobOutputStreamImpl(MemoryBlobImpl blob, MemoryBlobChunk firstChunk) {
+    MemoryBlobOutputStreamImpl(MemoryBlobImpl blob, MemoryBlobPool pool, MemoryBlobChunk firstChunk) {
         this.blob = blob;
+        this.pool = pool;
         chunk = firstChunk;
     }
     
     private void updateChunk() {
         if (chunk.size == chunk.buffer.length) {
-            chunk = chunk.allocateNextChunk();
+            chunk = chunk.allocateNextChunk(pool);
         }
     }
     
@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.blob;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Factory for {@link MemoryBlob} instances that recycles the memory buffers used by these blobs.
+ * Buffers are returned to the pool when the blob is released using {@link MemoryBlob#release()}
+ * and when data is consumed using the stream returned by {@link MemoryBlob#readOnce()}.
+ * <p>
+ * Each thread has a small cache (a <em>magazine</em>) of buffers that can be used without any
+ * synchronization. Buffers that don't fit into that cache are returned to a bounded pool shared
+ * by all threads. Buffers that don't fit into the shared pool either are left to the garbage
+ * collector.
+ * <p>
+ * Since the buffers are reused, blobs created by this factory have stricter usage requirements
+ * than blobs created by {@link MemoryBlob#FACTORY}: after a blob has been released, any input
+ * stream previously obtained with {@link MemoryBlob#getInputStream()} must no longer be used.
+ * Blobs that are not released are simply garbage collected, as with {@link MemoryBlob#FACTORY}.
+ */
+public final class MemoryBlobPool implements WritableBlobFactory<MemoryBlob> {
+    private static final int MIN_CHUNK_SIZE_LOG2 = 12;
+
+    static final int MIN_CHUNK_SIZE = 1 << MIN_CHUNK_SIZE_LOG2;
+
+    private final class Magazine {
+        private final MemoryBlobChunk[][] chunks;
+        private final int[] counts;
+
+        Magazine() {
+            chunks = new MemoryBlobChunk[sizeClasses][magazineSize];
+            counts = new int[sizeClasses];
+        }
+
+        MemoryBlobChunk pop(int sizeClass) {
+            int count = counts[sizeClass];
+            if (count == 0) {
+                return null;
+            } else {
+                MemoryBlobChunk[] stack = chunks[sizeClass];
+                MemoryBlobChunk chunk = stack[--count];
+                stack[count] = null;
+                counts[sizeClass] = count;
+                return chunk;
+            }
+        }
+
+        boolean push(int sizeClass, MemoryBlobChunk chunk) {
+            int count = counts[sizeClass];
+            MemoryBlobChunk[] stack = chunks[sizeClass];
+            if (count == stack.length) {
+                return false;
+            } else {
+                stack[count] = chunk;
+                counts[sizeClass] = count+1;
+                return true;
+            }
+        }
+    }
+
+    private final int sizeClasses;
+    private final int magazineSize;
+    private final ArrayBlockingQueue<MemoryBlobChunk>[] sharedPool;
+    private final ThreadLocal<Magazine> magazines = new ThreadLocal<Magazine>() {
+        @Override
+        protected Magazine initialValue() {
+            return new Magazine();
+        }
+    };
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Create a pool with default settings. Buffers up to 64 KB are pooled; the shared pool holds up
+     * to 256 buffers per size and each thread caches up to 8 buffers per size.
+     */
+    public MemoryBlobPool() {
+        this(64*1024, 256, 8);
+    }
+
+    /**
+     * Create a pool.
+     * 
+     * @param maxPooledChunkSize
+     *            the size of the largest buffer that will be recycled; larger buffers are left
+     *            to the garbage collector
+     * @param sharedPoolSize
+     *            the maximum number of buffers (of each size) retained in the shared pool
+     * @param magazineSize
+     *            the maximum number of buffers (of each size) cached by each thread
+     */
+    @SuppressWarnings("unchecked")
+    public MemoryBlobPool(int maxPooledChunkSize, int sharedPoolSize, int magazineSize) {
+        if (maxPooledChunkSize < MIN_CHUNK_SIZE) {
+            throw new IllegalArgumentException("maxPooledChunkSize must be at least " + MIN_CHUNK_SIZE);
+        }
+        if (sharedPoolSize < 1 || magazineSize < 0) {
+            throw new IllegalArgumentException();
+        }
+        sizeClasses = 32 - Integer.numberOfLeadingZeros(maxPooledChunkSize) - MIN_CHUNK_SIZE_LOG2;
+        this.magazineSize = magazineSize;
+        sharedPool = new ArrayBlockingQueue[sizeClasses];
+        for (int i=0; i<sizeClasses; i++) {
+            sharedPool[i] = new ArrayBlockingQueue<MemoryBlobChunk>(sharedPoolSize);
+        }
+    }
+
+    @Override
+    public MemoryBlob createBlob() {
+        return new MemoryBlobImpl(this);
+    }
+
+    private int getSizeClass(int capacity) {
+        int sizeClass = 31 - Integer.numberOfLeadingZeros(capacity) - MIN_CHUNK_SIZE_LOG2;
+        return sizeClass >= 0 && sizeClass < sizeClasses && capacity == MIN_CHUNK_SIZE << sizeClass ? sizeClass : -1;
+    }
+
+    MemoryBlobChunk allocate(int capacity) {
+        int sizeClass = getSizeClass(capacity);
+        if (sizeClass != -1) {
+            MemoryBlobChunk chunk = magazines.get().pop(sizeClass);
+            if (chunk == null) {
+                chunk = sharedPool[sizeClass].poll();
+            }
+            if (chunk != null) {
+                hitCount.incrementAndGet();
+                return chunk;
+            }
+        }
+        missCount.incrementAndGet();
+        return new MemoryBlobChunk(capacity);
+    }
+
+    void recycle(MemoryBlobChunk chunk) {
+        int sizeClass = getSizeClass(chunk.buffer.length);
+        if (sizeClass != -1) {
+            chunk.size = 0;
+            chunk.nextChunk = null;
+            if (!magazines.get().push(sizeClass, chunk)) {
+                sharedPool[sizeClass].offer(chunk);
+            }
+        }
+    }
+
+    /**
+     * Recycle a chain of chunks.
+     * 
+     * @param chunk
+     *            the first chunk in the chain; may be {@code null}
+     */
+    void recycleAll(MemoryBlobChunk chunk) {
+        while (chunk != null) {
+            MemoryBlobChunk next = chunk.nextChunk;
+            recycle(chunk);
+            chunk = next;
+        }
+    }
+
+    /**
+     * Get the number of buffer allocations that have been satisfied from the pool.
+     * 
+     * @return the number of pool hits
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Get the number of buffer allocations that could not be satisfied from the pool and that
+     * required the allocation of a new buffer.
+     * 
+     * @return the number of pool misses
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+}
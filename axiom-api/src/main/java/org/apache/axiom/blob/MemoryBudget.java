@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.blob;
+
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the amount of memory that can be used by blobs created for concurrent requests. A single
+ * instance is typically shared by all the components of an application (or by the entire JVM) that
+ * buffer data in memory.
+ * <p>
+ * The budget is tracked using reservations that are returned when the blob is
+ * {@link WritableBlob#release() released} or, if the application doesn't release the blob
+ * explicitly, when the blob is garbage collected. The usage is maintained using atomic counters,
+ * but the bookkeeping needed to detect blobs that have been garbage collected (a concurrent set of
+ * phantom references and a {@link ReferenceQueue}, which uses locks internally) means that the
+ * operations of this class are not lock free.
+ * <p>
+ * {@link OverflowableBlob} instances created with
+ * {@link Blobs#createOverflowableBlob(int, WritableBlobFactory, MemoryBudget)} consult the budget
+ * each time they grow in memory and transfer their content to the overflow blob if the budget is
+ * exhausted. {@link #getUsage()}, {@link #getPeakUsage()} and {@link #getSpillCount()} can be used
+ * as gauges to monitor that mechanism.
+ */
+public final class MemoryBudget {
+    private final long limit;
+    private final AtomicLong usage = new AtomicLong();
+    private final AtomicLong peakUsage = new AtomicLong();
+    private final AtomicLong spillCount = new AtomicLong();
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+    
+    /**
+     * The pending reservations. This is necessary to keep the {@link Reservation} objects (which
+     * are phantom references) reachable.
+     */
+    private final Set<Reservation> reservations = Collections.newSetFromMap(
+            new ConcurrentHashMap<Reservation,Boolean>());
+
+    /**
+     * Constructor.
+     * 
+     * @param limit
+     *            the maximum number of bytes that can be reserved at any given time
+     */
+    public MemoryBudget(long limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative");
+        }
+        this.limit = limit;
+    }
+
+    /**
+     * Get the maximum number of bytes that can be reserved at any given time.
+     * 
+     * @return the limit
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * Get the number of bytes currently reserved.
+     * 
+     * @return the current usage
+     */
+    public long getUsage() {
+        expungeStaleReservations();
+        return usage.get();
+    }
+
+    /**
+     * Get the highest number of bytes reserved at any given time since this budget was created.
+     * 
+     * @return the peak usage
+     */
+    public long getPeakUsage() {
+        return peakUsage.get();
+    }
+
+    /**
+     * Get the number of times an {@link OverflowableBlob} was transferred to its overflow blob
+     * because this budget was exhausted (as opposed to the blob exceeding its own threshold).
+     * 
+     * @return the spill count
+     */
+    public long getSpillCount() {
+        return spillCount.get();
+    }
+
+    /**
+     * Create a blob if the budget allows to store the given number of bytes in memory. The
+     * reservation is returned to the budget when the blob is released or garbage collected.
+     * <p>
+     * If more data than the reserved amount is written to the blob, the additional memory is
+     * charged to the budget when it is written, even if this exceeds the limit. The usage then
+     * reflects the actual amount of memory in use and further reservations fail until enough
+     * memory has been returned.
+     * 
+     * @param factory
+     *            the factory used to create the blob
+     * @param size
+     *            the number of bytes to reserve
+     * @return the blob, or {@code null} if the budget is exhausted
+     */
+    public WritableBlob tryCreateBlob(WritableBlobFactory<?> factory, long size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("size must not be negative");
+        }
+        if (!tryAcquire(size)) {
+            return null;
+        }
+        WritableBlob parent = factory.createBlob();
+        BudgetedBlob blob = parent instanceof MemoryBlob
+                ? new BudgetedMemoryBlob((MemoryBlob)parent) : new BudgetedBlob(parent);
+        blob.setReservation(new Reservation(this, blob, size), size);
+        return blob;
+    }
+
+    boolean tryAcquire(long amount) {
+        expungeStaleReservations();
+        while (true) {
+            long current = usage.get();
+            long updated = current + amount;
+            if (updated > limit) {
+                return false;
+            }
+            if (usage.compareAndSet(current, updated)) {
+                updatePeakUsage(updated);
+                return true;
+            }
+        }
+    }
+
+    void acquire(long amount) {
+        expungeStaleReservations();
+        updatePeakUsage(usage.addAndGet(amount));
+    }
+
+    private void updatePeakUsage(long updated) {
+        long peak;
+        while (updated > (peak = peakUsage.get()) && !peakUsage.compareAndSet(peak, updated)) {
+            // Just loop
+        }
+    }
+
+    void release(long amount) {
+        usage.addAndGet(-amount);
+    }
+
+    void spilled() {
+        spillCount.incrementAndGet();
+    }
+
+    ReferenceQueue<Object> getQueue() {
+        return queue;
+    }
+
+    void register(Reservation reservation) {
+        reservations.add(reservation);
+    }
+
+    void unregister(Reservation reservation) {
+        reservations.remove(reservation);
+    }
+
+    private void expungeStaleReservations() {
+        Reservation reservation;
+        while ((reservation = (Reservation)queue.poll()) != null) {
+            reservation.release();
+        }
+    }
+}
@@ -50,6 +50,12 @@ final class OverflowableBlobImpl implements OverflowableBlob {
                 while (len > 0) {
 
                     byte[] chunk = getCurrentChunk();
+                    if (chunk == null) {
+                        // The memory budget is exhausted. Switch to the overflow blob.
+                        switchToOverflowBlob();
+                        overflowOutputStream.write(b, off, len);
+                        return;
+                    }
 
                     // Determine number of bytes that can be copied to the current chunk.
                     int c = Math.min(len, chunkSize-chunkOffset);
@@ -197,6 +203,18 @@ final class OverflowableBlobImpl implements OverflowableBlob {
     
     final WritableBlobFactory<?> overflowBlobFactory;
     
+    /**
+     * The memory budget to consult before allocating a chunk, or <code>null</code> if memory usage
+     * is only limited by the threshold.
+     */
+    final MemoryBudget budget;
+    
+    /**
+     * The part of the memory budget used by this blob. This is created when the first chunk is
+     * allocated.
+     */
+    Reservation reservation;
+    
     /**
      * Array of <code>byte[]</code> representing the chunks of the buffer.
      * A chunk is only allocated when the first byte is written to it.
@@ -228,27 +246,39 @@ final class OverflowableBlobImpl implements OverflowableBlob {
     
     OutputStream overflowOutputStream;
     
-    OverflowableBlobImpl(int numberOfChunks, int chunkSize, WritableBlobFactory<?> overflowBlobFactory) {
+    OverflowableBlobImpl(int numberOfChunks, int chunkSize, WritableBlobFactory<?> overflowBlobFactory,
+            MemoryBudget budget) {
         this.chunkSize = chunkSize;
         this.overflowBlobFactory = overflowBlobFactory;
+        this.budget = budget;
         chunks = new byte[numberOfChunks][];
     }
     
     /**
      * Get the current chunk to write to, allocating it if necessary.
      * 
-     * @return the current chunk to write to (never null)
+     * @return the current chunk to write to, or <code>null</code> if the chunk needs to be
+     *         allocated and the memory budget is exhausted
      */
     byte[] getCurrentChunk() {
-        if (chunkOffset == 0) {
-            // We will write the first byte to the current chunk. Allocate it.
-            byte[] chunk = new byte[chunkSize];
+        byte[] chunk = chunks[chunkIndex];
+        if (chunk == null) {
+            // We will write the first byte to the current chunk. Allocate it. Note that we can't
+            // rely on chunkOffset here: a previous readFrom call may have allocated the chunk and
+            // then reached the end of the input stream without writing anything to it.
+            if (budget != null) {
+                if (reservation == null) {
+                    reservation = new Reservation(budget, this, 0);
+                }
+                if (!reservation.tryGrow(chunkSize)) {
+                    budget.spilled();
+                    return null;
+                }
+            }
+            chunk = new byte[chunkSize];
             chunks[chunkIndex] = chunk;
-            return chunk;
-        } else {
-            // The chunk has already been allocated.
-            return chunks[chunkIndex];
         }
+        return chunk;
     }
     
     /**
@@ -272,6 +302,14 @@ final class OverflowableBlobImpl implements OverflowableBlob {
 
         // Release references to the buffer so that it can be garbage collected.
         chunks = null;
+        releaseReservation();
+    }
+    
+    private void releaseReservation() {
+        if (reservation != null) {
+            reservation.release();
+            reservation = null;
+        }
     }
     
     @Override
@@ -301,13 +339,22 @@ final class OverflowableBlobImpl implements OverflowableBlob {
                     throw new StreamCopyException(StreamCopyException.WRITE, ex);
                 }
             } else {
+                byte[] chunk = getCurrentChunk();
+                if (chunk == null) {
+                    try {
+                        switchToOverflowBlob();
+                    } catch (IOException ex) {
+                        throw new StreamCopyException(StreamCopyException.WRITE, ex);
+                    }
+                    continue;
+                }
                 int c;
                 try {
                     int len = chunkSize-chunkOffset;
                     if (len > toRead) {
                         len = (int)toRead;
                     }
-                    c = in.read(getCurrentChunk(), chunkOffset, len);
+                    c = in.read(chunk, chunkOffset, len);
                 } catch (IOException ex) {
                     throw new StreamCopyException(StreamCopyException.READ, ex);
                 }
@@ -392,6 +439,7 @@ final class OverflowableBlobImpl implements OverflowableBlob {
             overflowBlob.release();
             overflowBlob = null;
         }
+        releaseReservation();
         state = State.RELEASED;
     }
 
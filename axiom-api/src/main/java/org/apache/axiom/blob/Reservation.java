@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.blob;
+
+import java.lang.ref.PhantomReference;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the part of a {@link MemoryBudget} used by a given object. The reservation is a phantom
+ * reference to that object so that the memory can be returned to the budget if the object is
+ * garbage collected without having been released.
+ */
+final class Reservation extends PhantomReference<Object> {
+    private final MemoryBudget budget;
+    private final AtomicLong amount;
+    private volatile boolean released;
+
+    /**
+     * Constructor. The given amount must already have been acquired from the budget.
+     * 
+     * @param budget
+     *            the budget
+     * @param referent
+     *            the object using the memory
+     * @param amount
+     *            the number of bytes initially reserved
+     */
+    Reservation(MemoryBudget budget, Object referent, long amount) {
+        super(referent, budget.getQueue());
+        this.budget = budget;
+        this.amount = new AtomicLong(amount);
+        budget.register(this);
+    }
+
+    /**
+     * Attempt to increase the amount of memory reserved.
+     * 
+     * @param delta
+     *            the number of additional bytes to reserve
+     * @return {@code true} if the memory has been reserved, {@code false} if the budget is
+     *         exhausted
+     */
+    boolean tryGrow(long delta) {
+        if (budget.tryAcquire(delta)) {
+            amount.addAndGet(delta);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Increase the amount of memory reserved, even if this exceeds the limit of the budget. This is
+     * used to account for memory that is already in use. The method has no effect if the
+     * reservation has already been released.
+     * 
+     * @param delta
+     *            the number of additional bytes to reserve
+     */
+    void grow(long delta) {
+        if (!released) {
+            budget.acquire(delta);
+            amount.addAndGet(delta);
+        }
+    }
+
+    /**
+     * Return the reserved memory to the budget. This method is idempotent.
+     */
+    void release() {
+        released = true;
+        clear();
+        budget.unregister(this);
+        long released = amount.getAndSet(0);
+        if (released != 0) {
+            budget.release(released);
+        }
+    }
+}
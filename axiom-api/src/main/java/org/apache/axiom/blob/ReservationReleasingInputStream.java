@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.blob;
+
+/**
+ * {@link MemoryBlobInputStream} that returns a {@link Reservation} to the budget once the stream
+ * has been consumed or closed.
+ */
+final class ReservationReleasingInputStream extends MemoryBlobInputStream {
+    private final MemoryBlobInputStream parent;
+    private final Reservation reservation;
+
+    ReservationReleasingInputStream(MemoryBlobInputStream parent, Reservation reservation) {
+        this.parent = parent;
+        this.reservation = reservation;
+    }
+
+    private int checkEnd(int result) {
+        if (result == -1) {
+            reservation.release();
+        }
+        return result;
+    }
+
+    @Override
+    public int read() {
+        return checkEnd(parent.read());
+    }
+
+    @Override
+    public int read(byte[] b) {
+        return checkEnd(parent.read(b));
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        return checkEnd(parent.read(b, off, len));
+    }
+
+    @Override
+    public long skip(long n) {
+        return parent.skip(n);
+    }
+
+    @Override
+    public int available() {
+        return parent.available();
+    }
+
+    @Override
+    public void close() {
+        parent.close();
+        reservation.release();
+    }
+
+    @Override
+    public void mark(int readlimit) {
+        parent.mark(readlimit);
+    }
+
+    @Override
+    public void reset() {
+        parent.reset();
+    }
+}
@@ -19,17 +19,36 @@
 package org.apache.axiom.blob;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 
+import org.apache.axiom.ext.io.StreamCopyException;
+import org.apache.axiom.ext.io.WritableChannelSupport;
+import org.apache.axiom.util.io.IOUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 final class TempFileBlobImpl extends AbstractWritableBlob {
     private static final Log log = LogFactory.getLog(TempFileBlobImpl.class);
     
+    /**
+     * Files of at least this size are read through memory mapped regions. For smaller files the
+     * cost of setting up the mapping outweighs the benefit of avoiding read system calls.
+     */
+    private static final long MAP_THRESHOLD = 1024*1024;
+    
+    /**
+     * Indicates whether files may be memory mapped. On Windows a file can't be deleted as long as
+     * it is mapped, and since mappings are only released by the garbage collector, this would
+     * cause {@link #release()} to fail.
+     */
+    private static final boolean mapFiles = !System.getProperty("os.name", "").startsWith("Windows");
+    
     private final TempFileBlobFactory factory;
     private final Throwable trace;
     private File file;
@@ -69,7 +88,88 @@ final class TempFileBlobImpl extends AbstractWritableBlob {
         // We know that we are accessing a regular file and since we don't leak the
         // location of the file, nobody else should be modifying it. Therefore we can
         // return an input stream that supports mark/reset.
-        return new TempFileInputStream(file);
+        if (mapFiles && file.length() >= MAP_THRESHOLD) {
+            return new MappedFileInputStream(file);
+        } else {
+            return new TempFileInputStream(file);
+        }
+    }
+
+    private static WritableByteChannel getChannel(OutputStream out) throws IOException {
+        if (out instanceof WritableChannelSupport) {
+            return ((WritableChannelSupport)out).getChannel();
+        } else if (out.getClass() == FileOutputStream.class) {
+            // Only do this for FileOutputStream itself; subclasses may override the write methods.
+            return ((FileOutputStream)out).getChannel();
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws StreamCopyException {
+        if (state != State.COMMITTED) {
+            throw new IllegalStateException();
+        }
+        WritableByteChannel target;
+        try {
+            target = getChannel(out);
+        } catch (IOException ex) {
+            throw new StreamCopyException(StreamCopyException.WRITE, ex);
+        }
+        if (target == null) {
+            super.writeTo(out);
+            return;
+        }
+        // The target is a channel; let the kernel transfer the data without copying it to the heap.
+        FileInputStream in;
+        try {
+            in = new FileInputStream(file);
+        } catch (IOException ex) {
+            throw new StreamCopyException(StreamCopyException.READ, ex);
+        }
+        try {
+            transferTo(in, target, out);
+        } catch (Throwable ex) {
+            // Don't let a failure to close the file hide the original exception
+            try {
+                in.close();
+            } catch (IOException ex2) {
+                ex.addSuppressed(ex2);
+            }
+            throw ex;
+        }
+        try {
+            in.close();
+        } catch (IOException ex) {
+            throw new StreamCopyException(StreamCopyException.READ, ex);
+        }
+    }
+
+    private static void transferTo(FileInputStream in, WritableByteChannel target, OutputStream out)
+            throws StreamCopyException {
+        long position = 0;
+        try {
+            FileChannel channel = in.getChannel();
+            long size = channel.size();
+            while (position < size) {
+                long c = channel.transferTo(position, size-position, target);
+                if (c == 0) {
+                    // No progress, e.g. because the file has been truncated or the target doesn't
+                    // accept data. Fall back to a regular copy, which terminates at the end of
+                    // the file.
+                    channel.position(position);
+                    break;
+                }
+                position += c;
+            }
+            if (position == size) {
+                return;
+            }
+        } catch (IOException ex) {
+            throw new StreamCopyException(StreamCopyException.WRITE, ex);
+        }
+        IOUtils.copy(in, out, -1);
     }
 
     @Override
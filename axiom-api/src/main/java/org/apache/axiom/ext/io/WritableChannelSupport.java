@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.ext.io;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Optional interface implemented by {@link java.io.OutputStream} implementations that write to a
+ * {@link WritableByteChannel}. This interface may be used to write data directly to the channel,
+ * e.g. using {@link java.nio.channels.FileChannel#transferTo(long, long, WritableByteChannel)},
+ * instead of copying it through the stream.
+ */
+public interface WritableChannelSupport {
+    /**
+     * Get the channel this output stream writes to. Before returning the channel, the
+     * implementation must write any data buffered by the stream to the channel. The channel must be
+     * in blocking mode.
+     * 
+     * @return the channel, or <code>null</code> if the stream is currently unable to give direct
+     *         access to the channel
+     * @throws IOException
+     *             if an I/O error occurs while writing buffered data to the channel
+     */
+    WritableByteChannel getChannel() throws IOException;
+}
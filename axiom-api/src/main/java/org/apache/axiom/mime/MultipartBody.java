@@ -26,8 +26,10 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import org.apache.axiom.blob.MemoryBlob;
+import org.apache.axiom.blob.WritableBlob;
 import org.apache.axiom.blob.WritableBlobFactory;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -57,9 +59,14 @@ public final class MultipartBody implements Iterable<Part> {
     public final static class Builder {
         private InputStream inputStream;
         private ContentType contentType;
+        private WritableBlobFactory<?> rootPartBlobFactory;
         private WritableBlobFactory<?> attachmentBlobFactory;
+        private PartBlobFactory partBlobFactory;
         private DataHandlerFactory dataHandlerFactory;
         private PartCreationListener partCreationListener;
+        private Executor prefetchExecutor;
+        private int maxPrefetchedParts = 4;
+        private boolean indexed;
         
         Builder() {}
 
@@ -82,11 +89,40 @@ public final class MultipartBody implements Iterable<Part> {
             return this;
         }
 
+        /**
+         * Set the factory used to create the blobs that store the content of the root part. If
+         * not set, {@link MemoryBlob#FACTORY} is used.
+         * 
+         * @param rootPartBlobFactory
+         *            the blob factory
+         * @return this builder
+         * @see org.apache.axiom.blob.Blobs#createDirectMemoryBlobFactory()
+         */
+        public Builder setRootPartBlobFactory(WritableBlobFactory<?> rootPartBlobFactory) {
+            this.rootPartBlobFactory = rootPartBlobFactory;
+            return this;
+        }
+
         public Builder setAttachmentBlobFactory(WritableBlobFactory<?> attachmentBlobFactory) {
             this.attachmentBlobFactory = attachmentBlobFactory;
             return this;
         }
 
+        /**
+         * Set the policy that selects the blob used to store the content of each part. This
+         * overrides the factories set using {@link #setRootPartBlobFactory(WritableBlobFactory)}
+         * and {@link #setAttachmentBlobFactory(WritableBlobFactory)}.
+         * 
+         * @param partBlobFactory
+         *            the policy
+         * @return this builder
+         * @see SizeTieredPartBlobFactory
+         */
+        public Builder setPartBlobFactory(PartBlobFactory partBlobFactory) {
+            this.partBlobFactory = partBlobFactory;
+            return this;
+        }
+
         public Builder setDataHandlerFactory(DataHandlerFactory dataHandlerFactory) {
             this.dataHandlerFactory = dataHandlerFactory;
             return this;
@@ -97,6 +133,62 @@ public final class MultipartBody implements Iterable<Part> {
             return this;
         }
 
+        /**
+         * Enable prefetching of MIME parts. In this mode, the message is read by a task submitted
+         * to the given executor. That task buffers the content of each part in a blob (created
+         * by the factories configured using {@link #setRootPartBlobFactory(WritableBlobFactory)}
+         * and {@link #setAttachmentBlobFactory(WritableBlobFactory)}) ahead of the application,
+         * so that processing of the root part overlaps with the reading of the attachments.
+         * <p>
+         * Note that in this mode, parts are always buffered, i.e. streaming of part content
+         * using {@link Part#getInputStream(boolean)} is not supported. In addition, the task blocks
+         * when it is {@link #setMaxPrefetchedParts(int) too far ahead} of the application, which
+         * means that the application must either process all parts or call
+         * {@link MultipartBody#detach()}.
+         * 
+         * @param prefetchExecutor
+         *            the executor to run the task that reads the message
+         * @return this builder
+         */
+        public Builder setPrefetchExecutor(Executor prefetchExecutor) {
+            this.prefetchExecutor = prefetchExecutor;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of parts that are buffered ahead of the application when
+         * prefetching is enabled. The default is 4.
+         * 
+         * @param maxPrefetchedParts
+         *            the maximum number of prefetched parts
+         * @return this builder
+         * @see #setPrefetchExecutor(Executor)
+         */
+        public Builder setMaxPrefetchedParts(int maxPrefetchedParts) {
+            if (maxPrefetchedParts < 1) {
+                throw new IllegalArgumentException("maxPrefetchedParts must be at least 1");
+            }
+            this.maxPrefetchedParts = maxPrefetchedParts;
+            return this;
+        }
+
+        /**
+         * Specify whether the message should be indexed eagerly. If this option is enabled, all
+         * parts are read and buffered in a single pass when the {@link MultipartBody} instance is
+         * created. After that, {@link MultipartBody#getPart(String)},
+         * {@link MultipartBody#getPart(int)}, {@link MultipartBody#getPartCount()} and
+         * {@link Part#getSize()} complete in constant time and no longer access the underlying
+         * stream. The default is {@code false}, i.e. parts are read on demand.
+         * 
+         * @param indexed
+         *            {@code true} to index the message eagerly
+         * @return this builder
+         */
+        public Builder setIndexed(boolean indexed) {
+            this.indexed = indexed;
+            return this;
+        }
+
         public MultipartBody build() {
             if (inputStream == null) {
                 throw new IllegalArgumentException("inputStream is mandatory");
@@ -104,12 +196,32 @@ public final class MultipartBody implements Iterable<Part> {
             if (contentType == null) {
                 throw new IllegalArgumentException("contentType is mandatory");
             }
-            return new MultipartBody(
+            PartBlobFactory partBlobFactory = this.partBlobFactory;
+            if (partBlobFactory == null) {
+                final WritableBlobFactory<?> rootPartBlobFactory =
+                        this.rootPartBlobFactory == null ? MemoryBlob.FACTORY : this.rootPartBlobFactory;
+                final WritableBlobFactory<?> attachmentBlobFactory =
+                        this.attachmentBlobFactory == null ? MemoryBlob.FACTORY : this.attachmentBlobFactory;
+                partBlobFactory = new PartBlobFactory() {
+                    @Override
+                    public WritableBlob createBlob(Part part, boolean rootPart) {
+                        return (rootPart ? rootPartBlobFactory : attachmentBlobFactory).createBlob();
+                    }
+                };
+            }
+            MultipartBody message = new MultipartBody(
                     inputStream,
                     contentType,
-                    attachmentBlobFactory == null ? MemoryBlob.FACTORY : attachmentBlobFactory,
+                    partBlobFactory,
                     dataHandlerFactory == null ? DataHandlerFactory.DEFAULT : dataHandlerFactory,
                     partCreationListener);
+            if (prefetchExecutor != null) {
+                message.startPrefetching(prefetchExecutor, maxPrefetchedParts);
+            }
+            if (indexed) {
+                message.detach();
+            }
+            return message;
         }
     }
 
@@ -127,6 +239,11 @@ public final class MultipartBody implements Iterable<Part> {
      */
     private final Map<String,PartImpl> partMap = new HashMap<String,PartImpl>();
 
+    /**
+     * Stores the already parsed MIME parts in the order in which they appear in the message.
+     */
+    private final List<PartImpl> parts = new ArrayList<PartImpl>();
+
     /**
      * The MIME part currently being processed.
      */
@@ -135,17 +252,28 @@ public final class MultipartBody implements Iterable<Part> {
     private PartImpl firstPart;
     private PartImpl rootPart;
 
-    private int partCount;
+    /**
+     * The task reading the message in the background, or {@code null} if prefetching is not
+     * enabled.
+     */
+    private PartPrefetcher prefetcher;
+    
+    /**
+     * Indicates whether all parts have been read.
+     */
+    private boolean complete;
+    
+    private boolean closed;
 
-    private final WritableBlobFactory<?> attachmentBlobFactory;
+    private final PartBlobFactory partBlobFactory;
     private final DataHandlerFactory dataHandlerFactory;
     private final PartCreationListener partCreationListener;
     
     MultipartBody(InputStream inStream, ContentType contentType,
-            WritableBlobFactory<?> attachmentBlobFactory,
+            PartBlobFactory partBlobFactory,
             DataHandlerFactory dataHandlerFactory,
             PartCreationListener partCreationListener) {
-        this.attachmentBlobFactory = attachmentBlobFactory;
+        this.partBlobFactory = partBlobFactory;
         this.dataHandlerFactory = dataHandlerFactory;
         this.partCreationListener = partCreationListener;
         this.contentType = contentType;
@@ -169,6 +297,11 @@ public final class MultipartBody implements Iterable<Part> {
         }
     }
 
+    void startPrefetching(Executor executor, int maxPrefetchedParts) {
+        prefetcher = new PartPrefetcher(this, maxPrefetchedParts);
+        executor.execute(prefetcher);
+    }
+
     public static Builder builder() {
         return new Builder();
     }
@@ -213,6 +346,25 @@ public final class MultipartBody implements Iterable<Part> {
         return null;
     }
 
+    /**
+     * Get the MIME part at the given position in the message.
+     * 
+     * @param index
+     *            the (zero-based) index of the part to retrieve
+     * @return the MIME part, or {@code null} if the message has no more than {@code index} parts
+     */
+    public Part getPart(int index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        while (index >= parts.size()) {
+            if (getNextPart() == null) {
+                return null;
+            }
+        }
+        return parts.get(index);
+    }
+
     /**
      * Get the number of parts in this multipart.
      * 
@@ -220,7 +372,7 @@ public final class MultipartBody implements Iterable<Part> {
      */
     public int getPartCount() {
         detach();
-        return partCount;
+        return parts.size();
     }
 
     PartImpl getFirstPart() {
@@ -240,68 +392,103 @@ public final class MultipartBody implements Iterable<Part> {
                 "Mandatory root MIME part is missing");
     }
 
-    PartImpl getNextPart() {
-        if (currentPart != null) {
-            currentPart.fetch();
-        }
-        if (parser.getState() == EntityState.T_END_MULTIPART) {
-            currentPart = null;
+    private boolean isRootPart(String partContentID, boolean isFirstPart) {
+        if (rootPartContentID == null) {
+            return isFirstPart;
         } else {
-            String partContentID = null;
-            boolean isRootPart;
+            return rootPartContentID.equals(partContentID);
+        }
+    }
 
-            try {
-                checkParserState(parser.next(), EntityState.T_START_HEADER);
-                
-                List<Header> headers = new ArrayList<Header>();
-                while (parser.next() == EntityState.T_FIELD) {
-                    Field field = parser.getField();
-                    String name = field.getName();
-                    String value = field.getBody();
-                    
-                    if (log.isDebugEnabled()){
-                        log.debug("addHeader: (" + name + ") value=(" + value +")");
-                    }
-                    headers.add(new Header(name, value));
-                    if (partContentID == null && name.equalsIgnoreCase("Content-ID")) {
-                        partContentID = normalizeContentID(value);
-                    }
-                }
-                
-                checkParserState(parser.next(), EntityState.T_BODY);
+    /**
+     * Determine if the parser has reached the end of the message.
+     * 
+     * @return {@code true} if there are no more parts to read
+     */
+    boolean isEndOfMessage() {
+        return parser.getState() == EntityState.T_END_MULTIPART;
+    }
+
+    /**
+     * Read the headers of the next part from the parser. This method doesn't update the list of
+     * parts and may therefore be called by the prefetching task.
+     * 
+     * @param isFirstPart
+     *            indicates whether this is the first part of the message
+     * @return the part
+     */
+    PartImpl readPart(boolean isFirstPart) {
+        try {
+            checkParserState(parser.next(), EntityState.T_START_HEADER);
+            
+            String partContentID = null;
+            List<Header> headers = new ArrayList<Header>();
+            while (parser.next() == EntityState.T_FIELD) {
+                Field field = parser.getField();
+                String name = field.getName();
+                String value = field.getBody();
                 
-                if (rootPartContentID == null) {
-                    isRootPart = firstPart == null;
-                } else {
-                    isRootPart = rootPartContentID.equals(partContentID);
+                if (log.isDebugEnabled()){
+                    log.debug("addHeader: (" + name + ") value=(" + value +")");
                 }
-                
-                PartImpl part = new PartImpl(this, isRootPart ? MemoryBlob.FACTORY : attachmentBlobFactory, partContentID, headers, parser);
-                if (currentPart == null) {
-                    firstPart = part;
-                } else {
-                    currentPart.setNextPart(part);
+                headers.add(new Header(name, value));
+                if (partContentID == null && name.equalsIgnoreCase("Content-ID")) {
+                    partContentID = normalizeContentID(value);
                 }
-                currentPart = part;
-            } catch (IOException ex) {
-                throw new MIMEException(ex);
-            } catch (MimeException ex) {
-                throw new MIMEException(ex);
             }
+            
+            checkParserState(parser.next(), EntityState.T_BODY);
+            
+            return new PartImpl(this, partBlobFactory, isRootPart(partContentID, isFirstPart),
+                    partContentID, headers, parser);
+        } catch (IOException ex) {
+            throw new MIMEException(ex);
+        } catch (MimeException ex) {
+            throw new MIMEException(ex);
+        }
+    }
+
+    PartImpl getNextPart() {
+        if (complete) {
+            return null;
+        }
+        if (closed) {
+            throw new MIMEException("The message has been closed");
+        }
+        PartImpl part;
+        if (prefetcher != null) {
+            part = prefetcher.takePart();
+        } else {
+            if (currentPart != null) {
+                currentPart.fetch();
+            }
+            part = isEndOfMessage() ? null : readPart(firstPart == null);
+        }
+        if (part == null) {
+            currentPart = null;
+            complete = true;
+        } else {
+            if (currentPart == null) {
+                firstPart = part;
+            } else {
+                currentPart.setNextPart(part);
+            }
+            currentPart = part;
 
-            partCount++;
+            parts.add(part);
+            String partContentID = part.getContentID();
             if (partContentID != null) {
                 if (partMap.containsKey(partContentID)) {
                     throw new MIMEException(
                             "Two MIME parts with the same Content-ID not allowed.");
                 }
-                partMap.put(partContentID, currentPart);
+                partMap.put(partContentID, part);
             }
-            if (isRootPart) {
-                rootPart = currentPart;
+            if (isRootPart(partContentID, part == firstPart)) {
+                rootPart = part;
             }
             if (partCreationListener != null) {
-                partCreationListener.partCreated(currentPart);
+                partCreationListener.partCreated(part);
             }
         }
         return currentPart;
@@ -324,4 +511,21 @@ public final class MultipartBody implements Iterable<Part> {
             // Just loop
         }
     }
+
+    /**
+     * Stop reading the message. If prefetching is enabled, this signals the background task to
+     * stop; this method should therefore be called if the application abandons the message before
+     * reaching its end. The method doesn't wait for the task: if the task is reading a part, it
+     * will continue to access the underlying stream until that part has been read, but it won't
+     * start reading another one. Parts that have been prefetched but not returned (including the
+     * one being read) are discarded. Parts that have already been returned remain accessible, but
+     * any attempt to access subsequent parts will result in a {@link MIMEException}. The
+     * underlying stream is not closed.
+     */
+    public void close() {
+        closed = true;
+        if (prefetcher != null) {
+            prefetcher.cancel();
+        }
+    }
 }
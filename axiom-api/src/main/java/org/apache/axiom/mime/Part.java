@@ -69,6 +69,18 @@ public interface Part {
      */
     Blob getBlob();
 
+    /**
+     * Get the size of the (decoded) content of this part. This doesn't require the creation of a
+     * {@link DataHandler}, but will cause the part to be fetched if it hasn't been read yet. The
+     * size remains available after the buffered content has been {@link #discard() discarded}.
+     * 
+     * @return the size of the content in bytes
+     * @throws IllegalStateException
+     *             if the content has been consumed using {@link #getInputStream(boolean)} before
+     *             its size was determined
+     */
+    long getSize();
+
     /**
      * Get the content of this part as an {@link InputStream}.
      * 
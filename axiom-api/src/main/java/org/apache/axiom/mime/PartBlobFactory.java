@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.mime;
+
+import org.apache.axiom.blob.WritableBlob;
+
+/**
+ * Creates the blobs used to buffer the content of MIME parts. This allows to select the storage
+ * (heap, off-heap memory, temporary file, etc.) on a per part basis.
+ * 
+ * @see MultipartBody.Builder#setPartBlobFactory(PartBlobFactory)
+ * @see SizeTieredPartBlobFactory
+ */
+public interface PartBlobFactory {
+    /**
+     * Create a blob to store the content of the given MIME part. When this method is invoked, the
+     * content of the part has not been read yet. Implementations must therefore only access the
+     * headers of the part (e.g. using {@link Part#getHeader(String)} or
+     * {@link Part#getContentType()}).
+     * 
+     * @param part
+     *            the MIME part
+     * @param rootPart
+     *            {@code true} if the part is the root part of the message
+     * @return the blob (in state NEW)
+     */
+    WritableBlob createBlob(Part part, boolean rootPart);
+}
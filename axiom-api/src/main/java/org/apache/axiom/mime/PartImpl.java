@@ -68,7 +68,8 @@ final class PartImpl implements Part {
     private static final Log log = LogFactory.getLog(PartImpl.class);
     
     private final MultipartBody message;
-    private final WritableBlobFactory<?> blobFactory;
+    private final PartBlobFactory blobFactory;
+    private final boolean rootPart;
     
     private final String contentID;
     private final List<Header> headers;
@@ -93,9 +94,16 @@ final class PartImpl implements Part {
     
     private PartImpl nextPart;
     
-    PartImpl(MultipartBody message, WritableBlobFactory<?> blobFactory, String contentID, List<Header> headers, MimeTokenStream parser) {
+    /**
+     * The size of the content of this part, or -1 if the size is not known yet. This is set when
+     * the part is buffered and retained after the content is discarded.
+     */
+    private long size = -1;
+    
+    PartImpl(MultipartBody message, PartBlobFactory blobFactory, boolean rootPart, String contentID, List<Header> headers, MimeTokenStream parser) {
         this.message = message;
         this.blobFactory = blobFactory;
+        this.rootPart = rootPart;
         this.contentID = contentID;
         this.headers = headers;
         this.parser = parser;
@@ -147,6 +155,14 @@ final class PartImpl implements Part {
         return dataHandler;
     }
 
+    @Override
+    public long getSize() {
+        if (size == -1) {
+            size = getContent().getSize();
+        }
+        return size;
+    }
+
     private WritableBlob getContent() {
         switch (state) {
             case STATE_UNREAD:
@@ -191,7 +207,7 @@ final class PartImpl implements Part {
             case STATE_UNREAD:
                 checkParserState(parser.getState(), EntityState.T_BODY);
 
-                content = blobFactory.createBlob();
+                content = blobFactory.createBlob(this, rootPart);
                 if (log.isDebugEnabled()) {
                     log.debug("Using blob of type " + content.getClass().getName());
                 }
@@ -244,7 +260,12 @@ final class PartImpl implements Part {
         if (!preserve && state == STATE_UNREAD) {
             checkParserState(parser.getState(), EntityState.T_BODY);
             state = STATE_STREAMING;
-            partInputStream = new PartInputStream(getDecodedInputStream(), blobFactory);
+            partInputStream = new PartInputStream(getDecodedInputStream(), new WritableBlobFactory<WritableBlob>() {
+                @Override
+                public WritableBlob createBlob() {
+                    return blobFactory.createBlob(PartImpl.this, rootPart);
+                }
+            });
             return partInputStream;
         } else {
             WritableBlob content = getContent();
@@ -272,6 +293,9 @@ final class PartImpl implements Part {
                     state = STATE_DISCARDED;
                     break;
                 case STATE_BUFFERED:
+                    if (size == -1) {
+                        size = content.getSize();
+                    }
                     content.release();
             }
         } catch (MimeException ex) {
@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.mime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Task that reads the parts of a {@link MultipartBody} in the background and buffers their
+ * content. Parts are handed over to the application thread through a bounded queue, which provides
+ * back-pressure: the task blocks if it gets too far ahead of the application.
+ * <p>
+ * Once the task has been started, the MIME parser is accessed exclusively by the task. The parts
+ * it creates are fully buffered before they are handed over and are then only accessed by the
+ * application thread.
+ * <p>
+ * The task can be stopped using {@link #cancel()}. This is necessary if the application abandons
+ * the message before reaching its end, because the task would otherwise block forever waiting for
+ * the application to take the next part. Parts that have been read but not handed over are then
+ * discarded, so that the resources used by their blobs (temporary files, memory budget
+ * reservations) are released.
+ */
+final class PartPrefetcher implements Runnable {
+    /**
+     * Marker object put into the queue after the last part.
+     */
+    private static final Object END = new Object();
+
+    private static final class Failure {
+        final Throwable cause;
+
+        Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+
+    /**
+     * The maximum time (in milliseconds) the task waits for space in the queue before checking
+     * whether it has been cancelled.
+     */
+    private static final long PUT_TIMEOUT = 100;
+
+    private final MultipartBody message;
+    private final BlockingQueue<Object> queue;
+    
+    /**
+     * Set when the task has been cancelled.
+     */
+    private volatile boolean cancelled;
+    
+    /**
+     * Set (by the application thread) when the end of the message has been taken from the queue.
+     */
+    private boolean done;
+    
+    /**
+     * The error taken from the queue (by the application thread), if any. It is rethrown on every
+     * subsequent call to {@link #takePart()}, so that a truncated or corrupt message can't be
+     * mistaken for a complete one.
+     */
+    private Throwable failure;
+
+    PartPrefetcher(MultipartBody message, int maxPrefetchedParts) {
+        this.message = message;
+        queue = new ArrayBlockingQueue<Object>(maxPrefetchedParts);
+    }
+
+    @Override
+    public void run() {
+        Object result;
+        try {
+            boolean isFirstPart = true;
+            while (!cancelled && !message.isEndOfMessage()) {
+                PartImpl part = message.readPart(isFirstPart);
+                isFirstPart = false;
+                part.fetch();
+                if (!put(part)) {
+                    return;
+                }
+            }
+            result = END;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            result = new Failure(ex);
+        } catch (Throwable ex) {
+            result = new Failure(ex);
+        }
+        try {
+            put(result);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Put an object into the queue, waiting for space to become available unless the task is
+     * cancelled.
+     * 
+     * @param object
+     *            the object to put into the queue
+     * @return {@code true} if the object has been added to the queue, {@code false} if the task
+     *         has been cancelled
+     * @throws InterruptedException
+     *             if the thread was interrupted while waiting
+     */
+    private boolean put(Object object) throws InterruptedException {
+        try {
+            while (!cancelled) {
+                if (queue.offer(object, PUT_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                    if (cancelled) {
+                        // cancel() may have emptied the queue before the object was added
+                        discardQueuedParts();
+                        return false;
+                    }
+                    return true;
+                }
+            }
+        } catch (InterruptedException ex) {
+            discard(object);
+            throw ex;
+        }
+        discard(object);
+        discardQueuedParts();
+        return false;
+    }
+
+    /**
+     * Stop the task. This method doesn't wait for the task to terminate: if the task is currently
+     * reading a part, it will finish reading that part, discard it and then stop. Parts that have
+     * been prefetched but not taken yet are discarded.
+     */
+    void cancel() {
+        cancelled = true;
+        discardQueuedParts();
+    }
+
+    /**
+     * Remove all objects from the queue and discard the parts among them. This may be called
+     * concurrently by the task and the application thread; every object is removed by exactly one
+     * of them.
+     */
+    private void discardQueuedParts() {
+        List<Object> objects = new ArrayList<Object>();
+        queue.drainTo(objects);
+        for (Object object : objects) {
+            discard(object);
+        }
+    }
+
+    private static void discard(Object object) {
+        if (object instanceof PartImpl) {
+            ((PartImpl)object).discard();
+        }
+    }
+
+    /**
+     * Get the next part read by the task, waiting for it if necessary.
+     * 
+     * @return the next part, or {@code null} if the end of the message has been reached
+     * @throws MIMEException
+     *             if the task failed to read the message
+     */
+    PartImpl takePart() {
+        if (failure != null) {
+            throw createException(failure);
+        }
+        if (done) {
+            return null;
+        }
+        Object result;
+        try {
+            result = queue.take();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new MIMEException("Interrupted while waiting for the next MIME part", ex);
+        }
+        if (result instanceof PartImpl) {
+            return (PartImpl)result;
+        }
+        if (result == END) {
+            done = true;
+            return null;
+        }
+        failure = ((Failure)result).cause;
+        throw createException(failure);
+    }
+
+    private static RuntimeException createException(Throwable cause) {
+        if (cause instanceof Error) {
+            throw (Error)cause;
+        } else if (cause instanceof MIMEException) {
+            return new MIMEException(cause.getMessage(), cause);
+        } else {
+            return new MIMEException("Failed to read MIME part", cause);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.mime;
+
+import org.apache.axiom.blob.Blobs;
+import org.apache.axiom.blob.MemoryBudget;
+import org.apache.axiom.blob.WritableBlob;
+import org.apache.axiom.blob.WritableBlobFactory;
+
+/**
+ * {@link PartBlobFactory} implementation that selects the storage for each MIME part based on
+ * the length declared in its {@code Content-Length} header:
+ * <ul>
+ * <li>Parts with a declared length up to the memory threshold are stored on the Java heap.
+ * <li>Parts with a declared length up to the off-heap threshold are stored in direct buffers (see
+ * {@link Blobs#createDirectMemoryBlob()}).
+ * <li>Larger parts are written to the file storage directly.
+ * <li>Parts without {@code Content-Length} header are buffered on the heap and transferred to the
+ * file storage when they exceed the memory threshold.
+ * </ul>
+ * <p>
+ * Memory is only used if the given {@link MemoryBudget} (which is typically shared between all
+ * concurrent requests) allows it. Parts stored on the heap consume the budget incrementally and
+ * are transferred to the file storage as soon as the budget is exhausted (see
+ * {@link Blobs#createOverflowableBlob(int, WritableBlobFactory, MemoryBudget)}), so that a wrong
+ * {@code Content-Length} header can't cause excessive memory usage. On the other hand, the
+ * off-heap tier reserves the declared length up front and is skipped if the budget doesn't allow
+ * it. If a part stored off-heap turns out to be larger than declared, the additional memory is
+ * charged to the budget as it is written (so that other requests see the actual usage), but the
+ * part is not moved to the file storage; this tier should therefore only be enabled if the content
+ * length is trustworthy.
+ */
+public final class SizeTieredPartBlobFactory implements PartBlobFactory {
+    private final MemoryBudget budget;
+    private final int memoryThreshold;
+    private final int offHeapThreshold;
+    private final WritableBlobFactory<?> offHeapBlobFactory;
+    private final WritableBlobFactory<?> fileBlobFactory;
+
+    /**
+     * Constructor.
+     * 
+     * @param budget
+     *            the memory budget shared by the heap and off-heap tiers
+     * @param memoryThreshold
+     *            the maximum size of parts stored on the heap
+     * @param offHeapThreshold
+     *            the maximum size of parts stored in direct buffers; if this is not greater than
+     *            the memory threshold, the off-heap tier is disabled
+     * @param fileBlobFactory
+     *            the factory for the blobs used to store larger parts, typically a factory
+     *            creating blobs backed by temporary files
+     */
+    public SizeTieredPartBlobFactory(MemoryBudget budget, int memoryThreshold,
+            int offHeapThreshold, WritableBlobFactory<?> fileBlobFactory) {
+        if (memoryThreshold <= 0) {
+            throw new IllegalArgumentException("memoryThreshold must be positive");
+        }
+        this.budget = budget;
+        this.memoryThreshold = memoryThreshold;
+        this.offHeapThreshold = offHeapThreshold;
+        this.fileBlobFactory = fileBlobFactory;
+        offHeapBlobFactory = offHeapThreshold > memoryThreshold ? Blobs.createDirectMemoryBlobFactory() : null;
+    }
+
+    @Override
+    public WritableBlob createBlob(Part part, boolean rootPart) {
+        long length = getDeclaredLength(part);
+        if (length == -1 || length <= memoryThreshold) {
+            return Blobs.createOverflowableBlob(memoryThreshold, fileBlobFactory, budget);
+        }
+        WritableBlob blob = null;
+        if (offHeapBlobFactory != null && length <= offHeapThreshold) {
+            blob = budget.tryCreateBlob(offHeapBlobFactory, length);
+        }
+        return blob == null ? fileBlobFactory.createBlob() : blob;
+    }
+
+    private static long getDeclaredLength(Part part) {
+        String value = part.getHeader("Content-Length");
+        if (value != null) {
+            try {
+                long length = Long.parseLong(value.trim());
+                if (length >= 0) {
+                    return length;
+                }
+            } catch (NumberFormatException ex) {
+                // Just ignore the header
+            }
+        }
+        return -1;
+    }
+}
@@ -35,6 +35,8 @@ import org.xml.sax.ext.LexicalHandler;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Writer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Iterator;
 
 /**
@@ -207,6 +209,99 @@ public interface OMContainer extends OMSerializable {
     //       (obviously the method can't produce XOP/MTOM and the charset encoding is ignored)
     void serialize(Writer writer, OMOutputFormat format, boolean cache) throws IOException;
 
+    /**
+     * Serialize the beginning of the node, up to a given number of characters. This is intended
+     * for logging purposes: the tree is traversed incrementally and the traversal stops as soon as
+     * the limit is reached, so that the part of the document that is not needed is neither
+     * serialized nor built (if the node is incomplete). Caching is always enabled, i.e. the node
+     * is not consumed.
+     * <p>
+     * The output is cut at exactly <code>maxLength</code> characters (or one less to avoid
+     * splitting a surrogate pair), which may be in the middle of a tag. It is up to the caller to
+     * mark the truncation, e.g. by appending an ellipsis.
+     * 
+     * @param writer
+     *            the character stream to write the serialized infoset to
+     * @param format
+     *            the output format to use
+     * @param maxLength
+     *            the maximum number of characters to write
+     * @return <code>true</code> if the output has been truncated, <code>false</code> if the
+     *         complete node has been serialized
+     * @throws IOException
+     *             if the stream throws an {@link IOException}
+     * @throws IllegalArgumentException
+     *             if <code>maxLength</code> is negative
+     */
+    boolean serializeTruncated(Writer writer, OMOutputFormat format, int maxLength) throws IOException;
+
+    /**
+     * Serialize the node to a {@link WritableByteChannel}. This method is equivalent to
+     * {@link #serialize(OutputStream, boolean)}, but encodes the output directly into buffers that
+     * are then written to the channel, avoiding the overhead of wrapping the channel in an
+     * {@link OutputStream}.
+     * 
+     * @param channel
+     *            the channel to write the serialized infoset to; must be in blocking mode
+     * @param cache
+     *            indicates if caching should be enabled
+     * @throws IOException if the channel throws an {@link IOException}
+     */
+    void serialize(WritableByteChannel channel, boolean cache) throws IOException;
+
+    /**
+     * Serialize the node to a {@link WritableByteChannel}. This method is equivalent to
+     * {@link #serialize(OutputStream, OMOutputFormat, boolean)}, but encodes the output directly
+     * into buffers that are then written to the channel.
+     * 
+     * @param channel
+     *            the channel to write the serialized infoset to; must be in blocking mode
+     * @param format
+     *            the output format to use
+     * @param cache
+     *            indicates if caching should be enabled
+     * @throws IOException if the channel throws an {@link IOException}
+     */
+    void serialize(WritableByteChannel channel, OMOutputFormat format, boolean cache) throws IOException;
+
+    /**
+     * Get a channel from which the serialized form of this node can be read. Serialization is
+     * performed incrementally: each call to {@link ReadableByteChannel#read(java.nio.ByteBuffer)}
+     * only traverses as much of the tree as is needed to fill the buffer, and the next call resumes
+     * where the previous one stopped. This allows asynchronous servers to write large documents
+     * to slow clients without blocking a thread, by reading the next chunk only when the
+     * connection is ready to accept it.
+     * <p>
+     * The tree must not be modified while the channel is in use. As with
+     * {@link #getXMLStreamReader(boolean)}, {@link OMSourcedElement} instances backed by a
+     * push-style data source are expanded when they are reached.
+     * 
+     * @param format
+     *            the output format to use; XOP/MTOM is not supported
+     * @param cache
+     *            indicates if caching should be enabled
+     * @return the channel
+     * @throws IllegalArgumentException
+     *             if the format requests an XOP/MTOM encoded message
+     */
+    ReadableByteChannel getReadableByteChannel(OMOutputFormat format, boolean cache);
+
+    /**
+     * Compute the DOMHASH digest (see <a href="http://www.ietf.org/rfc/rfc2803.txt">RFC 2803</a>)
+     * of this node. The result is the same as the one returned by the corresponding method in
+     * {@link org.apache.axiom.om.util.DigestGenerator}, but the digest is computed in a single
+     * pass over the tree, without creating intermediate byte arrays or collections for each node.
+     * 
+     * @param digestAlgorithm
+     *            the name of the digest algorithm, as expected by
+     *            {@link java.security.MessageDigest#getInstance(String)}
+     * @return the digest
+     * @throws OMException
+     *             if the digest algorithm is not supported or if an error occurs while building
+     *             the tree
+     */
+    byte[] getDigest(String digestAlgorithm) throws OMException;
+
     /**
      * @deprecated Use {@link #serialize(OutputStream, boolean)} instead.
      */
@@ -65,6 +65,7 @@ public class OMOutputFormat {
     
     private boolean ignoreXMLDeclaration;
     private boolean autoCloseWriter;
+    private int indent;
 
     public static final String ACTION_PROPERTY = "action";
     
@@ -125,6 +126,7 @@ public class OMOutputFormat {
         }
         ignoreXMLDeclaration = format.ignoreXMLDeclaration;
         autoCloseWriter = format.autoCloseWriter;
+        indent = format.indent;
         writerConfiguration = format.writerConfiguration;
         if (format.map != null) {
             map = new HashMap<String,Object>(format.map);
@@ -277,6 +279,33 @@ public class OMOutputFormat {
         this.ignoreXMLDeclaration = ignoreXMLDeclaration;
     }
 
+    /**
+     * Get the number of spaces used to indent each nesting level.
+     * 
+     * @return the number of spaces per nesting level, or 0 if indentation is disabled
+     */
+    public int getIndent() {
+        return indent;
+    }
+
+    /**
+     * Specifies that the output should be indented. Child elements, comments and processing
+     * instructions are then written on separate lines, and whitespace-only text nodes are
+     * discarded, except in elements with mixed content. This is intended for debugging and logging
+     * purposes; since indentation changes the infoset, it should not be used for messages sent to
+     * other parties. Note that this setting is ignored when the output is written to an
+     * {@link javax.xml.stream.XMLStreamWriter}.
+     * 
+     * @param indent
+     *            the number of spaces per nesting level; 0 (the default) disables indentation
+     */
+    public void setIndent(int indent) {
+        if (indent < 0) {
+            throw new IllegalArgumentException("indent must not be negative");
+        }
+        this.indent = indent;
+    }
+
     /**
      * Specifies that the document should be serialized using MTOM. Note that this setting is
      * ignored if SwA is enabled using {@link #setDoingSWA(boolean)}.
@@ -433,6 +462,9 @@ public class OMOutputFormat {
         sb.append(" autoCloseWriter=");
         sb.append(autoCloseWriter);
         
+        sb.append(" indent=");
+        sb.append(indent);
+        
         // TODO Print all properties
         sb.append(" actionProperty=");
         sb.append(getProperty(ACTION_PROPERTY));
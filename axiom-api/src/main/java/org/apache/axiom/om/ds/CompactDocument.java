@@ -0,0 +1,252 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.om.ds;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.axiom.om.util.SymbolTable;
+
+/**
+ * Read-only representation of an element and its descendants stored in parallel arrays. Each node
+ * (including attributes and namespace declarations) is identified by its index in document order
+ * and described by its kind (one of the {@link XMLStreamConstants} event types), the index of its
+ * parent element, the index of its name in the name table and the location of its text in a
+ * shared character array. Namespace declarations and attributes immediately follow the element
+ * they belong to. The descendants of an element therefore form a contiguous range that ends with
+ * the first node whose parent index is less than the index of the element.
+ */
+final class CompactDocument {
+    final int nodeCount;
+    final byte[] kinds;
+    final int[] parents;
+    final int[] names;
+    final int[] textOffsets;
+    final int[] textLengths;
+    final char[] text;
+    final String[] namespaceURIs;
+    final String[] localNames;
+    final String[] prefixes;
+
+    private CompactDocument(Builder builder) {
+        nodeCount = builder.nodeCount;
+        kinds = Arrays.copyOf(builder.kinds, nodeCount);
+        parents = Arrays.copyOf(builder.parents, nodeCount);
+        names = Arrays.copyOf(builder.names, nodeCount);
+        textOffsets = Arrays.copyOf(builder.textOffsets, nodeCount);
+        textLengths = Arrays.copyOf(builder.textLengths, nodeCount);
+        text = Arrays.copyOf(builder.text, builder.textLength);
+        int nameCount = builder.nameCount;
+        namespaceURIs = Arrays.copyOf(builder.namespaceURIs, nameCount);
+        localNames = Arrays.copyOf(builder.localNames, nameCount);
+        prefixes = Arrays.copyOf(builder.prefixes, nameCount);
+    }
+
+    /**
+     * Key used to look up names during the construction of the name table.
+     */
+    private static final class Name {
+        String namespaceURI;
+        String localName;
+        String prefix;
+
+        Name(String namespaceURI, String localName, String prefix) {
+            this.namespaceURI = namespaceURI;
+            this.localName = localName;
+            this.prefix = prefix;
+        }
+
+        @Override
+        public int hashCode() {
+            return (31*namespaceURI.hashCode() + localName.hashCode())*31 + prefix.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof Name) {
+                Name other = (Name)obj;
+                return other.localName.equals(localName) && other.namespaceURI.equals(namespaceURI)
+                        && other.prefix.equals(prefix);
+            } else {
+                return false;
+            }
+        }
+    }
+
+    private static final class Builder {
+        int nodeCount;
+        byte[] kinds = new byte[64];
+        int[] parents = new int[64];
+        int[] names = new int[64];
+        int[] textOffsets = new int[64];
+        int[] textLengths = new int[64];
+        char[] text = new char[1024];
+        int textLength;
+        int nameCount;
+        String[] namespaceURIs = new String[16];
+        String[] localNames = new String[16];
+        String[] prefixes = new String[16];
+        final Map<Name,Integer> nameMap = new HashMap<Name,Integer>();
+        final Name key = new Name(null, null, null);
+        final SymbolTable symbolTable = new SymbolTable();
+
+        int addNode(int kind, int parent, int name) {
+            if (nodeCount == kinds.length) {
+                int capacity = nodeCount*2;
+                kinds = Arrays.copyOf(kinds, capacity);
+                parents = Arrays.copyOf(parents, capacity);
+                names = Arrays.copyOf(names, capacity);
+                textOffsets = Arrays.copyOf(textOffsets, capacity);
+                textLengths = Arrays.copyOf(textLengths, capacity);
+            }
+            int node = nodeCount++;
+            kinds[node] = (byte)kind;
+            parents[node] = parent;
+            names[node] = name;
+            textOffsets[node] = textLength;
+            return node;
+        }
+
+        private void ensureTextCapacity(int length) {
+            if (text.length - textLength < length) {
+                text = Arrays.copyOf(text, Math.max(text.length*2, textLength + length));
+            }
+        }
+
+        void addText(int node, char[] chars, int start, int length) {
+            ensureTextCapacity(length);
+            System.arraycopy(chars, start, text, textLength, length);
+            textLength += length;
+            textLengths[node] = length;
+        }
+
+        void addText(int node, String s) {
+            int length = s.length();
+            ensureTextCapacity(length);
+            s.getChars(0, length, text, textLength);
+            textLength += length;
+            textLengths[node] = length;
+        }
+
+        int getName(String namespaceURI, String localName, String prefix) {
+            if (namespaceURI == null) {
+                namespaceURI = "";
+            }
+            if (prefix == null) {
+                prefix = "";
+            }
+            key.namespaceURI = namespaceURI;
+            key.localName = localName;
+            key.prefix = prefix;
+            Integer name = nameMap.get(key);
+            if (name != null) {
+                return name;
+            }
+            if (nameCount == localNames.length) {
+                int capacity = nameCount*2;
+                namespaceURIs = Arrays.copyOf(namespaceURIs, capacity);
+                localNames = Arrays.copyOf(localNames, capacity);
+                prefixes = Arrays.copyOf(prefixes, capacity);
+            }
+            int index = nameCount++;
+            namespaceURI = symbolTable.canonicalize(namespaceURI);
+            localName = symbolTable.canonicalize(localName);
+            prefix = symbolTable.canonicalize(prefix);
+            namespaceURIs[index] = namespaceURI;
+            localNames[index] = localName;
+            prefixes[index] = prefix;
+            nameMap.put(new Name(namespaceURI, localName, prefix), index);
+            return index;
+        }
+    }
+
+    /**
+     * Build a compact representation of an element read from a given {@link XMLStreamReader}.
+     * 
+     * @param reader
+     *            the reader; must be positioned on a {@link XMLStreamConstants#START_ELEMENT} or
+     *            {@link XMLStreamConstants#START_DOCUMENT} event; in the latter case, the document
+     *            element is stored and the rest of the prolog is skipped. When the method returns,
+     *            the reader is positioned on the {@link XMLStreamConstants#END_ELEMENT} event for
+     *            the element.
+     * @return the compact representation of the element
+     * @throws XMLStreamException
+     *             if an error occurs while reading from the reader
+     */
+    static CompactDocument build(XMLStreamReader reader) throws XMLStreamException {
+        int event = reader.getEventType();
+        if (event == XMLStreamConstants.START_DOCUMENT) {
+            while (event != XMLStreamConstants.START_ELEMENT) {
+                event = reader.next();
+            }
+        } else if (event != XMLStreamConstants.START_ELEMENT) {
+            throw new IllegalStateException("The XMLStreamReader must be positioned on a START_DOCUMENT or START_ELEMENT event");
+        }
+        Builder builder = new Builder();
+        int current = -1;
+        while (true) {
+            int node;
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT:
+                    current = builder.addNode(event, current,
+                            builder.getName(reader.getNamespaceURI(), reader.getLocalName(), reader.getPrefix()));
+                    for (int i=0, count=reader.getNamespaceCount(); i<count; i++) {
+                        builder.addNode(XMLStreamConstants.NAMESPACE, current,
+                                builder.getName(reader.getNamespaceURI(i), "", reader.getNamespacePrefix(i)));
+                    }
+                    for (int i=0, count=reader.getAttributeCount(); i<count; i++) {
+                        node = builder.addNode(XMLStreamConstants.ATTRIBUTE, current,
+                                builder.getName(reader.getAttributeNamespace(i), reader.getAttributeLocalName(i), reader.getAttributePrefix(i)));
+                        builder.addText(node, reader.getAttributeValue(i));
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (current == 0) {
+                        return new CompactDocument(builder);
+                    }
+                    current = builder.parents[current];
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                case XMLStreamConstants.COMMENT:
+                    node = builder.addNode(event, current, -1);
+                    builder.addText(node, reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    break;
+                case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                    node = builder.addNode(event, current, builder.getName("", reader.getPITarget(), ""));
+                    String data = reader.getPIData();
+                    builder.addText(node, data == null ? "" : data);
+                    break;
+                case XMLStreamConstants.ENTITY_REFERENCE:
+                    node = builder.addNode(event, current, builder.getName("", reader.getLocalName(), ""));
+                    builder.addText(node, reader.getText());
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected event type " + event);
+            }
+            event = reader.next();
+        }
+    }
+}
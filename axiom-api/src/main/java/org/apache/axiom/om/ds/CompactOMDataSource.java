@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.om.ds;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.axiom.om.OMDataSource;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMFactory;
+import org.apache.axiom.om.OMSourcedElement;
+
+/**
+ * {@link OMDataSource} implementation that stores an element in a compact, read-only form. The
+ * nodes of the element are stored in parallel arrays of primitive values (node kind, parent index,
+ * name index and text location), with names shared in a name table and character data stored in a
+ * single character array. This uses only a fraction of the memory required by the object model,
+ * which makes this class useful to keep large documents that are mostly read (such as
+ * configuration files or cached responses) in memory.
+ * <p>
+ * Typically, an instance of this class is used to create an {@link OMSourcedElement} (see
+ * {@link #createOMElement(OMFactory)}). Nodes are then only created for the parts of the element
+ * that are actually navigated (using deferred building), while serialization of the element
+ * doesn't create any nodes at all. Since the data source is immutable and non destructive, a
+ * single instance may be used to create any number of {@link OMSourcedElement} instances, and
+ * modifications to these elements don't affect the data source.
+ * <p>
+ * Note that attribute types are not preserved, and neither is the prolog of the document the
+ * element was read from.
+ */
+public final class CompactOMDataSource extends AbstractPullOMDataSource {
+    private final CompactDocument document;
+
+    private CompactOMDataSource(CompactDocument document) {
+        this.document = document;
+    }
+
+    /**
+     * Create a data source from the element read from a given {@link XMLStreamReader}.
+     * 
+     * @param reader
+     *            the reader; must be positioned on a {@link XMLStreamReader#START_ELEMENT} or
+     *            {@link XMLStreamReader#START_DOCUMENT} event; in the latter case, the document
+     *            element is read. When the method returns, the reader is positioned on the
+     *            {@link XMLStreamReader#END_ELEMENT} event corresponding to the element.
+     * @return the data source
+     * @throws XMLStreamException
+     *             if an error occurs while reading from the reader
+     */
+    public static CompactOMDataSource create(XMLStreamReader reader) throws XMLStreamException {
+        return new CompactOMDataSource(CompactDocument.build(reader));
+    }
+
+    /**
+     * Create a data source from a given element. This will build the element (but not detach it
+     * from the underlying parser).
+     * 
+     * @param element
+     *            the element
+     * @return the data source
+     * @throws XMLStreamException
+     *             if an error occurs while reading the element
+     */
+    public static CompactOMDataSource create(OMElement element) throws XMLStreamException {
+        XMLStreamReader reader = element.getXMLStreamReader();
+        try {
+            return create(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Get the name of the element stored by this data source.
+     * 
+     * @return the qualified name of the element
+     */
+    public QName getName() {
+        int name = document.names[0];
+        return new QName(document.namespaceURIs[name], document.localNames[name], document.prefixes[name]);
+    }
+
+    /**
+     * Get the number of nodes stored by this data source, including attributes and namespace
+     * declarations.
+     * 
+     * @return the number of nodes
+     */
+    public int getNodeCount() {
+        return document.nodeCount;
+    }
+
+    /**
+     * Create an {@link OMSourcedElement} backed by this data source. The name of the element is
+     * known without expanding it.
+     * 
+     * @param factory
+     *            the factory to use
+     * @return the newly created element
+     */
+    public OMSourcedElement createOMElement(OMFactory factory) {
+        return factory.createOMElement(this, getName());
+    }
+
+    @Override
+    public boolean isDestructiveRead() {
+        return false;
+    }
+
+    @Override
+    public XMLStreamReader getReader() throws XMLStreamException {
+        return new CompactXMLStreamReader(document);
+    }
+
+    @Override
+    public CompactOMDataSource copy() {
+        // The data is immutable and can be shared
+        return new CompactOMDataSource(document);
+    }
+}
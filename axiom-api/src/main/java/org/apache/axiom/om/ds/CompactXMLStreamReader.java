@@ -0,0 +1,548 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.om.ds;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.axiom.util.namespace.MapBasedNamespaceContext;
+import org.apache.axiom.util.stax.DummyLocation;
+
+/**
+ * {@link XMLStreamReader} implementation that reads the content of a {@link CompactDocument}.
+ */
+final class CompactXMLStreamReader implements XMLStreamReader {
+    private final CompactDocument document;
+    
+    /**
+     * The type of the current event.
+     */
+    private int eventType = START_DOCUMENT;
+    
+    /**
+     * The index of the node corresponding to the current event, or -1 if the current event is
+     * {@link XMLStreamReader#START_DOCUMENT} or {@link XMLStreamReader#END_DOCUMENT}.
+     */
+    private int node = -1;
+    
+    /**
+     * The index of the node to visit after the current event.
+     */
+    private int nextNode;
+    
+    /**
+     * The index of the first namespace declaration and the number of namespace declarations of
+     * the current element. Only meaningful for {@link XMLStreamReader#START_ELEMENT} and
+     * {@link XMLStreamReader#END_ELEMENT} events.
+     */
+    private int namespaceStart;
+    private int namespaceCount;
+    
+    /**
+     * The index of the first attribute and the number of attributes of the current element.
+     */
+    private int attributeStart;
+    private int attributeCount;
+
+    CompactXMLStreamReader(CompactDocument document) {
+        this.document = document;
+    }
+
+    /**
+     * Set the current element and locate its namespace declarations and attributes.
+     * 
+     * @param element
+     *            the index of the element
+     * @return the index of the first node after the attributes of the element
+     */
+    private int setElement(int element) {
+        byte[] kinds = document.kinds;
+        int nodeCount = document.nodeCount;
+        node = element;
+        int i = element+1;
+        namespaceStart = i;
+        while (i < nodeCount && kinds[i] == NAMESPACE) {
+            i++;
+        }
+        namespaceCount = i-namespaceStart;
+        attributeStart = i;
+        while (i < nodeCount && kinds[i] == ATTRIBUTE) {
+            i++;
+        }
+        attributeCount = i-attributeStart;
+        return i;
+    }
+
+    @Override
+    public Object getProperty(String name) throws IllegalArgumentException {
+        return null;
+    }
+
+    @Override
+    public boolean hasNext() throws XMLStreamException {
+        return eventType != END_DOCUMENT;
+    }
+
+    @Override
+    public int next() throws XMLStreamException {
+        int parent;
+        switch (eventType) {
+            case START_DOCUMENT:
+                nextNode = setElement(0);
+                return eventType = START_ELEMENT;
+            case END_DOCUMENT:
+                throw new NoSuchElementException("End of the document reached");
+            case START_ELEMENT:
+                parent = node;
+                break;
+            case END_ELEMENT:
+                if (node == 0) {
+                    node = -1;
+                    return eventType = END_DOCUMENT;
+                }
+                parent = document.parents[node];
+                break;
+            default:
+                parent = document.parents[node];
+        }
+        if (nextNode < document.nodeCount && document.parents[nextNode] == parent) {
+            int kind = document.kinds[nextNode];
+            if (kind == START_ELEMENT) {
+                nextNode = setElement(nextNode);
+            } else {
+                node = nextNode++;
+            }
+            return eventType = kind;
+        } else {
+            setElement(parent);
+            return eventType = END_ELEMENT;
+        }
+    }
+
+    @Override
+    public void require(int type, String namespaceURI, String localName) throws XMLStreamException {
+        if (type != eventType
+                || (namespaceURI != null && !namespaceURI.equals(getNamespaceURI()))
+                || (localName != null && !localName.equals(getLocalName()))) {
+            throw new XMLStreamException("Unexpected event type");
+        }
+    }
+
+    @Override
+    public String getElementText() throws XMLStreamException {
+        if (eventType != START_ELEMENT) {
+            throw new XMLStreamException("Current event is not a START_ELEMENT");
+        }
+        StringBuilder buffer = new StringBuilder();
+        while (true) {
+            switch (next()) {
+                case CHARACTERS:
+                case CDATA:
+                case SPACE:
+                case ENTITY_REFERENCE:
+                    buffer.append(document.text, document.textOffsets[node], document.textLengths[node]);
+                    break;
+                case PROCESSING_INSTRUCTION:
+                case COMMENT:
+                    break;
+                case END_ELEMENT:
+                    return buffer.toString();
+                default:
+                    throw new XMLStreamException("Element text content may not contain START_ELEMENT");
+            }
+        }
+    }
+
+    @Override
+    public int nextTag() throws XMLStreamException {
+        while (true) {
+            switch (next()) {
+                case START_ELEMENT:
+                case END_ELEMENT:
+                    return eventType;
+                case SPACE:
+                case COMMENT:
+                case PROCESSING_INSTRUCTION:
+                    break;
+                case CHARACTERS:
+                case CDATA:
+                    if (isWhiteSpace()) {
+                        break;
+                    }
+                    // Fall through
+                default:
+                    throw new XMLStreamException("Current event is not white space");
+            }
+        }
+    }
+
+    @Override
+    public void close() throws XMLStreamException {
+    }
+
+    @Override
+    public String getNamespaceURI(String prefix) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("prefix can't be null");
+        } else if (prefix.equals(XMLConstants.XML_NS_PREFIX)) {
+            return XMLConstants.XML_NS_URI;
+        } else if (prefix.equals(XMLConstants.XMLNS_ATTRIBUTE)) {
+            return XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+        }
+        byte[] kinds = document.kinds;
+        int[] names = document.names;
+        for (int element = getContextElement(); element != -1; element = document.parents[element]) {
+            for (int i = element+1; i < document.nodeCount && kinds[i] == NAMESPACE; i++) {
+                if (document.prefixes[names[i]].equals(prefix)) {
+                    String namespaceURI = document.namespaceURIs[names[i]];
+                    return namespaceURI.length() == 0 ? null : namespaceURI;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the element that determines the namespace context of the current event.
+     * 
+     * @return the index of the element, or -1 if the current event is not inside the element
+     */
+    private int getContextElement() {
+        switch (eventType) {
+            case START_DOCUMENT:
+            case END_DOCUMENT:
+                return -1;
+            case START_ELEMENT:
+            case END_ELEMENT:
+                return node;
+            default:
+                return document.parents[node];
+        }
+    }
+
+    @Override
+    public NamespaceContext getNamespaceContext() {
+        Map<String,String> bindings = new HashMap<String,String>();
+        byte[] kinds = document.kinds;
+        int[] names = document.names;
+        for (int element = getContextElement(); element != -1; element = document.parents[element]) {
+            for (int i = element+1; i < document.nodeCount && kinds[i] == NAMESPACE; i++) {
+                String prefix = document.prefixes[names[i]];
+                if (!bindings.containsKey(prefix)) {
+                    bindings.put(prefix, document.namespaceURIs[names[i]]);
+                }
+            }
+        }
+        return new MapBasedNamespaceContext(bindings);
+    }
+
+    @Override
+    public boolean isStartElement() {
+        return eventType == START_ELEMENT;
+    }
+
+    @Override
+    public boolean isEndElement() {
+        return eventType == END_ELEMENT;
+    }
+
+    @Override
+    public boolean isCharacters() {
+        return eventType == CHARACTERS;
+    }
+
+    @Override
+    public boolean isWhiteSpace() {
+        switch (eventType) {
+            case SPACE:
+                return true;
+            case CHARACTERS:
+            case CDATA:
+                char[] text = document.text;
+                for (int i = document.textOffsets[node], end = i + document.textLengths[node]; i < end; i++) {
+                    char c = text[i];
+                    if (c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+                        return false;
+                    }
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void checkStartElement() {
+        if (eventType != START_ELEMENT) {
+            throw new IllegalStateException();
+        }
+    }
+
+    private int getAttribute(int index) {
+        checkStartElement();
+        if (index < 0 || index >= attributeCount) {
+            throw new IndexOutOfBoundsException();
+        }
+        return attributeStart + index;
+    }
+
+    @Override
+    public String getAttributeValue(String namespaceURI, String localName) {
+        checkStartElement();
+        for (int i = attributeStart, end = attributeStart + attributeCount; i < end; i++) {
+            int name = document.names[i];
+            if (document.localNames[name].equals(localName)
+                    && (namespaceURI == null || document.namespaceURIs[name].equals(namespaceURI))) {
+                return new String(document.text, document.textOffsets[i], document.textLengths[i]);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int getAttributeCount() {
+        checkStartElement();
+        return attributeCount;
+    }
+
+    @Override
+    public QName getAttributeName(int index) {
+        int name = document.names[getAttribute(index)];
+        return new QName(document.namespaceURIs[name], document.localNames[name], document.prefixes[name]);
+    }
+
+    @Override
+    public String getAttributeNamespace(int index) {
+        String namespaceURI = document.namespaceURIs[document.names[getAttribute(index)]];
+        return namespaceURI.length() == 0 ? null : namespaceURI;
+    }
+
+    @Override
+    public String getAttributeLocalName(int index) {
+        return document.localNames[document.names[getAttribute(index)]];
+    }
+
+    @Override
+    public String getAttributePrefix(int index) {
+        return document.prefixes[document.names[getAttribute(index)]];
+    }
+
+    @Override
+    public String getAttributeType(int index) {
+        getAttribute(index);
+        return "CDATA";
+    }
+
+    @Override
+    public String getAttributeValue(int index) {
+        int attribute = getAttribute(index);
+        return new String(document.text, document.textOffsets[attribute], document.textLengths[attribute]);
+    }
+
+    @Override
+    public boolean isAttributeSpecified(int index) {
+        getAttribute(index);
+        return true;
+    }
+
+    private void checkElement() {
+        if (eventType != START_ELEMENT && eventType != END_ELEMENT) {
+            throw new IllegalStateException();
+        }
+    }
+
+    private int getNamespace(int index) {
+        checkElement();
+        if (index < 0 || index >= namespaceCount) {
+            throw new IndexOutOfBoundsException();
+        }
+        return namespaceStart + index;
+    }
+
+    @Override
+    public int getNamespaceCount() {
+        checkElement();
+        return namespaceCount;
+    }
+
+    @Override
+    public String getNamespacePrefix(int index) {
+        String prefix = document.prefixes[document.names[getNamespace(index)]];
+        return prefix.length() == 0 ? null : prefix;
+    }
+
+    @Override
+    public String getNamespaceURI(int index) {
+        return document.namespaceURIs[document.names[getNamespace(index)]];
+    }
+
+    @Override
+    public int getEventType() {
+        return eventType;
+    }
+
+    private void checkText() {
+        switch (eventType) {
+            case CHARACTERS:
+            case CDATA:
+            case SPACE:
+            case COMMENT:
+            case ENTITY_REFERENCE:
+                break;
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
+    @Override
+    public String getText() {
+        checkText();
+        return new String(document.text, document.textOffsets[node], document.textLengths[node]);
+    }
+
+    @Override
+    public char[] getTextCharacters() {
+        checkText();
+        return document.text;
+    }
+
+    @Override
+    public int getTextCharacters(int sourceStart, char[] target, int targetStart, int length)
+            throws XMLStreamException {
+        checkText();
+        int count = Math.min(length, document.textLengths[node] - sourceStart);
+        if (count <= 0) {
+            return 0;
+        }
+        System.arraycopy(document.text, document.textOffsets[node] + sourceStart, target, targetStart, count);
+        return count;
+    }
+
+    @Override
+    public int getTextStart() {
+        checkText();
+        return document.textOffsets[node];
+    }
+
+    @Override
+    public int getTextLength() {
+        checkText();
+        return document.textLengths[node];
+    }
+
+    @Override
+    public String getEncoding() {
+        return null;
+    }
+
+    @Override
+    public boolean hasText() {
+        switch (eventType) {
+            case CHARACTERS:
+            case CDATA:
+            case SPACE:
+            case COMMENT:
+            case ENTITY_REFERENCE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public Location getLocation() {
+        return DummyLocation.INSTANCE;
+    }
+
+    @Override
+    public QName getName() {
+        checkElement();
+        int name = document.names[node];
+        return new QName(document.namespaceURIs[name], document.localNames[name], document.prefixes[name]);
+    }
+
+    @Override
+    public String getLocalName() {
+        if (eventType != ENTITY_REFERENCE) {
+            checkElement();
+        }
+        return document.localNames[document.names[node]];
+    }
+
+    @Override
+    public boolean hasName() {
+        return eventType == START_ELEMENT || eventType == END_ELEMENT;
+    }
+
+    @Override
+    public String getNamespaceURI() {
+        checkElement();
+        String namespaceURI = document.namespaceURIs[document.names[node]];
+        return namespaceURI.length() == 0 ? null : namespaceURI;
+    }
+
+    @Override
+    public String getPrefix() {
+        checkElement();
+        return document.prefixes[document.names[node]];
+    }
+
+    @Override
+    public String getVersion() {
+        return null;
+    }
+
+    @Override
+    public boolean isStandalone() {
+        return false;
+    }
+
+    @Override
+    public boolean standaloneSet() {
+        return false;
+    }
+
+    @Override
+    public String getCharacterEncodingScheme() {
+        return null;
+    }
+
+    @Override
+    public String getPITarget() {
+        if (eventType != PROCESSING_INSTRUCTION) {
+            throw new IllegalStateException();
+        }
+        return document.localNames[document.names[node]];
+    }
+
+    @Override
+    public String getPIData() {
+        if (eventType != PROCESSING_INSTRUCTION) {
+            throw new IllegalStateException();
+        }
+        return new String(document.text, document.textOffsets[node], document.textLengths[node]);
+    }
+}
@@ -20,6 +20,7 @@
 package org.apache.axiom.om.util;
 
 import org.apache.axiom.om.OMAttribute;
+import org.apache.axiom.om.OMContainer;
 import org.apache.axiom.om.OMDocument;
 import org.apache.axiom.om.OMElement;
 import org.apache.axiom.om.OMException;
@@ -37,15 +38,176 @@ import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Helper class to provide the functionality of the digest value generation. This is an
  * implementation of the DOMHASH algorithm on OM.
  */
 public class DigestGenerator {
+    /**
+     * Computes the digest of a document or element whose subtree is large enough to be processed
+     * in parallel. The digests of the child elements are computed by subtasks and combined in
+     * document order.
+     */
+    private final class DigestTask extends RecursiveTask<byte[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final OMContainer container;
+        private final String digestAlgorithm;
+        private final Set<OMContainer> largeContainers;
+
+        DigestTask(OMContainer container, String digestAlgorithm, Set<OMContainer> largeContainers) {
+            this.container = container;
+            this.digestAlgorithm = digestAlgorithm;
+            this.largeContainers = largeContainers;
+        }
+
+        @Override
+        protected byte[] compute() {
+            if (!largeContainers.contains(container)) {
+                return getSequentialDigest(container, digestAlgorithm);
+            }
+            List<DigestTask> subtasks = new ArrayList<DigestTask>();
+            for (OMNode child = container.getFirstOMChild(); child != null; child = child.getNextOMSibling()) {
+                if (child instanceof OMElement) {
+                    subtasks.add(new DigestTask((OMElement)child, digestAlgorithm, largeContainers));
+                }
+            }
+            invokeAll(subtasks);
+            if (container instanceof OMDocument) {
+                return getRecursiveDigest((OMDocument)container, digestAlgorithm, subtasks.iterator());
+            } else {
+                return getRecursiveDigest((OMElement)container, digestAlgorithm, subtasks.iterator());
+            }
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final int parallelismThreshold;
+
+    /**
+     * Create a digest generator that computes digests sequentially.
+     */
+    public DigestGenerator() {
+        pool = null;
+        parallelismThreshold = 0;
+    }
+
+    /**
+     * Create a digest generator that computes the digests of large documents and elements in
+     * parallel. Since the digest of an element only depends on the digests of its children, the
+     * digests of the child elements of every document or element that has at least
+     * <code>parallelismThreshold</code> descendant nodes are computed by separate tasks executed
+     * by the given pool. Smaller subtrees are processed sequentially.
+     * <p>
+     * Before any task is created, the calling thread builds the tree completely (including the
+     * expansion of {@link org.apache.axiom.om.OMSourcedElement} instances) so that the tasks only
+     * read the tree. The tree must not be modified while the digest is computed.
+     * 
+     * @param pool
+     *            the pool executing the tasks
+     * @param parallelismThreshold
+     *            the minimum number of descendant nodes of a document or element for the digests
+     *            of its children to be computed in parallel
+     */
+    public DigestGenerator(ForkJoinPool pool, int parallelismThreshold) {
+        if (pool == null) {
+            throw new IllegalArgumentException("pool must not be null");
+        }
+        if (parallelismThreshold < 1) {
+            throw new IllegalArgumentException("parallelismThreshold must be positive");
+        }
+        this.pool = pool;
+        this.parallelismThreshold = parallelismThreshold;
+    }
+
+    /**
+     * Determine if this is an instance of a subclass. In that case the recursive implementation
+     * must be used because the subclass may override the methods it relies on. Otherwise the
+     * digests of documents and elements are computed by {@link OMContainer#getDigest(String)},
+     * which does a single pass over the tree.
+     * 
+     * @return <code>true</code> if this is an instance of a subclass
+     */
+    private boolean isSubclassed() {
+        return getClass() != DigestGenerator.class;
+    }
+
+    private byte[] computeDigest(OMContainer container, String digestAlgorithm) throws OMException {
+        if (pool != null) {
+            Set<OMContainer> largeContainers = findLargeContainers(container);
+            if (largeContainers.contains(container)) {
+                return pool.invoke(new DigestTask(container, digestAlgorithm, largeContainers));
+            }
+        }
+        return getSequentialDigest(container, digestAlgorithm);
+    }
+
+    private byte[] getSequentialDigest(OMContainer container, String digestAlgorithm) throws OMException {
+        if (!isSubclassed()) {
+            return container.getDigest(digestAlgorithm);
+        } else if (container instanceof OMDocument) {
+            return getRecursiveDigest((OMDocument)container, digestAlgorithm, null);
+        } else {
+            return getRecursiveDigest((OMElement)container, digestAlgorithm, null);
+        }
+    }
+
+    /**
+     * Traverse the given document or element (building it if necessary) and determine the
+     * containers that have at least {@link #parallelismThreshold} descendant nodes. The traversal
+     * is non recursive so that it also works for deeply nested documents.
+     * 
+     * @param root
+     *            the document or element to traverse
+     * @return the set of large containers, compared by identity
+     */
+    private Set<OMContainer> findLargeContainers(OMContainer root) {
+        Set<OMContainer> result = Collections.newSetFromMap(new IdentityHashMap<OMContainer,Boolean>());
+        OMContainer[] containers = new OMContainer[16];
+        int[] sizes = new int[16];
+        int depth = 0;
+        containers[0] = root;
+        OMNode node = root.getFirstOMChild();
+        while (true) {
+            if (node != null) {
+                sizes[depth]++;
+                if (node instanceof OMElement) {
+                    if (++depth == containers.length) {
+                        containers = Arrays.copyOf(containers, depth*2);
+                        sizes = Arrays.copyOf(sizes, depth*2);
+                    }
+                    containers[depth] = (OMElement)node;
+                    sizes[depth] = 0;
+                    node = ((OMElement)node).getFirstOMChild();
+                } else {
+                    node = node.getNextOMSibling();
+                }
+            } else {
+                OMContainer container = containers[depth];
+                int size = sizes[depth];
+                if (size >= parallelismThreshold) {
+                    result.add(container);
+                }
+                if (depth == 0) {
+                    break;
+                }
+                containers[depth--] = null;
+                sizes[depth] += size;
+                node = ((OMElement)container).getNextOMSibling();
+            }
+        }
+        return result;
+    }
 
     /**
      * This method is an overloaded method for the digest generation for OMDocument
@@ -55,6 +217,10 @@ public class DigestGenerator {
      * @return Returns a byte array representing the calculated digest
      */
     public byte[] getDigest(OMDocument document, String digestAlgorithm) throws OMException {
+        return computeDigest(document, digestAlgorithm);
+    }
+
+    private byte[] getRecursiveDigest(OMDocument document, String digestAlgorithm, Iterator<DigestTask> subtasks) throws OMException {
         byte[] digest = new byte[0];
         try {
             MessageDigest md = MessageDigest.getInstance(digestAlgorithm);
@@ -70,7 +236,7 @@ public class DigestGenerator {
                     dos.write(getDigest((OMProcessingInstruction) node, digestAlgorithm));
                 else if (
                         node.getType() == OMNode.ELEMENT_NODE)
-                    dos.write(getDigest((OMElement) node, digestAlgorithm));
+                    dos.write(subtasks == null ? getDigest((OMElement) node, digestAlgorithm) : subtasks.next().join());
             }
             dos.close();
             md.update(baos.toByteArray());
@@ -109,6 +275,10 @@ public class DigestGenerator {
      * @return Returns a byte array representing the calculated digest value
      */
     public byte[] getDigest(OMElement element, String digestAlgorithm) throws OMException {
+        return computeDigest(element, digestAlgorithm);
+    }
+
+    private byte[] getRecursiveDigest(OMElement element, String digestAlgorithm, Iterator<DigestTask> subtasks) throws OMException {
         byte[] digest = new byte[0];
         try {
             MessageDigest md = MessageDigest.getInstance(digestAlgorithm);
@@ -136,7 +306,11 @@ public class DigestGenerator {
             }
             dos.writeInt(length);
             while (node != null) {
-                dos.write(getDigest(node, digestAlgorithm));
+                if (subtasks != null && node instanceof OMElement) {
+                    dos.write(subtasks.next().join());
+                } else {
+                    dos.write(getDigest(node, digestAlgorithm));
+                }
                 node = node.getNextOMSibling();
             }
             dos.close();
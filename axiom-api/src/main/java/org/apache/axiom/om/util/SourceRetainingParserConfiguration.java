@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.om.util;
+
+import javax.xml.stream.XMLInputFactory;
+
+import org.apache.axiom.util.stax.dialect.StAXDialect;
+
+/**
+ * Parser configuration that instructs the builder to retain the original markup of the document.
+ * This allows the serializer to copy elements that have not been modified since the document was
+ * parsed instead of reconstructing them from the object model, which is significantly faster if
+ * only a small part of a large document is changed before it is serialized again.
+ * <p>
+ * The configuration only has an effect when the object model is built from a byte or character
+ * stream. The original markup is only used if the document is serialized as a whole, without
+ * indentation and using a Unicode encoding or the encoding of the input document. Note that
+ * retaining the markup increases memory consumption, since the complete document is kept in
+ * memory (as characters) in addition to the object model.
+ * <p>
+ * Retention is only supported with parsers that report accurate character offsets (such as
+ * Woodstox). With other parsers, or if the document contains a document type declaration, the
+ * builder silently falls back to the normal behavior.
+ */
+public final class SourceRetainingParserConfiguration implements StAXParserConfiguration {
+    private final StAXParserConfiguration parent;
+
+    /**
+     * Constructor.
+     * 
+     * @param parent
+     *            the configuration to apply to the parser
+     */
+    public SourceRetainingParserConfiguration(StAXParserConfiguration parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Get the configuration to apply to the parser.
+     * 
+     * @return the parent configuration
+     */
+    public StAXParserConfiguration getParent() {
+        return parent;
+    }
+
+    @Override
+    public XMLInputFactory configure(XMLInputFactory factory, StAXDialect dialect) {
+        return parent.configure(factory, dialect);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31*parent.hashCode() + 1;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof SourceRetainingParserConfiguration
+                && ((SourceRetainingParserConfiguration)obj).parent.equals(parent);
+    }
+
+    @Override
+    public String toString() {
+        return "SOURCE_RETAINING(" + parent + ")";
+    }
+}
@@ -153,6 +153,26 @@ public interface StAXParserConfiguration {
         }
     };
     
+    /**
+     * Configuration that instructs the builder to use Axiom's built-in XML parser instead of the
+     * StAX implementation when building an object model from a byte stream. That parser tokenizes
+     * the input directly at the byte level and avoids the overhead of the StAX API, but it only
+     * supports XML 1.0 documents encoded in UTF-8, US-ASCII or ISO-8859-1 and doesn't process
+     * document type declarations. For other input, this configuration falls back to the StAX
+     * implementation, configured in the same way as with {@link #DEFAULT}.
+     */
+    StAXParserConfiguration NATIVE = new StAXParserConfiguration() {
+        @Override
+        public XMLInputFactory configure(XMLInputFactory factory, StAXDialect dialect) {
+            return DEFAULT.configure(factory, dialect);
+        }
+
+        @Override
+        public String toString() {
+            return "NATIVE";
+        }
+    };
+
     /**
      * Apply the configuration to the given factory. The method MAY optionally
      * wrap the factory, e.g. to modify the behavior of the
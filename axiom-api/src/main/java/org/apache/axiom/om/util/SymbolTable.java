@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.om.util;
+
+/**
+ * Table used to canonicalize the names (local names and prefixes) and namespace URIs of the
+ * information items produced by a parser. If all names pass through the same symbol table, then
+ * an object model built from a document with many repetitive element names only stores a single
+ * {@link String} instance per distinct name, and comparisons of names can usually be decided by an
+ * identity check.
+ * <p>
+ * By default, each builder uses its own symbol table. Use {@link SymbolTableParserConfiguration}
+ * to share a symbol table between builders, e.g. in a server processing many messages with the
+ * same vocabulary. A symbol table has a fixed capacity and entries are replaced in case of
+ * collisions, so that its memory usage is bounded, even if it is used to process documents with an
+ * unbounded number of distinct names. This implies that canonicalization is done on a best effort
+ * basis: for a given name, {@link #canonicalize(String)} will usually, but not always, return the
+ * same instance.
+ * <p>
+ * This class is thread safe. Note that unlike {@link String#intern()}, canonicalization doesn't
+ * involve any synchronization or access to a global data structure.
+ */
+public final class SymbolTable {
+    private final String[] entries;
+    private final int mask;
+
+    /**
+     * Create a symbol table with a default capacity suitable for a single document.
+     */
+    public SymbolTable() {
+        this(256);
+    }
+
+    /**
+     * Create a symbol table with the given capacity.
+     * 
+     * @param capacity
+     *            the maximum number of names the table can store; this will be rounded up to the
+     *            next power of two
+     */
+    public SymbolTable(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        }
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        entries = new String[size];
+        mask = size-1;
+    }
+
+    /**
+     * Get the canonical instance for the given string.
+     * 
+     * @param s
+     *            the string to canonicalize; may be <code>null</code>
+     * @return a string equal to <code>s</code>, or <code>null</code> if <code>s</code> is
+     *         <code>null</code>
+     */
+    public String canonicalize(String s) {
+        if (s == null) {
+            return null;
+        }
+        if (s.isEmpty()) {
+            return "";
+        }
+        int hash = s.hashCode();
+        int index = (hash ^ (hash >>> 16)) & mask;
+        // Note that the array is accessed without synchronization. This is safe because strings
+        // are immutable (and thus safely published) and a stale read only results in a miss.
+        String[] entries = this.entries;
+        String candidate = entries[index];
+        if (candidate == s) {
+            return s;
+        } else if (candidate != null) {
+            if (candidate.equals(s)) {
+                return candidate;
+            }
+            // Check the neighboring entry before replacing the existing entry
+            int alternateIndex = index ^ 1;
+            candidate = entries[alternateIndex & mask];
+            if (candidate == s) {
+                return s;
+            } else if (candidate == null) {
+                index = alternateIndex & mask;
+            } else if (candidate.equals(s)) {
+                return candidate;
+            }
+        }
+        entries[index] = s;
+        return s;
+    }
+}
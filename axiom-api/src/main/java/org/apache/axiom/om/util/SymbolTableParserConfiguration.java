@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.om.util;
+
+import javax.xml.stream.XMLInputFactory;
+
+import org.apache.axiom.util.stax.dialect.StAXDialect;
+
+/**
+ * Parser configuration that instructs the builder to use a given {@link SymbolTable} instead of a
+ * symbol table private to the builder. This allows to share a symbol table between multiple
+ * builders.
+ */
+public final class SymbolTableParserConfiguration implements StAXParserConfiguration {
+    private final StAXParserConfiguration parent;
+    private final SymbolTable symbolTable;
+
+    /**
+     * Constructor.
+     * 
+     * @param parent
+     *            the configuration to apply to the parser
+     * @param symbolTable
+     *            the symbol table to use
+     */
+    public SymbolTableParserConfiguration(StAXParserConfiguration parent, SymbolTable symbolTable) {
+        this.parent = parent;
+        this.symbolTable = symbolTable;
+    }
+
+    /**
+     * Get the configuration to apply to the parser.
+     * 
+     * @return the parent configuration
+     */
+    public StAXParserConfiguration getParent() {
+        return parent;
+    }
+
+    /**
+     * Get the symbol table to be used by the builder.
+     * 
+     * @return the symbol table
+     */
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    @Override
+    public XMLInputFactory configure(XMLInputFactory factory, StAXDialect dialect) {
+        return parent.configure(factory, dialect);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31*parent.hashCode() + System.identityHashCode(symbolTable);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof SymbolTableParserConfiguration) {
+            SymbolTableParserConfiguration other = (SymbolTableParserConfiguration)obj;
+            return other.parent.equals(parent) && other.symbolTable == symbolTable;
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SYMBOL_TABLE(" + parent + ")";
+    }
+}
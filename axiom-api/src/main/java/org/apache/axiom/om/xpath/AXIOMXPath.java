@@ -23,18 +23,66 @@ import org.apache.axiom.om.OMAttribute;
 import org.apache.axiom.om.OMElement;
 import org.apache.axiom.om.OMNamespace;
 import org.jaxen.BaseXPath;
+import org.jaxen.FunctionContext;
 import org.jaxen.JaxenException;
+import org.jaxen.NamespaceContext;
+import org.jaxen.VariableContext;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 public class AXIOMXPath extends BaseXPath {
 
     private static final long serialVersionUID = -5839161412925154639L;
 
+    private static final int CACHE_SIZE = 256;
+
+    private static final class CacheKey {
+        private final String expression;
+        private final Map<String,String> namespaces;
+
+        CacheKey(String expression, Map<String,String> namespaces) {
+            this.expression = expression;
+            this.namespaces = namespaces;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31*expression.hashCode() + namespaces.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey)obj;
+            return expression.equals(other.expression) && namespaces.equals(other.namespaces);
+        }
+    }
+
+    /**
+     * Least recently used cache of shared instances. Access must be synchronized on the map.
+     */
+    @SuppressWarnings("serial")
+    private static final Map<CacheKey,AXIOMXPath> cache = new LinkedHashMap<CacheKey,AXIOMXPath>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<CacheKey,AXIOMXPath> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
     private Map<String,String> namespaces = new HashMap<String,String>();
 
+    /**
+     * Indicates that this is a shared instance returned by
+     * {@link #getCachedInstance(String, Map)} that must not be modified.
+     */
+    private boolean shared;
+
     /**
      * Construct an XPath expression from a given string.
      *
@@ -75,6 +123,68 @@ public class AXIOMXPath extends BaseXPath {
         this(attribute.getOwner(), attribute.getAttributeValue());
     }
 
+    /**
+     * Get a shared instance of the XPath expression with the given string representation and
+     * namespace context. Instances are kept in a bounded cache, so that repeatedly evaluating the
+     * same expression doesn't require parsing it again. Since the returned instance is shared, it
+     * is immutable: any attempt to change its namespace, function or variable context will result
+     * in an {@link UnsupportedOperationException}. It may be used concurrently by multiple threads,
+     * provided that the variable context is not modified.
+     *
+     * @param xpathExpr the string representation of the XPath expression
+     * @param namespaces the prefix to namespace URI mappings to add to the namespace context, or
+     *                   <code>null</code> if the expression doesn't use namespace prefixes
+     * @return the shared instance
+     * @throws JaxenException if there is a syntax error while parsing the expression
+     */
+    public static AXIOMXPath getCachedInstance(String xpathExpr, Map<String,String> namespaces)
+            throws JaxenException {
+        CacheKey key = new CacheKey(xpathExpr, namespaces == null || namespaces.isEmpty()
+                ? Collections.<String,String>emptyMap() : new HashMap<String,String>(namespaces));
+        AXIOMXPath xpath;
+        synchronized (cache) {
+            xpath = cache.get(key);
+        }
+        if (xpath == null) {
+            xpath = new AXIOMXPath(xpathExpr);
+            for (Map.Entry<String,String> entry : key.namespaces.entrySet()) {
+                xpath.addNamespace(entry.getKey(), entry.getValue());
+            }
+            // Make sure that the context support is created before the instance is published;
+            // BaseXPath would otherwise create it lazily during the first evaluation.
+            xpath.getContextSupport();
+            xpath.shared = true;
+            synchronized (cache) {
+                cache.put(key, xpath);
+            }
+        }
+        return xpath;
+    }
+
+    private void checkNotShared() {
+        if (shared) {
+            throw new UnsupportedOperationException("Shared AXIOMXPath instances can't be modified");
+        }
+    }
+
+    @Override
+    public void setNamespaceContext(NamespaceContext namespaceContext) {
+        checkNotShared();
+        super.setNamespaceContext(namespaceContext);
+    }
+
+    @Override
+    public void setFunctionContext(FunctionContext functionContext) {
+        checkNotShared();
+        super.setFunctionContext(functionContext);
+    }
+
+    @Override
+    public void setVariableContext(VariableContext variableContext) {
+        checkNotShared();
+        super.setVariableContext(variableContext);
+    }
+
     /**
      * This override captures any added namespaces, as the Jaxen BaseXPath class nor
      * NamespaceContext (or SimpleNamespaceContext) exposes thier internal map of the prefixes to
@@ -87,6 +197,7 @@ public class AXIOMXPath extends BaseXPath {
      */
     @Override
     public void addNamespace(String prefix, String uri) throws JaxenException {
+        checkNotShared();
         try {
             super.addNamespace(prefix, uri);
         } catch (JaxenException e) {
@@ -132,6 +243,6 @@ public class AXIOMXPath extends BaseXPath {
      * @return a Map of namespace prefixes to the URIs
      */
     public Map<String,String> getNamespaces() {
-        return namespaces;
+        return shared ? Collections.unmodifiableMap(namespaces) : namespaces;
     }
 }
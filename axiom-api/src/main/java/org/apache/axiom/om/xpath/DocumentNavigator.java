@@ -33,6 +33,7 @@ import org.jaxen.BaseXPath;
 import org.jaxen.DefaultNavigator;
 import org.jaxen.FunctionCallException;
 import org.jaxen.JaxenConstants;
+import org.jaxen.NamedAccessNavigator;
 import org.jaxen.UnsupportedAxisException;
 import org.jaxen.XPath;
 import org.jaxen.saxpath.SAXPathException;
@@ -48,7 +49,9 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
-public class DocumentNavigator extends DefaultNavigator {
+import javax.xml.namespace.QName;
+
+public class DocumentNavigator extends DefaultNavigator implements NamedAccessNavigator {
 
     private static final long serialVersionUID = 7325116153349780805L;
 
@@ -334,6 +337,27 @@ public class DocumentNavigator extends DefaultNavigator {
         return JaxenConstants.EMPTY_ITERATOR;
     }
 
+    /**
+     * Retrieves an <code>Iterator</code> over the child elements with a given name. This is used by
+     * Jaxen for name tests on the <code>child</code> axis and avoids testing every child node.
+     *
+     * @param contextNode the original context node
+     * @param localName the local name of the elements to return
+     * @param namespacePrefix the namespace prefix used in the name test (ignored)
+     * @param namespaceURI the namespace URI of the elements to return, or <code>null</code> for
+     *                     elements with no namespace
+     * @return Returns an Iterator capable of traversing the matching children, not null.
+     */
+    @Override
+    public Iterator<?> getChildAxisIterator(Object contextNode, String localName,
+            String namespacePrefix, String namespaceURI) throws UnsupportedAxisException {
+        if (contextNode instanceof OMContainer) {
+            return ((OMContainer)contextNode).getChildrenWithName(
+                    new QName(namespaceURI == null ? "" : namespaceURI, localName));
+        }
+        return JaxenConstants.EMPTY_ITERATOR;
+    }
+
     @Override
     public Iterator<?> getDescendantAxisIterator(Object object) throws UnsupportedAxisException {
         //TODO: Fix this better?
@@ -357,6 +381,30 @@ public class DocumentNavigator extends DefaultNavigator {
         }
     }
 
+    /**
+     * Retrieves an <code>Iterator</code> over the attribute with a given name. This is used by
+     * Jaxen for name tests on the <code>attribute</code> axis.
+     *
+     * @param contextNode the original context node
+     * @param localName the local name of the attribute
+     * @param namespacePrefix the namespace prefix used in the name test (ignored)
+     * @param namespaceURI the namespace URI of the attribute, or <code>null</code> for an attribute
+     *                     with no namespace
+     * @return Returns an Iterator returning the attribute (if it exists), not null.
+     */
+    @Override
+    public Iterator<?> getAttributeAxisIterator(Object contextNode, String localName,
+            String namespacePrefix, String namespaceURI) throws UnsupportedAxisException {
+        if (isElement(contextNode)) {
+            OMAttribute attr = ((OMElement)contextNode).getAttribute(
+                    new QName(namespaceURI == null ? "" : namespaceURI, localName));
+            if (attr != null) {
+                return new SingleObjectIterator(attr);
+            }
+        }
+        return JaxenConstants.EMPTY_ITERATOR;
+    }
+
     /**
      * Retrieves an <code>Iterator</code> matching the <code>namespace</code> XPath axis.
      *
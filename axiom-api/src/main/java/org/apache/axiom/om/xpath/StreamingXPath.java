@@ -0,0 +1,391 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.om.xpath;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.axiom.om.OMXMLParserWrapper;
+
+/**
+ * Compiled expression in a subset of XPath 1.0 that can be evaluated in streaming mode, i.e.
+ * while the document is being parsed. In contrast to {@link AXIOMXPath}, evaluating such an
+ * expression only consumes (and builds) the part of the document that precedes the point where
+ * the result is known. This is useful e.g. to route messages based on the content of a header
+ * without building the body.
+ * <p>
+ * The supported subset consists of absolute location paths using the child (<tt>/</tt>) and
+ * descendant (<tt>//</tt>) axes. Each step is a name test (<tt>name</tt>, <tt>prefix:name</tt>,
+ * <tt>prefix:*</tt> or <tt>*</tt>) followed by any number of predicates of the following forms:
+ * <ul>
+ * <li><tt>[<i>n</i>]</tt> (position);
+ * <li><tt>[local-name()='<i>value</i>']</tt>;
+ * <li><tt>[namespace-uri()='<i>value</i>']</tt>;
+ * <li><tt>[@<i>name</i>]</tt> and <tt>[@<i>name</i>='<i>value</i>']</tt>.
+ * </ul>
+ * The last step may also be an attribute (<tt>@name</tt>) or <tt>text()</tt>. The explicit axis
+ * names <tt>child::</tt>, <tt>descendant::</tt> and <tt>attribute::</tt> are supported as well,
+ * except that a step using the <tt>descendant::</tt> axis can't have a position predicate.
+ * The result of the evaluation is the string value of the first node (in document order)
+ * selected by the expression.
+ * <p>
+ * Note that for paths that only use the child axis, the evaluation can only stop before the end
+ * of the document if the expression contains enough information to determine that no further
+ * node can match. E.g. <tt>/Envelope/Header[1]/*[local-name()='Action']</tt> stops at the end of
+ * the first <tt>Header</tt> element if it doesn't contain an <tt>Action</tt> element, while
+ * <tt>/Envelope/Header/*[local-name()='Action']</tt> needs to look at all children of
+ * <tt>Envelope</tt>.
+ * <p>
+ * Instances of this class are immutable and thread safe.
+ */
+public final class StreamingXPath {
+    static final int ELEMENT = 0;
+    static final int ATTRIBUTE = 1;
+    static final int TEXT = 2;
+    
+    static final class Predicate {
+        static final int POSITION = 0;
+        static final int LOCAL_NAME = 1;
+        static final int NAMESPACE_URI = 2;
+        static final int ATTRIBUTE = 3;
+        
+        final int type;
+        final int position;
+        final String namespaceURI;
+        final String localName;
+        final String value;
+        
+        /**
+         * The index of the counter used to evaluate a position predicate, or -1 for other
+         * predicates.
+         */
+        final int counterIndex;
+
+        Predicate(int type, int position, String namespaceURI, String localName, String value,
+                int counterIndex) {
+            this.type = type;
+            this.position = position;
+            this.namespaceURI = namespaceURI;
+            this.localName = localName;
+            this.value = value;
+            this.counterIndex = counterIndex;
+        }
+    }
+    
+    static final class Step {
+        final int type;
+        final boolean descendant;
+        
+        /**
+         * The namespace URI of the name test, or <code>null</code> if the name test matches any
+         * namespace.
+         */
+        final String namespaceURI;
+        
+        /**
+         * The local name of the name test, or <code>null</code> if the name test matches any
+         * local name.
+         */
+        final String localName;
+        
+        final Predicate[] predicates;
+
+        Step(int type, boolean descendant, String namespaceURI, String localName,
+                Predicate[] predicates) {
+            this.type = type;
+            this.descendant = descendant;
+            this.namespaceURI = namespaceURI;
+            this.localName = localName;
+            this.predicates = predicates;
+        }
+        
+        boolean matchesName(String namespaceURI, String localName) {
+            return (this.localName == null || this.localName.equals(localName))
+                    && (this.namespaceURI == null || this.namespaceURI.equals(namespaceURI));
+        }
+    }
+    
+    private static final class Parser {
+        private final String expression;
+        private final Map<String,String> namespaces;
+        private int pos;
+        int counterCount;
+        boolean needsAttributes;
+        
+        Parser(String expression, Map<String,String> namespaces) {
+            this.expression = expression;
+            this.namespaces = namespaces;
+        }
+        
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + pos
+                    + " in expression \"" + expression + "\"");
+        }
+        
+        private void skipWhitespace() {
+            while (pos < expression.length() && Character.isWhitespace(expression.charAt(pos))) {
+                pos++;
+            }
+        }
+        
+        private boolean match(String token) {
+            skipWhitespace();
+            if (expression.startsWith(token, pos)) {
+                pos += token.length();
+                return true;
+            } else {
+                return false;
+            }
+        }
+        
+        private void expect(String token) {
+            if (!match(token)) {
+                throw error("Expected '" + token + "'");
+            }
+        }
+        
+        private static boolean isNameStartChar(char c) {
+            return Character.isLetter(c) || c == '_';
+        }
+        
+        private static boolean isNameChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.';
+        }
+        
+        private String parseNCName() {
+            skipWhitespace();
+            int start = pos;
+            if (pos < expression.length() && isNameStartChar(expression.charAt(pos))) {
+                pos++;
+                while (pos < expression.length() && isNameChar(expression.charAt(pos))) {
+                    pos++;
+                }
+                return expression.substring(start, pos);
+            } else {
+                throw error("Expected a name");
+            }
+        }
+        
+        private String parseLiteral() {
+            skipWhitespace();
+            if (pos < expression.length()) {
+                char quote = expression.charAt(pos);
+                if (quote == '\'' || quote == '"') {
+                    int end = expression.indexOf(quote, pos+1);
+                    if (end == -1) {
+                        throw error("Unterminated literal");
+                    }
+                    String literal = expression.substring(pos+1, end);
+                    pos = end+1;
+                    return literal;
+                }
+            }
+            throw error("Expected a literal");
+        }
+        
+        /**
+         * Parse a name test.
+         * 
+         * @return an array containing the namespace URI and local name of the name test, with
+         *         <code>null</code> values representing wildcards
+         */
+        private String[] parseNameTest() {
+            if (match("*")) {
+                return new String[] { null, null };
+            }
+            int start = pos;
+            String name = parseNCName();
+            if (expression.startsWith("::", pos)) {
+                // The supported axes are handled by the callers
+                pos = start;
+                throw error("Unsupported axis '" + name + "'");
+            }
+            if (pos < expression.length() && expression.charAt(pos) == ':') {
+                pos++;
+                String namespaceURI = namespaces.get(name);
+                if (namespaceURI == null) {
+                    throw error("Unbound namespace prefix '" + name + "'");
+                }
+                if (match("*")) {
+                    return new String[] { namespaceURI, null };
+                } else {
+                    return new String[] { namespaceURI, parseNCName() };
+                }
+            } else {
+                return new String[] { "", name };
+            }
+        }
+        
+        private Predicate parsePredicate() {
+            Predicate predicate;
+            skipWhitespace();
+            if (pos < expression.length() && Character.isDigit(expression.charAt(pos))) {
+                int start = pos;
+                while (pos < expression.length() && Character.isDigit(expression.charAt(pos))) {
+                    pos++;
+                }
+                int position = Integer.parseInt(expression.substring(start, pos));
+                if (position < 1) {
+                    throw error("Invalid position");
+                }
+                predicate = new Predicate(Predicate.POSITION, position, null, null, null, counterCount++);
+            } else if (match("local-name()")) {
+                expect("=");
+                predicate = new Predicate(Predicate.LOCAL_NAME, 0, null, null, parseLiteral(), -1);
+            } else if (match("namespace-uri()")) {
+                expect("=");
+                predicate = new Predicate(Predicate.NAMESPACE_URI, 0, null, null, parseLiteral(), -1);
+            } else if (match("@") || match("attribute::")) {
+                String[] name = parseNameTest();
+                String value = match("=") ? parseLiteral() : null;
+                predicate = new Predicate(Predicate.ATTRIBUTE, 0, name[0], name[1], value, -1);
+                needsAttributes = true;
+            } else {
+                throw error("Unsupported predicate");
+            }
+            expect("]");
+            return predicate;
+        }
+        
+        private Step parseStep(boolean descendant) {
+            if (match("@") || match("attribute::")) {
+                String[] name = parseNameTest();
+                needsAttributes = true;
+                return new Step(ATTRIBUTE, descendant, name[0], name[1], new Predicate[0]);
+            }
+            boolean descendantAxis = match("descendant::");
+            if (descendantAxis) {
+                descendant = true;
+            } else {
+                match("child::");
+            }
+            if (match("text()")) {
+                return new Step(TEXT, descendant, null, null, new Predicate[0]);
+            }
+            String[] name = parseNameTest();
+            List<Predicate> predicates = new ArrayList<Predicate>();
+            while (match("[")) {
+                int start = pos;
+                Predicate predicate = parsePredicate();
+                // Position counters are maintained per parent element, which gives the semantics
+                // of //name[n], but not of descendant::name[n] (which counts all matching
+                // descendants of the context node)
+                if (descendantAxis && predicate.type == Predicate.POSITION) {
+                    pos = start;
+                    throw error("Positional predicates are not supported on the descendant axis");
+                }
+                predicates.add(predicate);
+            }
+            return new Step(ELEMENT, descendant, name[0], name[1],
+                    predicates.toArray(new Predicate[predicates.size()]));
+        }
+        
+        Step[] parse() {
+            List<Step> steps = new ArrayList<Step>();
+            skipWhitespace();
+            if (pos == expression.length() || expression.charAt(pos) != '/') {
+                throw error("Only absolute location paths are supported");
+            }
+            while (true) {
+                skipWhitespace();
+                if (pos == expression.length()) {
+                    break;
+                }
+                if (!steps.isEmpty() && steps.get(steps.size()-1).type != ELEMENT) {
+                    throw error("Attribute and text steps are only supported at the end of the path");
+                }
+                expect("/");
+                steps.add(parseStep(match("/")));
+            }
+            if (steps.size() > 63) {
+                throw error("Too many steps");
+            }
+            return steps.toArray(new Step[steps.size()]);
+        }
+    }
+
+    private final String expression;
+    final Step[] steps;
+    final int counterCount;
+    final boolean needsAttributes;
+
+    /**
+     * Compile an expression that doesn't use namespace prefixes.
+     * 
+     * @param expression
+     *            the expression
+     * @throws IllegalArgumentException
+     *             if the expression is invalid or not in the supported subset
+     */
+    public StreamingXPath(String expression) {
+        this(expression, Collections.<String,String>emptyMap());
+    }
+
+    /**
+     * Compile an expression.
+     * 
+     * @param expression
+     *            the expression
+     * @param namespaces
+     *            the namespace context of the expression, i.e. a map from prefixes to namespace
+     *            URIs
+     * @throws IllegalArgumentException
+     *             if the expression is invalid, not in the supported subset or uses a prefix that
+     *             is not bound in the namespace context
+     */
+    public StreamingXPath(String expression, Map<String,String> namespaces) {
+        this.expression = expression;
+        Parser parser = new Parser(expression, namespaces);
+        steps = parser.parse();
+        counterCount = parser.counterCount;
+        needsAttributes = parser.needsAttributes;
+    }
+
+    /**
+     * Evaluate the expression on the document produced by a given builder. The builder must not
+     * yet have started building the document element. The method consumes events from the
+     * builder until the result of the evaluation is known. The part of the document read up to
+     * that point is built as usual, and the remaining part can be built later (e.g. when the
+     * document is navigated).
+     * 
+     * @param builder
+     *            the builder
+     * @return the string value of the first node selected by the expression, or
+     *         <code>null</code> if the expression doesn't select any node
+     * @throws UnsupportedOperationException
+     *             if the builder doesn't support streaming evaluation
+     * @throws IllegalStateException
+     *             if the builder has already started building the document element
+     */
+    public String evaluate(OMXMLParserWrapper builder) {
+        if (!(builder instanceof StreamingXPathSupport)) {
+            throw new UnsupportedOperationException();
+        }
+        StreamingXPathMatcher matcher = new StreamingXPathMatcher(this);
+        ((StreamingXPathSupport)builder).evaluate(matcher);
+        return matcher.getResult();
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
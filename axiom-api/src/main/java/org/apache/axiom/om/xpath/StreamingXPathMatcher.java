@@ -0,0 +1,343 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.om.xpath;
+
+import java.util.Arrays;
+
+import org.apache.axiom.om.xpath.StreamingXPath.Predicate;
+import org.apache.axiom.om.xpath.StreamingXPath.Step;
+
+/**
+ * Evaluates a {@link StreamingXPath} expression on a stream of events. Instances of this class are
+ * created by {@link StreamingXPath#evaluate(org.apache.axiom.om.OMXMLParserWrapper)} and passed
+ * to the object model implementation (see {@link StreamingXPathSupport}), which then invokes the
+ * methods defined by this class for the events produced by the parser.
+ * <p>
+ * The matcher is implemented as a non deterministic automaton: for each open element, it keeps
+ * track of the set of steps (encoded as a bit mask) that are to be applied to the children of
+ * that element.
+ */
+public final class StreamingXPathMatcher {
+    private final StreamingXPath xpath;
+    private final Step[] steps;
+    private final int counterCount;
+    
+    /**
+     * The set of steps to be applied to the children of each open element, indexed by depth. The
+     * entry for depth 0 corresponds to the document.
+     */
+    private long[] states = new long[16];
+    
+    /**
+     * The counters for position predicates, with {@link #counterCount} entries for each depth.
+     */
+    private int[] counters;
+    
+    private int depth;
+    private boolean documentElementSeen;
+    
+    private String namespaceURI;
+    private String localName;
+    private String[] attributes = new String[24];
+    private int attributeCount;
+    
+    /**
+     * The depth of the element whose string value is being collected, or -1.
+     */
+    private int resultDepth = -1;
+    
+    /**
+     * Indicates whether the text node selected by the expression is being collected.
+     */
+    private boolean collectingText;
+    
+    private StringBuilder buffer;
+    private String result;
+    private boolean complete;
+
+    StreamingXPathMatcher(StreamingXPath xpath) {
+        this.xpath = xpath;
+        steps = xpath.steps;
+        counterCount = xpath.counterCount;
+        counters = new int[counterCount*16];
+        states[0] = 1L;
+    }
+
+    /**
+     * Determine whether the result of the evaluation is known.
+     * 
+     * @return <code>true</code> if no more events need to be passed to the matcher
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Get the result of the evaluation. This must only be called after the matcher is complete.
+     * 
+     * @return the string value of the first node selected by the expression, or
+     *         <code>null</code> if the expression doesn't select any node
+     */
+    public String getResult() {
+        if (!complete) {
+            throw new IllegalStateException();
+        }
+        return result;
+    }
+
+    /**
+     * Notify the matcher of the start of an element. The attributes of the element are then
+     * reported using {@link #processAttribute(String, String, String)}, followed by a call to
+     * {@link #attributesCompleted()}.
+     * 
+     * @param namespaceURI
+     *            the namespace URI of the element, or the empty string if the element has no
+     *            namespace
+     * @param localName
+     *            the local name of the element
+     */
+    public void startElement(String namespaceURI, String localName) {
+        if (complete) {
+            return;
+        }
+        endText();
+        this.namespaceURI = namespaceURI;
+        this.localName = localName;
+        attributeCount = 0;
+    }
+
+    /**
+     * Notify the matcher of an attribute of the current element. Namespace declarations must not
+     * be reported.
+     * 
+     * @param namespaceURI
+     *            the namespace URI of the attribute, or the empty string if the attribute has no
+     *            namespace
+     * @param localName
+     *            the local name of the attribute
+     * @param value
+     *            the value of the attribute
+     */
+    public void processAttribute(String namespaceURI, String localName, String value) {
+        if (complete || resultDepth != -1 || !xpath.needsAttributes) {
+            return;
+        }
+        if (attributeCount == attributes.length) {
+            attributes = Arrays.copyOf(attributes, attributeCount*2);
+        }
+        attributes[attributeCount++] = namespaceURI;
+        attributes[attributeCount++] = localName;
+        attributes[attributeCount++] = value;
+    }
+
+    private String getAttributeValue(String namespaceURI, String localName) {
+        for (int i=0; i<attributeCount; i+=3) {
+            if ((namespaceURI == null || namespaceURI.equals(attributes[i]))
+                    && (localName == null || localName.equals(attributes[i+1]))) {
+                return attributes[i+2];
+            }
+        }
+        return null;
+    }
+
+    private boolean matches(Step step, int parentDepth) {
+        if (!step.matchesName(namespaceURI, localName)) {
+            return false;
+        }
+        for (Predicate predicate : step.predicates) {
+            switch (predicate.type) {
+                case Predicate.POSITION:
+                    if (++counters[parentDepth*counterCount + predicate.counterIndex] != predicate.position) {
+                        return false;
+                    }
+                    break;
+                case Predicate.LOCAL_NAME:
+                    if (!predicate.value.equals(localName)) {
+                        return false;
+                    }
+                    break;
+                case Predicate.NAMESPACE_URI:
+                    if (!predicate.value.equals(namespaceURI)) {
+                        return false;
+                    }
+                    break;
+                default:
+                    String value = getAttributeValue(predicate.namespaceURI, predicate.localName);
+                    if (value == null || predicate.value != null && !predicate.value.equals(value)) {
+                        return false;
+                    }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Notify the matcher that all attributes of the current element have been reported.
+     */
+    public void attributesCompleted() {
+        if (complete) {
+            return;
+        }
+        int parentDepth = depth++;
+        if (resultDepth != -1) {
+            return;
+        }
+        if (depth == states.length) {
+            states = Arrays.copyOf(states, depth*2);
+            counters = Arrays.copyOf(counters, depth*2*counterCount);
+        }
+        Arrays.fill(counters, depth*counterCount, (depth+1)*counterCount, 0);
+        long parentStates = states[parentDepth];
+        documentElementSeen = true;
+        long newStates = 0;
+        for (int i=0; i<steps.length; i++) {
+            if ((parentStates & (1L << i)) == 0) {
+                continue;
+            }
+            Step step = steps[i];
+            if (step.descendant) {
+                newStates |= 1L << i;
+            }
+            if (step.type == StreamingXPath.ELEMENT && matches(step, parentDepth)) {
+                if (i == steps.length-1) {
+                    resultDepth = depth;
+                    buffer = new StringBuilder();
+                    return;
+                } else {
+                    newStates |= 1L << (i+1);
+                }
+            }
+        }
+        states[depth] = newStates;
+        int last = steps.length-1;
+        if ((newStates & (1L << last)) != 0 && steps[last].type == StreamingXPath.ATTRIBUTE) {
+            String value = getAttributeValue(steps[last].namespaceURI, steps[last].localName);
+            if (value != null) {
+                result = value;
+                complete = true;
+                return;
+            }
+        }
+        checkExhausted();
+    }
+
+    /**
+     * Notify the matcher of the end of an element.
+     */
+    public void endElement() {
+        if (complete) {
+            return;
+        }
+        endText();
+        if (depth-- == resultDepth) {
+            result = buffer.toString();
+            complete = true;
+        } else if (resultDepth == -1) {
+            checkExhausted();
+        }
+    }
+
+    /**
+     * Notify the matcher of character data. This includes the content of CDATA sections and the
+     * replacement text of entity references, but not the content of comments and processing
+     * instructions.
+     * 
+     * @param data
+     *            the character data
+     */
+    public void processCharacterData(String data) {
+        if (complete) {
+            return;
+        }
+        if (resultDepth != -1 || collectingText) {
+            buffer.append(data);
+        } else {
+            int last = steps.length-1;
+            if (depth > 0 && (states[depth] & (1L << last)) != 0 && steps[last].type == StreamingXPath.TEXT) {
+                collectingText = true;
+                buffer = new StringBuilder(data);
+            }
+        }
+    }
+
+    /**
+     * Notify the matcher of a comment or processing instruction.
+     */
+    public void processOtherNode() {
+        if (!complete) {
+            endText();
+        }
+    }
+
+    /**
+     * Notify the matcher of the end of the document.
+     */
+    public void endDocument() {
+        if (!complete) {
+            endText();
+            complete = true;
+        }
+    }
+
+    private void endText() {
+        if (collectingText) {
+            result = buffer.toString();
+            complete = true;
+        }
+    }
+
+    /**
+     * Check if any of the steps applicable to the open elements can still match a node and mark
+     * the evaluation as complete if this is not the case.
+     */
+    private void checkExhausted() {
+        if (!documentElementSeen) {
+            return;
+        }
+        for (int level=1; level<=depth; level++) {
+            long levelStates = states[level];
+            for (int i=0; i<steps.length; i++) {
+                if ((levelStates & (1L << i)) != 0 && !isExhausted(steps[i], level)) {
+                    return;
+                }
+            }
+        }
+        complete = true;
+    }
+
+    private boolean isExhausted(Step step, int level) {
+        if (step.descendant) {
+            return false;
+        }
+        switch (step.type) {
+            case StreamingXPath.ATTRIBUTE:
+                // Attributes have already been checked when the element was started
+                return true;
+            case StreamingXPath.ELEMENT:
+                for (Predicate predicate : step.predicates) {
+                    if (predicate.type == Predicate.POSITION) {
+                        return counters[level*counterCount + predicate.counterIndex] >= predicate.position;
+                    }
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+}
@@ -19,6 +19,8 @@
 package org.apache.axiom.attachments;
 
 import java.io.File;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 import org.apache.axiom.om.AbstractTestCase;
 
@@ -90,4 +92,29 @@ public class AttachmentCacheMonitorTest extends AbstractTestCase {
             acm.setTimeout(previousTime);
         }
     }
+
+    public void testScheduledExecutorService() throws Exception {
+        AttachmentCacheMonitor acm = AttachmentCacheMonitor.getAttachmentCacheMonitor();
+        int previousTime = acm.getTimeout();
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            acm.setScheduledExecutorService(executor);
+            acm.setTimeout(2);
+
+            File file = File.createTempFile("file", ".tmp");
+            acm.register(file.getCanonicalPath());
+            assertTrue(file.exists());
+
+            // No further interaction with the monitor; the file must be deleted by the
+            // task submitted to the executor
+            for (int i=0; i<100 && file.exists(); i++) {
+                Thread.sleep(100);
+            }
+            assertFalse(file.exists());
+        } finally {
+            acm.setTimeout(previousTime);
+            acm.setScheduledExecutorService(null);
+            executor.shutdown();
+        }
+    }
 }
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.blob;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.axiom.blob.suite.WritableBlobTestSuiteBuilder;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+public class MemoryBlobPoolTest extends TestCase {
+    public static TestSuite suite() {
+        TestSuite suite = new WritableBlobTestSuiteBuilder(new MemoryBlobPool(), new int[] { 10000, 100000 }, true, false).build();
+        suite.addTest(new MemoryBlobPoolTest("testRecycleOnRelease"));
+        suite.addTest(new MemoryBlobPoolTest("testRecycleOnReadOnce"));
+        return suite;
+    }
+
+    public MemoryBlobPoolTest(String name) {
+        super(name);
+    }
+
+    private static void write(MemoryBlob blob, int size) throws Exception {
+        OutputStream out = blob.getOutputStream();
+        for (int i=0; i<size; i++) {
+            out.write(i);
+        }
+        out.close();
+    }
+
+    public void testRecycleOnRelease() throws Exception {
+        MemoryBlobPool pool = new MemoryBlobPool();
+        MemoryBlob blob = pool.createBlob();
+        // Uses chunks of 4096, 8192 and 16384 bytes
+        write(blob, 20000);
+        assertEquals(0, pool.getHitCount());
+        assertEquals(3, pool.getMissCount());
+        blob.release();
+        blob = pool.createBlob();
+        write(blob, 20000);
+        assertEquals(3, pool.getHitCount());
+        assertEquals(3, pool.getMissCount());
+        InputStream in = blob.getInputStream();
+        for (int i=0; i<20000; i++) {
+            assertEquals(i & 0xFF, in.read());
+        }
+        assertEquals(-1, in.read());
+    }
+
+    public void testRecycleOnReadOnce() throws Exception {
+        MemoryBlobPool pool = new MemoryBlobPool();
+        MemoryBlob blob = pool.createBlob();
+        write(blob, 10000);
+        InputStream in = blob.readOnce();
+        in.skip(5000);
+        in.close();
+        blob = pool.createBlob();
+        write(blob, 10000);
+        assertEquals(2, pool.getHitCount());
+        assertEquals(2, pool.getMissCount());
+    }
+}
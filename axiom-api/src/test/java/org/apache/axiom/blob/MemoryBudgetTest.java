@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.blob;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.axiom.ext.io.ReadFromSupport;
+import org.apache.commons.io.IOUtils;
+
+import junit.framework.TestCase;
+
+public class MemoryBudgetTest extends TestCase {
+    public void testExhaustion() throws Exception {
+        MemoryBudget budget = new MemoryBudget(1000);
+        WritableBlob blob1 = budget.tryCreateBlob(MemoryBlob.FACTORY, 600);
+        assertNotNull(blob1);
+        assertEquals(600, budget.getUsage());
+        assertNull(budget.tryCreateBlob(MemoryBlob.FACTORY, 600));
+        WritableBlob blob2 = budget.tryCreateBlob(MemoryBlob.FACTORY, 400);
+        assertNotNull(blob2);
+        assertEquals(1000, budget.getUsage());
+        blob1.release();
+        assertEquals(400, budget.getUsage());
+        blob1.release();
+        assertEquals(400, budget.getUsage());
+        blob2.release();
+        assertEquals(0, budget.getUsage());
+    }
+
+    public void testReadOnce() throws Exception {
+        MemoryBudget budget = new MemoryBudget(1000);
+        WritableBlob blob = budget.tryCreateBlob(MemoryBlob.FACTORY, 600);
+        // The wrapper must not hide MemoryBlob; otherwise consumers can't use readOnce()
+        assertTrue(blob instanceof MemoryBlob);
+        byte[] data = new byte[500];
+        new Random().nextBytes(data);
+        blob.readFrom(new ByteArrayInputStream(data));
+        MemoryBlobInputStream in = ((MemoryBlob)blob).readOnce();
+        assertEquals(600, budget.getUsage());
+        assertTrue(Arrays.equals(data, IOUtils.toByteArray(in)));
+        assertEquals(0, budget.getUsage());
+    }
+
+    public void testGarbageCollected() throws Exception {
+        MemoryBudget budget = new MemoryBudget(1000);
+        assertNotNull(budget.tryCreateBlob(MemoryBlob.FACTORY, 1000));
+        for (int i=0; i<100 && budget.getUsage() != 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(0, budget.getUsage());
+    }
+
+    public void testOverflowableBlobSpill() throws Exception {
+        MemoryBudget budget = new MemoryBudget(4096);
+        // Uses chunks of 1024 bytes
+        OverflowableBlob blob = Blobs.createOverflowableBlob(16*1024, MemoryBlob.FACTORY, budget);
+        byte[] data = new byte[10000];
+        new Random().nextBytes(data);
+        blob.readFrom(new ByteArrayInputStream(data));
+        assertNotNull(blob.getOverflowBlob());
+        assertEquals(1, budget.getSpillCount());
+        assertEquals(4096, budget.getPeakUsage());
+        assertEquals(0, budget.getUsage());
+        assertTrue(Arrays.equals(data, IOUtils.toByteArray(blob.getInputStream())));
+    }
+
+    public void testOverflowableBlobWithinBudget() throws Exception {
+        MemoryBudget budget = new MemoryBudget(100000);
+        OverflowableBlob blob = Blobs.createOverflowableBlob(16*1024, MemoryBlob.FACTORY, budget);
+        OutputStream out = blob.getOutputStream();
+        out.write(new byte[3000]);
+        out.close();
+        assertNull(blob.getOverflowBlob());
+        assertEquals(3072, budget.getUsage());
+        blob.release();
+        assertEquals(0, budget.getUsage());
+        assertEquals(0, budget.getSpillCount());
+    }
+
+    public void testOverflowableBlobRepeatedReadFromEmptyStream() throws Exception {
+        MemoryBudget budget = new MemoryBudget(100000);
+        // Uses chunks of 1024 bytes
+        OverflowableBlob blob = Blobs.createOverflowableBlob(16*1024, MemoryBlob.FACTORY, budget);
+        OutputStream out = blob.getOutputStream();
+        for (int i=0; i<10; i++) {
+            ((ReadFromSupport)out).readFrom(new ByteArrayInputStream(new byte[0]), -1);
+        }
+        // The chunk allocated by the first call must be reused by the subsequent calls
+        assertEquals(1024, budget.getUsage());
+        out.write(new byte[100]);
+        out.close();
+        assertEquals(1024, budget.getUsage());
+        assertEquals(100, IOUtils.toByteArray(blob.getInputStream()).length);
+        blob.release();
+        assertEquals(0, budget.getUsage());
+    }
+
+    private static void testWriteBeyondReservation(WritableBlobFactory<?> factory) throws Exception {
+        MemoryBudget budget = new MemoryBudget(1000);
+        WritableBlob blob = budget.tryCreateBlob(factory, 100);
+        OutputStream out = blob.getOutputStream();
+        out.write(new byte[50]);
+        assertEquals(100, budget.getUsage());
+        out.write(new byte[250]);
+        out.write(0);
+        out.close();
+        // The data written in excess of the reservation must be charged to the budget
+        assertEquals(301, budget.getUsage());
+        assertNull(budget.tryCreateBlob(MemoryBlob.FACTORY, 700));
+        blob.release();
+        assertEquals(0, budget.getUsage());
+        assertEquals(301, budget.getPeakUsage());
+    }
+
+    public void testWriteBeyondReservationMemoryBlob() throws Exception {
+        testWriteBeyondReservation(MemoryBlob.FACTORY);
+    }
+
+    public void testWriteBeyondReservationDirectMemoryBlob() throws Exception {
+        testWriteBeyondReservation(Blobs.createDirectMemoryBlobFactory());
+    }
+
+    public void testReadFromBeyondReservation() throws Exception {
+        MemoryBudget budget = new MemoryBudget(1000);
+        WritableBlob blob = budget.tryCreateBlob(Blobs.createDirectMemoryBlobFactory(), 100);
+        blob.readFrom(new ByteArrayInputStream(new byte[400]));
+        assertEquals(400, budget.getUsage());
+        // The reservation is returned once the content has been consumed
+        IOUtils.toByteArray(((MemoryBlob)blob).readOnce());
+        assertEquals(0, budget.getUsage());
+    }
+}
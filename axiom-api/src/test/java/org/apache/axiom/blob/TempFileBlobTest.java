@@ -18,16 +18,111 @@
  */
 package org.apache.axiom.blob;
 
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Random;
+
 import org.apache.axiom.blob.suite.WritableBlobTestSuiteBuilder;
+import org.apache.axiom.ext.io.WritableChannelSupport;
+import org.apache.commons.io.IOUtils;
 
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
 
 public class TempFileBlobTest extends TestCase {
     public static TestSuite suite() {
-        return new WritableBlobTestSuiteBuilder(
+        TestSuite suite = new WritableBlobTestSuiteBuilder(
                 new TempFileBlobFactory("test", ".dat", null),
-                new int[] { 10000 },
+                new int[] { 10000, 2*1024*1024 },
                 false, true).build();
+        suite.addTest(new TempFileBlobTest("testWriteToFileOutputStream"));
+        suite.addTest(new TempFileBlobTest("testWriteToChannelWithoutProgress"));
+        return suite;
+    }
+
+    public TempFileBlobTest(String name) {
+        super(name);
+    }
+
+    public void testWriteToFileOutputStream() throws Exception {
+        byte[] data = new byte[3*1024*1024];
+        new Random().nextBytes(data);
+        WritableBlob blob = new TempFileBlobFactory("test", ".dat", null).createBlob();
+        File file = File.createTempFile("test", ".dat");
+        try {
+            OutputStream out = blob.getOutputStream();
+            out.write(data);
+            out.close();
+            out = new FileOutputStream(file);
+            try {
+                out.write(data, 0, 100);
+                blob.writeTo(out);
+            } finally {
+                out.close();
+            }
+            InputStream in = new FileInputStream(file);
+            try {
+                byte[] content = IOUtils.toByteArray(in);
+                assertThat(content.length).isEqualTo(data.length + 100);
+                for (int i=0; i<data.length; i++) {
+                    assertEquals(data[i], content[i+100]);
+                }
+            } finally {
+                in.close();
+            }
+        } finally {
+            blob.release();
+            file.delete();
+        }
+    }
+
+    /**
+     * Tests that {@link WritableBlob#writeTo(OutputStream)} terminates if the channel returned by
+     * {@link WritableChannelSupport#getChannel()} doesn't accept any data, as would be the case
+     * for a non blocking channel.
+     */
+    public void testWriteToChannelWithoutProgress() throws Exception {
+        byte[] data = new byte[10000];
+        new Random().nextBytes(data);
+        WritableBlob blob = new TempFileBlobFactory("test", ".dat", null).createBlob();
+        try {
+            OutputStream out = blob.getOutputStream();
+            out.write(data);
+            out.close();
+            class ChannelOutputStream extends ByteArrayOutputStream implements WritableChannelSupport {
+                @Override
+                public WritableByteChannel getChannel() {
+                    return new WritableByteChannel() {
+                        @Override
+                        public boolean isOpen() {
+                            return true;
+                        }
+
+                        @Override
+                        public void close() {
+                        }
+
+                        @Override
+                        public int write(ByteBuffer src) {
+                            return 0;
+                        }
+                    };
+                }
+            }
+            ChannelOutputStream baos = new ChannelOutputStream();
+            blob.writeTo(baos);
+            assertTrue(Arrays.equals(data, baos.toByteArray()));
+        } finally {
+            blob.release();
+        }
     }
 }
@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.mime;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.axiom.blob.Blobs;
+import org.apache.axiom.blob.MemoryBlob;
+import org.apache.axiom.blob.MemoryBudget;
+import org.apache.axiom.blob.WritableBlob;
+import org.apache.axiom.util.UIDGenerator;
+import org.apache.commons.io.IOUtils;
+
+import junit.framework.TestCase;
+
+public class MultipartBodyTest extends TestCase {
+    private static final int PART_COUNT = 5;
+
+    private byte[][] contents;
+    private byte[] message;
+    private String boundary;
+
+    @Override
+    protected void setUp() throws Exception {
+        Random random = new Random();
+        boundary = UIDGenerator.generateMimeBoundary();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        MultipartBodyWriter mpw = new MultipartBodyWriter(baos, boundary);
+        contents = new byte[PART_COUNT][];
+        for (int i=0; i<PART_COUNT; i++) {
+            contents[i] = new byte[1000*(i+1)];
+            random.nextBytes(contents[i]);
+            OutputStream partOutputStream = mpw.writePart("application/octet-stream", "binary", "part" + i, null);
+            partOutputStream.write(contents[i]);
+            partOutputStream.close();
+        }
+        mpw.complete();
+        message = baos.toByteArray();
+    }
+
+    private MultipartBody.Builder builder() {
+        return MultipartBody.builder()
+                .setInputStream(new ByteArrayInputStream(message))
+                .setContentType("multipart/related; boundary=\"" + boundary + "\"");
+    }
+
+    private void assertContent(int index, Part part) throws Exception {
+        assertEquals("part" + index, part.getContentID());
+        assertTrue(Arrays.equals(contents[index], IOUtils.toByteArray(part.getInputStream(false))));
+    }
+
+    public void testGetPart() throws Exception {
+        MultipartBody mb = builder().build();
+        assertContent(2, mb.getPart("part2"));
+        assertContent(0, mb.getRootPart());
+        assertContent(1, mb.getPart("part1"));
+        assertNull(mb.getPart("unknown"));
+        assertEquals(PART_COUNT, mb.getPartCount());
+    }
+
+    public void testGetPartByIndex() throws Exception {
+        MultipartBody mb = builder().build();
+        assertContent(3, mb.getPart(3));
+        assertContent(1, mb.getPart(1));
+        assertNull(mb.getPart(PART_COUNT));
+        assertSame(mb.getPart("part4"), mb.getPart(4));
+    }
+
+    public void testIndexed() throws Exception {
+        ByteArrayInputStream in = new ByteArrayInputStream(message);
+        MultipartBody mb = MultipartBody.builder()
+                .setInputStream(in)
+                .setContentType("multipart/related; boundary=\"" + boundary + "\"")
+                .setIndexed(true)
+                .build();
+        assertEquals(0, in.available());
+        assertEquals(PART_COUNT, mb.getPartCount());
+        for (int i=0; i<PART_COUNT; i++) {
+            Part part = mb.getPart(i);
+            assertEquals(contents[i].length, part.getSize());
+            part.discard();
+            assertEquals(contents[i].length, part.getSize());
+        }
+    }
+
+    public void testPartBlobFactory() throws Exception {
+        final List<String> rootParts = new ArrayList<String>();
+        MultipartBody mb = builder().setPartBlobFactory(new PartBlobFactory() {
+            @Override
+            public WritableBlob createBlob(Part part, boolean rootPart) {
+                if (rootPart) {
+                    rootParts.add(part.getContentID());
+                }
+                return Blobs.createMemoryBlob();
+            }
+        }).build();
+        for (Part part : mb) {
+            part.fetch();
+        }
+        assertEquals(Arrays.asList("part0"), rootParts);
+    }
+
+    public void testPrefetch() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            MultipartBody mb = builder()
+                    .setPrefetchExecutor(executor)
+                    .setMaxPrefetchedParts(1)
+                    .build();
+            assertContent(0, mb.getRootPart());
+            assertContent(3, mb.getPart("part3"));
+            Iterator<Part> it = mb.iterator();
+            for (int i=0; i<PART_COUNT; i++) {
+                assertTrue(it.hasNext());
+                Part part = it.next();
+                if (i != 0 && i != 3) {
+                    assertContent(i, part);
+                }
+            }
+            assertFalse(it.hasNext());
+            assertEquals(PART_COUNT, mb.getPartCount());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void testPrefetchDetach() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            MultipartBody mb = builder()
+                    .setPrefetchExecutor(executor)
+                    .setMaxPrefetchedParts(1)
+                    .build();
+            mb.detach();
+            assertEquals(PART_COUNT, mb.getPartCount());
+            assertContent(4, mb.getPart("part4"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void testPrefetchClose() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            MultipartBody mb = builder()
+                    .setPrefetchExecutor(executor)
+                    .setMaxPrefetchedParts(1)
+                    .build();
+            assertContent(0, mb.getRootPart());
+            mb.close();
+            executor.shutdown();
+            // The task must not remain blocked waiting for the application to take the next part
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+            assertSame(mb.getRootPart(), mb.getPart("part0"));
+            try {
+                mb.getPart("part4");
+                fail("Expected MIMEException");
+            } catch (MIMEException ex) {
+                // Expected
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public void testPrefetchCloseReleasesParts() throws Exception {
+        final MemoryBudget budget = new MemoryBudget(Long.MAX_VALUE);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            MultipartBody mb = builder()
+                    .setPartBlobFactory(new PartBlobFactory() {
+                        @Override
+                        public WritableBlob createBlob(Part part, boolean rootPart) {
+                            return budget.tryCreateBlob(MemoryBlob.FACTORY, 10000);
+                        }
+                    })
+                    .setPrefetchExecutor(executor)
+                    .setMaxPrefetchedParts(1)
+                    .build();
+            assertEquals("part0", mb.getRootPart().getContentID());
+            // Wait until the task has filled the queue and is blocked with the next part
+            long timeout = System.currentTimeMillis() + 10000;
+            while (budget.getUsage() < 30000 && System.currentTimeMillis() < timeout) {
+                Thread.sleep(10);
+            }
+            assertEquals(30000, budget.getUsage());
+            mb.close();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+            // Only the root part, which has been returned to the application, must still be held
+            assertEquals(10000, budget.getUsage());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public void testPrefetchFailure() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            InputStream in = new FilterInputStream(new ByteArrayInputStream(message)) {
+                private int remaining = message.length/2;
+                
+                @Override
+                public int read() throws IOException {
+                    byte[] b = new byte[1];
+                    return read(b) == -1 ? -1 : b[0] & 0xFF;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    if (remaining == 0) {
+                        throw new IOException("Simulated failure");
+                    }
+                    int c = super.read(b, off, Math.min(len, remaining));
+                    if (c > 0) {
+                        remaining -= c;
+                    }
+                    return c;
+                }
+            };
+            MultipartBody mb = MultipartBody.builder()
+                    .setInputStream(in)
+                    .setContentType("multipart/related; boundary=\"" + boundary + "\"")
+                    .setPrefetchExecutor(executor)
+                    .build();
+            // The failure must be reported every time, not only on the first attempt
+            for (int i=0; i<2; i++) {
+                try {
+                    mb.getPartCount();
+                    fail("Expected MIMEException");
+                } catch (MIMEException ex) {
+                    // Expected
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.mime;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.axiom.blob.Blobs;
+import org.apache.axiom.blob.MemoryBlob;
+import org.apache.axiom.blob.MemoryBudget;
+import org.apache.axiom.blob.OverflowableBlob;
+import org.apache.axiom.blob.WritableBlob;
+import org.apache.axiom.blob.WritableBlobFactory;
+import org.apache.axiom.util.UIDGenerator;
+
+import junit.framework.TestCase;
+
+public class SizeTieredPartBlobFactoryTest extends TestCase {
+    private final List<WritableBlob> fileBlobs = new ArrayList<WritableBlob>();
+    private final Map<String,WritableBlob> blobs = new HashMap<String,WritableBlob>();
+    private final ByteArrayOutputStream message = new ByteArrayOutputStream();
+    private final String boundary = UIDGenerator.generateMimeBoundary();
+    private final MultipartBodyWriter writer = new MultipartBodyWriter(message, boundary);
+
+    private void addPart(String contentID, int size, String contentLength) throws Exception {
+        List<Header> headers = contentLength == null ? null
+                : Collections.singletonList(new Header("Content-Length", contentLength));
+        OutputStream out = writer.writePart("application/octet-stream", "binary", contentID, headers);
+        out.write(new byte[size]);
+        out.close();
+    }
+
+    /**
+     * Parse the message and fetch all parts using a {@link SizeTieredPartBlobFactory} with a
+     * memory threshold of 1000 bytes and an off-heap threshold of 10000 bytes.
+     */
+    private void parse(MemoryBudget budget) throws Exception {
+        writer.complete();
+        final PartBlobFactory factory = new SizeTieredPartBlobFactory(budget, 1000, 10000,
+                new WritableBlobFactory<WritableBlob>() {
+                    @Override
+                    public WritableBlob createBlob() {
+                        WritableBlob blob = Blobs.createMemoryBlob();
+                        fileBlobs.add(blob);
+                        return blob;
+                    }
+                });
+        MultipartBody mb = MultipartBody.builder()
+                .setInputStream(new ByteArrayInputStream(message.toByteArray()))
+                .setContentType("multipart/related; boundary=\"" + boundary + "\"")
+                .setPartBlobFactory(new PartBlobFactory() {
+                    @Override
+                    public WritableBlob createBlob(Part part, boolean rootPart) {
+                        WritableBlob blob = factory.createBlob(part, rootPart);
+                        blobs.put(part.getContentID(), blob);
+                        return blob;
+                    }
+                })
+                .build();
+        for (Part part : mb) {
+            part.fetch();
+        }
+    }
+
+    public void testTiers() throws Exception {
+        addPart("small", 100, "100");
+        addPart("unknown", 3000, null);
+        addPart("medium", 5000, "5000");
+        addPart("large", 50000, "50000");
+        MemoryBudget budget = new MemoryBudget(100000);
+        parse(budget);
+        
+        WritableBlob small = blobs.get("small");
+        assertTrue(small instanceof OverflowableBlob);
+        assertNull(((OverflowableBlob)small).getOverflowBlob());
+        
+        // Parts of unknown size start on the heap and overflow to the file storage
+        WritableBlob unknown = blobs.get("unknown");
+        assertTrue(unknown instanceof OverflowableBlob);
+        assertTrue(fileBlobs.contains(((OverflowableBlob)unknown).getOverflowBlob()));
+        
+        WritableBlob medium = blobs.get("medium");
+        assertFalse(medium instanceof OverflowableBlob);
+        assertTrue(medium instanceof MemoryBlob);
+        assertFalse(fileBlobs.contains(medium));
+        assertEquals(5000, medium.getSize());
+        
+        assertTrue(fileBlobs.contains(blobs.get("large")));
+        
+        // Reservations for the small part (two chunks of 1000/16 bytes) and the medium part
+        assertEquals(2*(1000/16) + 5000, budget.getUsage());
+    }
+
+    public void testBudgetExhausted() throws Exception {
+        addPart("medium", 5000, "5000");
+        addPart("small", 100, "100");
+        parse(new MemoryBudget(4000));
+        // The off-heap tier is skipped if the budget doesn't allow to reserve the declared length
+        assertTrue(fileBlobs.contains(blobs.get("medium")));
+        assertEquals(5000, blobs.get("medium").getSize());
+        // The remaining budget can still be used for the heap tier
+        assertNull(((OverflowableBlob)blobs.get("small")).getOverflowBlob());
+    }
+
+    public void testBudgetExhaustedForHeapTier() throws Exception {
+        addPart("small", 500, "500");
+        parse(new MemoryBudget(0));
+        OverflowableBlob small = (OverflowableBlob)blobs.get("small");
+        assertTrue(fileBlobs.contains(small.getOverflowBlob()));
+        assertEquals(500, small.getSize());
+    }
+
+    public void testWrongContentLength() throws Exception {
+        addPart("medium", 8000, "5000");
+        MemoryBudget budget = new MemoryBudget(100000);
+        parse(budget);
+        WritableBlob medium = blobs.get("medium");
+        assertFalse(fileBlobs.contains(medium));
+        assertEquals(8000, medium.getSize());
+        // The bytes in excess of the declared length must be charged to the budget
+        assertEquals(8000, budget.getUsage());
+    }
+}
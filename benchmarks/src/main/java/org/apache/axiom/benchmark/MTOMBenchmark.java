@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.activation.DataHandler;
+
+import org.apache.axiom.blob.BlobDataSource;
+import org.apache.axiom.blob.Blobs;
+import org.apache.axiom.mime.MultipartBody;
+import org.apache.axiom.mime.Part;
+import org.apache.axiom.om.OMAbstractFactory;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMMetaFactory;
+import org.apache.axiom.om.OMNamespace;
+import org.apache.axiom.om.OMOutputFormat;
+import org.apache.axiom.om.OMXMLBuilderFactory;
+import org.apache.axiom.soap.SOAPEnvelope;
+import org.apache.axiom.soap.SOAPFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks parsing of MTOM messages with {@link MultipartBody} as well as MTOM round-trips
+ * (parsing followed by serialization with XOP optimization enabled).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MTOMBenchmark {
+    @Param({OMAbstractFactory.FEATURE_DEFAULT, OMAbstractFactory.FEATURE_DOM})
+    public String implementation;
+
+    /**
+     * The number of attachments in the message.
+     */
+    @Param({"1", "10"})
+    public int attachments;
+
+    /**
+     * The size of each attachment in bytes.
+     */
+    @Param({"1024", "65536", "1048576"})
+    public int attachmentSize;
+
+    private OMMetaFactory metaFactory;
+    private OMOutputFormat format;
+    private String contentType;
+    private byte[] message;
+    private final byte[] buffer = new byte[4096];
+
+    @Setup
+    public void setUp() throws Exception {
+        metaFactory = OMAbstractFactory.getMetaFactory(implementation);
+        // Always use the default implementation to create the message so that all
+        // implementations are benchmarked with exactly the same input.
+        SOAPFactory factory = OMAbstractFactory.getSOAP12Factory();
+        SOAPEnvelope envelope = factory.getDefaultEnvelope();
+        OMNamespace ns = factory.createOMNamespace("urn:axiom:benchmark", "p");
+        OMElement request = factory.createOMElement("uploadDocuments", ns, envelope.getBody());
+        for (int i=0; i<attachments; i++) {
+            OMElement document = factory.createOMElement("document", ns, request);
+            document.addAttribute("name", "document" + i + ".bin", null);
+            document.addChild(factory.createOMText(new DataHandler(new BlobDataSource(
+                    Blobs.createBlob(Payloads.createBinaryContent(attachmentSize)),
+                    "application/octet-stream")), true));
+        }
+        format = new OMOutputFormat();
+        format.setSOAP11(false);
+        format.setDoOptimize(true);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        envelope.serialize(baos, format);
+        contentType = format.getContentType();
+        message = baos.toByteArray();
+    }
+
+    private MultipartBody createMultipartBody() {
+        return MultipartBody.builder()
+                .setInputStream(new ByteArrayInputStream(message))
+                .setContentType(contentType)
+                .build();
+    }
+
+    @Benchmark
+    public long parse() throws Exception {
+        long total = 0;
+        for (Part part : createMultipartBody()) {
+            InputStream in = part.getInputStream(false);
+            int c;
+            while ((c = in.read(buffer)) != -1) {
+                total += c;
+            }
+            in.close();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long roundTrip() throws Exception {
+        SOAPEnvelope envelope = OMXMLBuilderFactory.createSOAPModelBuilder(
+                metaFactory, createMultipartBody()).getSOAPEnvelope();
+        NullOutputStream out = new NullOutputStream();
+        envelope.serializeAndConsume(out, format);
+        return out.getCount();
+    }
+}
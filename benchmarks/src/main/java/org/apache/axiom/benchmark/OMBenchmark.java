@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.axiom.om.OMAbstractFactory;
+import org.apache.axiom.om.OMDocument;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMMetaFactory;
+import org.apache.axiom.om.OMNode;
+import org.apache.axiom.om.OMXMLBuilderFactory;
+import org.apache.axiom.om.OMXMLParserWrapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks parsing, navigation and serialization of plain XML documents.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OMBenchmark {
+    /**
+     * The Axiom implementation to use: {@link OMAbstractFactory#FEATURE_DEFAULT} selects LLOM
+     * (axiom-impl) and {@link OMAbstractFactory#FEATURE_DOM} selects DOOM (axiom-dom).
+     */
+    @Param({OMAbstractFactory.FEATURE_DEFAULT, OMAbstractFactory.FEATURE_DOM})
+    public String implementation;
+
+    @Param({"1024", "65536", "1048576"})
+    public int size;
+
+    private OMMetaFactory metaFactory;
+    private byte[] content;
+    private OMDocument document;
+
+    @Setup
+    public void setUp() {
+        metaFactory = OMAbstractFactory.getMetaFactory(implementation);
+        content = Payloads.createDocument(size);
+        document = parse();
+    }
+
+    private OMDocument parse() {
+        OMXMLParserWrapper builder = OMXMLBuilderFactory.createOMBuilder(
+                metaFactory.getOMFactory(), new ByteArrayInputStream(content));
+        OMDocument document = builder.getDocument();
+        document.build();
+        return document;
+    }
+
+    @Benchmark
+    public OMDocument build() {
+        return parse();
+    }
+
+    @Benchmark
+    public int navigate() {
+        return countElements(document.getOMDocumentElement());
+    }
+
+    @Benchmark
+    public int navigateChildElements() {
+        int count = 0;
+        for (Iterator<OMElement> it = document.getOMDocumentElement().getChildElements(); it.hasNext(); ) {
+            OMElement item = it.next();
+            for (Iterator<OMElement> it2 = item.getChildElements(); it2.hasNext(); ) {
+                it2.next();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public long serialize() throws Exception {
+        NullOutputStream out = new NullOutputStream();
+        document.serialize(out);
+        return out.getCount();
+    }
+
+    @Benchmark
+    public long buildAndSerialize() throws Exception {
+        OMXMLParserWrapper builder = OMXMLBuilderFactory.createOMBuilder(
+                metaFactory.getOMFactory(), new ByteArrayInputStream(content));
+        NullOutputStream out = new NullOutputStream();
+        builder.getDocument().serializeAndConsume(out);
+        return out.getCount();
+    }
+
+    private static int countElements(OMElement element) {
+        int count = 1;
+        for (OMNode child = element.getFirstOMChild(); child != null; child = child.getNextOMSibling()) {
+            if (child instanceof OMElement) {
+                count += countElements((OMElement)child);
+            }
+        }
+        return count;
+    }
+}
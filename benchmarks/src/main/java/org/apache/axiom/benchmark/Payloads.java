@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.util.Random;
+
+import org.apache.axiom.soap.SOAPVersion;
+
+/**
+ * Generates the XML documents and SOAP messages used as input by the benchmarks. The content is
+ * generated from a fixed seed so that all runs (and all implementations) see the same input.
+ */
+final class Payloads {
+    private static final String NS = "urn:axiom:benchmark";
+
+    private Payloads() {}
+
+    /**
+     * Create a document of approximately the given size. The document is a typical data oriented
+     * payload with a few distinct element names, some attributes and short text nodes.
+     * 
+     * @param size
+     *            the approximate size of the document in bytes
+     * @return the UTF-8 encoded document
+     */
+    static byte[] createDocument(int size) {
+        StringBuilder buffer = new StringBuilder(size + 256);
+        buffer.append("<?xml version='1.0' encoding='UTF-8'?>");
+        buffer.append("<p:catalog xmlns:p='").append(NS).append("'>");
+        appendItems(buffer, size);
+        buffer.append("</p:catalog>");
+        return toUTF8(buffer);
+    }
+
+    /**
+     * Create a SOAP message with a body of approximately the given size.
+     * 
+     * @param soapVersion
+     *            the SOAP version
+     * @param size
+     *            the approximate size of the SOAP body content in bytes
+     * @return the UTF-8 encoded SOAP message
+     */
+    static byte[] createSOAPMessage(SOAPVersion soapVersion, int size) {
+        StringBuilder buffer = new StringBuilder(size + 512);
+        buffer.append("<?xml version='1.0' encoding='UTF-8'?>");
+        buffer.append("<soapenv:Envelope xmlns:soapenv='").append(soapVersion.getEnvelopeURI()).append("'>");
+        buffer.append("<soapenv:Header>");
+        buffer.append("<wsa:Action xmlns:wsa='http://www.w3.org/2005/08/addressing'>urn:getCatalog</wsa:Action>");
+        buffer.append("<wsa:MessageID xmlns:wsa='http://www.w3.org/2005/08/addressing'>urn:uuid:0b3c1b43-1b2f-4a7b-9a62-3f3c3a1d8c2e</wsa:MessageID>");
+        buffer.append("</soapenv:Header>");
+        buffer.append("<soapenv:Body>");
+        buffer.append("<p:getCatalogResponse xmlns:p='").append(NS).append("'>");
+        appendItems(buffer, size);
+        buffer.append("</p:getCatalogResponse>");
+        buffer.append("</soapenv:Body>");
+        buffer.append("</soapenv:Envelope>");
+        return toUTF8(buffer);
+    }
+
+    /**
+     * Create random binary content (used for attachments and base64 tests).
+     * 
+     * @param size
+     *            the number of bytes
+     * @return the content
+     */
+    static byte[] createBinaryContent(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+
+    private static void appendItems(StringBuilder buffer, int size) {
+        int start = buffer.length();
+        int i = 0;
+        while (buffer.length() - start < size) {
+            buffer.append("<p:item id='").append(i).append("' status='available'>");
+            buffer.append("<p:name>Item number ").append(i).append("</p:name>");
+            buffer.append("<p:description>Description of item ").append(i)
+                    .append(" with some escaped characters: &lt;&amp;&gt;</p:description>");
+            buffer.append("<p:price currency='EUR'>").append(i % 1000).append(".99</p:price>");
+            buffer.append("</p:item>");
+            i++;
+        }
+    }
+
+    private static byte[] toUTF8(StringBuilder buffer) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(buffer.length());
+        try {
+            Writer out = new OutputStreamWriter(baos, "UTF-8");
+            out.append(buffer);
+            out.close();
+        } catch (UnsupportedEncodingException ex) {
+            throw new Error(ex);
+        } catch (IOException ex) {
+            throw new Error(ex);
+        }
+        return baos.toByteArray();
+    }
+}
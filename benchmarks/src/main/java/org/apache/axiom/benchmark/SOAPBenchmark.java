@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.axiom.om.OMAbstractFactory;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMMetaFactory;
+import org.apache.axiom.om.OMXMLBuilderFactory;
+import org.apache.axiom.soap.SOAPEnvelope;
+import org.apache.axiom.soap.SOAPModelBuilder;
+import org.apache.axiom.soap.SOAPVersion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link SOAPModelBuilder} with SOAP 1.1 and SOAP 1.2 envelopes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SOAPBenchmark {
+    @Param({OMAbstractFactory.FEATURE_DEFAULT, OMAbstractFactory.FEATURE_DOM})
+    public String implementation;
+
+    @Param({"1.1", "1.2"})
+    public String soapVersion;
+
+    @Param({"1024", "65536", "1048576"})
+    public int size;
+
+    private OMMetaFactory metaFactory;
+    private byte[] message;
+
+    @Setup
+    public void setUp() {
+        metaFactory = OMAbstractFactory.getMetaFactory(implementation);
+        message = Payloads.createSOAPMessage(
+                soapVersion.equals("1.1") ? SOAPVersion.SOAP11 : SOAPVersion.SOAP12, size);
+    }
+
+    private SOAPModelBuilder createBuilder() {
+        return OMXMLBuilderFactory.createSOAPModelBuilder(
+                metaFactory, new ByteArrayInputStream(message), "UTF-8");
+    }
+
+    @Benchmark
+    public SOAPEnvelope build() {
+        SOAPEnvelope envelope = createBuilder().getSOAPEnvelope();
+        envelope.build();
+        return envelope;
+    }
+
+    /**
+     * Access the header and the first child of the body, as a SOAP stack typically does when
+     * dispatching a request. This only builds the part of the tree that is actually accessed.
+     */
+    @Benchmark
+    public OMElement dispatch() {
+        SOAPEnvelope envelope = createBuilder().getSOAPEnvelope();
+        envelope.getHeader().getFirstElement();
+        return envelope.getBody().getFirstElement();
+    }
+
+    @Benchmark
+    public long buildAndSerialize() throws Exception {
+        NullOutputStream out = new NullOutputStream();
+        createBuilder().getSOAPEnvelope().serializeAndConsume(out);
+        return out.getCount();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.axiom.core.stream.StreamException;
+import org.apache.axiom.core.stream.XmlHandler;
+import org.apache.axiom.core.stream.serializer.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link Serializer} in isolation, i.e. without the overhead of walking an object
+ * model. The events are generated programmatically and mirror the structure of the documents
+ * produced by {@link Payloads#createDocument(int)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark {
+    private static final String NS = "urn:axiom:benchmark";
+
+    @Param({"UTF-8", "ISO-8859-1", "UTF-16"})
+    public String encoding;
+
+    /**
+     * The number of items in the document.
+     */
+    @Param({"10", "1000", "10000"})
+    public int items;
+
+    private String[] ids;
+    private String[] names;
+    private String[] descriptions;
+
+    @Setup
+    public void setUp() {
+        ids = new String[items];
+        names = new String[items];
+        descriptions = new String[items];
+        for (int i=0; i<items; i++) {
+            ids[i] = String.valueOf(i);
+            names[i] = "Item number " + i;
+            descriptions[i] = "Description of item " + i + " with some escaped characters: <&>";
+        }
+    }
+
+    @Benchmark
+    public long serialize() throws StreamException {
+        NullOutputStream out = new NullOutputStream();
+        Serializer serializer = new Serializer(out, encoding);
+        writeDocument(serializer);
+        return out.getCount();
+    }
+
+    private void writeDocument(XmlHandler handler) throws StreamException {
+        handler.startDocument(null, "1.0", encoding, null);
+        handler.startElement(NS, "catalog", "p");
+        handler.processNamespaceDeclaration("p", NS);
+        handler.attributesCompleted();
+        for (int i=0; i<items; i++) {
+            handler.startElement(NS, "item", "p");
+            handler.processAttribute("", "id", "", ids[i], "CDATA", true);
+            handler.processAttribute("", "status", "", "available", "CDATA", true);
+            handler.attributesCompleted();
+            writeSimpleElement(handler, "name", names[i]);
+            writeSimpleElement(handler, "description", descriptions[i]);
+            handler.startElement(NS, "price", "p");
+            handler.processAttribute("", "currency", "", "EUR", "CDATA", true);
+            handler.attributesCompleted();
+            handler.processCharacterData("99.99", false);
+            handler.endElement();
+            handler.endElement();
+        }
+        handler.endElement();
+        handler.completed();
+    }
+
+    private static void writeSimpleElement(XmlHandler handler, String localName, String text)
+            throws StreamException {
+        handler.startElement(NS, localName, "p");
+        handler.attributesCompleted();
+        handler.processCharacterData(text, false);
+        handler.endElement();
+    }
+}
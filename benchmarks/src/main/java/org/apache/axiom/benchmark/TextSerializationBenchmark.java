@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.axiom.core.stream.StreamException;
+import org.apache.axiom.core.stream.serializer.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the serialization of character data to UTF-8 using Axiom's own encoder with the
+ * serialization through a JDK {@link OutputStreamWriter}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextSerializationBenchmark {
+    /**
+     * The kind of text to serialize: pure ASCII, ASCII with occasional characters that need to be
+     * escaped, text with occasional non ASCII characters or text that is mostly non ASCII.
+     */
+    @Param({"ascii", "escaped", "latin", "cjk"})
+    public String content;
+
+    @Param({"1024", "65536"})
+    public int length;
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(12345);
+        StringBuilder buffer = new StringBuilder(length);
+        while (buffer.length() < length) {
+            int c = random.nextInt(100);
+            if (content.equals("cjk")) {
+                buffer.append(c < 10 ? ' ' : (char)(0x4E00 + random.nextInt(0x5000)));
+            } else if (c < 15) {
+                buffer.append(' ');
+            } else if (c == 15 && content.equals("escaped")) {
+                buffer.append('&');
+            } else if (c == 15 && content.equals("latin")) {
+                buffer.append('é');
+            } else {
+                buffer.append((char)('a' + random.nextInt(26)));
+            }
+        }
+        text = buffer.toString();
+    }
+
+    private void serialize(Serializer serializer) throws StreamException {
+        serializer.startFragment();
+        serializer.startElement("", "text", "");
+        serializer.attributesCompleted();
+        serializer.processCharacterData(text, false);
+        serializer.endElement();
+        serializer.completed();
+        serializer.flushBuffer();
+    }
+
+    @Benchmark
+    public long axiom() throws StreamException {
+        NullOutputStream out = new NullOutputStream();
+        serialize(new Serializer(out, "UTF-8"));
+        return out.getCount();
+    }
+
+    @Benchmark
+    public long jdk() throws StreamException, IOException {
+        NullOutputStream out = new NullOutputStream();
+        Writer writer = new OutputStreamWriter(out, "UTF-8");
+        serialize(new Serializer(writer));
+        writer.flush();
+        return out.getCount();
+    }
+}
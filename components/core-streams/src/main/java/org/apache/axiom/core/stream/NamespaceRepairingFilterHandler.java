@@ -20,7 +20,10 @@ package org.apache.axiom.core.stream;
 
 import javax.xml.XMLConstants;
 
-public final class NamespaceRepairingFilterHandler extends XmlHandlerWrapper {
+import org.apache.axiom.core.stream.source.SourceCopyingHandler;
+import org.apache.axiom.core.stream.source.SourceRange;
+
+public final class NamespaceRepairingFilterHandler extends XmlHandlerWrapper implements SourceCopyingHandler {
     private final NamespaceContextProvider parentNamespaceContext;
     private final boolean removeRedundantDeclarations;
     private String[] namespaceStack = new String[32];
@@ -113,4 +116,10 @@ public final class NamespaceRepairingFilterHandler extends XmlHandlerWrapper {
             setPrefix(prefix, namespaceURI);
         }
     }
+
+    @Override
+    public boolean copySourceRange(SourceRange range) throws StreamException {
+        XmlHandler parent = getParent();
+        return parent instanceof SourceCopyingHandler && ((SourceCopyingHandler)parent).copySourceRange(range);
+    }
 }
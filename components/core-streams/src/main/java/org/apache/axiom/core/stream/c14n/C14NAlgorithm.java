@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.core.stream.c14n;
+
+/**
+ * The canonicalization algorithms supported by {@link C14NSerializer}.
+ */
+public enum C14NAlgorithm {
+    /**
+     * Canonical XML 1.0 without comments.
+     */
+    INCLUSIVE("http://www.w3.org/TR/2001/REC-xml-c14n-20010315", false, false),
+    
+    /**
+     * Canonical XML 1.0 with comments.
+     */
+    INCLUSIVE_WITH_COMMENTS("http://www.w3.org/TR/2001/REC-xml-c14n-20010315#WithComments", false, true),
+    
+    /**
+     * Exclusive XML Canonicalization 1.0 without comments.
+     */
+    EXCLUSIVE("http://www.w3.org/2001/10/xml-exc-c14n#", true, false),
+    
+    /**
+     * Exclusive XML Canonicalization 1.0 with comments.
+     */
+    EXCLUSIVE_WITH_COMMENTS("http://www.w3.org/2001/10/xml-exc-c14n#WithComments", true, true);
+    
+    private final String uri;
+    private final boolean exclusive;
+    private final boolean withComments;
+    
+    private C14NAlgorithm(String uri, boolean exclusive, boolean withComments) {
+        this.uri = uri;
+        this.exclusive = exclusive;
+        this.withComments = withComments;
+    }
+
+    /**
+     * Get the URI identifying the algorithm, as used in XML Signature.
+     * 
+     * @return the algorithm URI
+     */
+    public String getURI() {
+        return uri;
+    }
+
+    public boolean isExclusive() {
+        return exclusive;
+    }
+
+    public boolean isWithComments() {
+        return withComments;
+    }
+    
+    /**
+     * Get the algorithm identified by the given URI.
+     * 
+     * @param uri
+     *            the algorithm URI
+     * @return the algorithm, or <code>null</code> if the URI doesn't identify a supported
+     *         algorithm
+     */
+    public static C14NAlgorithm forURI(String uri) {
+        for (C14NAlgorithm algorithm : values()) {
+            if (algorithm.uri.equals(uri)) {
+                return algorithm;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,670 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.core.stream.c14n;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Collection;
+
+import org.apache.axiom.core.stream.CharacterData;
+import org.apache.axiom.core.stream.CharacterDataSink;
+import org.apache.axiom.core.stream.StreamException;
+import org.apache.axiom.core.stream.XmlHandler;
+import org.apache.axiom.core.stream.serializer.writer.BufferPool;
+import org.apache.axiom.core.stream.serializer.writer.ByteBufferSink;
+import org.apache.axiom.core.stream.serializer.writer.XmlWriter;
+import org.apache.axiom.util.base64.AbstractBase64EncodingOutputStream;
+
+/**
+ * {@link XmlHandler} that produces the canonical form of a document or element, as defined by
+ * <a href="http://www.w3.org/TR/2001/REC-xml-c14n-20010315">Canonical XML 1.0</a> and
+ * <a href="http://www.w3.org/TR/2002/REC-xml-exc-c14n-20020718/">Exclusive XML Canonicalization
+ * 1.0</a>. The canonical form is produced in a single streaming pass; it is not necessary to
+ * convert the tree to DOM first.
+ * <p>
+ * The handler always canonicalizes complete subtrees, i.e. it doesn't support arbitrary node-sets.
+ * When an element that is not the document element is canonicalized with the inclusive algorithm,
+ * the namespace declarations in scope on that element must be passed to the handler as if they
+ * were declared on the element itself. Note that in this case the inclusive algorithm would also
+ * require inherited attributes in the <tt>xml</tt> namespace to be added; this is not done by the
+ * handler.
+ * <p>
+ * Entity references must be expanded, i.e. {@link #processEntityReference(String, String)} must be
+ * called with a replacement text. The output is always encoded in UTF-8.
+ */
+public final class C14NSerializer implements XmlHandler, CharacterDataSink {
+    /**
+     * Character data is escaped as text content.
+     */
+    private static final int CONTENT = 0;
+    
+    /**
+     * Character data is part of a comment and is written as is.
+     */
+    private static final int COMMENT = 1;
+    
+    /**
+     * Character data is part of a processing instruction and is written as is.
+     */
+    private static final int PROCESSING_INSTRUCTION = 2;
+    
+    /**
+     * Character data is discarded.
+     */
+    private static final int SKIP = 3;
+    
+    private static final String XML_PREFIX = "xml";
+    
+    private final class SinkWriter extends Writer {
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            characters(cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            characters(str, off, len);
+        }
+
+        @Override
+        public void write(String str) throws IOException {
+            characters(str, 0, str.length());
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+    
+    private final XmlWriter writer;
+    private final boolean exclusive;
+    private final boolean withComments;
+    private final String[] inclusivePrefixes;
+    
+    /**
+     * The namespace bindings in scope, as declared in the input.
+     */
+    private String[] namespaceStack = new String[32];
+    private int namespaceCount;
+    
+    /**
+     * The namespace declarations rendered in the output and still in scope.
+     */
+    private String[] renderedNamespaceStack = new String[32];
+    private int renderedNamespaceCount;
+    
+    /**
+     * For each open element, the values of {@link #namespaceCount} and
+     * {@link #renderedNamespaceCount} before the element started.
+     */
+    private int[] scopeStack = new int[16];
+    
+    /**
+     * For each open element, the prefix and local name.
+     */
+    private String[] elementNameStack = new String[16];
+    private int depth;
+    
+    /**
+     * The attributes of the current element, stored as (namespace URI, local name, prefix, value)
+     * tuples.
+     */
+    private String[] attributes = new String[32];
+    private int attributeCount;
+    
+    /**
+     * Reusable array used to sort attributes.
+     */
+    private int[] attributeOrder = new int[8];
+    
+    /**
+     * Reusable array used to collect and sort the prefixes of the namespace declarations that
+     * may need to be rendered.
+     */
+    private String[] prefixes = new String[8];
+    
+    private int context = CONTENT;
+    private boolean documentElementCompleted;
+    private boolean processingInstructionDataStarted;
+    private SinkWriter sinkWriter;
+    private char[] charsBuff;
+    
+    /**
+     * Constructor.
+     * 
+     * @param out
+     *            the stream to write the canonical form to
+     * @param algorithm
+     *            the canonicalization algorithm
+     * @param inclusivePrefixes
+     *            the prefixes of the <tt>InclusiveNamespaces PrefixList</tt>, where the default
+     *            namespace is identified by <tt>#default</tt>; ignored if the algorithm is not
+     *            exclusive; may be <code>null</code>
+     */
+    public C14NSerializer(OutputStream out, C14NAlgorithm algorithm, Collection<String> inclusivePrefixes) {
+        this(XmlWriter.create(out, "UTF-8"), algorithm, inclusivePrefixes);
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param sink
+     *            the sink receiving the canonical form
+     * @param algorithm
+     *            the canonicalization algorithm
+     * @param inclusivePrefixes
+     *            the prefixes of the <tt>InclusiveNamespaces PrefixList</tt>, where the default
+     *            namespace is identified by <tt>#default</tt>; ignored if the algorithm is not
+     *            exclusive; may be <code>null</code>
+     */
+    public C14NSerializer(ByteBufferSink sink, C14NAlgorithm algorithm, Collection<String> inclusivePrefixes) {
+        this(XmlWriter.create(sink, "UTF-8"), algorithm, inclusivePrefixes);
+    }
+    
+    private C14NSerializer(XmlWriter writer, C14NAlgorithm algorithm, Collection<String> inclusivePrefixes) {
+        this.writer = writer;
+        exclusive = algorithm.isExclusive();
+        withComments = algorithm.isWithComments();
+        if (exclusive && inclusivePrefixes != null) {
+            this.inclusivePrefixes = new String[inclusivePrefixes.size()];
+            int i = 0;
+            for (String prefix : inclusivePrefixes) {
+                this.inclusivePrefixes[i++] = prefix.equals("#default") ? "" : prefix;
+            }
+        } else {
+            this.inclusivePrefixes = new String[0];
+        }
+    }
+
+    @Override
+    public void startDocument(String inputEncoding, String xmlVersion, String xmlEncoding, Boolean standalone) {
+        // The canonical form has no XML declaration
+    }
+
+    @Override
+    public void startFragment() {
+    }
+
+    @Override
+    public void processDocumentTypeDeclaration(String rootName, String publicId, String systemId, String internalSubset) {
+        // The canonical form has no document type declaration
+    }
+
+    @Override
+    public void startElement(String namespaceURI, String localName, String prefix) {
+        int index = depth*2;
+        if (index == scopeStack.length) {
+            int[] newScopeStack = new int[scopeStack.length*2];
+            System.arraycopy(scopeStack, 0, newScopeStack, 0, scopeStack.length);
+            scopeStack = newScopeStack;
+            String[] newElementNameStack = new String[elementNameStack.length*2];
+            System.arraycopy(elementNameStack, 0, newElementNameStack, 0, elementNameStack.length);
+            elementNameStack = newElementNameStack;
+        }
+        scopeStack[index] = namespaceCount;
+        scopeStack[index+1] = renderedNamespaceCount;
+        elementNameStack[index] = prefix;
+        elementNameStack[index+1] = localName;
+        depth++;
+        attributeCount = 0;
+    }
+
+    @Override
+    public void processNamespaceDeclaration(String prefix, String namespaceURI) {
+        int index = namespaceCount*2;
+        if (index == namespaceStack.length) {
+            String[] newNamespaceStack = new String[namespaceStack.length*2];
+            System.arraycopy(namespaceStack, 0, newNamespaceStack, 0, namespaceStack.length);
+            namespaceStack = newNamespaceStack;
+        }
+        namespaceStack[index] = prefix;
+        namespaceStack[index+1] = namespaceURI;
+        namespaceCount++;
+    }
+
+    @Override
+    public void processAttribute(String namespaceURI, String localName, String prefix, String value, String type, boolean specified) {
+        int index = attributeCount*4;
+        if (index == attributes.length) {
+            String[] newAttributes = new String[attributes.length*2];
+            System.arraycopy(attributes, 0, newAttributes, 0, attributes.length);
+            attributes = newAttributes;
+        }
+        attributes[index] = namespaceURI;
+        attributes[index+1] = localName;
+        attributes[index+2] = prefix;
+        attributes[index+3] = value;
+        attributeCount++;
+    }
+
+    @Override
+    public void processAttribute(String name, String value, String type, boolean specified) {
+        processAttribute("", name, "", value, type, specified);
+    }
+
+    private static String lookup(String[] stack, int count, String prefix) {
+        for (int i=(count-1)*2; i>=0; i-=2) {
+            if (stack[i].equals(prefix)) {
+                return stack[i+1];
+            }
+        }
+        return null;
+    }
+    
+    private int addPrefix(int count, String prefix) {
+        if (count == prefixes.length) {
+            String[] newPrefixes = new String[prefixes.length*2];
+            System.arraycopy(prefixes, 0, newPrefixes, 0, prefixes.length);
+            prefixes = newPrefixes;
+        }
+        prefixes[count] = prefix;
+        return count+1;
+    }
+    
+    /**
+     * Determine the prefixes of the namespace declarations that may need to be rendered for the
+     * current element and store them in {@link #prefixes} in canonical order.
+     * 
+     * @return the number of prefixes; the array may contain duplicates
+     */
+    private int collectPrefixes() {
+        int count = 0;
+        if (exclusive) {
+            // Only visibly utilized prefixes and those in the InclusiveNamespaces PrefixList
+            count = addPrefix(count, elementNameStack[depth*2-2]);
+            for (int i=0; i<attributeCount; i++) {
+                String prefix = attributes[i*4+2];
+                if (prefix.length() > 0) {
+                    count = addPrefix(count, prefix);
+                }
+            }
+            for (String prefix : inclusivePrefixes) {
+                count = addPrefix(count, prefix);
+            }
+        } else {
+            // Bindings in scope on the parent have already been rendered by an ancestor
+            for (int i=scopeStack[depth*2-2]; i<namespaceCount; i++) {
+                count = addPrefix(count, namespaceStack[i*2]);
+            }
+        }
+        // Insertion sort; the default namespace (empty prefix) sorts first
+        String[] prefixes = this.prefixes;
+        for (int i=1; i<count; i++) {
+            String prefix = prefixes[i];
+            int j = i;
+            while (j > 0 && prefixes[j-1].compareTo(prefix) > 0) {
+                prefixes[j] = prefixes[j-1];
+                j--;
+            }
+            prefixes[j] = prefix;
+        }
+        return count;
+    }
+    
+    private int compareAttributes(int i1, int i2) {
+        int result = attributes[i1*4].compareTo(attributes[i2*4]);
+        return result != 0 ? result : attributes[i1*4+1].compareTo(attributes[i2*4+1]);
+    }
+    
+    @Override
+    public void attributesCompleted() throws StreamException {
+        try {
+            writer.write('<');
+            writer.writeName(elementNameStack[depth*2-2], elementNameStack[depth*2-1]);
+            int prefixCount = collectPrefixes();
+            String previousPrefix = null;
+            for (int i=0; i<prefixCount; i++) {
+                String prefix = prefixes[i];
+                if (prefix.equals(previousPrefix) || prefix.equals(XML_PREFIX)) {
+                    continue;
+                }
+                previousPrefix = prefix;
+                String namespaceURI = lookup(namespaceStack, namespaceCount, prefix);
+                String renderedNamespaceURI = lookup(renderedNamespaceStack, renderedNamespaceCount, prefix);
+                if (prefix.length() == 0) {
+                    if (namespaceURI == null) {
+                        namespaceURI = "";
+                    }
+                    if (renderedNamespaceURI == null) {
+                        renderedNamespaceURI = "";
+                    }
+                } else if (namespaceURI == null || namespaceURI.length() == 0) {
+                    continue;
+                }
+                if (!namespaceURI.equals(renderedNamespaceURI)) {
+                    if (prefix.length() == 0) {
+                        writer.write(" xmlns=\"");
+                    } else {
+                        writer.write(" xmlns:");
+                        writer.write(prefix);
+                        writer.write("=\"");
+                    }
+                    writeEscaped(namespaceURI, true);
+                    writer.write('"');
+                    int index = renderedNamespaceCount*2;
+                    if (index == renderedNamespaceStack.length) {
+                        String[] newStack = new String[renderedNamespaceStack.length*2];
+                        System.arraycopy(renderedNamespaceStack, 0, newStack, 0, renderedNamespaceStack.length);
+                        renderedNamespaceStack = newStack;
+                    }
+                    renderedNamespaceStack[index] = prefix;
+                    renderedNamespaceStack[index+1] = namespaceURI;
+                    renderedNamespaceCount++;
+                }
+            }
+            if (attributeCount > 0) {
+                if (attributeOrder.length < attributeCount) {
+                    attributeOrder = new int[Math.max(attributeCount, attributeOrder.length*2)];
+                }
+                int[] order = attributeOrder;
+                for (int i=0; i<attributeCount; i++) {
+                    int j = i;
+                    while (j > 0 && compareAttributes(order[j-1], i) > 0) {
+                        order[j] = order[j-1];
+                        j--;
+                    }
+                    order[j] = i;
+                }
+                for (int i=0; i<attributeCount; i++) {
+                    int index = order[i]*4;
+                    writer.write(' ');
+                    writer.writeName(attributes[index+2], attributes[index+1]);
+                    writer.write("=\"");
+                    writeEscaped(attributes[index+3], true);
+                    writer.write('"');
+                }
+            }
+            writer.write('>');
+        } catch (IOException ex) {
+            throw new StreamException(ex);
+        }
+    }
+
+    @Override
+    public void endElement() throws StreamException {
+        depth--;
+        int index = depth*2;
+        try {
+            writer.write("</");
+            writer.writeName(elementNameStack[index], elementNameStack[index+1]);
+            writer.write('>');
+        } catch (IOException ex) {
+            throw new StreamException(ex);
+        }
+        namespaceCount = scopeStack[index];
+        renderedNamespaceCount = scopeStack[index+1];
+        if (depth == 0) {
+            documentElementCompleted = true;
+        }
+    }
+
+    private void writeEscaped(char[] chars, int start, int length, boolean attribute) throws IOException {
+        final int end = start + length;
+        int runStart = start;
+        for (int i=start; i<end; i++) {
+            String replacement;
+            switch (chars[i]) {
+                case '&': replacement = "&amp;"; break;
+                case '<': replacement = "&lt;"; break;
+                case '>': replacement = attribute ? null : "&gt;"; break;
+                case '"': replacement = attribute ? "&quot;" : null; break;
+                case '\t': replacement = attribute ? "&#x9;" : null; break;
+                case '\n': replacement = attribute ? "&#xA;" : null; break;
+                case '\r': replacement = "&#xD;"; break;
+                default: continue;
+            }
+            if (replacement != null) {
+                if (i > runStart) {
+                    writer.write(chars, runStart, i-runStart);
+                }
+                writer.write(replacement);
+                runStart = i+1;
+            }
+        }
+        if (end > runStart) {
+            writer.write(chars, runStart, end-runStart);
+        }
+    }
+    
+    private static boolean needsEscaping(String s, int start, int end, boolean attribute) {
+        for (int i=start; i<end; i++) {
+            switch (s.charAt(i)) {
+                case '&': case '<': case '\r': return true;
+                case '>': if (!attribute) return true; break;
+                case '"': case '\t': case '\n': if (attribute) return true; break;
+            }
+        }
+        return false;
+    }
+    
+    private void writeEscaped(String s, int start, int length, boolean attribute) throws IOException {
+        if (!needsEscaping(s, start, start+length, attribute)) {
+            writeRaw(s, start, length);
+        } else {
+            writeInChunks(s, start, length, attribute);
+        }
+    }
+    
+    private void writeEscaped(String s, boolean attribute) throws IOException {
+        writeEscaped(s, 0, s.length(), attribute);
+    }
+    
+    private char[] getCharsBuff() {
+        char[] charsBuff = this.charsBuff;
+        if (charsBuff == null) {
+            this.charsBuff = charsBuff = BufferPool.getDefault().getCharArray();
+        }
+        return charsBuff;
+    }
+    
+    private void writeInChunks(String s, int start, int length, boolean attribute) throws IOException {
+        char[] charsBuff = getCharsBuff();
+        while (length > 0) {
+            int count = Math.min(length, charsBuff.length);
+            s.getChars(start, start+count, charsBuff, 0);
+            writeEscaped(charsBuff, 0, count, attribute);
+            start += count;
+            length -= count;
+        }
+    }
+    
+    /**
+     * Write a range of a string without escaping. Comments and processing instructions are
+     * copied as is to the canonical form.
+     */
+    private void writeRaw(String s, int start, int length) throws IOException {
+        if (start == 0 && length == s.length()) {
+            writer.write(s);
+            return;
+        }
+        char[] charsBuff = getCharsBuff();
+        while (length > 0) {
+            int count = Math.min(length, charsBuff.length);
+            s.getChars(start, start+count, charsBuff, 0);
+            writer.write(charsBuff, 0, count);
+            start += count;
+            length -= count;
+        }
+    }
+    
+    private void startProcessingInstructionData(int length) throws IOException {
+        if (!processingInstructionDataStarted && length > 0) {
+            writer.write(' ');
+            processingInstructionDataStarted = true;
+        }
+    }
+    
+    void characters(char[] chars, int start, int length) throws IOException {
+        switch (context) {
+            case CONTENT:
+                writeEscaped(chars, start, length, false);
+                break;
+            case PROCESSING_INSTRUCTION:
+                startProcessingInstructionData(length);
+                // Fall through
+            case COMMENT:
+                writer.write(chars, start, length);
+        }
+    }
+    
+    void characters(String s, int start, int length) throws IOException {
+        switch (context) {
+            case CONTENT:
+                writeEscaped(s, start, length, false);
+                break;
+            case PROCESSING_INSTRUCTION:
+                startProcessingInstructionData(length);
+                // Fall through
+            case COMMENT:
+                writeRaw(s, start, length);
+        }
+    }
+    
+    @Override
+    public Writer getWriter() {
+        if (sinkWriter == null) {
+            sinkWriter = new SinkWriter();
+        }
+        return sinkWriter;
+    }
+
+    @Override
+    public AbstractBase64EncodingOutputStream getBase64EncodingOutputStream() {
+        // Base64 encoded data never needs escaping
+        return writer.getBase64EncodingOutputStream();
+    }
+
+    @Override
+    public void processCharacterData(Object data, boolean ignorable) throws StreamException {
+        // Character data outside of the document element is not part of the canonical form
+        if (context == SKIP || depth == 0 && context == CONTENT) {
+            return;
+        }
+        try {
+            if (data instanceof CharacterData) {
+                ((CharacterData)data).writeTo(this);
+            } else {
+                String s = data.toString();
+                characters(s, 0, s.length());
+            }
+        } catch (IOException ex) {
+            throw new StreamException(ex);
+        }
+    }
+
+    @Override
+    public void startProcessingInstruction(String target) throws StreamException {
+        try {
+            if (depth == 0 && documentElementCompleted) {
+                writer.write('\n');
+            }
+            writer.write("<?");
+            writer.write(target);
+        } catch (IOException ex) {
+            throw new StreamException(ex);
+        }
+        context = PROCESSING_INSTRUCTION;
+        processingInstructionDataStarted = false;
+    }
+
+    @Override
+    public void endProcessingInstruction() throws StreamException {
+        try {
+            writer.write("?>");
+            if (depth == 0 && !documentElementCompleted) {
+                writer.write('\n');
+            }
+        } catch (IOException ex) {
+            throw new StreamException(ex);
+        }
+        context = CONTENT;
+    }
+
+    @Override
+    public void startComment() throws StreamException {
+        if (withComments) {
+            try {
+                if (depth == 0 && documentElementCompleted) {
+                    writer.write('\n');
+                }
+                writer.write("<!--");
+            } catch (IOException ex) {
+                throw new StreamException(ex);
+            }
+            context = COMMENT;
+        } else {
+            context = SKIP;
+        }
+    }
+
+    @Override
+    public void endComment() throws StreamException {
+        if (withComments) {
+            try {
+                writer.write("-->");
+                if (depth == 0 && !documentElementCompleted) {
+                    writer.write('\n');
+                }
+            } catch (IOException ex) {
+                throw new StreamException(ex);
+            }
+        }
+        context = CONTENT;
+    }
+
+    @Override
+    public void startCDATASection() {
+        // CDATA sections are replaced by their (escaped) character content
+    }
+
+    @Override
+    public void endCDATASection() {
+    }
+
+    @Override
+    public void processEntityReference(String name, String replacementText) throws StreamException {
+        if (replacementText == null) {
+            throw new StreamException("Unable to canonicalize unexpanded entity reference " + name);
+        }
+        processCharacterData(replacementText, false);
+    }
+
+    @Override
+    public void completed() throws StreamException {
+        try {
+            writer.flushBuffer();
+        } catch (IOException ex) {
+            throw new StreamException(ex);
+        }
+        if (charsBuff != null) {
+            BufferPool.getDefault().release(charsBuff);
+            charsBuff = null;
+        }
+    }
+
+    @Override
+    public boolean drain() {
+        return true;
+    }
+}
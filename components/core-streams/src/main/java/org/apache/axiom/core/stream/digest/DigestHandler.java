@@ -0,0 +1,553 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.core.stream.digest;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.axiom.core.stream.CharacterData;
+import org.apache.axiom.core.stream.CharacterDataSink;
+import org.apache.axiom.core.stream.StreamException;
+import org.apache.axiom.core.stream.XmlHandler;
+import org.apache.axiom.core.stream.serializer.writer.BufferPool;
+import org.apache.axiom.util.base64.AbstractBase64EncodingOutputStream;
+
+/**
+ * {@link XmlHandler} that computes the DOMHASH digest (see
+ * <a href="http://www.ietf.org/rfc/rfc2803.txt">RFC 2803</a>) of a document or element in a
+ * single pass over the events it receives. The result is the same as the one computed by
+ * <code>org.apache.axiom.om.util.DigestGenerator</code> for the corresponding tree.
+ * <p>
+ * Since the digest of an element is computed from the digests of its children, the handler
+ * maintains one {@link MessageDigest} per nesting level, as well as a buffer for the digests of the
+ * children of each open element. These objects are reused for all elements at the same level, so
+ * that the amount of memory allocated is independent of the size of the document. Text, attributes
+ * and processing instructions are encoded and digested incrementally without creating intermediate
+ * strings.
+ * <p>
+ * As in <code>DigestGenerator</code>, each character data event contributes a separate text node,
+ * and namespace declarations, comments, the document type declaration and unexpanded entity
+ * references are ignored. For compatibility with <code>DigestGenerator</code>, CDATA sections and
+ * ignorable whitespace are counted as children of their parent element, but don't contribute a
+ * digest.
+ */
+public final class DigestHandler implements XmlHandler, CharacterDataSink {
+    private static final int ELEMENT_NODE = 1;
+    private static final int ATTRIBUTE_NODE = 2;
+    private static final int TEXT_NODE = 3;
+    private static final int PROCESSING_INSTRUCTION_NODE = 7;
+    private static final int DOCUMENT_NODE = 9;
+    
+    /**
+     * Character data is a text node.
+     */
+    private static final int CONTENT = 0;
+    
+    /**
+     * Character data is part of the data of the current processing instruction.
+     */
+    private static final int LEAF = 1;
+    
+    /**
+     * Character data is discarded.
+     */
+    private static final int SKIP = 2;
+    
+    private final class LeafWriter extends Writer {
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            update(leafDigest, cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            update(leafDigest, str, off, len);
+        }
+
+        @Override
+        public void write(String str) throws IOException {
+            update(leafDigest, str, 0, str.length());
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+    
+    private final class LeafBase64EncodingOutputStream extends AbstractBase64EncodingOutputStream {
+        @Override
+        protected void doWrite(byte[] b) {
+            for (int i=0; i<4; i++) {
+                leafDigest.update((byte)0);
+                leafDigest.update(b[i]);
+            }
+        }
+
+        @Override
+        protected void flushBuffer() {
+        }
+
+        @Override
+        protected void doFlush() {
+        }
+
+        @Override
+        protected void doClose() {
+        }
+    }
+    
+    private final String algorithm;
+    
+    /**
+     * The digest for attributes, text nodes and processing instructions.
+     */
+    private final MessageDigest leafDigest;
+    private final int digestLength;
+    
+    /**
+     * The digest of each open element; the entry at index 0 is used for the document.
+     */
+    private MessageDigest[] digests = new MessageDigest[16];
+    
+    /**
+     * The (concatenated) digests of the children of each open element.
+     */
+    private byte[][] childDigests = new byte[16][];
+    
+    /**
+     * The number of children of each open element.
+     */
+    private int[] childCounts = new int[16];
+    
+    /**
+     * The number of bytes used in each of the {@link #childDigests} buffers.
+     */
+    private int[] childDigestsLengths = new int[16];
+    
+    private int depth;
+    
+    /**
+     * The attributes of the current element, stored as (namespace URI, local name, value) tuples.
+     */
+    private String[] attributes = new String[24];
+    private int attributeCount;
+    
+    /**
+     * Reusable array used to sort attributes.
+     */
+    private int[] attributeOrder = new int[8];
+    
+    private final byte[] leafDigestBuffer;
+    private byte[] encodeBuffer;
+    private boolean fragment;
+    private int context = CONTENT;
+    private LeafWriter leafWriter;
+    private byte[] result;
+    
+    /**
+     * Constructor.
+     * 
+     * @param algorithm
+     *            the name of the digest algorithm, as expected by
+     *            {@link MessageDigest#getInstance(String)}
+     * @throws NoSuchAlgorithmException
+     *             if the digest algorithm is not supported
+     */
+    public DigestHandler(String algorithm) throws NoSuchAlgorithmException {
+        this.algorithm = algorithm;
+        leafDigest = MessageDigest.getInstance(algorithm);
+        digestLength = leafDigest.digest().length;
+        leafDigestBuffer = new byte[digestLength];
+    }
+    
+    /**
+     * Get the computed digest.
+     * 
+     * @return the digest of the document or element, or <code>null</code> if the events have not
+     *         been completely processed yet
+     */
+    public byte[] getDigest() {
+        return result;
+    }
+
+    private static void update(MessageDigest digest, int value) {
+        digest.update((byte)(value >>> 24));
+        digest.update((byte)(value >>> 16));
+        digest.update((byte)(value >>> 8));
+        digest.update((byte)value);
+    }
+    
+    private byte[] getEncodeBuffer() {
+        if (encodeBuffer == null) {
+            encodeBuffer = BufferPool.getDefault().getByteArray();
+        }
+        return encodeBuffer;
+    }
+    
+    /**
+     * Update the given digest with the UTF-16BE encoding of a sequence of characters.
+     */
+    void update(MessageDigest digest, String s, int start, int length) {
+        byte[] buffer = getEncodeBuffer();
+        int end = start+length;
+        int pos = 0;
+        for (int i=start; i<end; i++) {
+            if (pos == buffer.length) {
+                digest.update(buffer, 0, pos);
+                pos = 0;
+            }
+            char c = s.charAt(i);
+            buffer[pos++] = (byte)(c >> 8);
+            buffer[pos++] = (byte)c;
+        }
+        digest.update(buffer, 0, pos);
+    }
+    
+    void update(MessageDigest digest, char[] chars, int start, int length) {
+        byte[] buffer = getEncodeBuffer();
+        int end = start+length;
+        int pos = 0;
+        for (int i=start; i<end; i++) {
+            if (pos == buffer.length) {
+                digest.update(buffer, 0, pos);
+                pos = 0;
+            }
+            char c = chars[i];
+            buffer[pos++] = (byte)(c >> 8);
+            buffer[pos++] = (byte)c;
+        }
+        digest.update(buffer, 0, pos);
+    }
+    
+    private void updateExpandedName(MessageDigest digest, String namespaceURI, String localName) {
+        if (namespaceURI.length() > 0) {
+            update(digest, namespaceURI, 0, namespaceURI.length());
+            digest.update((byte)0);
+            digest.update((byte)':');
+        }
+        update(digest, localName, 0, localName.length());
+    }
+    
+    private void startLeaf(int nodeType) {
+        update(leafDigest, nodeType);
+    }
+    
+    /**
+     * Complete the given digest and add it to the children of the current element (or document).
+     */
+    private void addChildDigest(MessageDigest digest) throws StreamException {
+        byte[] buffer = childDigests[depth];
+        int offset = childDigestsLengths[depth];
+        if (buffer == null || offset + digestLength > buffer.length) {
+            byte[] newBuffer = new byte[Math.max(offset + digestLength, buffer == null ? 8*digestLength : buffer.length*2)];
+            if (buffer != null) {
+                System.arraycopy(buffer, 0, newBuffer, 0, offset);
+            }
+            childDigests[depth] = buffer = newBuffer;
+        }
+        try {
+            digest.digest(buffer, offset, digestLength);
+        } catch (DigestException ex) {
+            throw new StreamException(ex);
+        }
+        childDigestsLengths[depth] = offset + digestLength;
+        childCounts[depth]++;
+    }
+    
+    private MessageDigest getDigest(int level) throws StreamException {
+        MessageDigest digest = digests[level];
+        if (digest == null) {
+            try {
+                digest = MessageDigest.getInstance(algorithm, leafDigest.getProvider());
+            } catch (NoSuchAlgorithmException ex) {
+                throw new StreamException(ex);
+            }
+            digests[level] = digest;
+        }
+        return digest;
+    }
+    
+    @Override
+    public void startDocument(String inputEncoding, String xmlVersion, String xmlEncoding, Boolean standalone) {
+        fragment = false;
+    }
+
+    @Override
+    public void startFragment() {
+        fragment = true;
+    }
+
+    @Override
+    public void processDocumentTypeDeclaration(String rootName, String publicId, String systemId, String internalSubset) {
+    }
+
+    @Override
+    public void startElement(String namespaceURI, String localName, String prefix) throws StreamException {
+        depth++;
+        if (depth == digests.length) {
+            MessageDigest[] newDigests = new MessageDigest[digests.length*2];
+            System.arraycopy(digests, 0, newDigests, 0, digests.length);
+            digests = newDigests;
+            byte[][] newChildDigests = new byte[childDigests.length*2][];
+            System.arraycopy(childDigests, 0, newChildDigests, 0, childDigests.length);
+            childDigests = newChildDigests;
+            int[] newChildCounts = new int[childCounts.length*2];
+            System.arraycopy(childCounts, 0, newChildCounts, 0, childCounts.length);
+            childCounts = newChildCounts;
+            int[] newChildDigestsLengths = new int[childDigestsLengths.length*2];
+            System.arraycopy(childDigestsLengths, 0, newChildDigestsLengths, 0, childDigestsLengths.length);
+            childDigestsLengths = newChildDigestsLengths;
+        }
+        childCounts[depth] = 0;
+        childDigestsLengths[depth] = 0;
+        MessageDigest digest = getDigest(depth);
+        update(digest, ELEMENT_NODE);
+        updateExpandedName(digest, namespaceURI, localName);
+        digest.update((byte)0);
+        digest.update((byte)0);
+        attributeCount = 0;
+    }
+
+    @Override
+    public void processNamespaceDeclaration(String prefix, String namespaceURI) {
+        // Namespace declarations don't contribute to the digest
+    }
+
+    @Override
+    public void processAttribute(String namespaceURI, String localName, String prefix, String value, String type, boolean specified) {
+        int index = attributeCount*3;
+        if (index == attributes.length) {
+            String[] newAttributes = new String[attributes.length*2];
+            System.arraycopy(attributes, 0, newAttributes, 0, attributes.length);
+            attributes = newAttributes;
+        }
+        attributes[index] = namespaceURI;
+        attributes[index+1] = localName;
+        attributes[index+2] = value;
+        attributeCount++;
+    }
+
+    @Override
+    public void processAttribute(String name, String value, String type, boolean specified) {
+        processAttribute("", name, "", value, type, specified);
+    }
+
+    private static char charAtExpandedName(String namespaceURI, String localName, int index) {
+        int nsLength = namespaceURI.length();
+        if (nsLength == 0) {
+            return localName.charAt(index);
+        } else if (index < nsLength) {
+            return namespaceURI.charAt(index);
+        } else if (index == nsLength) {
+            return ':';
+        } else {
+            return localName.charAt(index-nsLength-1);
+        }
+    }
+    
+    /**
+     * Compare the expanded names (as defined by DOMHASH) of two attributes without building them.
+     */
+    private int compareAttributes(int i1, int i2) {
+        String ns1 = attributes[i1*3];
+        String local1 = attributes[i1*3+1];
+        String ns2 = attributes[i2*3];
+        String local2 = attributes[i2*3+1];
+        int length1 = ns1.length() == 0 ? local1.length() : ns1.length()+1+local1.length();
+        int length2 = ns2.length() == 0 ? local2.length() : ns2.length()+1+local2.length();
+        int length = Math.min(length1, length2);
+        for (int i=0; i<length; i++) {
+            char c1 = charAtExpandedName(ns1, local1, i);
+            char c2 = charAtExpandedName(ns2, local2, i);
+            if (c1 != c2) {
+                return c1 - c2;
+            }
+        }
+        return length1 - length2;
+    }
+    
+    @Override
+    public void attributesCompleted() {
+        MessageDigest digest = digests[depth];
+        update(digest, attributeCount);
+        if (attributeCount > 0) {
+            if (attributeOrder.length < attributeCount) {
+                attributeOrder = new int[Math.max(attributeCount, attributeOrder.length*2)];
+            }
+            int[] order = attributeOrder;
+            for (int i=0; i<attributeCount; i++) {
+                int j = i;
+                while (j > 0 && compareAttributes(order[j-1], i) > 0) {
+                    order[j] = order[j-1];
+                    j--;
+                }
+                order[j] = i;
+            }
+            for (int i=0; i<attributeCount; i++) {
+                int index = order[i]*3;
+                startLeaf(ATTRIBUTE_NODE);
+                updateExpandedName(leafDigest, attributes[index], attributes[index+1]);
+                leafDigest.update((byte)0);
+                leafDigest.update((byte)0);
+                String value = attributes[index+2];
+                update(leafDigest, value, 0, value.length());
+                try {
+                    leafDigest.digest(leafDigestBuffer, 0, digestLength);
+                } catch (DigestException ex) {
+                    // We always pass a buffer of the right size
+                    throw new IllegalStateException(ex);
+                }
+                digest.update(leafDigestBuffer);
+            }
+        }
+    }
+
+    @Override
+    public void endElement() throws StreamException {
+        MessageDigest digest = digests[depth];
+        update(digest, childCounts[depth]);
+        if (childDigestsLengths[depth] > 0) {
+            digest.update(childDigests[depth], 0, childDigestsLengths[depth]);
+        }
+        depth--;
+        addChildDigest(digest);
+    }
+
+    @Override
+    public Writer getWriter() {
+        if (leafWriter == null) {
+            leafWriter = new LeafWriter();
+        }
+        return leafWriter;
+    }
+
+    @Override
+    public AbstractBase64EncodingOutputStream getBase64EncodingOutputStream() {
+        return new LeafBase64EncodingOutputStream();
+    }
+
+    private void writeLeafData(Object data) throws StreamException {
+        try {
+            if (data instanceof CharacterData) {
+                ((CharacterData)data).writeTo(this);
+            } else {
+                String s = data.toString();
+                update(leafDigest, s, 0, s.length());
+            }
+        } catch (IOException ex) {
+            throw new StreamException(ex);
+        }
+    }
+    
+    @Override
+    public void processCharacterData(Object data, boolean ignorable) throws StreamException {
+        switch (context) {
+            case CONTENT:
+                // Text outside of the document element is not part of the document
+                if (depth > 0 || fragment) {
+                    if (ignorable) {
+                        childCounts[depth]++;
+                    } else {
+                        startLeaf(TEXT_NODE);
+                        writeLeafData(data);
+                        addChildDigest(leafDigest);
+                    }
+                }
+                break;
+            case LEAF:
+                writeLeafData(data);
+        }
+    }
+
+    @Override
+    public void startProcessingInstruction(String target) {
+        startLeaf(PROCESSING_INSTRUCTION_NODE);
+        update(leafDigest, target, 0, target.length());
+        leafDigest.update((byte)0);
+        leafDigest.update((byte)0);
+        context = LEAF;
+    }
+
+    @Override
+    public void endProcessingInstruction() throws StreamException {
+        addChildDigest(leafDigest);
+        context = CONTENT;
+    }
+
+    @Override
+    public void startComment() {
+        context = SKIP;
+    }
+
+    @Override
+    public void endComment() {
+        context = CONTENT;
+    }
+
+    @Override
+    public void startCDATASection() {
+        context = SKIP;
+    }
+
+    @Override
+    public void endCDATASection() {
+        childCounts[depth]++;
+        context = CONTENT;
+    }
+
+    @Override
+    public void processEntityReference(String name, String replacementText) {
+        // Unexpanded entity references don't contribute to the digest
+    }
+
+    @Override
+    public void completed() throws StreamException {
+        if (fragment) {
+            if (childCounts[0] != 1 || childDigestsLengths[0] != digestLength) {
+                throw new StreamException("Expected a single element, text node or processing instruction");
+            }
+            result = new byte[digestLength];
+            System.arraycopy(childDigests[0], 0, result, 0, digestLength);
+        } else {
+            MessageDigest digest = getDigest(0);
+            update(digest, DOCUMENT_NODE);
+            update(digest, childCounts[0]);
+            if (childDigestsLengths[0] > 0) {
+                digest.update(childDigests[0], 0, childDigestsLengths[0]);
+            }
+            result = digest.digest();
+        }
+        if (encodeBuffer != null) {
+            BufferPool.getDefault().release(encodeBuffer);
+            encodeBuffer = null;
+        }
+    }
+
+    @Override
+    public boolean drain() {
+        return true;
+    }
+}
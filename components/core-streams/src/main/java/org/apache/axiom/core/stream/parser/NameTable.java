@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.core.stream.parser;
+
+import java.nio.charset.Charset;
+
+/**
+ * Maps encoded names to {@link String} instances. This allows the parser to look up names
+ * directly from its byte buffer, so that a name that occurs repeatedly in a document is only
+ * decoded once and is always represented by the same {@link String} instance. For qualified names,
+ * the table also stores the prefix and local part, which are themselves entries of the table.
+ * <p>
+ * The number of entries is limited, so that documents with a very large number of distinct names
+ * don't cause unbounded memory usage. Once the limit is reached, names that are not in the table
+ * are simply decoded every time they are encountered.
+ */
+final class NameTable {
+    static final class Entry {
+        final byte[] bytes;
+        final int hash;
+        final String name;
+        String prefix;
+        String localName;
+        
+        Entry(byte[] bytes, int hash, String name) {
+            this.bytes = bytes;
+            this.hash = hash;
+            this.name = name;
+        }
+    }
+    
+    private static final int MAX_SIZE = 4096;
+    
+    private final Charset charset;
+    private Entry[] entries = new Entry[64];
+    private int size;
+
+    NameTable(Charset charset) {
+        this.charset = charset;
+    }
+
+    static int hash(byte[] buf, int off, int len) {
+        int hash = 0;
+        for (int i=0; i<len; i++) {
+            hash = 31*hash + buf[off+i];
+        }
+        return hash;
+    }
+    
+    /**
+     * Get the entry for the given name.
+     * 
+     * @param buf
+     *            the buffer containing the encoded name
+     * @param off
+     *            the offset of the name in the buffer
+     * @param len
+     *            the length of the encoded name
+     * @param hash
+     *            the hash of the encoded name, as computed by {@link #hash(byte[], int, int)}
+     * @return the entry; this is a new (unshared) entry if the table is full
+     */
+    Entry lookup(byte[] buf, int off, int len, int hash) {
+        int mask = entries.length-1;
+        int index = hash & mask;
+        Entry entry;
+        while ((entry = entries[index]) != null) {
+            if (entry.hash == hash && matches(entry.bytes, buf, off, len)) {
+                return entry;
+            }
+            index = (index+1) & mask;
+        }
+        byte[] bytes = new byte[len];
+        System.arraycopy(buf, off, bytes, 0, len);
+        entry = new Entry(bytes, hash, new String(bytes, charset));
+        if (size < MAX_SIZE) {
+            entries[index] = entry;
+            if (++size*2 > entries.length) {
+                rehash();
+            }
+        }
+        return entry;
+    }
+    
+    String lookup(byte[] buf, int off, int len) {
+        return lookup(buf, off, len, hash(buf, off, len)).name;
+    }
+    
+    private static boolean matches(byte[] bytes, byte[] buf, int off, int len) {
+        if (bytes.length != len) {
+            return false;
+        }
+        for (int i=0; i<len; i++) {
+            if (bytes[i] != buf[off+i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private void rehash() {
+        Entry[] oldEntries = entries;
+        entries = new Entry[oldEntries.length*2];
+        int mask = entries.length-1;
+        for (Entry entry : oldEntries) {
+            if (entry != null) {
+                int index = entry.hash & mask;
+                while (entries[index] != null) {
+                    index = (index+1) & mask;
+                }
+                entries[index] = entry;
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.core.stream.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+
+import org.apache.axiom.core.stream.XmlHandler;
+import org.apache.axiom.core.stream.XmlInput;
+import org.apache.axiom.core.stream.XmlReader;
+
+/**
+ * {@link XmlInput} implementation that parses a byte stream using Axiom's built-in XML parser (see
+ * {@link XmlParserReader}). Instances are created using {@link #create(InputStream, String)}, which
+ * checks whether the document can be processed by that parser.
+ */
+public final class XmlParserInput implements XmlInput {
+    /**
+     * The maximum number of bytes to inspect in {@link #create(InputStream, String)}. This must be
+     * large enough to contain the byte order mark and the XML declaration.
+     */
+    private static final int MAX_PROLOG_LENGTH = 512;
+    
+    private final InputStream in;
+    private final String encoding;
+    private final Charset charset;
+    
+    private XmlParserInput(InputStream in, String encoding, Charset charset) {
+        this.in = in;
+        this.encoding = encoding;
+        this.charset = charset;
+    }
+
+    /**
+     * Create an input for the given stream. The parser only supports XML 1.0 documents encoded in
+     * UTF-8, US-ASCII or ISO-8859-1 and doesn't process document type declarations. This method
+     * inspects the beginning of the stream to determine whether these conditions are met.
+     * 
+     * @param in
+     *            the stream; this stream must support {@link InputStream#mark(int)}. It will not be
+     *            closed by the parser.
+     * @param encoding
+     *            the encoding specified by the caller, or <code>null</code> if the encoding is
+     *            not known
+     * @return the input, or <code>null</code> if the document can't be processed by the parser; in
+     *         that case the stream is left at its original position
+     * @throws IOException
+     *             if an I/O error occurs while inspecting the start of the stream
+     */
+    public static XmlParserInput create(InputStream in, String encoding) throws IOException {
+        byte[] prolog = new byte[MAX_PROLOG_LENGTH];
+        in.mark(prolog.length);
+        int length = 0;
+        int c;
+        while (length < prolog.length && (c = in.read(prolog, length, prolog.length-length)) != -1) {
+            length += c;
+        }
+        in.reset();
+        int start = 0;
+        if (length >= 3 && (prolog[0] & 0xFF) == 0xEF && (prolog[1] & 0xFF) == 0xBB && (prolog[2] & 0xFF) == 0xBF) {
+            start = 3;
+            encoding = "UTF-8";
+        } else if (length > 0 && prolog[0] != '<' && !isWhitespace(prolog[0])) {
+            // Byte order mark for UTF-16 or UCS-4, or a document that is neither encoded in an
+            // ASCII compatible encoding nor well formed
+            return null;
+        } else if (length >= 2 && prolog[1] == 0) {
+            // UTF-16LE or UCS-4LE without byte order mark
+            return null;
+        }
+        String prologText = new String(prolog, start, length-start, StandardCharsets.ISO_8859_1);
+        if (prologText.startsWith("<?xml") && prologText.length() > 5 && isWhitespace(prologText.charAt(5))) {
+            int end = prologText.indexOf("?>");
+            if (end == -1) {
+                return null;
+            }
+            String declaration = prologText.substring(5, end);
+            if (!"1.0".equals(getPseudoAttribute(declaration, "version"))) {
+                return null;
+            }
+            if (encoding == null) {
+                encoding = getPseudoAttribute(declaration, "encoding");
+            }
+        }
+        // Let the StAX parser deal with DTDs, since they may declare entities and default attribute
+        // values. Note that we only detect the common case where the document type declaration
+        // appears close to the beginning of the document; if it occurs later, the parser reports it
+        // if it has no internal subset and fails otherwise.
+        if (prologText.indexOf("<!DOCTYPE") != -1) {
+            return null;
+        }
+        Charset charset;
+        if (encoding == null) {
+            encoding = "UTF-8";
+            charset = StandardCharsets.UTF_8;
+        } else {
+            try {
+                charset = Charset.forName(encoding);
+            } catch (IllegalCharsetNameException ex) {
+                return null;
+            } catch (UnsupportedCharsetException ex) {
+                return null;
+            }
+            encoding = charset.name();
+            if (charset.equals(StandardCharsets.US_ASCII)) {
+                // US-ASCII is a subset of UTF-8
+                charset = StandardCharsets.UTF_8;
+            } else if (!charset.equals(StandardCharsets.UTF_8) && !charset.equals(StandardCharsets.ISO_8859_1)) {
+                return null;
+            }
+        }
+        return new XmlParserInput(in, encoding, charset);
+    }
+
+    /**
+     * Extract the value of a pseudo attribute from an XML declaration.
+     * 
+     * @param declaration
+     *            the content of the XML declaration
+     * @param name
+     *            the name of the pseudo attribute
+     * @return the value of the pseudo attribute, or <code>null</code> if the attribute is not
+     *         present or the declaration is malformed
+     */
+    private static String getPseudoAttribute(String declaration, String name) {
+        int index = declaration.indexOf(name);
+        if (index == -1) {
+            return null;
+        }
+        index += name.length();
+        int length = declaration.length();
+        while (index < length && isWhitespace(declaration.charAt(index))) {
+            index++;
+        }
+        if (index == length || declaration.charAt(index) != '=') {
+            return null;
+        }
+        index++;
+        while (index < length && isWhitespace(declaration.charAt(index))) {
+            index++;
+        }
+        if (index == length) {
+            return null;
+        }
+        char quote = declaration.charAt(index);
+        if (quote != '"' && quote != '\'') {
+            return null;
+        }
+        int end = declaration.indexOf(quote, index+1);
+        return end == -1 ? null : declaration.substring(index+1, end);
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    @Override
+    public XmlReader createReader(XmlHandler handler) {
+        return new XmlParserReader(handler, in, encoding, charset);
+    }
+}
@@ -0,0 +1,997 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.core.stream.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.XMLConstants;
+
+import org.apache.axiom.core.stream.StreamException;
+import org.apache.axiom.core.stream.XmlHandler;
+import org.apache.axiom.core.stream.XmlReader;
+
+/**
+ * {@link XmlReader} implementation that parses a byte stream directly, without going through StAX.
+ * Each call to {@link #proceed()} consumes a single markup construct or text node from the stream.
+ * Element and attribute names are looked up in a {@link NameTable} directly from the byte buffer,
+ * so that they are only decoded once per document.
+ * <p>
+ * The parser has the following limitations:
+ * <ul>
+ * <li>It only supports XML 1.0 documents encoded in UTF-8 (or US-ASCII) or ISO-8859-1.
+ * <li>It is non validating and doesn't interpret document type declarations. References to
+ * entities other than the predefined ones are reported as errors.
+ * <li>Non ASCII characters in names are not checked against the production rules for names.
+ * </ul>
+ * The events produced are the same as those produced for a StAX parser in non coalescing mode
+ * with CDATA section reporting enabled. In particular, whitespace outside of the document element
+ * is reported as ignorable character data.
+ */
+public final class XmlParserReader implements XmlReader {
+    private static final int STATE_START = 0;
+    private static final int STATE_PROLOG = 1;
+    private static final int STATE_CONTENT = 2;
+    private static final int STATE_EPILOG = 3;
+    private static final int STATE_COMPLETED = 4;
+
+    private static final boolean[] NAME_START_CHAR = new boolean[128];
+    private static final boolean[] NAME_CHAR = new boolean[128];
+
+    static {
+        for (int c = 'a'; c <= 'z'; c++) {
+            NAME_START_CHAR[c] = true;
+        }
+        for (int c = 'A'; c <= 'Z'; c++) {
+            NAME_START_CHAR[c] = true;
+        }
+        NAME_START_CHAR['_'] = true;
+        NAME_START_CHAR[':'] = true;
+        System.arraycopy(NAME_START_CHAR, 0, NAME_CHAR, 0, 128);
+        for (int c = '0'; c <= '9'; c++) {
+            NAME_CHAR[c] = true;
+        }
+        NAME_CHAR['-'] = true;
+        NAME_CHAR['.'] = true;
+    }
+
+    private final XmlHandler handler;
+    private InputStream in;
+    private final String encoding;
+    private final boolean utf8;
+    private final NameTable nameTable;
+
+    private byte[] buffer = new byte[8192];
+
+    /**
+     * The position of the next byte to be read from {@link #buffer}.
+     */
+    private int pos;
+
+    /**
+     * The number of valid bytes in {@link #buffer}.
+     */
+    private int limit;
+
+    /**
+     * The position of the first byte in {@link #buffer} that must be retained when the buffer is
+     * refilled, or -1 if only the bytes starting at {@link #pos} need to be retained. This is set
+     * while parsing tags so that names can be looked up directly in the buffer.
+     */
+    private int mark = -1;
+
+    /**
+     * The number of bytes that have been discarded from the buffer. Only used for error reporting.
+     */
+    private long offset;
+
+    private boolean eof;
+
+    /**
+     * Buffer for the decoded content of text nodes, attribute values, comments, etc.
+     */
+    private char[] chars = new char[256];
+    private int charCount;
+
+    private int state = STATE_START;
+    private boolean pendingEndElement;
+
+    /**
+     * The qualified names of the currently open elements.
+     */
+    private String[] elementNames = new String[16];
+
+    /**
+     * For each open element, the value of {@link #nsCount} before the namespace declarations of
+     * the element were added.
+     */
+    private int[] nsScopes = new int[16];
+    private int depth;
+
+    private String[] nsPrefixes = new String[16];
+    private String[] nsURIs = new String[16];
+    private int nsCount;
+
+    private NameTable.Entry[] attNames = new NameTable.Entry[8];
+    private String[] attValues = new String[8];
+    private String[] attNamespaceURIs = new String[8];
+    private int attCount;
+
+    XmlParserReader(XmlHandler handler, InputStream in, String encoding, Charset charset) {
+        this.handler = handler;
+        this.in = in;
+        this.encoding = encoding;
+        utf8 = charset.equals(StandardCharsets.UTF_8);
+        nameTable = new NameTable(charset);
+    }
+
+    @Override
+    public boolean proceed() throws StreamException {
+        try {
+            switch (state) {
+                case STATE_START:
+                    parseXmlDeclaration();
+                    state = STATE_PROLOG;
+                    return false;
+                case STATE_COMPLETED:
+                    throw new IllegalStateException();
+            }
+            if (pendingEndElement) {
+                pendingEndElement = false;
+                endElement();
+                return false;
+            }
+            int b = peek();
+            if (b == -1) {
+                if (state != STATE_EPILOG) {
+                    throw error(state == STATE_PROLOG ? "Document contains no root element" : "Unexpected end of document");
+                }
+                state = STATE_COMPLETED;
+                in = null;
+                buffer = null;
+                handler.completed();
+                return true;
+            } else if (b == '<') {
+                mark = pos++;
+                switch (read()) {
+                    case '/':
+                        parseEndTag();
+                        break;
+                    case '?':
+                        parseProcessingInstruction();
+                        break;
+                    case '!':
+                        parseMarkupDeclaration();
+                        break;
+                    case -1:
+                        throw error("Unexpected end of document");
+                    default:
+                        pos--;
+                        parseStartTag();
+                }
+                mark = -1;
+            } else if (state == STATE_CONTENT) {
+                parseText();
+            } else {
+                parseWhitespace();
+            }
+            return false;
+        } catch (IOException ex) {
+            throw new StreamException(ex);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        // The stream is owned by the caller; just release the buffers
+        in = null;
+        buffer = null;
+        chars = null;
+    }
+
+    private StreamException error(String message) {
+        return new StreamException(message + " (at byte offset " + (offset+pos) + ")");
+    }
+
+    /**
+     * Read more data into the buffer, discarding bytes that no longer need to be retained.
+     *
+     * @return <code>false</code> if the end of the stream has been reached
+     */
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        int keep = mark == -1 ? pos : mark;
+        if (keep > 0) {
+            System.arraycopy(buffer, keep, buffer, 0, limit-keep);
+            limit -= keep;
+            pos -= keep;
+            if (mark != -1) {
+                mark -= keep;
+            }
+            offset += keep;
+        }
+        if (limit == buffer.length) {
+            byte[] newBuffer = new byte[buffer.length*2];
+            System.arraycopy(buffer, 0, newBuffer, 0, limit);
+            buffer = newBuffer;
+        }
+        int c;
+        do {
+            c = in.read(buffer, limit, buffer.length-limit);
+        } while (c == 0);
+        if (c == -1) {
+            eof = true;
+            return false;
+        }
+        limit += c;
+        return true;
+    }
+
+    private int peek() throws IOException {
+        return pos < limit || fill() ? buffer[pos] & 0xFF : -1;
+    }
+
+    private int read() throws IOException {
+        return pos < limit || fill() ? buffer[pos++] & 0xFF : -1;
+    }
+
+    private void expect(int expected) throws IOException, StreamException {
+        if (read() != expected) {
+            throw error("Expected '" + (char)expected + "'");
+        }
+    }
+
+    private void expect(String expected) throws IOException, StreamException {
+        for (int i=0; i<expected.length(); i++) {
+            if (read() != expected.charAt(i)) {
+                throw error("Expected '" + expected + "'");
+            }
+        }
+    }
+
+    private static boolean isWhitespace(int b) {
+        return b == ' ' || b == '\n' || b == '\t' || b == '\r';
+    }
+
+    /**
+     * Skip whitespace.
+     *
+     * @return <code>true</code> if at least one whitespace character has been skipped
+     */
+    private boolean skipWhitespace() throws IOException {
+        boolean skipped = false;
+        while (isWhitespace(peek())) {
+            pos++;
+            skipped = true;
+        }
+        return skipped;
+    }
+
+    private void requireWhitespace() throws IOException, StreamException {
+        if (!skipWhitespace()) {
+            throw error("Expected whitespace");
+        }
+    }
+
+    private void append(char c) {
+        if (charCount == chars.length) {
+            char[] newChars = new char[chars.length*2];
+            System.arraycopy(chars, 0, newChars, 0, charCount);
+            chars = newChars;
+        }
+        chars[charCount++] = c;
+    }
+
+    private void appendCodePoint(int cp) {
+        if (cp < 0x10000) {
+            append((char)cp);
+        } else {
+            append(Character.highSurrogate(cp));
+            append(Character.lowSurrogate(cp));
+        }
+    }
+
+    private String getChars() {
+        return new String(chars, 0, charCount);
+    }
+
+    /**
+     * Decode a non ASCII character.
+     *
+     * @param b
+     *            the first byte of the encoded character, which has already been consumed
+     * @return the code point
+     */
+    private int decode(int b) throws IOException, StreamException {
+        if (!utf8) {
+            return b;
+        }
+        int count;
+        int cp;
+        int min;
+        if ((b & 0xE0) == 0xC0) {
+            count = 1;
+            cp = b & 0x1F;
+            min = 0x80;
+        } else if ((b & 0xF0) == 0xE0) {
+            count = 2;
+            cp = b & 0x0F;
+            min = 0x800;
+        } else if ((b & 0xF8) == 0xF0) {
+            count = 3;
+            cp = b & 0x07;
+            min = 0x10000;
+        } else {
+            throw error("Invalid UTF-8 sequence");
+        }
+        for (int i=0; i<count; i++) {
+            int c = read();
+            if (c == -1 || (c & 0xC0) != 0x80) {
+                throw error("Invalid UTF-8 sequence");
+            }
+            cp = (cp << 6) | (c & 0x3F);
+        }
+        if (cp < min || cp > 0x10FFFF || (cp >= 0xD800 && cp < 0xE000) || cp == 0xFFFE || cp == 0xFFFF) {
+            throw error("Invalid character");
+        }
+        return cp;
+    }
+
+    /**
+     * Append a character to {@link #chars}, performing decoding and line end normalization.
+     *
+     * @param b
+     *            the first byte of the encoded character, which has already been consumed, or -1
+     *            if the end of the stream has been reached
+     */
+    private void appendRaw(int b) throws IOException, StreamException {
+        if (b >= 0x20) {
+            if (b < 0x80) {
+                append((char)b);
+            } else {
+                appendCodePoint(decode(b));
+            }
+        } else if (b == '\n' || b == '\t') {
+            append((char)b);
+        } else if (b == '\r') {
+            append('\n');
+            if (peek() == '\n') {
+                pos++;
+            }
+        } else if (b == -1) {
+            throw error("Unexpected end of document");
+        } else {
+            throw error("Invalid character");
+        }
+    }
+
+    /**
+     * Parse a character or entity reference and append the replacement text to {@link #chars}.
+     * The leading ampersand has already been consumed.
+     */
+    private void parseReference() throws IOException, StreamException {
+        int b = read();
+        if (b == '#') {
+            int radix = 10;
+            b = read();
+            if (b == 'x') {
+                radix = 16;
+                b = read();
+            }
+            int cp = 0;
+            int digits = 0;
+            while (b != ';') {
+                int digit = Character.digit(b, radix);
+                if (b == -1 || b >= 0x80 || digit == -1) {
+                    throw error("Invalid character reference");
+                }
+                cp = cp*radix + digit;
+                if (cp > 0x10FFFF) {
+                    throw error("Invalid character reference");
+                }
+                digits++;
+                b = read();
+            }
+            if (digits == 0 || !isXmlChar(cp)) {
+                throw error("Invalid character reference");
+            }
+            appendCodePoint(cp);
+        } else {
+            StringBuilder name = new StringBuilder();
+            while (b != ';') {
+                if (b == -1 || b >= 0x80 || !NAME_CHAR[b] || name.length() > 16) {
+                    throw error("Invalid entity reference");
+                }
+                name.append((char)b);
+                b = read();
+            }
+            String s = name.toString();
+            if (s.equals("lt")) {
+                append('<');
+            } else if (s.equals("gt")) {
+                append('>');
+            } else if (s.equals("amp")) {
+                append('&');
+            } else if (s.equals("apos")) {
+                append('\'');
+            } else if (s.equals("quot")) {
+                append('"');
+            } else {
+                throw error("Undeclared entity '" + s + "'");
+            }
+        }
+    }
+
+    private static boolean isXmlChar(int cp) {
+        return cp >= 0x20 ? cp < 0xD800 || (cp >= 0xE000 && cp < 0xFFFE) || cp >= 0x10000
+                : cp == '\n' || cp == '\t' || cp == '\r';
+    }
+
+    /**
+     * Parse a name. {@link #mark} must be set, so that the name remains in the buffer until it is
+     * looked up in the name table.
+     */
+    private NameTable.Entry parseName() throws IOException, StreamException {
+        int b = peek();
+        if (b == -1 || (b < 0x80 && !NAME_START_CHAR[b])) {
+            throw error("Expected a name");
+        }
+        int start = pos-mark;
+        int hash = 0;
+        while (pos < limit || fill()) {
+            byte c = buffer[pos];
+            if (c >= 0 && !NAME_CHAR[c]) {
+                break;
+            }
+            hash = 31*hash + c;
+            pos++;
+        }
+        start += mark;
+        return nameTable.lookup(buffer, start, pos-start, hash);
+    }
+
+    /**
+     * Parse a qualified name and split it into prefix and local part.
+     */
+    private NameTable.Entry parseQName() throws IOException, StreamException {
+        NameTable.Entry entry = parseName();
+        if (entry.localName == null) {
+            byte[] bytes = entry.bytes;
+            int colon = -1;
+            for (int i=0; i<bytes.length; i++) {
+                if (bytes[i] == ':') {
+                    if (colon != -1) {
+                        throw error("Invalid qualified name '" + entry.name + "'");
+                    }
+                    colon = i;
+                }
+            }
+            if (colon == -1) {
+                entry.prefix = "";
+                entry.localName = entry.name;
+            } else {
+                if (colon == 0 || colon == bytes.length-1) {
+                    throw error("Invalid qualified name '" + entry.name + "'");
+                }
+                entry.prefix = nameTable.lookup(bytes, 0, colon);
+                entry.localName = nameTable.lookup(bytes, colon+1, bytes.length-colon-1);
+            }
+        }
+        return entry;
+    }
+
+    private void parseXmlDeclaration() throws IOException, StreamException {
+        if (utf8 && peek() == 0xEF) {
+            pos++;
+            if (read() != 0xBB || read() != 0xBF) {
+                throw error("Invalid byte order mark");
+            }
+        }
+        String version = null;
+        String xmlEncoding = null;
+        Boolean standalone = null;
+        mark = pos;
+        if (read() == '<' && read() == '?' && read() == 'x' && read() == 'm' && read() == 'l' && isWhitespace(peek())) {
+            mark = -1;
+            skipWhitespace();
+            expect("version");
+            version = parsePseudoAttributeValue();
+            if (!version.equals("1.0")) {
+                throw error("Unsupported XML version " + version);
+            }
+            boolean whitespace = skipWhitespace();
+            if (whitespace && peek() == 'e') {
+                expect("encoding");
+                xmlEncoding = parsePseudoAttributeValue();
+                whitespace = skipWhitespace();
+            }
+            if (whitespace && peek() == 's') {
+                expect("standalone");
+                String value = parsePseudoAttributeValue();
+                if (value.equals("yes")) {
+                    standalone = Boolean.TRUE;
+                } else if (value.equals("no")) {
+                    standalone = Boolean.FALSE;
+                } else {
+                    throw error("Invalid standalone declaration");
+                }
+                skipWhitespace();
+            }
+            expect("?>");
+        } else {
+            pos = mark;
+            mark = -1;
+        }
+        handler.startDocument(encoding, version, xmlEncoding, standalone);
+    }
+
+    private String parsePseudoAttributeValue() throws IOException, StreamException {
+        skipWhitespace();
+        expect('=');
+        skipWhitespace();
+        int quote = read();
+        if (quote != '"' && quote != '\'') {
+            throw error("Expected quote");
+        }
+        StringBuilder value = new StringBuilder();
+        int b;
+        while ((b = read()) != quote) {
+            if (b == -1 || b >= 0x80 || b == '<') {
+                throw error("Invalid XML declaration");
+            }
+            value.append((char)b);
+        }
+        return value.toString();
+    }
+
+    private void parseStartTag() throws IOException, StreamException {
+        if (state == STATE_EPILOG) {
+            throw error("Only a single root element is allowed");
+        }
+        NameTable.Entry name = parseQName();
+        int nsStart = nsCount;
+        attCount = 0;
+        boolean empty;
+        while (true) {
+            boolean whitespace = skipWhitespace();
+            int b = read();
+            if (b == '>') {
+                empty = false;
+                break;
+            } else if (b == '/') {
+                expect('>');
+                empty = true;
+                break;
+            } else if (b == -1) {
+                throw error("Unexpected end of document");
+            } else if (!whitespace) {
+                throw error("Expected whitespace");
+            }
+            pos--;
+            NameTable.Entry attName = parseQName();
+            skipWhitespace();
+            expect('=');
+            skipWhitespace();
+            int quote = read();
+            if (quote != '"' && quote != '\'') {
+                throw error("Expected quote");
+            }
+            String value = parseAttributeValue(quote);
+            String prefix = attName.prefix;
+            if (prefix.length() == 0 && attName.name.equals(XMLConstants.XMLNS_ATTRIBUTE)) {
+                addNamespaceDeclaration(nsStart, "", value);
+            } else if (prefix.equals(XMLConstants.XMLNS_ATTRIBUTE)) {
+                addNamespaceDeclaration(nsStart, attName.localName, value);
+            } else {
+                for (int i=0; i<attCount; i++) {
+                    if (attNames[i].name.equals(attName.name)) {
+                        throw error("Duplicate attribute '" + attName.name + "'");
+                    }
+                }
+                if (attCount == attNames.length) {
+                    NameTable.Entry[] newAttNames = new NameTable.Entry[attCount*2];
+                    System.arraycopy(attNames, 0, newAttNames, 0, attCount);
+                    attNames = newAttNames;
+                    String[] newAttValues = new String[attCount*2];
+                    System.arraycopy(attValues, 0, newAttValues, 0, attCount);
+                    attValues = newAttValues;
+                    attNamespaceURIs = new String[attCount*2];
+                }
+                attNames[attCount] = attName;
+                attValues[attCount] = value;
+                attCount++;
+            }
+        }
+        if (depth == elementNames.length) {
+            String[] newElementNames = new String[depth*2];
+            System.arraycopy(elementNames, 0, newElementNames, 0, depth);
+            elementNames = newElementNames;
+            int[] newNsScopes = new int[depth*2];
+            System.arraycopy(nsScopes, 0, newNsScopes, 0, depth);
+            nsScopes = newNsScopes;
+        }
+        elementNames[depth] = name.name;
+        nsScopes[depth] = nsStart;
+        depth++;
+        state = STATE_CONTENT;
+        String namespaceURI = getNamespaceURI(name.prefix);
+        for (int i=0; i<attCount; i++) {
+            String prefix = attNames[i].prefix;
+            if (prefix.length() == 0) {
+                attNamespaceURIs[i] = "";
+            } else {
+                String attNamespaceURI = getNamespaceURI(prefix);
+                // Attributes with different prefixes bound to the same namespace URI
+                for (int j=0; j<i; j++) {
+                    if (attNamespaceURIs[j].equals(attNamespaceURI)
+                            && attNames[j].localName.equals(attNames[i].localName)) {
+                        throw error("Duplicate attribute '" + attNames[i].name + "'");
+                    }
+                }
+                attNamespaceURIs[i] = attNamespaceURI;
+            }
+        }
+        handler.startElement(namespaceURI, name.localName, name.prefix);
+        for (int i=nsStart; i<nsCount; i++) {
+            handler.processNamespaceDeclaration(nsPrefixes[i], nsURIs[i]);
+        }
+        for (int i=0; i<attCount; i++) {
+            NameTable.Entry attName = attNames[i];
+            handler.processAttribute(attNamespaceURIs[i], attName.localName, attName.prefix,
+                    attValues[i], "CDATA", true);
+            attNames[i] = null;
+            attValues[i] = null;
+        }
+        handler.attributesCompleted();
+        if (empty) {
+            pendingEndElement = true;
+        }
+    }
+
+    /**
+     * Parse an attribute value, performing attribute value normalization. The opening quote has
+     * already been consumed.
+     */
+    private String parseAttributeValue(int quote) throws IOException, StreamException {
+        // Fast path for values that only contain ASCII characters that require no normalization
+        int start = pos;
+        while (pos < limit) {
+            int b = buffer[pos];
+            if (b == quote) {
+                String value = new String(buffer, start, pos-start, StandardCharsets.ISO_8859_1);
+                pos++;
+                return value;
+            } else if (b < 0x20 || b == '&' || b == '<') {
+                break;
+            }
+            pos++;
+        }
+        charCount = 0;
+        for (int i=start; i<pos; i++) {
+            append((char)buffer[i]);
+        }
+        while (true) {
+            int b = read();
+            if (b == quote) {
+                break;
+            } else if (b == '&') {
+                parseReference();
+            } else if (b == '<') {
+                throw error("'<' not allowed in attribute values");
+            } else if (b == '\n' || b == '\t') {
+                append(' ');
+            } else if (b == '\r') {
+                append(' ');
+                if (peek() == '\n') {
+                    pos++;
+                }
+            } else {
+                appendRaw(b);
+            }
+        }
+        return getChars();
+    }
+
+    private void addNamespaceDeclaration(int nsStart, String prefix, String namespaceURI) throws StreamException {
+        for (int i=nsStart; i<nsCount; i++) {
+            if (nsPrefixes[i].equals(prefix)) {
+                throw error("Duplicate namespace declaration");
+            }
+        }
+        if (prefix.equals(XMLConstants.XML_NS_PREFIX)) {
+            if (!namespaceURI.equals(XMLConstants.XML_NS_URI)) {
+                throw error("The 'xml' prefix must be bound to " + XMLConstants.XML_NS_URI);
+            }
+            // The declaration is redundant; don't report it (as most StAX parsers do)
+            return;
+        } else if (prefix.equals(XMLConstants.XMLNS_ATTRIBUTE)) {
+            throw error("The 'xmlns' prefix must not be declared");
+        } else if (namespaceURI.equals(XMLConstants.XML_NS_URI) || namespaceURI.equals(XMLConstants.XMLNS_ATTRIBUTE_NS_URI)) {
+            throw error("Namespace " + namespaceURI + " must not be bound to prefix '" + prefix + "'");
+        } else if (prefix.length() > 0 && namespaceURI.length() == 0) {
+            throw error("Namespace prefixes can't be undeclared in XML 1.0");
+        }
+        if (nsCount == nsPrefixes.length) {
+            String[] newNsPrefixes = new String[nsCount*2];
+            System.arraycopy(nsPrefixes, 0, newNsPrefixes, 0, nsCount);
+            nsPrefixes = newNsPrefixes;
+            String[] newNsURIs = new String[nsCount*2];
+            System.arraycopy(nsURIs, 0, newNsURIs, 0, nsCount);
+            nsURIs = newNsURIs;
+        }
+        nsPrefixes[nsCount] = prefix;
+        nsURIs[nsCount] = namespaceURI;
+        nsCount++;
+    }
+
+    private String getNamespaceURI(String prefix) throws StreamException {
+        for (int i=nsCount-1; i>=0; i--) {
+            String candidate = nsPrefixes[i];
+            if (candidate == prefix || candidate.equals(prefix)) {
+                return nsURIs[i];
+            }
+        }
+        if (prefix.length() == 0) {
+            return "";
+        } else if (prefix.equals(XMLConstants.XML_NS_PREFIX)) {
+            return XMLConstants.XML_NS_URI;
+        } else {
+            throw error("Undeclared namespace prefix '" + prefix + "'");
+        }
+    }
+
+    private void parseEndTag() throws IOException, StreamException {
+        if (depth == 0) {
+            throw error("Unexpected end tag");
+        }
+        String name = parseName().name;
+        skipWhitespace();
+        expect('>');
+        String expected = elementNames[depth-1];
+        if (name != expected && !name.equals(expected)) {
+            throw error("End tag '" + name + "' doesn't match start tag '" + expected + "'");
+        }
+        endElement();
+    }
+
+    private void endElement() throws StreamException {
+        depth--;
+        elementNames[depth] = null;
+        nsCount = nsScopes[depth];
+        if (depth == 0) {
+            state = STATE_EPILOG;
+        }
+        handler.endElement();
+    }
+
+    private void parseText() throws IOException, StreamException {
+        charCount = 0;
+        // The number of consecutive ']' characters seen; used to detect "]]>"
+        int brackets = 0;
+        while (pos < limit || fill()) {
+            // Fast path for ASCII characters that need no special processing
+            int available = limit-pos;
+            if (charCount + available > chars.length) {
+                char[] newChars = new char[Math.max(chars.length*2, charCount + available)];
+                System.arraycopy(chars, 0, newChars, 0, charCount);
+                chars = newChars;
+            }
+            int start = pos;
+            while (pos < limit) {
+                int b = buffer[pos];
+                if (b < 0x20 ? b != '\n' && b != '\t' : b == '<' || b == '&' || b == ']' || b == '>') {
+                    break;
+                }
+                chars[charCount++] = (char)b;
+                pos++;
+            }
+            if (pos > start) {
+                brackets = 0;
+                continue;
+            }
+            int b = buffer[pos];
+            if (b == '<') {
+                break;
+            }
+            pos++;
+            if (b == ']') {
+                brackets++;
+                append(']');
+                continue;
+            }
+            if (b == '>' && brackets >= 2) {
+                throw error("']]>' not allowed in text");
+            }
+            brackets = 0;
+            if (b == '&') {
+                parseReference();
+            } else {
+                appendRaw(b & 0xFF);
+            }
+        }
+        handler.processCharacterData(getChars(), false);
+    }
+
+    private void parseWhitespace() throws IOException, StreamException {
+        charCount = 0;
+        int b;
+        while ((b = peek()) != '<' && b != -1) {
+            pos++;
+            if (!isWhitespace(b)) {
+                throw error("Content is not allowed " + (state == STATE_PROLOG ? "in prolog" : "after the root element"));
+            }
+            appendRaw(b);
+        }
+        handler.processCharacterData(getChars(), true);
+    }
+
+    private void parseProcessingInstruction() throws IOException, StreamException {
+        String target = parseName().name;
+        mark = -1;
+        if (target.equalsIgnoreCase("xml")) {
+            throw error("Processing instruction target '" + target + "' is reserved");
+        }
+        charCount = 0;
+        if (peek() == '?') {
+            pos++;
+            expect('>');
+        } else {
+            requireWhitespace();
+            while (true) {
+                int b = read();
+                if (b == '?' && peek() == '>') {
+                    pos++;
+                    break;
+                }
+                appendRaw(b);
+            }
+        }
+        handler.startProcessingInstruction(target);
+        handler.processCharacterData(getChars(), false);
+        handler.endProcessingInstruction();
+    }
+
+    private void parseMarkupDeclaration() throws IOException, StreamException {
+        int b = read();
+        if (b == '-') {
+            expect('-');
+            parseComment();
+        } else if (b == '[' && state == STATE_CONTENT) {
+            expect("CDATA[");
+            parseCDATASection();
+        } else if (b == 'D' && state == STATE_PROLOG) {
+            expect("OCTYPE");
+            parseDocumentTypeDeclaration();
+        } else {
+            throw error("Unexpected markup declaration");
+        }
+    }
+
+    private void parseComment() throws IOException, StreamException {
+        mark = -1;
+        charCount = 0;
+        while (true) {
+            int b = read();
+            if (b == '-' && peek() == '-') {
+                pos++;
+                expect('>');
+                break;
+            }
+            appendRaw(b);
+        }
+        handler.startComment();
+        handler.processCharacterData(getChars(), false);
+        handler.endComment();
+    }
+
+    private void parseCDATASection() throws IOException, StreamException {
+        mark = -1;
+        charCount = 0;
+        int brackets = 0;
+        while (true) {
+            int b = read();
+            if (b == ']') {
+                brackets++;
+            } else if (b == '>' && brackets >= 2) {
+                break;
+            } else {
+                for (; brackets > 0; brackets--) {
+                    append(']');
+                }
+                appendRaw(b);
+            }
+        }
+        for (; brackets > 2; brackets--) {
+            append(']');
+        }
+        handler.startCDATASection();
+        handler.processCharacterData(getChars(), false);
+        handler.endCDATASection();
+    }
+
+    private void parseDocumentTypeDeclaration() throws IOException, StreamException {
+        requireWhitespace();
+        String rootName = parseName().name;
+        mark = -1;
+        String publicId = null;
+        String systemId = null;
+        String internalSubset = null;
+        boolean whitespace = skipWhitespace();
+        int b = peek();
+        if (whitespace && b == 'P') {
+            expect("PUBLIC");
+            requireWhitespace();
+            publicId = parseLiteral();
+            requireWhitespace();
+            systemId = parseLiteral();
+            skipWhitespace();
+        } else if (whitespace && b == 'S') {
+            expect("SYSTEM");
+            requireWhitespace();
+            systemId = parseLiteral();
+            skipWhitespace();
+        }
+        if (peek() == '[') {
+            pos++;
+            charCount = 0;
+            int quote = -1;
+            while (true) {
+                b = read();
+                if (quote == -1) {
+                    if (b == ']') {
+                        break;
+                    } else if (b == '"' || b == '\'') {
+                        quote = b;
+                    }
+                } else if (b == quote) {
+                    quote = -1;
+                }
+                appendRaw(b);
+            }
+            internalSubset = getChars();
+            skipWhitespace();
+        }
+        expect('>');
+        // XmlParserInput leaves documents with a DTD to the StAX parser, but only if the document
+        // type declaration appears in the first few bytes. Since the internal subset may declare
+        // entities and default attribute values that this parser doesn't process, fail instead of
+        // silently producing an incorrect result.
+        if (internalSubset != null) {
+            throw error("internal subset not supported by the native parser");
+        }
+        handler.processDocumentTypeDeclaration(rootName, publicId, systemId, internalSubset);
+    }
+
+    private String parseLiteral() throws IOException, StreamException {
+        int quote = read();
+        if (quote != '"' && quote != '\'') {
+            throw error("Expected quote");
+        }
+        charCount = 0;
+        int b;
+        while ((b = read()) != quote) {
+            appendRaw(b);
+        }
+        return getChars();
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.core.stream.serializer;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.apache.axiom.core.stream.StreamException;
+import org.apache.axiom.core.stream.XmlHandler;
+import org.apache.axiom.core.stream.XmlReader;
+import org.apache.axiom.core.stream.serializer.writer.BufferPool;
+import org.apache.axiom.core.stream.serializer.writer.ByteBufferSink;
+
+/**
+ * Produces serialized XML on demand. Instead of pushing the output to a stream, the caller
+ * repeatedly asks for the next chunk of bytes using {@link #read(ByteBuffer)}, and only as many
+ * events are pulled from the {@link XmlReader} as are needed to fill the caller's buffer. This
+ * allows asynchronous I/O frameworks to write large documents to slow clients without blocking a
+ * thread.
+ * <p>
+ * To use this class, create the {@link XmlReader} with a handler chain that ends with the handler
+ * returned by {@link #getHandler()} and pass it to {@link #setReader(XmlReader)}. The reader must
+ * be incremental, i.e. {@link XmlReader#proceed()} must only produce a bounded number of events.
+ * <p>
+ * Output is encoded directly into the caller's buffer. Since a single event may produce an
+ * arbitrary amount of output (think of a large text node), output that doesn't fit into that
+ * buffer is kept in internal buffers until the next call to {@link #read(ByteBuffer)}. If the
+ * caller stops reading before the document is complete, it must call {@link #close()}.
+ */
+public final class PullSerializer {
+    private final class Sink implements ByteBufferSink {
+        @Override
+        public ByteBuffer getBuffer() {
+            if (dst != null && !overflow && dst.remaining() >= MIN_BUFFER_SIZE) {
+                return slice = dst.slice();
+            }
+            overflow = true;
+            ByteBuffer buffer = free;
+            if (buffer == null) {
+                buffer = ByteBuffer.wrap(BufferPool.getDefault().getByteArray());
+            } else {
+                free = null;
+                // Cast ensures compatibility with Java 8.
+                ((Buffer)buffer).clear();
+            }
+            return buffer;
+        }
+
+        @Override
+        public void write(ByteBuffer buffer) {
+            if (buffer == slice) {
+                slice = null;
+                // Cast ensures compatibility with Java 8.
+                ((Buffer)dst).position(dst.position() + buffer.remaining());
+            } else if (buffer.hasRemaining()) {
+                pending.add(buffer);
+            } else {
+                free = buffer;
+            }
+        }
+    }
+
+    private final Serializer serializer;
+    private XmlReader reader;
+
+    /**
+     * The buffer passed to {@link #read(ByteBuffer)}; only set during the execution of that
+     * method.
+     */
+    private ByteBuffer dst;
+
+    /**
+     * The slice of {@link #dst} currently used by the writer, if any.
+     */
+    private ByteBuffer slice;
+
+    /**
+     * Indicates that {@link #dst} is full and that further output is written to overflow buffers.
+     */
+    private boolean overflow;
+
+    /**
+     * Overflow buffers containing output not yet returned to the caller.
+     */
+    private final Deque<ByteBuffer> pending = new ArrayDeque<ByteBuffer>();
+
+    /**
+     * An overflow buffer that can be reused.
+     */
+    private ByteBuffer free;
+
+    private boolean complete;
+
+    private boolean closed;
+
+    /**
+     * Constructor.
+     * 
+     * @param encoding
+     *            the charset encoding of the output
+     */
+    public PullSerializer(String encoding) {
+        serializer = new Serializer(new Sink(), encoding);
+    }
+
+    /**
+     * Enable or disable indentation. See {@link Serializer#setIndent(int)}.
+     * 
+     * @param indent
+     *            the number of spaces per nesting level; 0 disables indentation
+     */
+    public void setIndent(int indent) {
+        serializer.setIndent(indent);
+    }
+
+    /**
+     * Get the handler that receives the events to serialize.
+     * 
+     * @return the handler
+     */
+    public XmlHandler getHandler() {
+        return serializer;
+    }
+
+    public void setReader(XmlReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Serialize the next chunk of the document into the given buffer.
+     * 
+     * @param dst
+     *            the buffer to write the output to
+     * @return the number of bytes written to the buffer (possibly zero if the buffer has no
+     *         remaining space), or -1 if the document is complete and all output has been returned
+     *         by previous invocations
+     * @throws StreamException
+     *             if an error occurs while producing the events
+     */
+    public int read(ByteBuffer dst) throws StreamException {
+        if (closed) {
+            throw new IllegalStateException("The serializer has been closed");
+        }
+        int start = dst.position();
+        if (transferPending(dst) && !complete) {
+            this.dst = dst;
+            overflow = false;
+            try {
+                do {
+                    complete = reader.proceed();
+                } while (!complete && !overflow);
+                if (!complete) {
+                    // If the document is complete, this has already been done by completed()
+                    serializer.flushBuffer();
+                }
+            } finally {
+                this.dst = null;
+            }
+            transferPending(dst);
+        }
+        if (complete && pending.isEmpty()) {
+            releaseFreeBuffer();
+            if (dst.position() == start) {
+                return -1;
+            }
+        }
+        return dst.position() - start;
+    }
+
+    /**
+     * Determine whether the document has been completely serialized and all output has been
+     * returned to the caller.
+     * 
+     * @return {@code true} if the document is complete and there is no more output,
+     *         {@code false} otherwise
+     */
+    public boolean isComplete() {
+        return complete && pending.isEmpty();
+    }
+
+    /**
+     * Copy output from the overflow buffers to the given buffer.
+     * 
+     * @param dst
+     *            the destination buffer
+     * @return {@code true} if all pending output has been transferred, {@code false} if the
+     *         destination buffer is full
+     */
+    private boolean transferPending(ByteBuffer dst) {
+        ByteBuffer buffer;
+        while ((buffer = pending.peek()) != null) {
+            int remaining = dst.remaining();
+            if (buffer.remaining() > remaining) {
+                ByteBuffer chunk = buffer.duplicate();
+                // Casts ensure compatibility with Java 8.
+                ((Buffer)chunk).limit(chunk.position() + remaining);
+                dst.put(chunk);
+                ((Buffer)buffer).position(chunk.position());
+                return false;
+            }
+            dst.put(buffer);
+            pending.remove();
+            if (free == null) {
+                free = buffer;
+            } else {
+                BufferPool.getDefault().release(buffer.array());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stop the serialization. This disposes the {@link XmlReader} and returns all buffers borrowed
+     * from the {@link BufferPool}. It must be called if the caller abandons the serialization
+     * before it is complete. Output that has not been returned yet is discarded. This method
+     * has no effect if it has already been called.
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (reader != null) {
+            reader.dispose();
+        }
+        serializer.release();
+        ByteBuffer buffer;
+        while ((buffer = pending.poll()) != null) {
+            BufferPool.getDefault().release(buffer.array());
+        }
+        releaseFreeBuffer();
+    }
+
+    private void releaseFreeBuffer() {
+        if (free != null) {
+            BufferPool.getDefault().release(free.array());
+            free = null;
+        }
+    }
+}
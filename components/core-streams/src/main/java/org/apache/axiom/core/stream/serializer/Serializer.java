@@ -23,14 +23,23 @@ package org.apache.axiom.core.stream.serializer;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Writer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
 
 import org.apache.axiom.core.stream.CharacterData;
 import org.apache.axiom.core.stream.CharacterDataSink;
 import org.apache.axiom.core.stream.StreamException;
 import org.apache.axiom.core.stream.XmlHandler;
+import org.apache.axiom.core.stream.serializer.writer.BufferPool;
+import org.apache.axiom.core.stream.serializer.writer.ByteBufferSink;
+import org.apache.axiom.core.stream.serializer.writer.ByteBufferSinkOutputStream;
+import org.apache.axiom.core.stream.serializer.writer.ChannelByteBufferSink;
 import org.apache.axiom.core.stream.serializer.writer.UnmappableCharacterHandler;
 import org.apache.axiom.core.stream.serializer.writer.WriterXmlWriter;
 import org.apache.axiom.core.stream.serializer.writer.XmlWriter;
+import org.apache.axiom.core.stream.source.SourceCopyingHandler;
+import org.apache.axiom.core.stream.source.SourceRange;
+import org.apache.axiom.core.stream.source.SourceText;
 import org.apache.axiom.util.base64.AbstractBase64EncodingOutputStream;
 
 /**
@@ -39,7 +48,7 @@ import org.apache.axiom.util.base64.AbstractBase64EncodingOutputStream;
  * 
  * @xsl.usage internal
  */
-public final class Serializer implements XmlHandler, CharacterDataSink {
+public final class Serializer implements XmlHandler, CharacterDataSink, SourceCopyingHandler {
     /**
      * The number of characters to process at once. Chosen small enough to leverage processor caches
      * and large enough to reduce method invocation overhead.
@@ -55,6 +64,37 @@ public final class Serializer implements XmlHandler, CharacterDataSink {
 
     private static final String[] illegalCharacterSequences = { null, null, null, "--", "?>", "]]>" };
 
+    /**
+     * Identifies the ASCII characters that may require special processing in mixed content and
+     * attribute values. Runs of characters not in this set (and not in the range 0x80-0x9F and
+     * not equal to 0x2028) are copied to the writer as is.
+     */
+    private static final boolean[] specialASCIICharacters = new boolean[128];
+    
+    static {
+        for (int i=0; i<=0x1F; i++) {
+            specialASCIICharacters[i] = true;
+        }
+        specialASCIICharacters['<'] = true;
+        specialASCIICharacters['>'] = true;
+        specialASCIICharacters['&'] = true;
+        specialASCIICharacters['"'] = true;
+        specialASCIICharacters[']'] = true;
+        specialASCIICharacters[0x7F] = true;
+    }
+
+    /**
+     * Line break followed by spaces, used to write indentation without per-character processing.
+     */
+    private static final char[] INDENTATION = new char[129];
+    
+    static {
+        INDENTATION[0] = '\n';
+        for (int i=1; i<INDENTATION.length; i++) {
+            INDENTATION[i] = ' ';
+        }
+    }
+    
     private static final UnmappableCharacterHandler[] unmappableCharacterHandlers = {
             UnmappableCharacterHandler.CONVERT_TO_CHARACTER_REFERENCE,
             UnmappableCharacterHandler.THROW_EXCEPTION,
@@ -66,6 +106,12 @@ public final class Serializer implements XmlHandler, CharacterDataSink {
     private final XmlWriter writer;
     private final OutputStream outputStream;
     
+    /**
+     * The charset of the output, or <code>null</code> if the serializer writes to a
+     * {@link Writer}.
+     */
+    private final Charset charset;
+    
     /**
      * Add space before '/>' for XHTML.
      */
@@ -89,22 +135,168 @@ public final class Serializer implements XmlHandler, CharacterDataSink {
     private int depth;
     private boolean startTagOpen;
 
+    /**
+     * The number of spaces per nesting level, or 0 if indentation is disabled.
+     */
+    private int indent;
+    
+    /**
+     * The depth of the outermost open element that has mixed content. Indentation is suppressed
+     * inside that element because whitespace is significant there.
+     */
+    private int mixedContentDepth = Integer.MAX_VALUE;
+    
+    /**
+     * Indicates if the current element has child elements, comments or processing instructions,
+     * i.e. if its end tag must be written on a new line.
+     */
+    private boolean hasChildMarkup;
+    
+    /**
+     * Indicates if something has been written at the top level, so that the next top level node
+     * must start on a new line.
+     */
+    private boolean topLevelContentWritten;
+
     /**
      * A utility buffer for converting Strings passed to
      * character() methods to character arrays.
      * Reusing this buffer means not creating a new character array
-     * everytime and it runs faster.
+     * everytime and it runs faster. The buffer is borrowed from the
+     * {@link BufferPool} on first use and returned by {@link #completed()} or
+     * {@link #release()}.
      */
-    private final char[] charsBuff = new char[CHUNK_SIZE];
+    private char[] charsBuff;
 
     public Serializer(Writer out) {
         writer = new WriterXmlWriter(out);
         outputStream = null;
+        charset = null;
     }
 
     public Serializer(OutputStream out, String encoding) {
         writer = XmlWriter.create(out, encoding);
         outputStream = out;
+        charset = Charset.forName(encoding);
+    }
+
+    /**
+     * Create a serializer that passes its output to a {@link ByteBufferSink}. This allows the
+     * caller to supply the buffers the output is encoded into.
+     * 
+     * @param sink
+     *            the sink
+     * @param encoding
+     *            the charset encoding
+     */
+    public Serializer(ByteBufferSink sink, String encoding) {
+        writer = XmlWriter.create(sink, encoding);
+        outputStream = new ByteBufferSinkOutputStream(sink);
+        charset = Charset.forName(encoding);
+    }
+
+    /**
+     * Create a serializer that writes to a {@link WritableByteChannel}. The channel must be in
+     * blocking mode.
+     * 
+     * @param channel
+     *            the channel
+     * @param encoding
+     *            the charset encoding
+     */
+    public Serializer(WritableByteChannel channel, String encoding) {
+        this(new ChannelByteBufferSink(channel), encoding);
+    }
+
+    /**
+     * Enable or disable indentation. If enabled, child elements, comments and processing
+     * instructions are written on separate lines and indented according to their nesting level,
+     * and whitespace-only text nodes are discarded. Indentation is suppressed inside elements
+     * that have mixed content (i.e. text that is not whitespace), as soon as that content is
+     * encountered. This method must be called before the first event is sent to the serializer.
+     * 
+     * @param indent
+     *            the number of spaces per nesting level; 0 disables indentation
+     */
+    public void setIndent(int indent) {
+        if (indent < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.indent = indent;
+    }
+
+    /**
+     * Start a new line and indent it if indentation is enabled and the current element doesn't
+     * have mixed content.
+     * 
+     * @param level
+     *            the nesting level of the node that will be written next
+     */
+    private void writeIndentation(int level) throws StreamException {
+        if (indent == 0 || level >= mixedContentDepth) {
+            return;
+        }
+        if (level == 0) {
+            if (topLevelContentWritten) {
+                try {
+                    writer.write(INDENTATION, 0, 1);
+                } catch (IOException ex) {
+                    throw new StreamException(ex);
+                }
+            }
+            return;
+        }
+        try {
+            int count = level*indent + 1;
+            int chunk = Math.min(count, INDENTATION.length);
+            writer.write(INDENTATION, 0, chunk);
+            count -= chunk;
+            while (count > 0) {
+                chunk = Math.min(count, INDENTATION.length-1);
+                writer.write(INDENTATION, 1, chunk);
+                count -= chunk;
+            }
+        } catch (IOException ex) {
+            throw new StreamException(ex);
+        }
+    }
+
+    /**
+     * Prepare for writing a child element, comment or processing instruction.
+     */
+    private void startChildMarkup() throws StreamException {
+        if (indent != 0) {
+            writeIndentation(depth);
+            hasChildMarkup = true;
+            topLevelContentWritten = true;
+        }
+    }
+
+    /**
+     * Determine if the given character data can be discarded because it is whitespace used for
+     * (existing) indentation, or mark the current element as having mixed content.
+     */
+    private boolean skipCharacterData(Object data) {
+        if (indent == 0 || depth >= mixedContentDepth || context != MIXED_CONTENT && context != TAG) {
+            return false;
+        }
+        if (data instanceof String) {
+            String s = (String)data;
+            int length = s.length();
+            int i = 0;
+            while (i < length) {
+                char c = s.charAt(i);
+                if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                    break;
+                }
+                i++;
+            }
+            if (i == length) {
+                return true;
+            }
+        }
+        mixedContentDepth = depth;
+        return false;
     }
 
     private void switchContext(int context) throws StreamException {
@@ -223,6 +415,7 @@ public final class Serializer implements XmlHandler, CharacterDataSink {
             throw new StreamException(ex);
         }
         switchContext(MIXED_CONTENT);
+        topLevelContentWritten = true;
     }
 
     @Override
@@ -341,6 +534,8 @@ public final class Serializer implements XmlHandler, CharacterDataSink {
         final XmlWriter writer = this.writer;
         final int context = this.context;
         final String illegalCharacterSequence = illegalCharacterSequences[context];
+        final boolean skipCleanRuns = context == MIXED_CONTENT || context == ATTRIBUTE_VALUE;
+        final boolean[] specialASCIICharacters = Serializer.specialASCIICharacters;
         
         try {
             int i;
@@ -351,6 +546,26 @@ public final class Serializer implements XmlHandler, CharacterDataSink {
             int matchedIllegalCharacters = this.matchedIllegalCharacters;
             int squareBrackets = this.squareBrackets;
             for (i = start; i < end; i++) {
+                if (skipCleanRuns) {
+                    // Skip over a run of characters that don't require any special processing,
+                    // without exceeding the chunk size
+                    int runEnd = Math.min(end, lastDirtyCharProcessed + 1 + CHUNK_SIZE);
+                    int j = i;
+                    while (j < runEnd) {
+                        char ch = chars[j];
+                        if (ch < 128 ? specialASCIICharacters[ch] : (ch <= 0x9F || ch == 0x2028)) {
+                            break;
+                        }
+                        j++;
+                    }
+                    if (j != i) {
+                        squareBrackets = 0;
+                        i = j;
+                        if (i == end) {
+                            break;
+                        }
+                    }
+                }
                 char ch = chars[i];
                 
                 if (illegalCharacterSequence != null) {
@@ -453,16 +668,20 @@ public final class Serializer implements XmlHandler, CharacterDataSink {
                 
                 int startClean = lastDirtyCharProcessed + 1;
                 int lengthClean = i - startClean;
-                if (replacement != null || generateCharacterReference || lengthClean == CHUNK_SIZE) {
+                if (replacement != null || generateCharacterReference) {
                     if (startClean < i) {
                         writer.write(chars, startClean, lengthClean);
                     }
                     if (replacement != null) {
                         writer.write(replacement);
-                    } else if (generateCharacterReference) {
+                    } else {
                         writer.writeCharacterReference(ch);
                     }
                     lastDirtyCharProcessed = i;
+                } else if (lengthClean == CHUNK_SIZE) {
+                    // The current character is clean and will be written as part of the next chunk
+                    writer.write(chars, startClean, lengthClean);
+                    lastDirtyCharProcessed = i - 1;
                 }
             }
             
@@ -485,8 +704,12 @@ public final class Serializer implements XmlHandler, CharacterDataSink {
     }
 
     void characters(String s, int start, int length) throws StreamException {
+        char[] charsBuff = this.charsBuff;
+        if (charsBuff == null) {
+            this.charsBuff = charsBuff = BufferPool.getDefault().getCharArray();
+        }
         while (length > 0) {
-            int count = Math.min(length, CHUNK_SIZE);
+            int count = Math.min(length, charsBuff.length);
             s.getChars(start, start+count, charsBuff, 0);
             characters(charsBuff, 0, count);
             start += count;
@@ -506,6 +729,9 @@ public final class Serializer implements XmlHandler, CharacterDataSink {
 
     @Override
     public void processCharacterData(Object data, boolean ignorable) throws StreamException {
+        if (skipCharacterData(data)) {
+            return;
+        }
         closeStartTag();
         if (data instanceof CharacterData) {
             try {
@@ -526,15 +752,12 @@ public final class Serializer implements XmlHandler, CharacterDataSink {
     @Override
     public void startElement(String namespaceURI, String localName, String prefix) throws StreamException {
         closeStartTag();
+        startChildMarkup();
         try
         {
             switchContext(TAG);
             writer.write('<');
-            if (!prefix.isEmpty()) {
-                writer.write(prefix);
-                writer.write(':');
-            }
-            writer.write(localName);
+            writer.writeName(prefix, localName);
         }
         catch (IOException e)
         {
@@ -549,6 +772,7 @@ public final class Serializer implements XmlHandler, CharacterDataSink {
         elementNameStack[2*depth+1] = localName;
         depth++;
         startTagOpen = true;
+        hasChildMarkup = false;
     }
 
     @Override
@@ -589,11 +813,7 @@ public final class Serializer implements XmlHandler, CharacterDataSink {
     private void writeAttribute(String prefix, String localName, String value) throws StreamException {
         try {
             writer.write(' ');
-            if (!prefix.isEmpty()) {
-                writer.write(prefix);
-                writer.write(':');
-            }
-            writer.write(localName);
+            writer.writeName(prefix, localName);
             writer.write("=\"");
             if (!value.isEmpty()) {
                 switchContext(ATTRIBUTE_VALUE);
@@ -640,14 +860,12 @@ public final class Serializer implements XmlHandler, CharacterDataSink {
                     writer.write("/>");
                 }
             } else {
+                if (hasChildMarkup && depth+1 < mixedContentDepth) {
+                    writeIndentation(depth);
+                }
                 switchContext(TAG);
                 writer.write("</");
-                String prefix = elementNameStack[2*depth];
-                if (!prefix.isEmpty()) {
-                    writer.write(prefix);
-                    writer.write(':');
-                }
-                writer.write(elementNameStack[2*depth+1]);
+                writer.writeName(elementNameStack[2*depth], elementNameStack[2*depth+1]);
                 writer.write('>');
                 switchContext(MIXED_CONTENT);
             }
@@ -655,11 +873,18 @@ public final class Serializer implements XmlHandler, CharacterDataSink {
             throw new StreamException(ex);
         }
         startTagOpen = false;
+        if (indent != 0) {
+            if (depth+1 == mixedContentDepth) {
+                mixedContentDepth = Integer.MAX_VALUE;
+            }
+            hasChildMarkup = true;
+        }
     }
 
     @Override
     public void startComment() throws StreamException {
         closeStartTag();
+        startChildMarkup();
         try {
             writer.write("<!--");
         } catch (IOException ex) {
@@ -704,10 +929,14 @@ public final class Serializer implements XmlHandler, CharacterDataSink {
         } catch (IOException ex) {
             throw new StreamException(ex);
         }
+        topLevelContentWritten = true;
     }
 
     @Override
     public void startCDATASection() throws StreamException {
+        if (indent != 0 && depth < mixedContentDepth) {
+            mixedContentDepth = depth;
+        }
         closeStartTag();
         try {
             writer.write("<![CDATA[");
@@ -738,6 +967,7 @@ public final class Serializer implements XmlHandler, CharacterDataSink {
     @Override
     public void startProcessingInstruction(String target) throws StreamException {
         closeStartTag();
+        startChildMarkup();
         switchContext(TAG);
         try {
             writer.write("<?");
@@ -838,6 +1068,9 @@ public final class Serializer implements XmlHandler, CharacterDataSink {
 
     @Override
     public void processEntityReference(String name, String replacementText) throws StreamException {
+        if (indent != 0 && depth < mixedContentDepth) {
+            mixedContentDepth = depth;
+        }
         closeStartTag();
         try {
             writer.write('&');
@@ -848,9 +1081,69 @@ public final class Serializer implements XmlHandler, CharacterDataSink {
         }
     }
 
+    /**
+     * Determine if markup decoded from the given charset can be written as is. This is the case
+     * if the output is a character stream, if the output charset is a Unicode charset or if both
+     * charsets are the same. In all other cases the source may contain characters that would
+     * have to be written as character references (which is not possible in names, comments,
+     * etc.).
+     */
+    private boolean canCopy(Charset sourceCharset) {
+        if (charset == null || charset.name().startsWith("UTF-")) {
+            return true;
+        } else {
+            return charset.equals(sourceCharset);
+        }
+    }
+
+    @Override
+    public boolean copySourceRange(SourceRange range) throws StreamException {
+        SourceText text = range.getText();
+        if (indent != 0 || !canCopy(text.getCharset())) {
+            return false;
+        }
+        closeStartTag();
+        char[] charsBuff = this.charsBuff;
+        if (charsBuff == null) {
+            this.charsBuff = charsBuff = BufferPool.getDefault().getCharArray();
+        }
+        int start = range.getStart();
+        int end = range.getEnd();
+        try {
+            while (start < end) {
+                int count = Math.min(end-start, charsBuff.length);
+                text.getChars(start, start+count, charsBuff, 0);
+                writer.write(charsBuff, 0, count);
+                start += count;
+            }
+        } catch (IOException ex) {
+            throw new StreamException(ex);
+        }
+        return true;
+    }
+
     @Override
     public void completed() throws StreamException {
         flushBuffer();
+        releaseCharsBuff();
+    }
+
+    /**
+     * Return the buffers borrowed from the {@link BufferPool} without writing any pending output.
+     * This method must be called if serialization is abandoned before {@link #completed()} is
+     * invoked; otherwise the buffers are not returned to the pool. The serializer must not be
+     * used afterwards. Calling this method after {@link #completed()} has no effect.
+     */
+    public void release() {
+        writer.release();
+        releaseCharsBuff();
+    }
+
+    private void releaseCharsBuff() {
+        if (charsBuff != null) {
+            BufferPool.getDefault().release(charsBuff);
+            charsBuff = null;
+        }
     }
 
     @Override
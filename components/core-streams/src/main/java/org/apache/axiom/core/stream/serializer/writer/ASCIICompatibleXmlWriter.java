@@ -19,25 +19,142 @@
 package org.apache.axiom.core.stream.serializer.writer;
 
 import java.io.IOException;
-import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
 
 import org.apache.axiom.util.base64.AbstractBase64EncodingOutputStream;
 
 abstract class ASCIICompatibleXmlWriter extends XmlWriter {
-    private final OutputStream out;
-    final byte[] buffer = new byte[4096];
+    private static final byte[] EMPTY = new byte[0];
+    
+    private final ByteBufferSink sink;
+    
+    /**
+     * The buffer obtained from the sink, or <code>null</code> if no buffer has been requested yet
+     * (or the last one has been passed back to the sink).
+     */
+    private ByteBuffer target;
+    
+    /**
+     * The position of {@link #target} when it was obtained from the sink.
+     */
+    private int targetStart;
+    
+    /**
+     * Indicates that {@link #target} doesn't have an accessible array and that {@link #buffer} is
+     * an intermediate buffer whose content needs to be copied to {@link #target}.
+     */
+    private boolean copy;
+    
+    /**
+     * The array bytes are written to. This is either the backing array of {@link #target} or an
+     * intermediate buffer borrowed from the {@link BufferPool}.
+     */
+    byte[] buffer = EMPTY;
+    
+    /**
+     * The position in {@link #buffer} where the data for the current buffer starts.
+     */
+    private int bufferStart;
+    
+    /**
+     * The position in {@link #buffer} where the next byte will be written.
+     */
     int bufferPosition;
+    
+    /**
+     * The position in {@link #buffer} where the current buffer ends.
+     */
+    int bufferLimit;
+    
     private char highSurrogate;
+    private final NameCache nameCache;
     
-    ASCIICompatibleXmlWriter(OutputStream out) {
-        this.out = out;
+    ASCIICompatibleXmlWriter(ByteBufferSink sink, NameCache nameCache) {
+        this.sink = sink;
+        this.nameCache = nameCache;
     }
 
     protected abstract void writeNonASCIICharacter(int codePoint) throws IOException;
 
+    /**
+     * Pass the data written so far to the sink (if the current buffer is full) and make sure
+     * that there is space for at least {@link ByteBufferSink#MIN_BUFFER_SIZE} bytes.
+     * 
+     * @throws IOException
+     */
+    private void nextBuffer() throws IOException {
+        if (target != null) {
+            if (copy) {
+                target.put(buffer, 0, bufferPosition);
+                bufferPosition = 0;
+                if (target.remaining() >= ByteBufferSink.MIN_BUFFER_SIZE) {
+                    bufferLimit = Math.min(buffer.length, target.remaining());
+                    return;
+                }
+            }
+            releaseTarget();
+        }
+        ByteBuffer target = sink.getBuffer();
+        int remaining = target.remaining();
+        if (remaining < ByteBufferSink.MIN_BUFFER_SIZE) {
+            throw new IllegalStateException("The buffer supplied by the sink is too small");
+        }
+        this.target = target;
+        targetStart = target.position();
+        copy = !target.hasArray();
+        if (copy) {
+            buffer = BufferPool.getDefault().getByteArray();
+            bufferStart = 0;
+            bufferLimit = Math.min(buffer.length, remaining);
+        } else {
+            buffer = target.array();
+            bufferStart = target.arrayOffset() + targetStart;
+            bufferLimit = bufferStart + remaining;
+        }
+        bufferPosition = bufferStart;
+    }
+
+    /**
+     * Pass the current buffer to the sink.
+     * 
+     * @throws IOException
+     */
+    private void releaseTarget() throws IOException {
+        ByteBuffer target = this.target;
+        // Casts ensure compatibility with Java 8.
+        if (copy) {
+            BufferPool.getDefault().release(buffer);
+            ((Buffer)target).limit(target.position());
+        } else {
+            ((Buffer)target).limit(bufferPosition - target.arrayOffset());
+        }
+        ((Buffer)target).position(targetStart);
+        this.target = null;
+        buffer = EMPTY;
+        bufferStart = 0;
+        bufferPosition = 0;
+        bufferLimit = 0;
+        sink.write(target);
+    }
+
+    /**
+     * Ensure that the buffer has space for at least the given number of bytes.
+     * 
+     * @param count
+     *            the number of bytes (must not be larger than
+     *            {@link ByteBufferSink#MIN_BUFFER_SIZE})
+     * @throws IOException
+     */
+    protected final void ensureCapacity(int count) throws IOException {
+        if (bufferLimit - bufferPosition < count) {
+            nextBuffer();
+        }
+    }
+
     protected final void writeByte(byte b) throws IOException {
-        if (bufferPosition == buffer.length) {
-            flushBuffer();
+        if (bufferPosition == bufferLimit) {
+            nextBuffer();
         }
         buffer[bufferPosition++] = b;
     }
@@ -45,8 +162,8 @@ abstract class ASCIICompatibleXmlWriter extends XmlWriter {
     @Override
     public final void write(char c) throws IOException {
         if (c < 128 && highSurrogate == 0) {
-            if (bufferPosition == buffer.length) {
-                flushBuffer();
+            if (bufferPosition == bufferLimit) {
+                nextBuffer();
             }
             buffer[bufferPosition++] = (byte)c;
         } else {
@@ -77,50 +194,91 @@ abstract class ASCIICompatibleXmlWriter extends XmlWriter {
 
     @Override
     public final void write(String s) throws IOException {
-        final byte[] buffer = this.buffer;
-        final int bufferLength = buffer.length;
-        int bufferPosition = this.bufferPosition;
-        int highSurrogate = this.highSurrogate;
-        for (int i=0, length=s.length(); i<length; i++) {
-            char c = s.charAt(i);
-            if (c < 128 && highSurrogate == 0) {
-                if (bufferPosition == bufferLength) {
-                    out.write(buffer, 0, bufferLength);
-                    bufferPosition = 0;
+        final int length = s.length();
+        int i = 0;
+        while (i < length) {
+            if (highSurrogate == 0) {
+                // Fast path: copy a run of ASCII characters. The loop bound is chosen so that
+                // no buffer overflow check is required for individual characters.
+                if (bufferPosition == bufferLimit) {
+                    nextBuffer();
+                }
+                final byte[] buffer = this.buffer;
+                final int bufferPosition = this.bufferPosition;
+                int end = i + Math.min(length-i, bufferLimit-bufferPosition);
+                int start = i;
+                while (i < end) {
+                    char c = s.charAt(i);
+                    if (c >= 128) {
+                        break;
+                    }
+                    buffer[bufferPosition + i - start] = (byte)c;
+                    i++;
+                }
+                this.bufferPosition = bufferPosition + i - start;
+                if (i == end) {
+                    continue;
                 }
-                buffer[bufferPosition++] = (byte)c;
-            } else {
-                this.bufferPosition = bufferPosition;
-                internalWrite(c);
-                bufferPosition = this.bufferPosition;
-                highSurrogate = this.highSurrogate;
             }
+            // Slow path: process a run of non ASCII characters
+            do {
+                internalWrite(s.charAt(i++));
+            } while (i < length && s.charAt(i) >= 128);
         }
-        this.bufferPosition = bufferPosition;
     }
 
     @Override
     public final void write(char[] chars, int start, int length) throws IOException {
-        final byte[] buffer = this.buffer;
-        final int bufferLength = buffer.length;
-        int bufferPosition = this.bufferPosition;
-        int highSurrogate = this.highSurrogate;
-        for (int i=0; i<length; i++) {
-            char c = chars[start+i];
-            if (c < 128 && highSurrogate == 0) {
-                if (bufferPosition == bufferLength) {
-                    out.write(buffer, 0, bufferLength);
-                    bufferPosition = 0;
+        int i = start;
+        final int end = start + length;
+        while (i < end) {
+            if (highSurrogate == 0) {
+                // Fast path: copy a run of ASCII characters. The loop bound is chosen so that
+                // no buffer overflow check is required for individual characters.
+                if (bufferPosition == bufferLimit) {
+                    nextBuffer();
+                }
+                final byte[] buffer = this.buffer;
+                final int bufferPosition = this.bufferPosition;
+                int runEnd = i + Math.min(end-i, bufferLimit-bufferPosition);
+                int runStart = i;
+                while (i < runEnd) {
+                    char c = chars[i];
+                    if (c >= 128) {
+                        break;
+                    }
+                    buffer[bufferPosition + i - runStart] = (byte)c;
+                    i++;
+                }
+                this.bufferPosition = bufferPosition + i - runStart;
+                if (i == runEnd) {
+                    continue;
                 }
-                buffer[bufferPosition++] = (byte)c;
-            } else {
-                this.bufferPosition = bufferPosition;
-                internalWrite(c);
-                bufferPosition = this.bufferPosition;
-                highSurrogate = this.highSurrogate;
             }
+            // Slow path: process a run of non ASCII characters
+            do {
+                internalWrite(chars[i++]);
+            } while (i < end && chars[i] >= 128);
+        }
+    }
+
+    @Override
+    public final void writeName(String prefix, String localName) throws IOException {
+        byte[] bytes = highSurrogate == 0 ? nameCache.get(prefix, localName) : null;
+        if (bytes == null) {
+            super.writeName(prefix, localName);
+        } else {
+            if (bufferLimit - bufferPosition < bytes.length) {
+                nextBuffer();
+                if (bufferLimit - bufferPosition < bytes.length) {
+                    // The buffers supplied by the sink are too small
+                    super.writeName(prefix, localName);
+                    return;
+                }
+            }
+            System.arraycopy(bytes, 0, buffer, bufferPosition, bytes.length);
+            bufferPosition += bytes.length;
         }
-        this.bufferPosition = bufferPosition;
     }
 
     @Override
@@ -128,9 +286,7 @@ abstract class ASCIICompatibleXmlWriter extends XmlWriter {
         return new AbstractBase64EncodingOutputStream() {
             @Override
             protected void doWrite(byte[] b) throws IOException {
-                if (buffer.length-bufferPosition < 4) {
-                    ASCIICompatibleXmlWriter.this.flushBuffer();
-                }
+                ensureCapacity(4);
                 System.arraycopy(b, 0, buffer, bufferPosition, 4);
                 bufferPosition += 4;
             }
@@ -151,7 +307,26 @@ abstract class ASCIICompatibleXmlWriter extends XmlWriter {
 
     @Override
     public final void flushBuffer() throws IOException {
-        out.write(buffer, 0, bufferPosition);
-        bufferPosition = 0;
+        if (target != null) {
+            if (copy) {
+                target.put(buffer, 0, bufferPosition);
+                bufferPosition = 0;
+            }
+            releaseTarget();
+        }
+    }
+
+    @Override
+    public final void release() {
+        if (target != null) {
+            if (copy) {
+                BufferPool.getDefault().release(buffer);
+            }
+            target = null;
+            buffer = EMPTY;
+            bufferStart = 0;
+            bufferPosition = 0;
+            bufferLimit = 0;
+        }
     }
 }
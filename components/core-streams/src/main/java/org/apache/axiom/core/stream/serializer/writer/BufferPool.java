@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.core.stream.serializer.writer;
+
+import java.lang.ref.SoftReference;
+
+/**
+ * Recycles the byte and character arrays used as buffers during serialization. Allocating these
+ * buffers for every serialization is a significant cost for small documents serialized at a high
+ * rate. Buffers are cached per thread, so that borrowing and returning a buffer doesn't require
+ * any synchronization. The cache is softly referenced and may be cleared by the garbage collector.
+ * <p>
+ * A buffer may be returned to the pool by a thread other than the one that borrowed it; it is then
+ * added to the cache of that thread. Returning a buffer is optional; buffers that are not returned
+ * are simply garbage collected.
+ */
+public final class BufferPool {
+    /**
+     * The name of the system property that specifies the buffer size used by the default pool.
+     */
+    public static final String BUFFER_SIZE_PROPERTY = "org.apache.axiom.core.stream.serializer.bufferSize";
+
+    /**
+     * The maximum number of buffers of each type cached per thread. A single serialization
+     * typically uses up to two buffers of the same type.
+     */
+    private static final int MAX_CACHED = 4;
+
+    private static final BufferPool DEFAULT = new BufferPool(
+            Math.max(Integer.getInteger(BUFFER_SIZE_PROPERTY, 4096), ByteBufferSink.MIN_BUFFER_SIZE));
+
+    private static final class Cache {
+        final byte[][] byteArrays = new byte[MAX_CACHED][];
+        int byteArrayCount;
+        final char[][] charArrays = new char[MAX_CACHED][];
+        int charArrayCount;
+    }
+
+    private final int bufferSize;
+    private final ThreadLocal<SoftReference<Cache>> caches = new ThreadLocal<SoftReference<Cache>>();
+
+    /**
+     * Constructor.
+     * 
+     * @param bufferSize
+     *            the size of the buffers managed by this pool; must be at least
+     *            {@link ByteBufferSink#MIN_BUFFER_SIZE}
+     */
+    public BufferPool(int bufferSize) {
+        if (bufferSize < ByteBufferSink.MIN_BUFFER_SIZE) {
+            throw new IllegalArgumentException("bufferSize must be at least " + ByteBufferSink.MIN_BUFFER_SIZE);
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Get the default pool. The buffer size of that pool is 4096 unless a different value is
+     * specified using the {@link #BUFFER_SIZE_PROPERTY} system property.
+     * 
+     * @return the default pool
+     */
+    public static BufferPool getDefault() {
+        return DEFAULT;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    private Cache getCache() {
+        SoftReference<Cache> ref = caches.get();
+        Cache cache = ref == null ? null : ref.get();
+        if (cache == null) {
+            cache = new Cache();
+            caches.set(new SoftReference<Cache>(cache));
+        }
+        return cache;
+    }
+
+    /**
+     * Borrow a byte array from the pool.
+     * 
+     * @return a byte array of length {@link #getBufferSize()}
+     */
+    public byte[] getByteArray() {
+        Cache cache = getCache();
+        if (cache.byteArrayCount == 0) {
+            return new byte[bufferSize];
+        } else {
+            int index = --cache.byteArrayCount;
+            byte[] array = cache.byteArrays[index];
+            cache.byteArrays[index] = null;
+            return array;
+        }
+    }
+
+    /**
+     * Return a byte array to the pool. The caller must not use the array afterwards.
+     * 
+     * @param array
+     *            the array; arrays not obtained from this pool are ignored
+     */
+    public void release(byte[] array) {
+        if (array.length == bufferSize) {
+            Cache cache = getCache();
+            if (cache.byteArrayCount < MAX_CACHED) {
+                cache.byteArrays[cache.byteArrayCount++] = array;
+            }
+        }
+    }
+
+    /**
+     * Borrow a character array from the pool.
+     * 
+     * @return a character array of length {@link #getBufferSize()}
+     */
+    public char[] getCharArray() {
+        Cache cache = getCache();
+        if (cache.charArrayCount == 0) {
+            return new char[bufferSize];
+        } else {
+            int index = --cache.charArrayCount;
+            char[] array = cache.charArrays[index];
+            cache.charArrays[index] = null;
+            return array;
+        }
+    }
+
+    /**
+     * Return a character array to the pool. The caller must not use the array afterwards.
+     * 
+     * @param array
+     *            the array; arrays not obtained from this pool are ignored
+     */
+    public void release(char[] array) {
+        if (array.length == bufferSize) {
+            Cache cache = getCache();
+            if (cache.charArrayCount < MAX_CACHED) {
+                cache.charArrays[cache.charArrayCount++] = array;
+            }
+        }
+    }
+}
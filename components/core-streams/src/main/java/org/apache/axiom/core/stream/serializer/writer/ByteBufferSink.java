@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.core.stream.serializer.writer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Receives the encoded output of an {@link XmlWriter} as a sequence of {@link ByteBuffer}s. The
+ * buffers are supplied by the sink itself, which allows the caller to control buffer allocation
+ * and to pass filled buffers to a transport without intermediate copies.
+ */
+public interface ByteBufferSink {
+    /**
+     * The minimum number of bytes that buffers returned by {@link #getBuffer()} must have
+     * remaining.
+     */
+    int MIN_BUFFER_SIZE = 64;
+
+    /**
+     * Get a buffer to write to. The writer fills the buffer starting at its current position and
+     * at most up to its limit. If the buffer is backed by an accessible array, the data is encoded
+     * directly into that array; otherwise the writer uses an intermediate buffer.
+     * 
+     * @return the buffer; must have at least {@link #MIN_BUFFER_SIZE} bytes remaining
+     * @throws IOException
+     */
+    ByteBuffer getBuffer() throws IOException;
+
+    /**
+     * Receive a buffer previously returned by {@link #getBuffer()}. When this method is called,
+     * the bytes between the position and the limit of the buffer are the bytes written by the
+     * writer. The writer will not access the buffer again. This method is called when the buffer
+     * is full or when {@link XmlWriter#flushBuffer()} is invoked; in the latter case the buffer may
+     * be empty.
+     * 
+     * @param buffer
+     *            the buffer containing the data
+     * @throws IOException
+     */
+    void write(ByteBuffer buffer) throws IOException;
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.core.stream.serializer.writer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link OutputStream} that writes to a {@link ByteBufferSink}. Data is passed to the sink at the
+ * end of each write operation, i.e. the stream doesn't buffer anything.
+ */
+public final class ByteBufferSinkOutputStream extends OutputStream {
+    private final ByteBufferSink sink;
+
+    public ByteBufferSinkOutputStream(ByteBufferSink sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ByteBuffer buffer = sink.getBuffer();
+        int start = buffer.position();
+        buffer.put((byte)b);
+        // Cast ensures compatibility with Java 8.
+        ((Buffer)buffer).limit(buffer.position());
+        ((Buffer)buffer).position(start);
+        sink.write(buffer);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            ByteBuffer buffer = sink.getBuffer();
+            int start = buffer.position();
+            int c = Math.min(len, buffer.remaining());
+            buffer.put(b, off, c);
+            // Cast ensures compatibility with Java 8.
+            ((Buffer)buffer).limit(buffer.position());
+            ((Buffer)buffer).position(start);
+            sink.write(buffer);
+            off += c;
+            len -= c;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.core.stream.serializer.writer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * {@link ByteBufferSink} that writes to a {@link WritableByteChannel}. The channel must be in
+ * blocking mode. Buffers are borrowed from the default {@link BufferPool} and returned as soon as
+ * their content has been written to the channel.
+ */
+public final class ChannelByteBufferSink implements ByteBufferSink {
+    private final WritableByteChannel channel;
+
+    /**
+     * Constructor.
+     * 
+     * @param channel
+     *            the channel to write to
+     */
+    public ChannelByteBufferSink(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public ByteBuffer getBuffer() {
+        return ByteBuffer.wrap(BufferPool.getDefault().getByteArray());
+    }
+
+    @Override
+    public void write(ByteBuffer buffer) throws IOException {
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } finally {
+            BufferPool.getDefault().release(buffer.array());
+        }
+    }
+}
@@ -19,14 +19,13 @@
 package org.apache.axiom.core.stream.serializer.writer;
 
 import java.io.IOException;
-import java.io.OutputStream;
 
 final class Latin1XmlWriter extends ASCIICompatibleXmlWriter {
     private final int maxChar;
     private UnmappableCharacterHandler unmappableCharacterHandler = UnmappableCharacterHandler.THROW_EXCEPTION;
 
-    Latin1XmlWriter(OutputStream out, int maxChar) {
-        super(out);
+    Latin1XmlWriter(ByteBufferSink sink, int maxChar) {
+        super(sink, maxChar == 127 ? NameCache.ASCII : NameCache.ISO_8859_1);
         this.maxChar = maxChar;
     }
 
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.core.stream.serializer.writer;
+
+import java.nio.charset.Charset;
+
+/**
+ * Cache of the encoded form of qualified names (<code>prefix:localName</code>) for a given
+ * ASCII compatible encoding. Instances are shared by all {@link XmlWriter}s using the same encoding
+ * so that the names that appear in a typical workload (which is usually limited to a few hundred
+ * distinct names) are only encoded once.
+ * <p>
+ * The cache is a direct mapped table without any locking: entries are immutable and a slot is
+ * simply overwritten on collision. Lookups compare strings by identity first, which makes them
+ * particularly cheap for interned names (e.g. names returned by parsers or string constants).
+ */
+final class NameCache {
+    private static final class Entry {
+        final String prefix;
+        final String localName;
+        final byte[] bytes;
+
+        Entry(String prefix, String localName, byte[] bytes) {
+            this.prefix = prefix;
+            this.localName = localName;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * The maximum length of names stored in the cache.
+     */
+    private static final int MAX_NAME_LENGTH = 128;
+
+    private static final int SIZE = 1024;
+
+    static final NameCache UTF8 = new NameCache(Charset.forName("UTF-8"), Character.MAX_VALUE);
+    static final NameCache ASCII = new NameCache(Charset.forName("US-ASCII"), 127);
+    static final NameCache ISO_8859_1 = new NameCache(Charset.forName("ISO-8859-1"), 255);
+
+    private final Charset charset;
+    private final int maxChar;
+    private final Entry[] entries = new Entry[SIZE];
+
+    private NameCache(Charset charset, int maxChar) {
+        this.charset = charset;
+        this.maxChar = maxChar;
+    }
+
+    /**
+     * Get the encoded form of the given qualified name.
+     * 
+     * @param prefix
+     *            the prefix (empty string if the name has no prefix)
+     * @param localName
+     *            the local name
+     * @return the encoded name, or <code>null</code> if the name can't be cached (because it
+     *         contains characters that are not mappable or because it is too long)
+     */
+    byte[] get(String prefix, String localName) {
+        int index = (prefix.hashCode()*31 + localName.hashCode()) & (SIZE-1);
+        Entry entry = entries[index];
+        if (entry != null
+                && (entry.localName == localName || entry.localName.equals(localName))
+                && (entry.prefix == prefix || entry.prefix.equals(prefix))) {
+            return entry.bytes;
+        }
+        byte[] bytes = encode(prefix, localName);
+        if (bytes != null) {
+            entries[index] = new Entry(prefix, localName, bytes);
+        }
+        return bytes;
+    }
+
+    private byte[] encode(String prefix, String localName) {
+        if (prefix.length() + localName.length() >= MAX_NAME_LENGTH
+                || !isMappable(prefix) || !isMappable(localName)) {
+            return null;
+        }
+        return (prefix.isEmpty() ? localName : prefix + ":" + localName).getBytes(charset);
+    }
+
+    private boolean isMappable(String s) {
+        for (int i=0, length=s.length(); i<length; i++) {
+            char c = s.charAt(i);
+            if (c > maxChar || Character.isSurrogate(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
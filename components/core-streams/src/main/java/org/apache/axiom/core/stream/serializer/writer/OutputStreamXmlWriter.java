@@ -31,8 +31,17 @@ import org.apache.axiom.util.base64.AbstractBase64EncodingOutputStream;
 
 final class OutputStreamXmlWriter extends XmlWriter {
     private final OutputStream out;
-    private final CharBuffer encoderIn;
-    private final ByteBuffer encoderOut;
+    
+    /**
+     * The buffer for characters to be encoded. This buffer is borrowed from the
+     * {@link BufferPool} when needed and returned by {@link #flushBuffer()}.
+     */
+    private CharBuffer encoderIn;
+    
+    /**
+     * The buffer for encoded bytes. This buffer has the same life cycle as {@link #encoderIn}.
+     */
+    private ByteBuffer encoderOut;
     private final CharsetEncoder encoder;
     private UnmappableCharacterHandler unmappableCharacterHandler = UnmappableCharacterHandler.THROW_EXCEPTION;
     private boolean processingUnmappableCharacter;
@@ -40,8 +49,6 @@ final class OutputStreamXmlWriter extends XmlWriter {
 
     OutputStreamXmlWriter(OutputStream out, Charset charset) {
         this.out = out;
-        encoderIn = CharBuffer.allocate(4096);
-        encoderOut = ByteBuffer.allocate(4096);
         encoder = charset.newEncoder();
     }
 
@@ -58,6 +65,11 @@ final class OutputStreamXmlWriter extends XmlWriter {
             }
             return encoderInAlt;
         } else {
+            if (encoderIn == null) {
+                BufferPool pool = BufferPool.getDefault();
+                encoderIn = CharBuffer.wrap(pool.getCharArray());
+                encoderOut = ByteBuffer.wrap(pool.getByteArray());
+            }
             return encoderIn;
         }
     }
@@ -100,7 +112,9 @@ final class OutputStreamXmlWriter extends XmlWriter {
     @Override
     public void setUnmappableCharacterHandler(UnmappableCharacterHandler unmappableCharacterHandler) throws IOException {
         if (unmappableCharacterHandler != this.unmappableCharacterHandler) {
-            flush(encoderIn);
+            if (encoderIn != null) {
+                flush(encoderIn);
+            }
             this.unmappableCharacterHandler = unmappableCharacterHandler;
         }
     }
@@ -124,7 +138,7 @@ final class OutputStreamXmlWriter extends XmlWriter {
                 flush(encoderIn);
             }
             int c = Math.min(length, encoderIn.remaining());
-            encoderIn.put(src, offset, length);
+            encoderIn.put(src, offset, offset+c);
             offset += c;
             length -= c;
         }
@@ -138,7 +152,7 @@ final class OutputStreamXmlWriter extends XmlWriter {
                 flush(encoderIn);
             }
             int c = Math.min(length, encoderIn.remaining());
-            encoderIn.put(src, offset, length);
+            encoderIn.put(src, offset, c);
             offset += c;
             length -= c;
         }
@@ -174,7 +188,28 @@ final class OutputStreamXmlWriter extends XmlWriter {
 
     @Override
     public void flushBuffer() throws IOException {
-        flush(encoderIn);
-        flushEncodingOut();
+        if (encoderIn != null) {
+            flush(encoderIn);
+            flushEncodingOut();
+            // Keep the buffers if there is an incomplete surrogate pair
+            if (encoderIn.position() == 0) {
+                BufferPool pool = BufferPool.getDefault();
+                pool.release(encoderIn.array());
+                pool.release(encoderOut.array());
+                encoderIn = null;
+                encoderOut = null;
+            }
+        }
+    }
+
+    @Override
+    public void release() {
+        if (encoderIn != null) {
+            BufferPool pool = BufferPool.getDefault();
+            pool.release(encoderIn.array());
+            pool.release(encoderOut.array());
+            encoderIn = null;
+            encoderOut = null;
+        }
     }
 }
@@ -19,11 +19,10 @@
 package org.apache.axiom.core.stream.serializer.writer;
 
 import java.io.IOException;
-import java.io.OutputStream;
 
 final class UTF8XmlWriter extends ASCIICompatibleXmlWriter {
-    UTF8XmlWriter(OutputStream out) {
-        super(out);
+    UTF8XmlWriter(ByteBufferSink sink) {
+        super(sink, NameCache.UTF8);
     }
 
     @Override
@@ -33,18 +32,23 @@ final class UTF8XmlWriter extends ASCIICompatibleXmlWriter {
 
     @Override
     protected void writeNonASCIICharacter(int codePoint) throws IOException {
+        // Encode the character directly into the buffer
+        ensureCapacity(4);
+        final byte[] buffer = this.buffer;
+        int pos = bufferPosition;
         if (codePoint < 0x800) {
-            writeByte((byte)(0xc0 + (codePoint >> 6)));
-            writeByte((byte)(0x80 + (codePoint & 0x3f)));
+            buffer[pos++] = (byte)(0xc0 + (codePoint >> 6));
+            buffer[pos++] = (byte)(0x80 + (codePoint & 0x3f));
         } else if (codePoint < 0x10000) {
-            writeByte((byte)(0xe0 + (codePoint >> 12)));
-            writeByte((byte)(0x80 + ((codePoint >> 6) & 0x3f)));
-            writeByte((byte)(0x80 + (codePoint & 0x3f)));
+            buffer[pos++] = (byte)(0xe0 + (codePoint >> 12));
+            buffer[pos++] = (byte)(0x80 + ((codePoint >> 6) & 0x3f));
+            buffer[pos++] = (byte)(0x80 + (codePoint & 0x3f));
         } else {
-            writeByte((byte)(0xf0 + (codePoint >> 18)));
-            writeByte((byte)(0x80 + ((codePoint >> 12) & 0x3f)));
-            writeByte((byte)(0x80 + ((codePoint >> 6) & 0x3f)));
-            writeByte((byte)(0x80 + (codePoint & 0x3f)));
+            buffer[pos++] = (byte)(0xf0 + (codePoint >> 18));
+            buffer[pos++] = (byte)(0x80 + ((codePoint >> 12) & 0x3f));
+            buffer[pos++] = (byte)(0x80 + ((codePoint >> 6) & 0x3f));
+            buffer[pos++] = (byte)(0x80 + (codePoint & 0x3f));
         }
+        bufferPosition = pos;
     }
 }
@@ -27,15 +27,36 @@ import org.apache.axiom.util.base64.AbstractBase64EncodingOutputStream;
 public abstract class XmlWriter {
     public static XmlWriter create(OutputStream out, String encoding) {
         Charset charset = Charset.forName(encoding);
+        XmlWriter writer = createASCIICompatibleXmlWriter(new OutputStreamByteBufferSink(out), charset);
+        return writer != null ? writer : new OutputStreamXmlWriter(out, charset);
+    }
+
+    /**
+     * Create a writer that passes its output to a {@link ByteBufferSink}. Note that data is only
+     * guaranteed to be passed to the sink after a call to {@link #flushBuffer()}.
+     * 
+     * @param sink
+     *            the sink
+     * @param encoding
+     *            the charset encoding
+     * @return the writer
+     */
+    public static XmlWriter create(ByteBufferSink sink, String encoding) {
+        Charset charset = Charset.forName(encoding);
+        XmlWriter writer = createASCIICompatibleXmlWriter(sink, charset);
+        return writer != null ? writer : new OutputStreamXmlWriter(new ByteBufferSinkOutputStream(sink), charset);
+    }
+
+    private static XmlWriter createASCIICompatibleXmlWriter(ByteBufferSink sink, Charset charset) {
         String name = charset.name();
         if (name.equals("UTF-8")) {
-            return new UTF8XmlWriter(out);
+            return new UTF8XmlWriter(sink);
         } else if (name.equals("US-ASCII")) {
-            return new Latin1XmlWriter(out, 127);
+            return new Latin1XmlWriter(sink, 127);
         } else if (name.equals("ISO-8859-1")) {
-            return new Latin1XmlWriter(out, 255);
+            return new Latin1XmlWriter(sink, 255);
         } else {
-            return new OutputStreamXmlWriter(out, charset);
+            return null;
         }
     }
 
@@ -44,6 +65,23 @@ public abstract class XmlWriter {
     public abstract void write(String s) throws IOException;
     public abstract void write(char chars[], int start, int length) throws IOException;
 
+    /**
+     * Write a qualified name, i.e. an element or attribute name with an optional prefix.
+     * 
+     * @param prefix
+     *            the prefix, or an empty string if the name has no prefix
+     * @param localName
+     *            the local name
+     * @throws IOException
+     */
+    public void writeName(String prefix, String localName) throws IOException {
+        if (!prefix.isEmpty()) {
+            write(prefix);
+            write(':');
+        }
+        write(localName);
+    }
+
     public abstract AbstractBase64EncodingOutputStream getBase64EncodingOutputStream();
 
     /**
@@ -53,6 +91,13 @@ public abstract class XmlWriter {
      */
     public abstract void flushBuffer() throws IOException;
     
+    /**
+     * Return any buffers borrowed from the {@link BufferPool} without writing pending data. This is
+     * used when serialization is abandoned. The writer must not be used afterwards.
+     */
+    public void release() {
+    }
+    
     public final void writeCharacterReference(int codePoint) throws IOException {
         write("&#");
         // TODO: optimize this
@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.core.stream.source;
+
+import org.apache.axiom.core.stream.StreamException;
+import org.apache.axiom.core.stream.XmlHandler;
+
+/**
+ * Optional interface implemented by {@link XmlHandler} implementations that are able to copy the
+ * original markup of an element instead of receiving the corresponding sequence of events.
+ */
+public interface SourceCopyingHandler extends XmlHandler {
+    /**
+     * Copy the markup of an element. If the method returns <code>true</code>, then the call
+     * replaces the events for the element (from {@link XmlHandler#startElement(String, String, String)}
+     * to {@link XmlHandler#endElement()}). If the method returns <code>false</code>, then the
+     * handler was unable to copy the markup (e.g. because it uses an incompatible output
+     * encoding), nothing has been written and the caller must produce the events.
+     * 
+     * @param range
+     *            the (complete) source range of the element
+     * @return <code>true</code> if the markup has been copied, <code>false</code> otherwise
+     * @throws StreamException
+     */
+    boolean copySourceRange(SourceRange range) throws StreamException;
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.core.stream.source;
+
+/**
+ * Identifies the part of a {@link SourceText} that contains the markup of a given element, from
+ * the <code>&lt;</code> of its start tag to the <code>&gt;</code> of its end tag (inclusive). The
+ * range is created when the start tag is read and is completed when the end tag has been read.
+ */
+public final class SourceRange {
+    private final SourceText text;
+    private final int start;
+    private int end = -1;
+
+    public SourceRange(SourceText text, int start) {
+        this.text = text;
+        this.start = start;
+    }
+
+    public SourceText getText() {
+        return text;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Get the end of the range.
+     * 
+     * @return the index after the last character of the range, or -1 if the range is not
+     *         complete yet
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    public void setEnd(int end) {
+        this.end = end;
+    }
+
+    public boolean isComplete() {
+        return end != -1;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.core.stream.source;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * {@link Reader} wrapper that records all characters read from the underlying reader in a
+ * {@link SourceText}.
+ */
+public final class SourceRecordingReader extends Reader {
+    private final Reader parent;
+    private final SourceText text;
+
+    public SourceRecordingReader(Reader parent, SourceText text) {
+        this.parent = parent;
+        this.text = text;
+    }
+
+    /**
+     * Get the text recorded by this reader.
+     * 
+     * @return the recorded text
+     */
+    public SourceText getText() {
+        return text;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        int c = parent.read(cbuf, off, len);
+        if (c > 0) {
+            text.append(cbuf, off, c);
+        }
+        return c;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parent.close();
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.core.stream.source;
+
+import java.nio.charset.Charset;
+
+/**
+ * Stores the (decoded) characters of an XML document as they are read by the parser, so that
+ * unmodified parts of the document can later be copied to the output without reconstructing them
+ * from events. The characters are stored in fixed size chunks so that appending never requires
+ * copying data that has already been recorded.
+ */
+public final class SourceText {
+    private static final int CHUNK_SHIFT = 13;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final Charset charset;
+    private char[][] chunks = new char[4][];
+    private int length;
+
+    /**
+     * Constructor.
+     * 
+     * @param charset
+     *            the charset the document was encoded in, or <code>null</code> if the document
+     *            was read from a character stream
+     */
+    public SourceText(Charset charset) {
+        this.charset = charset;
+    }
+
+    /**
+     * Get the charset the document was encoded in.
+     * 
+     * @return the charset, or <code>null</code> if the document was read from a character stream
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException();
+        }
+        return chunks[index >> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    /**
+     * Copy characters from this text into a destination array.
+     * 
+     * @param start
+     *            the index of the first character to copy
+     * @param end
+     *            the index after the last character to copy
+     * @param dst
+     *            the destination array
+     * @param dstBegin
+     *            the start offset in the destination array
+     */
+    public void getChars(int start, int end, char[] dst, int dstBegin) {
+        if (start < 0 || start > end || end > length) {
+            throw new IndexOutOfBoundsException();
+        }
+        while (start < end) {
+            int offset = start & CHUNK_MASK;
+            int count = Math.min(end - start, CHUNK_SIZE - offset);
+            System.arraycopy(chunks[start >> CHUNK_SHIFT], offset, dst, dstBegin, count);
+            start += count;
+            dstBegin += count;
+        }
+    }
+
+    public void append(char[] src, int offset, int len) {
+        while (len > 0) {
+            int chunk = length >> CHUNK_SHIFT;
+            if (chunk == chunks.length) {
+                char[][] newChunks = new char[chunks.length*2][];
+                System.arraycopy(chunks, 0, newChunks, 0, chunks.length);
+                chunks = newChunks;
+            }
+            if (chunks[chunk] == null) {
+                chunks[chunk] = new char[CHUNK_SIZE];
+            }
+            int chunkOffset = length & CHUNK_MASK;
+            int count = Math.min(len, CHUNK_SIZE - chunkOffset);
+            System.arraycopy(src, offset, chunks[chunk], chunkOffset, count);
+            offset += count;
+            len -= count;
+            length += count;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.core.stream.source;
+
+import org.apache.axiom.core.stream.StreamException;
+import org.apache.axiom.core.stream.XmlHandler;
+
+/**
+ * Optional interface implemented by {@link XmlHandler} implementations that want to be informed
+ * about the location of elements in the original input.
+ */
+public interface SourceTrackingHandler extends XmlHandler {
+    /**
+     * Notify the handler about the source range of the element that has just been started. This
+     * method is called after {@link XmlHandler#startElement(String, String, String)}. The range
+     * is completed by the time the corresponding {@link XmlHandler#endElement()} call is made.
+     * 
+     * @param range
+     *            the source range of the element
+     * @throws StreamException
+     */
+    void processSourceRange(SourceRange range) throws StreamException;
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.core.stream.c14n;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.apache.axiom.testing.multiton.Multiton.getInstances;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+import javax.xml.crypto.OctetStreamData;
+import javax.xml.crypto.dsig.TransformService;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.axiom.core.stream.XmlReader;
+import org.apache.axiom.core.stream.dom.DOMInput;
+import org.apache.axiom.testutils.suite.MatrixTestCase;
+import org.apache.axiom.testutils.suite.MatrixTestSuiteBuilder;
+import org.apache.axiom.ts.xml.XMLSample;
+import org.w3c.dom.Document;
+
+import junit.framework.TestSuite;
+
+/**
+ * Compares the output of {@link C14NSerializer} with the canonicalization implementation of the
+ * JRE.
+ */
+public class C14NConformanceTest extends MatrixTestCase {
+    private final XMLSample sample;
+    private final C14NAlgorithm algorithm;
+
+    public C14NConformanceTest(XMLSample sample, C14NAlgorithm algorithm) {
+        this.sample = sample;
+        this.algorithm = algorithm;
+        addTestParameter("sample", sample.getName());
+        addTestParameter("algorithm", algorithm.name());
+    }
+
+    @Override
+    protected void runTest() throws Throwable {
+        TransformService transform = TransformService.getInstance(algorithm.getURI(), "DOM");
+        transform.init(null);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        InputStream in = sample.getInputStream();
+        try {
+            InputStream result = ((OctetStreamData)transform.transform(new OctetStreamData(in), null)).getOctetStream();
+            byte[] buffer = new byte[4096];
+            int c;
+            while ((c = result.read(buffer)) != -1) {
+                expected.write(buffer, 0, c);
+            }
+        } finally {
+            in.close();
+        }
+        
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document document = factory.newDocumentBuilder().parse(sample.getUrl().toString());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XmlReader reader = new DOMInput(document, false).createReader(new C14NSerializer(out, algorithm, null));
+        while (!reader.proceed()) {
+            // Just loop
+        }
+        assertThat(new String(out.toByteArray(), "UTF-8")).isEqualTo(new String(expected.toByteArray(), "UTF-8"));
+    }
+
+    public static TestSuite suite() {
+        return new MatrixTestSuiteBuilder() {
+            @Override
+            protected void addTests() {
+                for (XMLSample sample : getInstances(XMLSample.class)) {
+                    // The reference implementation can't resolve external subsets
+                    if (sample.hasExternalSubset()) {
+                        continue;
+                    }
+                    for (C14NAlgorithm algorithm : C14NAlgorithm.values()) {
+                        addTest(new C14NConformanceTest(sample, algorithm));
+                    }
+                }
+            }
+        }.build();
+    }
+}
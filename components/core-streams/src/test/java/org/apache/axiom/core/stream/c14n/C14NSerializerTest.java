@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.core.stream.c14n;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collection;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.axiom.core.stream.XmlReader;
+import org.apache.axiom.core.stream.dom.DOMInput;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+public class C14NSerializerTest {
+    private static String canonicalize(String xml, C14NAlgorithm algorithm, Collection<String> inclusivePrefixes) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document document = factory.newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XmlReader reader = new DOMInput(document, false).createReader(new C14NSerializer(out, algorithm, inclusivePrefixes));
+        while (!reader.proceed()) {
+            // Just loop
+        }
+        return new String(out.toByteArray(), "UTF-8");
+    }
+
+    @Test
+    public void testSuperfluousNamespaceDeclarations() throws Exception {
+        assertThat(canonicalize(
+                "<a xmlns='urn:a' xmlns:p='urn:p'><b xmlns='urn:a' xmlns:p='urn:p'><c xmlns=''/></b></a>",
+                C14NAlgorithm.INCLUSIVE, null)).isEqualTo(
+                "<a xmlns=\"urn:a\" xmlns:p=\"urn:p\"><b><c xmlns=\"\"></c></b></a>");
+    }
+
+    @Test
+    public void testExclusiveOnlyRendersVisiblyUsedPrefixes() throws Exception {
+        assertThat(canonicalize(
+                "<p:a xmlns:p='urn:p' xmlns:q='urn:q' xmlns:r='urn:r'><b q:x='1'/></p:a>",
+                C14NAlgorithm.EXCLUSIVE, null)).isEqualTo(
+                "<p:a xmlns:p=\"urn:p\"><b xmlns:q=\"urn:q\" q:x=\"1\"></b></p:a>");
+    }
+
+    @Test
+    public void testInclusivePrefixList() throws Exception {
+        assertThat(canonicalize(
+                "<p:a xmlns:p='urn:p' xmlns:q='urn:q' xmlns='urn:d'><p:b/></p:a>",
+                C14NAlgorithm.EXCLUSIVE, Arrays.asList("q", "#default"))).isEqualTo(
+                "<p:a xmlns=\"urn:d\" xmlns:p=\"urn:p\" xmlns:q=\"urn:q\"><p:b></p:b></p:a>");
+    }
+
+    @Test
+    public void testAttributeOrderAndEscaping() throws Exception {
+        assertThat(canonicalize(
+                "<a xmlns:y='urn:b' xmlns:x='urn:a' y:z='1' b='&lt;&quot;&#9;&#10;&gt;' x:z='2' a='&amp;'>&lt;&gt;&amp;&#13;\"</a>",
+                C14NAlgorithm.INCLUSIVE, null)).isEqualTo(
+                "<a xmlns:x=\"urn:a\" xmlns:y=\"urn:b\" a=\"&amp;\" b=\"&lt;&quot;&#x9;&#xA;>\" x:z=\"2\" y:z=\"1\">&lt;&gt;&amp;&#xD;\"</a>");
+    }
+
+    @Test
+    public void testCommentsAndProcessingInstructionsOutsideDocumentElement() throws Exception {
+        String xml = "<?pi1 data?><!--c1--><a><!--c2--><?pi2?></a><!--c3-->";
+        assertThat(canonicalize(xml, C14NAlgorithm.INCLUSIVE_WITH_COMMENTS, null)).isEqualTo(
+                "<?pi1 data?>\n<!--c1-->\n<a><!--c2--><?pi2?></a>\n<!--c3-->");
+        assertThat(canonicalize(xml, C14NAlgorithm.INCLUSIVE, null)).isEqualTo(
+                "<?pi1 data?>\n<a><?pi2?></a>");
+    }
+
+    @Test
+    public void testCommentsAndProcessingInstructionsNotEscaped() throws Exception {
+        assertThat(canonicalize("<a><!--x < y & z > w--><?pi a<b&c>d?></a>",
+                C14NAlgorithm.INCLUSIVE_WITH_COMMENTS, null)).isEqualTo(
+                "<a><!--x < y & z > w--><?pi a<b&c>d?></a>");
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.core.stream.digest;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.apache.axiom.testing.multiton.Multiton.getInstances;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.axiom.core.stream.XmlReader;
+import org.apache.axiom.core.stream.dom.DOMInput;
+import org.apache.axiom.testutils.suite.MatrixTestCase;
+import org.apache.axiom.testutils.suite.MatrixTestSuiteBuilder;
+import org.apache.axiom.ts.xml.XMLSample;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.ProcessingInstruction;
+import org.w3c.dom.Text;
+
+import junit.framework.TestSuite;
+
+/**
+ * Compares the output of {@link DigestHandler} with a straightforward recursive DOMHASH
+ * implementation on DOM.
+ */
+public class DigestHandlerTest extends MatrixTestCase {
+    private final XMLSample sample;
+    private final String algorithm;
+
+    public DigestHandlerTest(XMLSample sample, String algorithm) {
+        this.sample = sample;
+        this.algorithm = algorithm;
+        addTestParameter("sample", sample.getName());
+        addTestParameter("algorithm", algorithm);
+    }
+
+    private static String getExpandedName(Node node) {
+        String namespaceURI = node.getNamespaceURI();
+        String localName = node.getLocalName();
+        if (localName == null) {
+            localName = node.getNodeName();
+        }
+        return namespaceURI == null ? localName : namespaceURI + ":" + localName;
+    }
+    
+    private byte[] digest(int type, String... strings) throws Exception {
+        MessageDigest md = MessageDigest.getInstance(algorithm);
+        md.update(new byte[] { 0, 0, 0, (byte)type });
+        for (int i=0; i<strings.length; i++) {
+            if (i > 0) {
+                md.update(new byte[2]);
+            }
+            md.update(strings[i].getBytes("UTF-16BE"));
+        }
+        return md.digest();
+    }
+    
+    private byte[] getReferenceDigest(Node node) throws Exception {
+        switch (node.getNodeType()) {
+            case Node.DOCUMENT_NODE:
+            case Node.ELEMENT_NODE: {
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                DataOutputStream dos = new DataOutputStream(baos);
+                boolean isDocument = node.getNodeType() == Node.DOCUMENT_NODE;
+                if (isDocument) {
+                    dos.writeInt(9);
+                } else {
+                    dos.writeInt(1);
+                    dos.write(getExpandedName(node).getBytes("UTF-16BE"));
+                    dos.write(new byte[2]);
+                    Map<String,Attr> sortedAttributes = new TreeMap<String,Attr>();
+                    NamedNodeMap attributes = node.getAttributes();
+                    for (int i=0; i<attributes.getLength(); i++) {
+                        Attr attr = (Attr)attributes.item(i);
+                        if (!"http://www.w3.org/2000/xmlns/".equals(attr.getNamespaceURI())) {
+                            sortedAttributes.put(getExpandedName(attr), attr);
+                        }
+                    }
+                    dos.writeInt(sortedAttributes.size());
+                    for (Map.Entry<String,Attr> entry : sortedAttributes.entrySet()) {
+                        dos.write(digest(2, entry.getKey(), entry.getValue().getValue()));
+                    }
+                }
+                ByteArrayOutputStream children = new ByteArrayOutputStream();
+                int count = 0;
+                for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+                    switch (child.getNodeType()) {
+                        case Node.CDATA_SECTION_NODE:
+                            // Counted, but without digest (for compatibility with DigestGenerator)
+                            if (!isDocument) {
+                                count++;
+                            }
+                            break;
+                        case Node.TEXT_NODE:
+                            if (isDocument) {
+                                break;
+                            }
+                            if (((Text)child).isElementContentWhitespace()) {
+                                count++;
+                                break;
+                            }
+                            // Fall through
+                        case Node.ELEMENT_NODE:
+                        case Node.PROCESSING_INSTRUCTION_NODE:
+                            children.write(getReferenceDigest(child));
+                            count++;
+                    }
+                }
+                dos.writeInt(count);
+                dos.write(children.toByteArray());
+                dos.close();
+                return MessageDigest.getInstance(algorithm).digest(baos.toByteArray());
+            }
+            case Node.TEXT_NODE:
+                return digest(3, node.getNodeValue());
+            case Node.PROCESSING_INSTRUCTION_NODE:
+                ProcessingInstruction pi = (ProcessingInstruction)node;
+                return digest(7, pi.getTarget(), pi.getData());
+            default:
+                throw new IllegalArgumentException();
+        }
+    }
+    
+    private byte[] getDigest(Node node) throws Exception {
+        DigestHandler handler = new DigestHandler(algorithm);
+        XmlReader reader = new DOMInput(node, false).createReader(handler);
+        while (!reader.proceed()) {
+            // Just loop
+        }
+        return handler.getDigest();
+    }
+    
+    @Override
+    protected void runTest() throws Throwable {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document document = factory.newDocumentBuilder().parse(sample.getUrl().toString());
+        assertThat(getDigest(document)).isEqualTo(getReferenceDigest(document));
+        assertThat(getDigest(document.getDocumentElement())).isEqualTo(getReferenceDigest(document.getDocumentElement()));
+    }
+
+    public static TestSuite suite() {
+        return new MatrixTestSuiteBuilder() {
+            @Override
+            protected void addTests() {
+                for (XMLSample sample : getInstances(XMLSample.class)) {
+                    for (String algorithm : new String[] { "MD5", "SHA1" }) {
+                        addTest(new DigestHandlerTest(sample, algorithm));
+                    }
+                }
+            }
+        }.build();
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.core.stream.parser;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+
+import org.apache.axiom.core.stream.StreamException;
+import org.apache.axiom.core.stream.XmlReader;
+import org.apache.axiom.core.stream.serializer.Serializer;
+import org.junit.Test;
+
+public class XmlParserReaderTest {
+    /**
+     * Input stream that returns at most 3 bytes per read operation, so that every construct
+     * spans multiple buffer refills.
+     */
+    private static class TrickleInputStream extends FilterInputStream {
+        private int count;
+
+        TrickleInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return super.read(b, off, Math.min(len, 1 + count++ % 3));
+        }
+    }
+
+    private static String parse(InputStream in) throws Exception {
+        XmlParserInput input = XmlParserInput.create(new BufferedInputStream(in), null);
+        assertThat(input).isNotNull();
+        StringWriter sw = new StringWriter();
+        XmlReader reader = input.createReader(new Serializer(sw));
+        while (!reader.proceed()) {
+            // Just loop
+        }
+        return sw.toString();
+    }
+
+    private static String parse(String xml) throws Exception {
+        return parse(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><!--comment--><p:root xmlns:p=\"urn:p\" xmlns=\"urn:d\" p:a=\"1\" b=\"2\">"
+                + "<?pi data?><child>text</child><![CDATA[<cdata>]]><empty/></p:root><?pi2 data?>";
+        assertThat(parse(xml)).isEqualTo(xml);
+    }
+
+    @Test
+    public void testSmallReads() throws Exception {
+        StringBuilder xml = new StringBuilder("<root xmlns:ns=\"urn:some:namespace\">");
+        for (int i=0; i<100; i++) {
+            xml.append("<ns:element-with-a-long-name attribute-with-a-long-name=\"value ").append(i)
+                    .append("\">text \u00E9\u20AC\uD83D\uDE00 ").append(i).append("</ns:element-with-a-long-name>");
+        }
+        xml.append("</root>");
+        assertThat(parse(new TrickleInputStream(new ByteArrayInputStream(xml.toString().getBytes("UTF-8")))))
+                .isEqualTo("<?xml version=\"1.0\"?>" + xml);
+    }
+
+    @Test
+    public void testReferences() throws Exception {
+        assertThat(parse("<a b='&lt;&#65;&#x42;'>&amp;&gt;&apos;&quot;&#x1F600;</a>"))
+                .isEqualTo("<?xml version=\"1.0\"?><a b=\"&lt;AB\">&amp;>'\"\uD83D\uDE00</a>");
+    }
+
+    @Test
+    public void testLineEndNormalization() throws Exception {
+        assertThat(parse("<a>1\r\n2\r3\n</a>")).isEqualTo("<?xml version=\"1.0\"?><a>1\n2\n3\n</a>");
+    }
+
+    @Test
+    public void testAttributeValueNormalization() throws Exception {
+        assertThat(parse("<a b='1\r\n2\t3&#10;'/>")).isEqualTo("<?xml version=\"1.0\"?><a b=\"1 2 3&#10;\"/>");
+    }
+
+    @Test
+    public void testISO88591() throws Exception {
+        assertThat(parse(new ByteArrayInputStream(
+                "<?xml version='1.0' encoding='ISO-8859-1'?><a>\u00E9</a>".getBytes("ISO-8859-1"))))
+                .endsWith("<a>\u00E9</a>");
+    }
+
+    @Test
+    public void testByteOrderMark() throws Exception {
+        assertThat(parse("\uFEFF<a/>")).isEqualTo("<?xml version=\"1.0\"?><a/>");
+    }
+
+    @Test(expected=StreamException.class)
+    public void testUndeclaredPrefix() throws Exception {
+        parse("<p:a/>");
+    }
+
+    @Test(expected=StreamException.class)
+    public void testMismatchedEndTag() throws Exception {
+        parse("<a><b></a></b>");
+    }
+
+    @Test(expected=StreamException.class)
+    public void testUndeclaredEntity() throws Exception {
+        parse("<a>&foo;</a>");
+    }
+
+    @Test(expected=StreamException.class)
+    public void testDuplicateAttribute() throws Exception {
+        parse("<a xmlns:p='urn:x' xmlns:q='urn:x' p:b='1' q:b='2'/>");
+    }
+
+    @Test
+    public void testUnsupportedEncoding() throws Exception {
+        InputStream in = new BufferedInputStream(new ByteArrayInputStream("<?xml version='1.0'?><a/>".getBytes("UTF-16")));
+        assertThat(XmlParserInput.create(in, null)).isNull();
+        // The stream must have been reset
+        assertThat(in.read()).isEqualTo(0xFE);
+    }
+
+    @Test
+    public void testDocumentTypeDeclaration() throws Exception {
+        InputStream in = new BufferedInputStream(new ByteArrayInputStream("<!DOCTYPE a><a/>".getBytes("UTF-8")));
+        assertThat(XmlParserInput.create(in, null)).isNull();
+    }
+
+    /**
+     * Tests that a document type declaration that is not detected by
+     * {@link XmlParserInput#create(InputStream, String)} is reported if it has no internal subset.
+     */
+    @Test
+    public void testLateDocumentTypeDeclaration() throws Exception {
+        String comment = "<!--" + repeat('x', 600) + "-->";
+        assertThat(parse(comment + "<!DOCTYPE a SYSTEM 'a.dtd'><a/>")).isEqualTo(
+                "<?xml version=\"1.0\"?>" + comment + "<!DOCTYPE a SYSTEM \"a.dtd\"><a/>");
+    }
+
+    /**
+     * Tests that the parser rejects a document type declaration with an internal subset that is
+     * not detected by {@link XmlParserInput#create(InputStream, String)}, instead of ignoring the
+     * declarations it contains.
+     */
+    @Test
+    public void testLateInternalSubset() throws Exception {
+        String comment = "<!--" + repeat('x', 600) + "-->";
+        try {
+            parse(comment + "<!DOCTYPE a [<!ENTITY e 'value'>]><a>&e;</a>");
+            fail("Expected StreamException");
+        } catch (StreamException ex) {
+            assertThat(ex.getMessage()).contains("internal subset not supported by the native parser");
+        }
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder buffer = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            buffer.append(c);
+        }
+        return buffer.toString();
+    }
+}
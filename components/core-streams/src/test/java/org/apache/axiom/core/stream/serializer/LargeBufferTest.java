@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.core.stream.serializer;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+
+import org.apache.axiom.core.stream.c14n.C14NAlgorithm;
+import org.apache.axiom.core.stream.c14n.C14NSerializer;
+import org.apache.axiom.core.stream.serializer.writer.BufferPool;
+import org.apache.axiom.core.stream.source.SourceRange;
+import org.apache.axiom.core.stream.source.SourceText;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the code paths that split character data into chunks of the size of the buffers returned
+ * by the default {@link BufferPool}. These tests only run if that size has been raised above the
+ * default value using {@link BufferPool#BUFFER_SIZE_PROPERTY}; the build does this in a separate
+ * test execution.
+ */
+public class LargeBufferTest {
+    private String text;
+    
+    @Before
+    public void setUp() {
+        int bufferSize = BufferPool.getDefault().getBufferSize();
+        assumeTrue(bufferSize > 4096);
+        StringBuilder buffer = new StringBuilder();
+        for (int i=0; i<bufferSize+1815; i++) {
+            buffer.append((char)('a' + i%26));
+        }
+        text = buffer.toString();
+    }
+    
+    @Test
+    public void testCharacters() throws Exception {
+        StringWriter sw = new StringWriter();
+        Serializer handler = new Serializer(sw);
+        handler.startFragment();
+        handler.startElement("", "test", "");
+        handler.attributesCompleted();
+        handler.processCharacterData(text, false);
+        handler.startComment();
+        handler.processCharacterData(text, false);
+        handler.endComment();
+        handler.endElement();
+        handler.completed();
+        assertThat(sw.toString()).isEqualTo("<test>" + text + "<!--" + text + "--></test>");
+    }
+    
+    @Test
+    public void testCopySourceRange() throws Exception {
+        SourceText sourceText = new SourceText(null);
+        char[] chars = text.toCharArray();
+        sourceText.append(chars, 0, chars.length);
+        SourceRange range = new SourceRange(sourceText, 0);
+        range.setEnd(chars.length);
+        StringWriter sw = new StringWriter();
+        Serializer handler = new Serializer(sw);
+        handler.startFragment();
+        assertThat(handler.copySourceRange(range)).isTrue();
+        handler.completed();
+        assertThat(sw.toString()).isEqualTo(text);
+    }
+    
+    @Test
+    public void testC14N() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        C14NSerializer handler = new C14NSerializer(out, C14NAlgorithm.INCLUSIVE_WITH_COMMENTS, null);
+        handler.startDocument(null, "1.0", null, null);
+        handler.startElement("", "test", "");
+        handler.attributesCompleted();
+        handler.processCharacterData(text + "&", false);
+        handler.startComment();
+        handler.processCharacterData(text, false);
+        handler.endComment();
+        handler.endElement();
+        handler.completed();
+        assertThat(new String(out.toByteArray(), "UTF-8")).isEqualTo(
+                "<test>" + text + "&amp;<!--" + text + "--></test>");
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.core.stream.serializer;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.axiom.core.stream.StreamException;
+import org.apache.axiom.core.stream.XmlReader;
+import org.apache.axiom.core.stream.dom.DOMInput;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+public class PullSerializerTest {
+    private static Document createDocument() throws Exception {
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        Element root = document.createElementNS("urn:test", "p:root");
+        document.appendChild(root);
+        StringBuilder longText = new StringBuilder();
+        for (int i=0; i<5000; i++) {
+            longText.append("text & é€ ");
+        }
+        for (int i=0; i<200; i++) {
+            Element child = document.createElementNS("urn:test", "p:child");
+            child.setAttributeNS(null, "index", String.valueOf(i));
+            child.appendChild(document.createTextNode(i == 100 ? longText.toString() : "value " + i));
+            root.appendChild(child);
+        }
+        return document;
+    }
+
+    private static byte[] serialize(Document document, String encoding) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Serializer serializer = new Serializer(baos, encoding);
+        XmlReader reader = new DOMInput(document, false).createReader(serializer);
+        while (!reader.proceed()) {
+            // Just loop
+        }
+        return baos.toByteArray();
+    }
+
+    private static void testRead(String encoding, int bufferSize, boolean direct) throws Exception {
+        Document document = createDocument();
+        PullSerializer serializer = new PullSerializer(encoding);
+        serializer.setReader(new DOMInput(document, false).createReader(serializer.getHandler()));
+        ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        while (true) {
+            buffer.clear();
+            int c = serializer.read(buffer);
+            if (c == -1) {
+                break;
+            }
+            assertThat(c).isEqualTo(buffer.position());
+            buffer.flip();
+            byte[] b = new byte[c];
+            buffer.get(b);
+            baos.write(b);
+        }
+        assertThat(serializer.isComplete()).isTrue();
+        assertThat(baos.toString(encoding)).isEqualTo(new String(serialize(document, encoding), encoding));
+    }
+
+    @Test
+    public void testTinyBuffer() throws Exception {
+        testRead("UTF-8", 7, false);
+    }
+
+    @Test
+    public void testSmallBuffer() throws Exception {
+        testRead("UTF-8", 100, false);
+    }
+
+    @Test
+    public void testLargeBuffer() throws Exception {
+        testRead("UTF-8", 65536, false);
+    }
+
+    @Test
+    public void testDirectBuffer() throws Exception {
+        testRead("UTF-8", 1000, true);
+    }
+
+    @Test
+    public void testNonASCIICompatibleEncoding() throws Exception {
+        testRead("UTF-16", 1000, false);
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        Document document = createDocument();
+        PullSerializer serializer = new PullSerializer("UTF-8");
+        final XmlReader parent = new DOMInput(document, false).createReader(serializer.getHandler());
+        final boolean[] disposed = new boolean[1];
+        serializer.setReader(new XmlReader() {
+            @Override
+            public boolean proceed() throws StreamException {
+                return parent.proceed();
+            }
+
+            @Override
+            public void dispose() {
+                disposed[0] = true;
+                parent.dispose();
+            }
+        });
+        assertThat(serializer.read(ByteBuffer.allocate(100))).isGreaterThan(0);
+        serializer.close();
+        assertThat(disposed[0]).isTrue();
+        try {
+            serializer.read(ByteBuffer.allocate(100));
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException ex) {
+            // Expected
+        }
+        // Closing the serializer twice must not dispose the reader again
+        disposed[0] = false;
+        serializer.close();
+        assertThat(disposed[0]).isFalse();
+    }
+}
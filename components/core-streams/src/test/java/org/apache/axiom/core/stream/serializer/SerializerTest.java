@@ -21,12 +21,22 @@ package org.apache.axiom.core.stream.serializer;
 import static com.google.common.truth.Truth.assertThat;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
 import java.io.StringWriter;
 
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.axiom.core.stream.CharacterData;
+import org.apache.axiom.core.stream.CharacterDataSink;
 import org.apache.axiom.core.stream.StreamException;
+import org.apache.axiom.core.stream.XmlReader;
+import org.apache.axiom.core.stream.dom.DOMInput;
 import org.apache.commons.io.output.NullOutputStream;
 import org.apache.commons.io.output.NullWriter;
 import org.junit.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
 
 public class SerializerTest {
     @Test
@@ -46,6 +56,63 @@ public class SerializerTest {
      * 
      * @throws Exception
      */
+    @Test
+    public void testLongCharacterDataWithEscapes() throws Exception {
+        StringBuilder text = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i=0; i<1000; i++) {
+            text.append("some text ]]> <\"&> \u00E9\r\t");
+            expected.append("some text ]]&gt; &lt;\"&amp;> \u00E9&#13;\t");
+        }
+        StringWriter sw = new StringWriter();
+        Serializer handler = new Serializer(sw);
+        handler.startFragment();
+        handler.startElement("", "test", "");
+        handler.attributesCompleted();
+        handler.processCharacterData(text.toString(), false);
+        handler.endElement();
+        handler.completed();
+        assertThat(sw.toString()).isEqualTo("<test>" + expected + "</test>");
+    }
+
+    /**
+     * Test that no characters are lost when character data larger than the chunk size used by
+     * {@link Serializer#characters(char[], int, int)} is passed in a single call.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testLongCharArray() throws Exception {
+        final char[] text = new char[10007];
+        for (int i=0; i<text.length; i++) {
+            text[i] = (char)('a' + i%26);
+        }
+        CharacterData data = new CharacterData() {
+            @Override
+            public void writeTo(CharacterDataSink sink) throws IOException {
+                sink.getWriter().write(text);
+            }
+            
+            @Override
+            public void appendTo(StringBuilder buffer) {
+                buffer.append(text);
+            }
+        };
+        StringWriter sw = new StringWriter();
+        Serializer handler = new Serializer(sw);
+        handler.startFragment();
+        handler.startElement("", "test", "");
+        handler.attributesCompleted();
+        handler.processCharacterData(data, false);
+        handler.startComment();
+        handler.processCharacterData(data, false);
+        handler.endComment();
+        handler.endElement();
+        handler.completed();
+        String content = new String(text);
+        assertThat(sw.toString()).isEqualTo("<test>" + content + "<!--" + content + "--></test>");
+    }
+
     @Test
     public void testUnmappableCharacterInCharacterData() throws Exception {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -174,4 +241,59 @@ public class SerializerTest {
             assertThat(sw.toString()).matches("xxx]]&gt;yyy");
         }
     }
+
+    private static String serializeWithIndentation(String xml, int indent) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document document = factory.newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+        StringWriter sw = new StringWriter();
+        Serializer handler = new Serializer(sw);
+        handler.setIndent(indent);
+        XmlReader reader = new DOMInput(document.getDocumentElement(), false).createReader(handler);
+        while (!reader.proceed()) {
+            // Just loop
+        }
+        return sw.toString();
+    }
+
+    @Test
+    public void testIndentation() throws Exception {
+        assertThat(serializeWithIndentation("<a>\n <b><c>x</c></b>  <!--comment--><?pi data?><d/></a>", 2)).isEqualTo(
+                "<a>\n  <b>\n    <c>x</c>\n  </b>\n  <!--comment-->\n  <?pi data?>\n  <d/>\n</a>");
+    }
+
+    @Test
+    public void testIndentationWithMixedContent() throws Exception {
+        assertThat(serializeWithIndentation("<a><b>text <i>it</i> <u>more</u> </b><c><d/></c></a>", 1)).isEqualTo(
+                "<a>\n <b>text <i>it</i> <u>more</u> </b>\n <c>\n  <d/>\n </c>\n</a>");
+    }
+
+    @Test
+    public void testIndentationDeeperThanTable() throws Exception {
+        StringBuilder xml = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i=0; i<40; i++) {
+            if (i > 0) {
+                expected.append('\n');
+                for (int j=0; j<i*8; j++) {
+                    expected.append(' ');
+                }
+            }
+            xml.append("<e>");
+            expected.append("<e>");
+        }
+        expected.append("x");
+        xml.append("x");
+        for (int i=39; i>=0; i--) {
+            xml.append("</e>");
+            expected.append("</e>");
+            if (i > 0) {
+                expected.append('\n');
+                for (int j=0; j<(i-1)*8; j++) {
+                    expected.append(' ');
+                }
+            }
+        }
+        assertThat(serializeWithIndentation(xml.toString(), 8)).isEqualTo(expected.toString());
+    }
 }
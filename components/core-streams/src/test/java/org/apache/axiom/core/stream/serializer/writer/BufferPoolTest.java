@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.core.stream.serializer.writer;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class BufferPoolTest {
+    @Test
+    public void testReuse() {
+        BufferPool pool = new BufferPool(1000);
+        byte[] bytes = pool.getByteArray();
+        char[] chars = pool.getCharArray();
+        assertThat(bytes).hasLength(1000);
+        assertThat(chars).hasLength(1000);
+        pool.release(bytes);
+        pool.release(chars);
+        assertThat(pool.getByteArray()).isSameAs(bytes);
+        assertThat(pool.getCharArray()).isSameAs(chars);
+        assertThat(pool.getByteArray()).isNotSameAs(bytes);
+    }
+
+    @Test
+    public void testWrongSizeIgnored() {
+        BufferPool pool = new BufferPool(1000);
+        byte[] bytes = new byte[500];
+        pool.release(bytes);
+        assertThat(pool.getByteArray()).hasLength(1000);
+    }
+
+    @Test
+    public void testThreadLocal() throws Exception {
+        final BufferPool pool = new BufferPool(1000);
+        byte[] bytes = pool.getByteArray();
+        pool.release(bytes);
+        final AtomicReference<byte[]> other = new AtomicReference<byte[]>();
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                other.set(pool.getByteArray());
+            }
+        };
+        thread.start();
+        thread.join();
+        assertThat(other.get()).isNotSameAs(bytes);
+        assertThat(pool.getByteArray()).isSameAs(bytes);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testBufferSizeTooSmall() {
+        new BufferPool(ByteBufferSink.MIN_BUFFER_SIZE - 1);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.core.stream.serializer.writer;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ByteBufferSinkTest {
+    private static final String TEXT;
+
+    static {
+        StringBuilder buffer = new StringBuilder();
+        for (int i=0; i<2000; i++) {
+            buffer.append("abcé€😀 ");
+        }
+        TEXT = buffer.toString();
+    }
+
+    /**
+     * Sink that allocates a new buffer for each call to {@link #getBuffer()} and records the
+     * buffers it receives.
+     */
+    private static class TestSink implements ByteBufferSink {
+        private final int bufferSize;
+        private final boolean direct;
+        final List<ByteBuffer> buffers = new ArrayList<ByteBuffer>();
+
+        TestSink(int bufferSize, boolean direct) {
+            this.bufferSize = bufferSize;
+            this.direct = direct;
+        }
+
+        @Override
+        public ByteBuffer getBuffer() {
+            ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize);
+            // Use a non zero position to check that the writer respects it
+            buffer.position(3);
+            return buffer;
+        }
+
+        @Override
+        public void write(ByteBuffer buffer) {
+            assertThat(buffer.position()).isEqualTo(3);
+            assertThat(buffer.hasRemaining()).isTrue();
+            buffers.add(buffer);
+        }
+
+        String getContent(String encoding) throws Exception {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            for (ByteBuffer buffer : buffers) {
+                byte[] b = new byte[buffer.remaining()];
+                buffer.get(b);
+                baos.write(b);
+            }
+            return baos.toString(encoding);
+        }
+    }
+
+    private static void testSink(String encoding, int bufferSize, boolean direct) throws Exception {
+        TestSink sink = new TestSink(bufferSize, direct);
+        XmlWriter writer = XmlWriter.create(sink, encoding);
+        writer.write(TEXT);
+        writer.writeName("p", "name");
+        writer.flushBuffer();
+        assertThat(sink.getContent(encoding)).isEqualTo(TEXT + "p:name");
+    }
+
+    @Test
+    public void testSmallHeapBuffers() throws Exception {
+        testSink("UTF-8", ByteBufferSink.MIN_BUFFER_SIZE + 3, false);
+    }
+
+    @Test
+    public void testLargeHeapBuffers() throws Exception {
+        testSink("UTF-8", 100000, false);
+    }
+
+    @Test
+    public void testSmallDirectBuffers() throws Exception {
+        testSink("UTF-8", ByteBufferSink.MIN_BUFFER_SIZE + 3, true);
+    }
+
+    @Test
+    public void testLargeDirectBuffers() throws Exception {
+        testSink("UTF-8", 100000, true);
+    }
+
+    @Test
+    public void testNonASCIICompatibleEncoding() throws Exception {
+        testSink("UTF-16", 1000, false);
+    }
+
+    @Test
+    public void testFlushWithoutData() throws Exception {
+        TestSink sink = new TestSink(1000, false);
+        XmlWriter writer = XmlWriter.create(sink, "UTF-8");
+        writer.flushBuffer();
+        writer.write("test");
+        writer.flushBuffer();
+        writer.flushBuffer();
+        assertThat(sink.buffers).hasSize(1);
+    }
+
+    @Test
+    public void testChannel() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        XmlWriter writer = XmlWriter.create(new ChannelByteBufferSink(Channels.newChannel(baos)), "UTF-8");
+        writer.write(TEXT);
+        writer.flushBuffer();
+        assertThat(baos.toString("UTF-8")).isEqualTo(TEXT);
+    }
+
+    @Test
+    public void testOutputStream() throws Exception {
+        TestSink sink = new TestSink(ByteBufferSink.MIN_BUFFER_SIZE + 3, false);
+        ByteBufferSinkOutputStream out = new ByteBufferSinkOutputStream(sink);
+        out.write('a');
+        out.write("bcdefghijklmnopqrstuvwxyz0123456789abcdefghijklmnopqrstuvwxyz0123456789".getBytes("ASCII"));
+        out.write('!');
+        assertThat(sink.getContent("ASCII")).isEqualTo(
+                "abcdefghijklmnopqrstuvwxyz0123456789abcdefghijklmnopqrstuvwxyz0123456789!");
+    }
+}
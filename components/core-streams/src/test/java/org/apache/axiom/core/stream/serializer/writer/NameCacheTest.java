@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.core.stream.serializer.writer;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Test;
+
+public class NameCacheTest {
+    @Test
+    public void testCacheHit() throws Exception {
+        byte[] bytes = NameCache.UTF8.get("p", "test");
+        assertThat(new String(bytes, "UTF-8")).isEqualTo("p:test");
+        // Use a string that is equal, but not identical
+        assertThat(NameCache.UTF8.get(new String("p"), new String("test"))).isSameAs(bytes);
+    }
+
+    @Test
+    public void testNoPrefix() throws Exception {
+        assertThat(new String(NameCache.UTF8.get("", "élément"), "UTF-8")).isEqualTo("élément");
+    }
+
+    @Test
+    public void testUnmappable() {
+        assertThat(NameCache.ASCII.get("", "élément")).isNull();
+        assertThat(NameCache.ISO_8859_1.get("", "élément")).isNotNull();
+    }
+
+    @Test
+    public void testLongName() {
+        StringBuilder buffer = new StringBuilder();
+        for (int i=0; i<200; i++) {
+            buffer.append('a');
+        }
+        assertThat(NameCache.UTF8.get("", buffer.toString())).isNull();
+    }
+
+    @Test
+    public void testWriteName() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        XmlWriter writer = XmlWriter.create(baos, "UTF-8");
+        for (int i=0; i<2000; i++) {
+            writer.write('<');
+            writer.writeName("ns" + (i % 10), "élément");
+            writer.write('>');
+        }
+        writer.flushBuffer();
+        String result = baos.toString("UTF-8");
+        assertThat(result).startsWith("<ns0:élément><ns1:élément>");
+        assertThat(result).endsWith("<ns9:élément>");
+        assertThat(result.length()).isEqualTo(2000*13);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.core.stream.serializer.writer;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class UTF8XmlWriterTest {
+    private static String generateText(Random random, int length) {
+        StringBuilder buffer = new StringBuilder(length);
+        while (buffer.length() < length) {
+            switch (random.nextInt(8)) {
+                case 0: buffer.append('é'); break;
+                case 1: buffer.append('€'); break;
+                case 2: buffer.appendCodePoint(0x1F600); break;
+                default:
+                    // Mostly ASCII runs of varying length
+                    for (int i=random.nextInt(100); i>0; i--) {
+                        buffer.append((char)(' ' + random.nextInt(95)));
+                    }
+            }
+        }
+        return buffer.toString();
+    }
+
+    @Test
+    public void testWriteString() throws Exception {
+        Random random = new Random(1234);
+        for (int i=0; i<20; i++) {
+            String text = generateText(random, random.nextInt(20000));
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            XmlWriter writer = XmlWriter.create(baos, "UTF-8");
+            writer.write(text);
+            writer.flushBuffer();
+            assertThat(baos.toString("UTF-8")).isEqualTo(text);
+        }
+    }
+
+    @Test
+    public void testWriteCharArray() throws Exception {
+        Random random = new Random(5678);
+        for (int i=0; i<20; i++) {
+            char[] text = generateText(random, random.nextInt(20000)).toCharArray();
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            XmlWriter writer = XmlWriter.create(baos, "UTF-8");
+            // Split the input at arbitrary positions, including between surrogates
+            int pos = 0;
+            while (pos < text.length) {
+                int len = Math.min(text.length-pos, random.nextInt(5000));
+                writer.write(text, pos, len);
+                pos += len;
+            }
+            writer.flushBuffer();
+            assertThat(baos.toString("UTF-8")).isEqualTo(new String(text));
+        }
+    }
+}
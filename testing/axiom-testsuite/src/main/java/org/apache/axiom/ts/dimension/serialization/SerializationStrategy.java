@@ -69,6 +69,8 @@ public abstract class SerializationStrategy extends Multiton implements Dimensio
         return new SerializationStrategy[] {
             new SerializeToOutputStream(true),
             new SerializeToOutputStream(false),
+            new SerializeToReadableByteChannel(true),
+            new SerializeToReadableByteChannel(false),
             new SerializeToWriter(true),
             new SerializeToWriter(false),
             new SerializeToXMLStreamWriter(true),
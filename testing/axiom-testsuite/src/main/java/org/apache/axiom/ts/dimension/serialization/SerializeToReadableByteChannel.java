@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.ts.dimension.serialization;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+import org.apache.axiom.om.OMContainer;
+import org.apache.axiom.om.OMOutputFormat;
+import org.apache.axiom.testutils.suite.MatrixTestCase;
+
+/**
+ * Serializes an {@link OMContainer} using
+ * {@link OMContainer#getReadableByteChannel(OMOutputFormat, boolean)}. A small buffer is used so
+ * that serialization is suspended and resumed many times.
+ */
+public class SerializeToReadableByteChannel extends SerializationStrategy {
+    private final boolean cache;
+    
+    SerializeToReadableByteChannel(boolean cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public void addTestParameters(MatrixTestCase testCase) {
+        testCase.addTestParameter("serializationStrategy", "ReadableByteChannel");
+        testCase.addTestParameter("cache", cache);
+    }
+
+    @Override
+    public XML serialize(OMContainer container) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ReadableByteChannel channel = container.getReadableByteChannel(new OMOutputFormat(), cache);
+        ByteBuffer buffer = ByteBuffer.allocate(100);
+        while (channel.read(buffer) != -1) {
+            baos.write(buffer.array(), 0, buffer.position());
+            buffer.clear();
+        }
+        channel.close();
+        return new XMLAsByteArray(baos.toByteArray());
+    }
+
+    @Override
+    public boolean isPush() {
+        return false;
+    }
+
+    @Override
+    public boolean isCaching() {
+        return cache;
+    }
+
+    @Override
+    public boolean supportsInternalSubset() {
+        return true;
+    }
+}
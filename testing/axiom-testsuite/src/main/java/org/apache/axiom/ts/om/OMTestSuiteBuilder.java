@@ -26,6 +26,7 @@ import javax.xml.namespace.QName;
 
 import org.apache.axiom.om.OMMetaFactory;
 import org.apache.axiom.om.OMNode;
+import org.apache.axiom.om.util.StAXParserConfiguration;
 import org.apache.axiom.testing.multiton.Multiton;
 import org.apache.axiom.testutils.suite.MatrixTestSuiteBuilder;
 import org.apache.axiom.ts.dimension.AddAttributeStrategy;
@@ -123,6 +124,11 @@ public class OMTestSuiteBuilder extends MatrixTestSuiteBuilder {
         addTest(new org.apache.axiom.ts.om.builder.TestCreateOMBuilderFromDOMWithNSUnawareNamespaceDeclaration(metaFactory, "p"));
         addTest(new org.apache.axiom.ts.om.builder.TestCreateOMBuilderFromDOMWithNSUnawarePrefixedAttribute(metaFactory));
         addTest(new org.apache.axiom.ts.om.builder.TestCreateOMBuilderFromDOMWithNSUnawareUnprefixedAttribute(metaFactory));
+        for (XMLSample file : getInstances(XMLSample.class)) {
+            if (!file.hasDTD()) {
+                addTest(new org.apache.axiom.ts.om.builder.TestCreateOMBuilderWithNativeParser(metaFactory, file));
+            }
+        }
         for (XOPSample sample : getInstances(XOPSample.class)) {
             addTest(new org.apache.axiom.ts.om.builder.TestCreateOMBuilderXOP(metaFactory, sample, false));
             addTest(new org.apache.axiom.ts.om.builder.TestCreateOMBuilderXOP(metaFactory, sample, true));
@@ -155,6 +161,8 @@ public class OMTestSuiteBuilder extends MatrixTestSuiteBuilder {
         addTest(new org.apache.axiom.ts.om.builder.TestRegisterCustomBuilderForPayloadJAXBWithXOP(metaFactory));
         addTest(new org.apache.axiom.ts.om.builder.TestRootPartStreaming(metaFactory));
         addTest(new org.apache.axiom.ts.om.builder.TestStandaloneConfiguration(metaFactory));
+        addTest(new org.apache.axiom.ts.om.builder.TestSymbolTable(metaFactory, StAXParserConfiguration.DEFAULT));
+        addTest(new org.apache.axiom.ts.om.builder.TestSymbolTable(metaFactory, StAXParserConfiguration.NATIVE));
         addTest(new org.apache.axiom.ts.om.comment.TestSerialize(metaFactory));
         for (XMLSample file : getInstances(XMLSample.class)) {
             for (OMContainerExtractor ce : getInstances(OMContainerExtractor.class)) {
@@ -193,6 +201,8 @@ public class OMTestSuiteBuilder extends MatrixTestSuiteBuilder {
         addTest(new org.apache.axiom.ts.om.document.TestDigest(metaFactory, "digest2.xml", "SHA1", "3c47a807517d867d42ffacb2d3e9da81895d5aac"));
         addTest(new org.apache.axiom.ts.om.document.TestDigest(metaFactory, "digest3.xml", "SHA", "41466144c1cab4234fb127cfb8cf92f9"));
         addTest(new org.apache.axiom.ts.om.document.TestDigest(metaFactory, "digest4.xml", "SHA", "be3b0836cd6f0ceacdf3d40b49a0468d03d2ba2e"));
+        addTest(new org.apache.axiom.ts.om.document.TestDigestParallel(metaFactory, "digest1.xml", "MD5", "3e5d68c6607bc56c9c171560e4f19db9"));
+        addTest(new org.apache.axiom.ts.om.document.TestDigestParallel(metaFactory, "digest2.xml", "SHA1", "3c47a807517d867d42ffacb2d3e9da81895d5aac"));
         addTest(new org.apache.axiom.ts.om.document.TestGetOMDocumentElement(metaFactory));
         addTest(new org.apache.axiom.ts.om.document.TestGetOMDocumentElementAfterDetach(metaFactory));
         addTest(new org.apache.axiom.ts.om.document.TestGetOMDocumentElementWithParser(metaFactory));
@@ -223,6 +233,9 @@ public class OMTestSuiteBuilder extends MatrixTestSuiteBuilder {
         addTest(new org.apache.axiom.ts.om.document.TestSerializeWithIgnoreXMLDeclaration(metaFactory));
         addTest(new org.apache.axiom.ts.om.document.TestSerializeXML11(metaFactory));
         addTest(new org.apache.axiom.ts.om.document.TestSerializeXMLDeclaration(metaFactory));
+        addTest(new org.apache.axiom.ts.om.document.TestSerializeWithSourceRetention(metaFactory));
+        addTest(new org.apache.axiom.ts.om.document.TestSerializeModifiedWithSourceRetention(metaFactory));
+        addTest(new org.apache.axiom.ts.om.document.TestSerializeWithSourceRetentionAfterNamespaceChange(metaFactory));
         addTest(new org.apache.axiom.ts.om.document.TestSetOMDocumentElementNew(metaFactory));
         addTest(new org.apache.axiom.ts.om.document.TestSetOMDocumentElementNull(metaFactory));
         addTest(new org.apache.axiom.ts.om.document.TestSetOMDocumentElementReplace(metaFactory));
@@ -379,6 +392,7 @@ public class OMTestSuiteBuilder extends MatrixTestSuiteBuilder {
         addTest(new org.apache.axiom.ts.om.element.TestGetXMLStreamReaderWithPreserveNamespaceContext(metaFactory, false, true));
         addTest(new org.apache.axiom.ts.om.element.TestGetXMLStreamReaderWithPreserveNamespaceContext(metaFactory, false, false));
         addTest(new org.apache.axiom.ts.om.element.TestGetXMLStreamReaderWithPreserveNamespaceContext2(metaFactory));
+        addTest(new org.apache.axiom.ts.om.element.TestGetReadableByteChannelClose(metaFactory));
         addTest(new org.apache.axiom.ts.om.element.TestHasNameWithNamespace(metaFactory));
         addTest(new org.apache.axiom.ts.om.element.TestHasNameWithoutNamespace(metaFactory));
         addTest(new org.apache.axiom.ts.om.element.TestIsCompleteAfterAddingIncompleteChild(metaFactory));
@@ -414,6 +428,9 @@ public class OMTestSuiteBuilder extends MatrixTestSuiteBuilder {
         addTest(new org.apache.axiom.ts.om.element.TestSerializeAndConsumeConsumed(metaFactory));
         addTest(new org.apache.axiom.ts.om.element.TestSerializeAndConsumePartiallyBuilt(metaFactory));
         addTest(new org.apache.axiom.ts.om.element.TestSerializeAndConsumeWithIncompleteDescendant(metaFactory));
+        addTest(new org.apache.axiom.ts.om.element.TestSerializeTruncated(metaFactory));
+        addTest(new org.apache.axiom.ts.om.element.TestSerializeTruncatedBelowLimit(metaFactory));
+        addTest(new org.apache.axiom.ts.om.element.TestSerializeTruncatedNegativeLength(metaFactory));
         for (int i=0; i<3; i++) {
             Boolean declare = i == 0 ? null : Boolean.valueOf(i==2);
             boolean implicitDeclare = declare == null || declare.booleanValue();
@@ -635,6 +652,11 @@ public class OMTestSuiteBuilder extends MatrixTestSuiteBuilder {
         addTest(new org.apache.axiom.ts.om.sourcedelement.TestSetLocalName(metaFactory, false));
         addTest(new org.apache.axiom.ts.om.sourcedelement.TestSetLocalName(metaFactory, true));
         addTest(new org.apache.axiom.ts.om.sourcedelement.TestWrappedTextNodeOMDataSourceFromReader(metaFactory));
+        for (XMLSample file : getInstances(XMLSample.class)) {
+            if (!file.hasDTD()) {
+                addTest(new org.apache.axiom.ts.om.sourcedelement.TestCompactOMDataSource(metaFactory, file));
+            }
+        }
         addTest(new org.apache.axiom.ts.om.sourcedelement.TestWriteTextToWithNonDestructiveOMDataSource(metaFactory));
         addTest(new org.apache.axiom.ts.om.sourcedelement.jaxb.TestDataHandlerExpansion(metaFactory));
         addTest(new org.apache.axiom.ts.om.sourcedelement.jaxb.TestDataHandlerSerializationWithMTOM(metaFactory));
@@ -674,5 +696,8 @@ public class OMTestSuiteBuilder extends MatrixTestSuiteBuilder {
         addTest(new org.apache.axiom.ts.om.xpath.TestAddNamespaces(metaFactory));
         addTest(new org.apache.axiom.ts.om.xpath.TestAddNamespaces2(metaFactory));
         addTest(new org.apache.axiom.ts.om.xpath.TestGetAttributeQName(metaFactory));
+        addTest(new org.apache.axiom.ts.om.xpath.TestGetCachedInstance(metaFactory));
+        addTest(new org.apache.axiom.ts.om.xpath.TestNamedAccess(metaFactory));
+        addTest(new org.apache.axiom.ts.om.xpath.TestStreamingXPath(metaFactory));
     }
 }
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.ts.om.builder;
+
+import static com.google.common.truth.Truth.assertAbout;
+import static org.apache.axiom.truth.xml.XMLTruth.xml;
+
+import java.io.InputStream;
+
+import org.apache.axiom.om.OMDocument;
+import org.apache.axiom.om.OMMetaFactory;
+import org.apache.axiom.om.OMXMLBuilderFactory;
+import org.apache.axiom.om.util.StAXParserConfiguration;
+import org.apache.axiom.ts.ConformanceTestCase;
+import org.apache.axiom.ts.om.XMLSampleAdapter;
+import org.apache.axiom.ts.xml.XMLSample;
+
+/**
+ * Tests that a document built using {@link StAXParserConfiguration#NATIVE} has the same content
+ * as the document built using the StAX parser. This test is only used with samples that have no
+ * document type declaration, since the builder would otherwise fall back to the StAX parser.
+ */
+public class TestCreateOMBuilderWithNativeParser extends ConformanceTestCase {
+    public TestCreateOMBuilderWithNativeParser(OMMetaFactory metaFactory, XMLSample file) {
+        super(metaFactory, file);
+    }
+
+    @Override
+    protected void runTest() throws Throwable {
+        InputStream in = file.getInputStream();
+        try {
+            OMDocument document = OMXMLBuilderFactory.createOMBuilder(metaFactory.getOMFactory(),
+                    StAXParserConfiguration.NATIVE, in).getDocument();
+            assertAbout(xml())
+                    .that(xml(OMDocument.class, document))
+                    .ignoringWhitespaceInPrologAndEpilog()
+                    .hasSameContentAs(xml(OMDocument.class, file.getAdapter(XMLSampleAdapter.class).getDocument(metaFactory)));
+        } finally {
+            in.close();
+        }
+    }
+}
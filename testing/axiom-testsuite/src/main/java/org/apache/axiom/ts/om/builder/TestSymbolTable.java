@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.ts.om.builder;
+
+import java.io.ByteArrayInputStream;
+import java.util.Iterator;
+
+import org.apache.axiom.om.OMAttribute;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMMetaFactory;
+import org.apache.axiom.om.OMXMLBuilderFactory;
+import org.apache.axiom.om.util.StAXParserConfiguration;
+import org.apache.axiom.om.util.SymbolTable;
+import org.apache.axiom.om.util.SymbolTableParserConfiguration;
+import org.apache.axiom.ts.AxiomTestCase;
+
+/**
+ * Tests that the builder canonicalizes names and namespace URIs, i.e. that elements and attributes
+ * with the same name share the same {@link String} instances, within a document and, if a
+ * {@link SymbolTableParserConfiguration} is used, across documents.
+ */
+public class TestSymbolTable extends AxiomTestCase {
+    private final StAXParserConfiguration configuration;
+
+    public TestSymbolTable(OMMetaFactory metaFactory, StAXParserConfiguration configuration) {
+        super(metaFactory);
+        this.configuration = configuration;
+        addTestParameter("configuration", configuration.toString());
+    }
+
+    private OMElement parse(StAXParserConfiguration configuration) throws Exception {
+        byte[] content = "<root xmlns='urn:test'><child attr='1'/><child attr='2'/></root>".getBytes("UTF-8");
+        return OMXMLBuilderFactory.createOMBuilder(metaFactory.getOMFactory(), configuration,
+                new ByteArrayInputStream(content)).getDocumentElement();
+    }
+
+    private static OMAttribute getAttribute(OMElement element) {
+        Iterator<OMAttribute> it = element.getAllAttributes();
+        return it.next();
+    }
+
+    @Override
+    protected void runTest() throws Throwable {
+        OMElement root = parse(configuration);
+        OMElement child1 = root.getFirstElement();
+        OMElement child2 = (OMElement)child1.getNextOMSibling();
+        assertSame(child1.getLocalName(), child2.getLocalName());
+        assertSame(child1.getNamespaceURI(), child2.getNamespaceURI());
+        assertSame(getAttribute(child1).getLocalName(), getAttribute(child2).getLocalName());
+
+        SymbolTable symbolTable = new SymbolTable();
+        OMElement element1 = parse(new SymbolTableParserConfiguration(configuration, symbolTable)).getFirstElement();
+        OMElement element2 = parse(new SymbolTableParserConfiguration(configuration, symbolTable)).getFirstElement();
+        assertSame(element1.getLocalName(), element2.getLocalName());
+        assertSame(element1.getNamespaceURI(), element2.getNamespaceURI());
+        assertSame(getAttribute(element1).getLocalName(), getAttribute(element2).getLocalName());
+    }
+}
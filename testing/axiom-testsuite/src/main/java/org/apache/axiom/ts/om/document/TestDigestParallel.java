@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.ts.om.document;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.axiom.om.OMMetaFactory;
+import org.apache.axiom.om.util.DigestGenerator;
+
+/**
+ * Tests that {@link DigestGenerator} produces the same result when the digests of subtrees are
+ * computed in parallel. The threshold is chosen such that every element is processed by a
+ * separate task.
+ */
+public class TestDigestParallel extends TestDigest {
+    private ForkJoinPool pool;
+    
+    public TestDigestParallel(OMMetaFactory metaFactory, String file,
+            String algorithm, String expectedDigest) {
+        super(metaFactory, file, algorithm, expectedDigest);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        pool = new ForkJoinPool(4);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        pool.shutdown();
+        super.tearDown();
+    }
+
+    @Override
+    protected DigestGenerator createDigestGenerator() {
+        return new DigestGenerator(pool, 1);
+    }
+}
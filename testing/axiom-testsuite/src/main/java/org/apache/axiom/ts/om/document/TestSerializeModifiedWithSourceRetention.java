@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.ts.om.document;
+
+import static com.google.common.truth.Truth.assertAbout;
+import static com.google.common.truth.Truth.assertThat;
+import static org.apache.axiom.truth.xml.XMLTruth.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import javax.xml.namespace.QName;
+
+import org.apache.axiom.om.OMDocument;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMMetaFactory;
+import org.apache.axiom.om.OMXMLBuilderFactory;
+import org.apache.axiom.om.util.SourceRetainingParserConfiguration;
+import org.apache.axiom.om.util.StAXParserConfiguration;
+import org.apache.axiom.ts.AxiomTestCase;
+
+/**
+ * Tests that if a document parsed with {@link SourceRetainingParserConfiguration} is modified,
+ * then the modification is reflected in the serialized document, while unmodified siblings of
+ * the modified element are still copied from the input.
+ */
+public class TestSerializeModifiedWithSourceRetention extends AxiomTestCase {
+    public TestSerializeModifiedWithSourceRetention(OMMetaFactory metaFactory) {
+        super(metaFactory);
+    }
+
+    @Override
+    protected void runTest() throws Throwable {
+        OMDocument document = OMXMLBuilderFactory.createOMBuilder(
+                metaFactory.getOMFactory(),
+                new SourceRetainingParserConfiguration(StAXParserConfiguration.DEFAULT),
+                new ByteArrayInputStream("<root xmlns:p='urn:p'><p:a  x = 'v'>text</p:a><b><c/></b></root>".getBytes("UTF-8"))).getDocument();
+        OMElement b = document.getOMDocumentElement().getFirstChildWithName(new QName("b"));
+        b.addAttribute("y", "z", null);
+        b.getFirstElement().setText("new");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        document.serialize(out);
+        String result = out.toString("UTF-8");
+        assertAbout(xml())
+                .that(result)
+                .hasSameContentAs("<root xmlns:p='urn:p'><p:a x='v'>text</p:a><b y='z'><c>new</c></b></root>");
+        assertThat(result).contains("<p:a  x = 'v'>text</p:a>");
+    }
+}
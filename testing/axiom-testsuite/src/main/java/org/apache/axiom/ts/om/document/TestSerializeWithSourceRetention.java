@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.ts.om.document;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.apache.axiom.om.OMDocument;
+import org.apache.axiom.om.OMMetaFactory;
+import org.apache.axiom.om.OMXMLBuilderFactory;
+import org.apache.axiom.om.util.SourceRetainingParserConfiguration;
+import org.apache.axiom.om.util.StAXParserConfiguration;
+import org.apache.axiom.ts.AxiomTestCase;
+
+/**
+ * Tests that if a document is parsed with {@link SourceRetainingParserConfiguration} and is
+ * serialized without modifications, the markup of the document element is copied verbatim from
+ * the input, i.e. that line endings, attribute quotes and whitespace in tags are preserved.
+ */
+public class TestSerializeWithSourceRetention extends AxiomTestCase {
+    public TestSerializeWithSourceRetention(OMMetaFactory metaFactory) {
+        super(metaFactory);
+    }
+
+    @Override
+    protected void runTest() throws Throwable {
+        String root = "<root xmlns:p='urn:p'>\r\n  <p:a  x = 'v'>text</p:a>\r\n  <b/><!-- c -->\r\n</root>";
+        OMDocument document = OMXMLBuilderFactory.createOMBuilder(
+                metaFactory.getOMFactory(),
+                new SourceRetainingParserConfiguration(StAXParserConfiguration.DEFAULT),
+                new ByteArrayInputStream(("<?xml version='1.0' encoding='UTF-8'?>\r\n" + root).getBytes("UTF-8"))).getDocument();
+        // Partially build the document
+        document.getOMDocumentElement();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        document.serialize(out);
+        assertThat(out.toString("UTF-8")).endsWith(root);
+    }
+}
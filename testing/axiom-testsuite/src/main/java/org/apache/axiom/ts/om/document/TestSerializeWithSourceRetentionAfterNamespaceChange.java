@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.ts.om.document;
+
+import static com.google.common.truth.Truth.assertAbout;
+import static org.apache.axiom.truth.xml.XMLTruth.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Iterator;
+
+import org.apache.axiom.om.OMDocument;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMMetaFactory;
+import org.apache.axiom.om.OMNamespace;
+import org.apache.axiom.om.OMXMLBuilderFactory;
+import org.apache.axiom.om.util.SourceRetainingParserConfiguration;
+import org.apache.axiom.om.util.StAXParserConfiguration;
+import org.apache.axiom.ts.AxiomTestCase;
+
+/**
+ * Tests that an element parsed with {@link SourceRetainingParserConfiguration} is not copied
+ * from the input if the namespace declarations of its parent have changed, since the original
+ * markup of the element depends on these declarations.
+ */
+public class TestSerializeWithSourceRetentionAfterNamespaceChange extends AxiomTestCase {
+    public TestSerializeWithSourceRetentionAfterNamespaceChange(OMMetaFactory metaFactory) {
+        super(metaFactory);
+    }
+
+    @Override
+    protected void runTest() throws Throwable {
+        OMDocument document = OMXMLBuilderFactory.createOMBuilder(
+                metaFactory.getOMFactory(),
+                new SourceRetainingParserConfiguration(StAXParserConfiguration.DEFAULT),
+                new ByteArrayInputStream("<root xmlns:p='urn:p'><p:a><p:b/></p:a></root>".getBytes("UTF-8"))).getDocument();
+        OMElement root = document.getOMDocumentElement();
+        root.build();
+        for (Iterator<OMNamespace> it = root.getAllDeclaredNamespaces(); it.hasNext(); ) {
+            it.next();
+            it.remove();
+        }
+        root.declareNamespace("urn:other", "p");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        document.serialize(out);
+        assertAbout(xml())
+                .that(out.toString("UTF-8"))
+                .hasSameContentAs("<root xmlns:p='urn:other'><p:a xmlns:p='urn:p'><p:b/></p:a></root>");
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.ts.om.element;
+
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMMetaFactory;
+import org.apache.axiom.om.OMOutputFormat;
+import org.apache.axiom.om.OMXMLBuilderFactory;
+import org.apache.axiom.ts.AxiomTestCase;
+
+/**
+ * Tests that a channel returned by
+ * {@link OMElement#getReadableByteChannel(OMOutputFormat, boolean)} can be closed before the
+ * element has been completely serialized, and that the element remains usable afterwards.
+ */
+public class TestGetReadableByteChannelClose extends AxiomTestCase {
+    public TestGetReadableByteChannelClose(OMMetaFactory metaFactory) {
+        super(metaFactory);
+    }
+
+    @Override
+    protected void runTest() throws Throwable {
+        StringBuilder buffer = new StringBuilder("<root>");
+        for (int i=0; i<500; i++) {
+            buffer.append("<child>value ").append(i).append("</child>");
+        }
+        buffer.append("</root>");
+        String xml = buffer.toString();
+        OMElement root = OMXMLBuilderFactory.createOMBuilder(metaFactory.getOMFactory(),
+                new StringReader(xml)).getDocumentElement();
+        ReadableByteChannel channel = root.getReadableByteChannel(new OMOutputFormat(), true);
+        assertTrue(channel.read(ByteBuffer.allocate(100)) > 0);
+        channel.close();
+        assertFalse(channel.isOpen());
+        try {
+            channel.read(ByteBuffer.allocate(100));
+            fail("Expected ClosedChannelException");
+        } catch (ClosedChannelException ex) {
+            // Expected
+        }
+        channel.close();
+        assertEquals(xml, root.toString());
+    }
+}
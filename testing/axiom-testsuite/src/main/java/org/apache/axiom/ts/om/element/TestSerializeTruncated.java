@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.ts.om.element;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMMetaFactory;
+import org.apache.axiom.om.OMOutputFormat;
+import org.apache.axiom.om.OMXMLBuilderFactory;
+import org.apache.axiom.ts.AxiomTestCase;
+
+/**
+ * Tests that {@link OMElement#serializeTruncated(java.io.Writer, OMOutputFormat, int)} stops at the
+ * given limit and doesn't build the part of the tree that is not needed.
+ */
+public class TestSerializeTruncated extends AxiomTestCase {
+    public TestSerializeTruncated(OMMetaFactory metaFactory) {
+        super(metaFactory);
+    }
+
+    @Override
+    protected void runTest() throws Throwable {
+        StringBuilder xml = new StringBuilder("<root>");
+        for (int i=0; i<1000; i++) {
+            xml.append("<child>text").append(i).append("</child>");
+        }
+        xml.append("</root>");
+        
+        OMElement root = OMXMLBuilderFactory.createOMBuilder(metaFactory.getOMFactory(),
+                new StringReader(xml.toString())).getDocumentElement();
+        
+        StringWriter out = new StringWriter();
+        assertTrue(root.serializeTruncated(out, new OMOutputFormat(), 100));
+        assertEquals(xml.substring(0, 100), out.toString());
+        assertFalse(root.isComplete());
+        
+        // The element must not have been consumed
+        out = new StringWriter();
+        root.serialize(out);
+        assertEquals(xml.toString(), out.toString());
+    }
+}
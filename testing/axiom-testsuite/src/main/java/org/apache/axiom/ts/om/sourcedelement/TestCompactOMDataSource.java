@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.ts.om.sourcedelement;
+
+import static com.google.common.truth.Truth.assertAbout;
+import static org.apache.axiom.truth.xml.XMLTruth.xml;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMMetaFactory;
+import org.apache.axiom.om.OMSourcedElement;
+import org.apache.axiom.om.OMXMLBuilderFactory;
+import org.apache.axiom.om.ds.CompactOMDataSource;
+import org.apache.axiom.ts.ConformanceTestCase;
+import org.apache.axiom.ts.om.XMLSampleAdapter;
+import org.apache.axiom.ts.xml.XMLSample;
+
+/**
+ * Tests that an {@link OMSourcedElement} backed by a {@link CompactOMDataSource} can be serialized
+ * without expansion and has the same content as the element the data source was created from.
+ * This test is only used with samples that have no document type declaration, since the data
+ * source only stores the document element.
+ */
+public class TestCompactOMDataSource extends ConformanceTestCase {
+    public TestCompactOMDataSource(OMMetaFactory metaFactory, XMLSample file) {
+        super(metaFactory, file);
+    }
+
+    @Override
+    protected void runTest() throws Throwable {
+        OMElement original = file.getAdapter(XMLSampleAdapter.class).getDocumentElement(metaFactory);
+        CompactOMDataSource ds = CompactOMDataSource.create(original);
+        OMSourcedElement element = ds.createOMElement(metaFactory.getOMFactory());
+        StringWriter out = new StringWriter();
+        element.serialize(out);
+        assertFalse(element.isExpanded());
+        assertAbout(xml())
+                .that(xml(OMElement.class, OMXMLBuilderFactory.createOMBuilder(
+                        metaFactory.getOMFactory(), new StringReader(out.toString())).getDocumentElement()))
+                .hasSameContentAs(xml(OMElement.class, original));
+        element.getFirstOMChild();
+        assertTrue(element.isExpanded());
+        assertAbout(xml())
+                .that(xml(OMElement.class, element))
+                .hasSameContentAs(xml(OMElement.class, original));
+    }
+}
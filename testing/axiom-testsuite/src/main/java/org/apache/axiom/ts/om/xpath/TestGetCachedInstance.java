@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.ts.om.xpath;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMFactory;
+import org.apache.axiom.om.OMMetaFactory;
+import org.apache.axiom.om.OMNamespace;
+import org.apache.axiom.om.xpath.AXIOMXPath;
+import org.apache.axiom.ts.AxiomTestCase;
+
+/**
+ * Tests {@link AXIOMXPath#getCachedInstance(String, Map)}.
+ */
+public class TestGetCachedInstance extends AxiomTestCase {
+    public TestGetCachedInstance(OMMetaFactory metaFactory) {
+        super(metaFactory);
+    }
+
+    @Override
+    protected void runTest() throws Throwable {
+        OMFactory factory = metaFactory.getOMFactory();
+        OMNamespace ns = factory.createOMNamespace("urn:test", "p");
+        OMElement root = factory.createOMElement("root", ns);
+        factory.createOMElement("child", ns, root).setText("value");
+        
+        Map<String,String> namespaces = new HashMap<String,String>();
+        namespaces.put("q", "urn:test");
+        AXIOMXPath xpath = AXIOMXPath.getCachedInstance("q:child", namespaces);
+        assertEquals("value", xpath.stringValueOf(root));
+        // Changing the map must not affect the cached instance
+        namespaces.put("q", "urn:other");
+        assertEquals("value", xpath.stringValueOf(root));
+        
+        Map<String,String> namespaces2 = new HashMap<String,String>();
+        namespaces2.put("q", "urn:test");
+        assertSame(xpath, AXIOMXPath.getCachedInstance("q:child", namespaces2));
+        assertNotSame(xpath, AXIOMXPath.getCachedInstance("q:child", namespaces));
+        assertNotSame(xpath, AXIOMXPath.getCachedInstance("q:child/text()", namespaces2));
+        
+        try {
+            xpath.addNamespace("r", "urn:other");
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException ex) {
+            // Expected
+        }
+    }
+}
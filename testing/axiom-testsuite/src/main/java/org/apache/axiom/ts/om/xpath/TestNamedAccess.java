@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.ts.om.xpath;
+
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMFactory;
+import org.apache.axiom.om.OMMetaFactory;
+import org.apache.axiom.om.OMNamespace;
+import org.apache.axiom.om.xpath.AXIOMXPath;
+import org.apache.axiom.om.xpath.DocumentNavigator;
+import org.apache.axiom.ts.AxiomTestCase;
+
+/**
+ * Tests that name tests on the child and attribute axes, which Jaxen evaluates using the methods
+ * defined by {@link org.jaxen.NamedAccessNavigator}, select the correct nodes when
+ * {@link DocumentNavigator} is used.
+ */
+public class TestNamedAccess extends AxiomTestCase {
+    public TestNamedAccess(OMMetaFactory metaFactory) {
+        super(metaFactory);
+    }
+
+    @Override
+    protected void runTest() throws Throwable {
+        OMFactory factory = metaFactory.getOMFactory();
+        OMNamespace ns = factory.createOMNamespace("urn:test", "p");
+        OMElement root = factory.createOMElement("root", null);
+        factory.createOMElement("a", null, root).setText("1");
+        OMElement a2 = factory.createOMElement("a", ns, root);
+        a2.setText("2");
+        a2.addAttribute("att", "x", null);
+        a2.addAttribute("att", "y", ns);
+        factory.createOMElement("b", null, root).setText("3");
+        factory.createOMElement("a", null, root).setText("4");
+        
+        AXIOMXPath xpath = new AXIOMXPath("count(a)");
+        assertEquals(2, xpath.numberValueOf(root).intValue());
+        xpath = new AXIOMXPath("a[2]");
+        assertEquals("4", xpath.stringValueOf(root));
+        xpath = new AXIOMXPath("q:a");
+        xpath.addNamespace("q", "urn:test");
+        assertEquals("2", xpath.stringValueOf(root));
+        xpath = new AXIOMXPath("q:a/@att");
+        xpath.addNamespace("q", "urn:test");
+        assertEquals("x", xpath.stringValueOf(root));
+        xpath = new AXIOMXPath("q:a/@q:att");
+        xpath.addNamespace("q", "urn:test");
+        assertEquals("y", xpath.stringValueOf(root));
+        assertEquals(0, new AXIOMXPath("count(a/@att)").numberValueOf(root).intValue());
+        assertEquals(0, new AXIOMXPath("count(c)").numberValueOf(root).intValue());
+    }
+}
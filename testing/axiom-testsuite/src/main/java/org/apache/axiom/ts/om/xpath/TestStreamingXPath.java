@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axiom.ts.om.xpath;
+
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMMetaFactory;
+import org.apache.axiom.om.OMXMLBuilderFactory;
+import org.apache.axiom.om.OMXMLParserWrapper;
+import org.apache.axiom.om.xpath.StreamingXPath;
+import org.apache.axiom.ts.AxiomTestCase;
+
+/**
+ * Tests {@link StreamingXPath#evaluate(OMXMLParserWrapper)}.
+ */
+public class TestStreamingXPath extends AxiomTestCase {
+    private static final String XML = "<s:Envelope xmlns:s='urn:env' xmlns:a='urn:wsa'>"
+            + "<s:Header><a:To>urn:to</a:To><a:Action>urn:action</a:Action></s:Header>"
+            + "<s:Body><o:op xmlns:o='urn:op' id='42'><o:p>a<!--c-->b</o:p></o:op></s:Body>"
+            + "</s:Envelope>";
+    
+    public TestStreamingXPath(OMMetaFactory metaFactory) {
+        super(metaFactory);
+    }
+
+    private OMXMLParserWrapper createBuilder() {
+        return OMXMLBuilderFactory.createOMBuilder(metaFactory.getOMFactory(), new StringReader(XML));
+    }
+    
+    @Override
+    protected void runTest() throws Throwable {
+        Map<String,String> namespaces = new HashMap<String,String>();
+        namespaces.put("s", "urn:env");
+        namespaces.put("a", "urn:wsa");
+        namespaces.put("o", "urn:op");
+        
+        OMXMLParserWrapper builder = createBuilder();
+        assertEquals("urn:action", new StreamingXPath(
+                "/s:Envelope/s:Header[1]/*[local-name()='Action']", namespaces).evaluate(builder));
+        // The positional predicate allows the evaluation to stop before the body is parsed
+        assertFalse(builder.isCompleted());
+        // The builder must still be able to build the rest of the document
+        OMElement op = (OMElement)builder.getDocumentElement().getFirstChildWithName(
+                new QName("urn:env", "Body")).getFirstOMChild();
+        assertEquals(new QName("urn:op", "op"), op.getQName());
+        assertEquals("42", op.getAttributeValue(new QName("id")));
+        builder.getDocument().build();
+        assertTrue(builder.isCompleted());
+        
+        assertEquals("42", new StreamingXPath("//o:op/@id", namespaces).evaluate(createBuilder()));
+        assertEquals("a", new StreamingXPath("/s:Envelope/s:Body/*/o:p/text()", namespaces).evaluate(createBuilder()));
+        assertEquals("ab", new StreamingXPath("/s:Envelope/s:Body/o:op", namespaces).evaluate(createBuilder()));
+        assertEquals("urn:to", new StreamingXPath("//a:*[1]", namespaces).evaluate(createBuilder()));
+        assertEquals("urn:to", new StreamingXPath("/*/*/*").evaluate(createBuilder()));
+        assertNull(new StreamingXPath("/s:Envelope/s:Missing", namespaces).evaluate(createBuilder()));
+        
+        builder = createBuilder();
+        builder.getDocumentElement().getFirstElement();
+        try {
+            new StreamingXPath("/*").evaluate(builder);
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException ex) {
+            // Expected
+        }
+        
+        // Position predicates are evaluated relative to the parent, which is only correct for the
+        // abbreviated descendant axis
+        String xml = "<r><x><b>1</b></x><b>2</b></r>";
+        assertNull(new StreamingXPath("//b[2]").evaluate(OMXMLBuilderFactory.createOMBuilder(
+                metaFactory.getOMFactory(), new StringReader(xml))));
+        assertEquals("1", new StreamingXPath("/r/descendant::b").evaluate(OMXMLBuilderFactory.createOMBuilder(
+                metaFactory.getOMFactory(), new StringReader(xml))));
+        try {
+            new StreamingXPath("/r/descendant::b[2]");
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // Expected
+        }
+        
+        try {
+            new StreamingXPath("/r/descendant-or-self::b");
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage().startsWith("Unsupported axis 'descendant-or-self'"));
+        }
+    }
+}